@@ -0,0 +1,84 @@
+package com.hospital.backend.chatbot.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compara el análisis de consultas del chatbot con {@link SpanishTextAnalyzer} contra el anterior
+ * (dos replaceAll, split por espacios y orden por longitud).
+ *
+ * Ejecutar con: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=TextAnalysisBenchmark
+ * Para ver la memoria asignada por operación agregar "-prof gc" a los argumentos de JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextAnalysisBenchmark {
+
+    private static final int MAX_KEYWORDS = 5;
+
+    @Param({
+            "¿Horario?",
+            "¿Cuál es el horario de atención del área de Cardiología los sábados?",
+            "Hola, quisiera saber cómo puedo reprogramar mi cita con el traumatólogo, "
+                    + "porque el lunes no podré asistir; además, ¿aceptan pagos con tarjeta o sólo efectivo?"
+    })
+    public String query;
+
+    @Benchmark
+    public List<String> regexPipeline() {
+        return extractKeywords(prepareText(query));
+    }
+
+    @Benchmark
+    public List<String> analyzer() {
+        return SpanishTextAnalyzer.analyze(query);
+    }
+
+    @Benchmark
+    public List<String> searchTerms() {
+        return SpanishTextAnalyzer.searchTerms(query);
+    }
+
+    // Implementación anterior de ChatbotService, copiada sin cambios como referencia
+
+    private static String prepareText(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.toLowerCase()
+                .replaceAll("[^a-záéíóúüñ0-9\\s]", " ")
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static List<String> extractKeywords(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String[] words = text.split("\\s+");
+        List<String> keywords = Arrays.stream(words)
+                .filter(word -> word.length() > 3)
+                .sorted((a, b) -> Integer.compare(b.length(), a.length()))
+                .limit(MAX_KEYWORDS)
+                .collect(Collectors.toList());
+        return keywords.isEmpty() ? Arrays.asList(words).subList(0, Math.min(MAX_KEYWORDS, words.length)) : keywords;
+    }
+}
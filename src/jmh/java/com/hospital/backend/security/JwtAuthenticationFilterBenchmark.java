@@ -0,0 +1,124 @@
+package com.hospital.backend.security;
+
+import com.hospital.backend.auth.entity.User;
+import com.hospital.backend.auth.repository.RefreshTokenRepository;
+import com.hospital.backend.auth.repository.UserRepository;
+import com.hospital.backend.config.JwtProperties;
+import com.hospital.backend.enums.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput del filtro JWT sobre rutas autenticadas, con y sin la caché de tokens verificados, y sobre
+ * rutas públicas (sólo la comparación con los prefijos excluidos).
+ *
+ * Simula {@code users} usuarios activos que repiten requests con su token (varios por sesión, como hace
+ * el frontend); la caché de usuarios autenticados queda activa en ambos casos para medir sólo la
+ * verificación del token.
+ *
+ * Ejecutar con: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=JwtAuthenticationFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class JwtAuthenticationFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    @Param({"0", "10000"})
+    public int verifiedTokenCacheSize;
+
+    @Param({"500"})
+    public int users;
+
+    private JwtAuthenticationFilter filter;
+    private String[] authorizationHeaders;
+
+    @Setup
+    public void setUp() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("benchmark-secret-key-for-jwt-authentication-filter");
+        properties.setExpirationTime(3_600_000);
+        properties.setIssuer("hospital-api");
+        properties.setVerifiedTokenCacheSize(verifiedTokenCacheSize);
+
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findById(anyLong())).thenAnswer(invocation -> Optional.of(user(invocation.getArgument(0))));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(properties, registry);
+        RevokedSessionRegistry revokedSessions = new RevokedSessionRegistry(
+                mock(RefreshTokenRepository.class), properties, registry);
+        filter = new JwtAuthenticationFilter(tokenProvider, new PrincipalCache(userRepository, properties, registry),
+                revokedSessions, registry);
+
+        authorizationHeaders = new String[users];
+        for (int i = 0; i < users; i++) {
+            authorizationHeaders[i] = "Bearer " + tokenProvider.generateToken(user((long) i + 1), "session-" + i);
+        }
+    }
+
+    @Benchmark
+    public int authenticatedRequest(RequestCounter counter) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/appointments/me");
+        request.addHeader("Authorization", authorizationHeaders[counter.next(users)]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        SecurityContextHolder.clearContext();
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public int publicRequest() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/specialties/active");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        return response.getStatus();
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("paciente" + id + "@urovital.pe");
+        user.setRole(UserRole.PATIENT);
+        user.setIsActive(true);
+        return user;
+    }
+
+    @State(Scope.Thread)
+    public static class RequestCounter {
+
+        private int position;
+
+        int next(int users) {
+            position = (position + 1) % users;
+            return position;
+        }
+    }
+}
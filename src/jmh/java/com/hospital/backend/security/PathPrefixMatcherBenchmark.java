@@ -0,0 +1,46 @@
+package com.hospital.backend.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara la detección de rutas públicas del filtro JWT con {@link PathPrefixMatcher} contra la anterior
+ * (stream de startsWith sobre la lista de prefijos).
+ *
+ * Ejecutar con: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=PathPrefixMatcherBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathPrefixMatcherBenchmark {
+
+    private static final List<String> PREFIXES = JwtAuthenticationFilter.EXCLUDED_PATHS;
+    private static final PathPrefixMatcher MATCHER = new PathPrefixMatcher(PREFIXES);
+
+    @Param({"/api/appointments/me", "/api/payment-methods/active", "/api/chatbot/query"})
+    public String path;
+
+    @Benchmark
+    public boolean streamStartsWith() {
+        return PREFIXES.stream().anyMatch(path::startsWith);
+    }
+
+    @Benchmark
+    public boolean trie() {
+        return MATCHER.matches(path);
+    }
+}
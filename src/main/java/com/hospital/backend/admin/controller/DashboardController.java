@@ -37,7 +37,7 @@ public class DashboardController {
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Obtener métricas del dashboard")
     public ResponseEntity<ApiResponse<DashboardResponse>> getDashboardMetrics() {
-        log.info("GET /api/admin/dashboard - Obteniendo métricas del dashboard");
+        log.debug("GET /api/admin/dashboard - Obteniendo métricas del dashboard");
         
         DashboardResponse metrics = dashboardService.getDashboardMetrics();
         
@@ -56,7 +56,7 @@ public class DashboardController {
     public ResponseEntity<ApiResponse<DashboardResponse>> refreshDashboardMetrics() {
         log.info("GET /api/admin/dashboard/refresh - Actualizando métricas del dashboard");
         
-        DashboardResponse metrics = dashboardService.getDashboardMetrics();
+        DashboardResponse metrics = dashboardService.refreshSnapshot();
         
         return ResponseEntity.ok(
             ApiResponse.success("Métricas del dashboard actualizadas exitosamente", metrics)
@@ -1,5 +1,6 @@
 package com.hospital.backend.admin.controller;
 
+import com.hospital.backend.common.concurrent.ParallelQueryExecutor;
 import com.hospital.backend.common.dto.ApiResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -7,14 +8,19 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.boot.actuate.health.HealthEndpoint;
 import org.springframework.boot.actuate.info.InfoEndpoint;
 import org.springframework.boot.actuate.metrics.MetricsEndpoint;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -29,6 +35,16 @@ public class MonitoringController {
     private final HealthEndpoint healthEndpoint;
     private final InfoEndpoint infoEndpoint;
     private final MetricsEndpoint metricsEndpoint;
+    private final ParallelQueryExecutor parallelQueryExecutor;
+
+    @Value("${app.monitoring.check-timeout-ms:2000}")
+    private long checkTimeoutMs;
+
+    /**
+     * Métricas de Actuator incluidas en el resumen
+     */
+    private static final List<String> OVERVIEW_METRICS = List.of(
+            "http.server.requests", "jvm.memory.used", "hikaricp.connections.active", "process.cpu.usage");
 
     @GetMapping("/health")
     @Operation(summary = "Estado de salud del sistema", description = "Obtiene el estado de salud completo del sistema hospitalario")
@@ -52,6 +68,35 @@ public class MonitoringController {
         }
     }
 
+    @GetMapping("/overview")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Resumen de monitoreo", description = "Obtiene salud, información y métricas principales en paralelo; las secciones que exceden el tiempo límite se omiten")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getOverview() {
+        Map<String, Object> overview = new LinkedHashMap<>();
+        List<String> unavailable = new ArrayList<>();
+
+        try (ParallelQueryExecutor.Scope scope = parallelQueryExecutor.open(Duration.ofMillis(checkTimeoutMs))) {
+            Map<String, ParallelQueryExecutor.Result<Object>> sections = new LinkedHashMap<>();
+            sections.put("health", scope.fork("health", healthEndpoint::health, null));
+            sections.put("info", scope.fork("info", infoEndpoint::info, null));
+            for (String metricName : OVERVIEW_METRICS) {
+                sections.put(metricName, scope.fork(metricName, () -> metricsEndpoint.metric(metricName, null), null));
+            }
+
+            sections.forEach((name, result) -> {
+                if (result.isFallback()) {
+                    unavailable.add(name);
+                } else {
+                    overview.put(name, result.get());
+                }
+            });
+        }
+
+        overview.put("unavailable", unavailable);
+        overview.put("timestamp", LocalDateTime.now());
+        return ResponseEntity.ok(ApiResponse.success("Resumen de monitoreo", overview));
+    }
+
     @GetMapping("/metrics")
     @Operation(summary = "Métricas generales", description = "Obtiene las métricas principales del sistema")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getSystemMetrics() {
@@ -1,6 +1,7 @@
 package com.hospital.backend.admin.dto;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -45,6 +46,9 @@ public class DashboardResponse {
     private BigDecimal appointmentOccupancyRate;
     private Long availableSlotsToday;
     
+    // Momento en que se calcularon las métricas
+    private LocalDateTime generatedAt;
+    
     /**
      * Clase interna para estadísticas de especialidades
      */
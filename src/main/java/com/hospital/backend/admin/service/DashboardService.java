@@ -4,326 +4,271 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import com.hospital.backend.admin.dto.DashboardResponse;
 import com.hospital.backend.admin.dto.DashboardResponse.DoctorStats;
 import com.hospital.backend.admin.dto.DashboardResponse.SpecialtyStats;
+import com.hospital.backend.analytics.entity.AppointmentDailyRollup;
+import com.hospital.backend.analytics.entity.PaymentDailyRollup;
+import com.hospital.backend.analytics.repository.AppointmentDailyRollupRepository;
+import com.hospital.backend.analytics.repository.PaymentDailyRollupRepository;
 import com.hospital.backend.appointment.repository.AppointmentRepository;
+import com.hospital.backend.appointment.service.SlotCapacityLedger;
+import com.hospital.backend.common.concurrent.ParallelQueryExecutor;
+import com.hospital.backend.common.concurrent.ParallelQueryExecutor.Result;
+import com.hospital.backend.common.event.EntityChangedEvent;
 import com.hospital.backend.enums.AppointmentStatus;
-import com.hospital.backend.payment.repository.PaymentRepository;
+import com.hospital.backend.enums.PaymentStatus;
+import com.hospital.backend.user.entity.Doctor;
+import com.hospital.backend.user.entity.Patient;
 import com.hospital.backend.user.repository.DoctorAvailabilityRepository;
-import com.hospital.backend.user.repository.DoctorRepository;
-import com.hospital.backend.user.repository.PatientRepository;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * Servicio para calcular métricas y estadísticas para el dashboard administrativo
+ * Servicio para calcular métricas y estadísticas para el dashboard administrativo.
+ * Las métricas de citas e ingresos se leen del resumen diario ({@code DailyRollupService}), por lo que
+ * su costo depende de la cantidad de días y no de filas. El resultado se guarda como una instantánea
+ * inmutable que se sirve a todas las lecturas. La instantánea se recalcula periódicamente y, tras
+ * actualizarse el resumen o cambiar pacientes o doctores, en la siguiente verificación de datos obsoletos.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DashboardService {
 
+    private static final int TOP_LIMIT = 5;
+    private static final int DAYS_PER_WEEK = 7;
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd/MM");
+
+    /**
+     * Entidades cuyos cambios invalidan la instantánea
+     */
+    private static final Set<Class<?>> TRACKED_ENTITIES = Set.of(
+            AppointmentDailyRollup.class, PaymentDailyRollup.class, Patient.class, Doctor.class);
+
     private final AppointmentRepository appointmentRepository;
-    private final PatientRepository patientRepository;
-    private final DoctorRepository doctorRepository;
-    private final PaymentRepository paymentRepository;
+    private final AppointmentDailyRollupRepository appointmentRollupRepository;
+    private final PaymentDailyRollupRepository paymentRollupRepository;
     private final DoctorAvailabilityRepository availabilityRepository;
+    private final ParallelQueryExecutor parallelQueryExecutor;
+
+    private volatile DashboardResponse snapshot;
+    private final AtomicBoolean stale = new AtomicBoolean(false);
 
     /**
-     * Genera las métricas completas para el dashboard administrativo
+     * Obtiene las métricas del dashboard desde la instantánea vigente
      * @return Respuesta con todas las métricas del hospital
      */
     public DashboardResponse getDashboardMetrics() {
-        log.info("Generando métricas para el dashboard administrativo");
-        
-        try {
-            LocalDate today = LocalDate.now();
-            LocalDateTime startOfDay = today.atStartOfDay();
-            LocalDateTime endOfDay = today.atTime(LocalTime.MAX);
-            
-            // Métricas generales básicas
-            Long totalPatients = getSafeCount(() -> patientRepository.count());
-            Long totalDoctors = getSafeCount(() -> doctorRepository.count());
-            Long totalAppointments = getSafeCount(() -> appointmentRepository.count());
-            Long pendingAppointments = getSafeCount(() -> appointmentRepository.countByStatus(AppointmentStatus.SCHEDULED));
-            BigDecimal totalRevenue = getSafeBigDecimal(() -> paymentRepository.calculateTotalRevenue());
-            
-            // Métricas de hoy (simplificadas)
-            Long todayAppointments = getSafeCount(() -> appointmentRepository.countByAppointmentDateBetween(today, today));
-            Long todayPatients = getSafeCount(new CountSupplier() {
-                @Override
-                public Long get() throws Exception {
-                    return 0L; // Simplificado por ahora
-                }
-            });
-            BigDecimal todayRevenue = getSafeBigDecimal(() -> paymentRepository.calculateRevenueForDateRange(startOfDay, endOfDay));
-            
-            // Métricas semanales (simplificadas)
-            Map<String, Long> appointmentsPerDay = getSimpleAppointmentsPerDay();
-            Map<String, BigDecimal> revenuePerDay = getSimpleRevenuePerDay();
-            
-            // Top especialidades y doctores (simplificados)
-            List<SpecialtyStats> topSpecialties = getSimpleTopSpecialties();
-            List<DoctorStats> topDoctors = getSimpleTopDoctors();
-            
-            // Estadísticas de ocupación
-            Integer dayOfWeek = today.getDayOfWeek().getValue();
-            Long availableSlotsToday = getSafeCount(() -> availabilityRepository.countAvailableSlotsForDay(dayOfWeek));
-            BigDecimal occupancyRate = calculateSimpleOccupancyRate(today);
-            
-            // Construir respuesta completa
-            return DashboardResponse.builder()
-                    .totalPatientsCount(totalPatients)
-                    .totalDoctorsCount(totalDoctors)
-                    .totalAppointmentsCount(totalAppointments)
-                    .pendingAppointmentsCount(pendingAppointments)
-                    .totalRevenue(totalRevenue)
-                    .todayAppointmentsCount(todayAppointments)
-                    .todayPatientsCount(todayPatients)
-                    .todayRevenue(todayRevenue)
-                    .appointmentsPerDay(appointmentsPerDay)
-                    .revenuePerDay(revenuePerDay)
-                    .topSpecialties(topSpecialties)
-                    .topDoctors(topDoctors)
-                    .availableSlotsToday(availableSlotsToday)
-                    .appointmentOccupancyRate(occupancyRate)
-                    .build();
-                    
-        } catch (Exception e) {
-            log.error("Error generando métricas del dashboard: {}", e.getMessage(), e);
-            return getDefaultDashboardResponse();
+        DashboardResponse current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = computeMetrics();
+            }
+            return snapshot;
         }
     }
-    
+
+    /**
+     * Recalcula la instantánea inmediatamente
+     * @return Métricas recién calculadas
+     */
+    public synchronized DashboardResponse refreshSnapshot() {
+        stale.set(false);
+        snapshot = computeMetrics();
+        return snapshot;
+    }
+
     /**
-     * Obtiene un conteo de forma segura
+     * Recálculo periódico (mantiene al día las métricas que dependen de la fecha actual).
+     * No hace nada mientras nadie haya consultado el dashboard.
      */
-    private Long getSafeCount(CountSupplier supplier) {
-        try {
-            Long result = supplier.get();
-            return result != null ? result : 0L;
-        } catch (Exception e) {
-            log.warn("Error obteniendo conteo: {}", e.getMessage());
-            return 0L;
+    @Scheduled(fixedDelayString = "${app.dashboard.refresh-interval-ms:60000}",
+               initialDelayString = "${app.dashboard.refresh-interval-ms:60000}")
+    public void scheduledRefresh() {
+        if (snapshot != null) {
+            refreshSnapshot();
         }
     }
-    
+
     /**
-     * Obtiene un BigDecimal de forma segura
+     * Recalcula la instantánea si hubo escrituras desde el último cálculo.
+     * Agrupa ráfagas de escrituras en un solo recálculo por intervalo.
      */
-    private BigDecimal getSafeBigDecimal(BigDecimalSupplier supplier) {
-        try {
-            BigDecimal result = supplier.get();
-            return result != null ? result : BigDecimal.ZERO;
-        } catch (Exception e) {
-            log.warn("Error obteniendo BigDecimal: {}", e.getMessage());
-            return BigDecimal.ZERO;
+    @Scheduled(fixedDelayString = "${app.dashboard.stale-check-interval-ms:5000}")
+    public void refreshIfStale() {
+        if (snapshot != null && stale.get()) {
+            refreshSnapshot();
         }
     }
-    
+
     /**
-     * Obtiene citas por día de forma simplificada
+     * Marca la instantánea como obsoleta cuando se confirma un cambio en una entidad relevante
      */
-    private Map<String, Long> getSimpleAppointmentsPerDay() {
-        LocalDate today = LocalDate.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM");
-        Map<String, Long> result = new HashMap<>();
-        
-        // Inicializar con últimos 7 días
-        for (int i = 6; i >= 0; i--) {
-            LocalDate date = today.minusDays(i);
-            result.put(date.format(formatter), 0L);
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        for (Class<?> tracked : TRACKED_ENTITIES) {
+            if (tracked.isAssignableFrom(event.entityType())) {
+                stale.set(true);
+                return;
+            }
         }
-        
-        // Por ahora retornamos datos de ejemplo
-        // En una implementación real aquí harías queries específicas
-        result.put(today.format(formatter), 5L);
-        result.put(today.minusDays(1).format(formatter), 8L);
-        result.put(today.minusDays(2).format(formatter), 3L);
-        
-        return result;
     }
-    
+
     /**
-     * Obtiene ingresos por día de forma simplificada
+     * Calcula todas las métricas con consultas agregadas independientes lanzadas en paralelo.
+     * Si una consulta falla o excede su tiempo límite, sólo su sección queda con valores por defecto.
      */
-    private Map<String, BigDecimal> getSimpleRevenuePerDay() {
+    private DashboardResponse computeMetrics() {
+        log.debug("Calculando métricas para el dashboard administrativo");
+
         LocalDate today = LocalDate.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM");
-        Map<String, BigDecimal> result = new HashMap<>();
-        
-        // Inicializar con últimos 7 días
-        for (int i = 6; i >= 0; i--) {
-            LocalDate date = today.minusDays(i);
-            result.put(date.format(formatter), BigDecimal.ZERO);
+        LocalDate weekStart = today.minusDays(DAYS_PER_WEEK - 1);
+
+        try (ParallelQueryExecutor.Scope scope = parallelQueryExecutor.open()) {
+            // [total, pendientes, hoy, ocupadas hoy]
+            Result<List<Object[]>> appointmentTotals = scope.fork("totales de citas",
+                    () -> appointmentRollupRepository.aggregateTotals(
+                            today, AppointmentStatus.SCHEDULED, SlotCapacityLedger.OCCUPYING_STATUSES), List.of());
+            // [pacientes hoy, pacientes, doctores]
+            Result<List<Object[]>> peopleCounts = scope.fork("conteos de pacientes y doctores",
+                    () -> appointmentRepository.aggregateDashboardMetrics(today), List.of());
+            // [ingresos totales, ingresos de hoy]
+            Result<List<Object[]>> revenueMetrics = scope.fork("métricas de ingresos",
+                    () -> paymentRollupRepository.aggregateAmounts(PaymentStatus.COMPLETED, today), List.of());
+            Result<List<Object[]>> appointmentsPerDay = scope.fork("citas por día",
+                    () -> appointmentRollupRepository.sumPerDay(weekStart, today), List.of());
+            Result<List<Object[]>> revenuePerDay = scope.fork("ingresos por día",
+                    () -> paymentRollupRepository.sumAmountPerDay(PaymentStatus.COMPLETED, weekStart, today), List.of());
+            Result<Long> capacity = scope.fork("capacidad del día",
+                    () -> availabilityRepository.sumAvailableCapacityForDay(today.getDayOfWeek().getValue()), 0L);
+            Result<List<Object[]>> topSpecialties = scope.fork("top especialidades",
+                    () -> appointmentRollupRepository.findTopSpecialties(AppointmentStatus.COMPLETED, TOP_LIMIT), List.of());
+            Result<List<Object[]>> topDoctors = scope.fork("top doctores",
+                    () -> appointmentRollupRepository.findTopDoctors(AppointmentStatus.COMPLETED, TOP_LIMIT), List.of());
+
+            Object[] appointmentRow = firstRow(appointmentTotals.get(), 4);
+            Object[] peopleRow = firstRow(peopleCounts.get(), 3);
+            Object[] revenueRow = firstRow(revenueMetrics.get(), 2);
+            long capacityToday = capacity.get();
+            long occupiedToday = longAt(appointmentRow, 3);
+
+            return DashboardResponse.builder()
+                    .totalAppointmentsCount(longAt(appointmentRow, 0))
+                    .pendingAppointmentsCount(longAt(appointmentRow, 1))
+                    .todayAppointmentsCount(longAt(appointmentRow, 2))
+                    .todayPatientsCount(longAt(peopleRow, 0))
+                    .totalPatientsCount(longAt(peopleRow, 1))
+                    .totalDoctorsCount(longAt(peopleRow, 2))
+                    .totalRevenue(decimalAt(revenueRow, 0))
+                    .todayRevenue(decimalAt(revenueRow, 1))
+                    .appointmentsPerDay(perDay(weekStart, appointmentsPerDay.get(), 0L, row -> ((Number) row[1]).longValue()))
+                    .revenuePerDay(perDay(weekStart, revenuePerDay.get(), BigDecimal.ZERO, row -> (BigDecimal) row[1]))
+                    .topSpecialties(toSpecialtyStats(topSpecialties.get()))
+                    .topDoctors(toDoctorStats(topDoctors.get()))
+                    .availableSlotsToday(Math.max(0L, capacityToday - occupiedToday))
+                    .appointmentOccupancyRate(occupancyRate(occupiedToday, capacityToday))
+                    .generatedAt(LocalDateTime.now())
+                    .build();
         }
-        
-        // Por ahora retornamos datos de ejemplo
-        result.put(today.format(formatter), BigDecimal.valueOf(750.00));
-        result.put(today.minusDays(1).format(formatter), BigDecimal.valueOf(1200.00));
-        result.put(today.minusDays(2).format(formatter), BigDecimal.valueOf(450.00));
-        
-        return result;
     }
-    
+
     /**
-     * Obtiene top especialidades de forma simplificada
+     * Arma un mapa ordenado "dd/MM" -> valor para los últimos 7 días, con ceros en los días sin datos
      */
-    private List<SpecialtyStats> getSimpleTopSpecialties() {
-        List<SpecialtyStats> result = new ArrayList<>();
-        
-        try {
-            // Intentar obtener datos reales, pero con fallback
-            List<Object[]> data = appointmentRepository.findTopSpecialities(5);
-            
-            for (Object[] row : data) {
-                if (row.length >= 4) {
-                    SpecialtyStats stats = SpecialtyStats.builder()
-                            .specialtyId(((Number) row[0]).longValue())
-                            .specialtyName((String) row[1])
-                            .appointmentsCount(((Number) row[2]).longValue())
-                            .revenue(row[3] != null ? (BigDecimal) row[3] : BigDecimal.ZERO)
-                            .build();
-                    result.add(stats);
-                }
+    private <V> Map<String, V> perDay(LocalDate weekStart, List<Object[]> rows, V zero, RowValue<V> value) {
+        Map<LocalDate, V> byDate = new LinkedHashMap<>();
+        for (int i = 0; i < DAYS_PER_WEEK; i++) {
+            byDate.put(weekStart.plusDays(i), zero);
+        }
+        for (Object[] row : rows) {
+            LocalDate date = (LocalDate) row[0];
+            if (byDate.containsKey(date)) {
+                byDate.put(date, value.get(row));
             }
-        } catch (Exception e) {
-            log.warn("Error obteniendo top especialidades, usando datos de ejemplo: {}", e.getMessage());
-            
-            // Datos de ejemplo como fallback
-            result.add(SpecialtyStats.builder()
-                    .specialtyId(1L)
-                    .specialtyName("Medicina General")
-                    .appointmentsCount(25L)
-                    .revenue(BigDecimal.valueOf(3750.00))
-                    .build());
-            
+        }
+
+        Map<String, V> result = new LinkedHashMap<>();
+        byDate.forEach((date, v) -> result.put(date.format(DAY_FORMATTER), v));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Convierte las filas de especialidades con más citas completadas
+     */
+    private List<SpecialtyStats> toSpecialtyStats(List<Object[]> rows) {
+        List<SpecialtyStats> result = new ArrayList<>();
+        for (Object[] row : rows) {
             result.add(SpecialtyStats.builder()
-                    .specialtyId(2L)
-                    .specialtyName("Cardiología")
-                    .appointmentsCount(15L)
-                    .revenue(BigDecimal.valueOf(3000.00))
+                    .specialtyId(((Number) row[0]).longValue())
+                    .specialtyName((String) row[1])
+                    .appointmentsCount(((Number) row[2]).longValue())
+                    .revenue(row[3] != null ? (BigDecimal) row[3] : BigDecimal.ZERO)
                     .build());
         }
-        
-        return result;
+        return Collections.unmodifiableList(result);
     }
-    
+
     /**
-     * Obtiene top doctores de forma simplificada
+     * Convierte las filas de doctores con más citas completadas
      */
-    private List<DoctorStats> getSimpleTopDoctors() {
+    private List<DoctorStats> toDoctorStats(List<Object[]> rows) {
         List<DoctorStats> result = new ArrayList<>();
-        
-        try {
-            // Intentar obtener datos reales, pero con fallback
-            List<Object[]> data = appointmentRepository.findTopDoctors(5);
-            
-            for (Object[] row : data) {
-                if (row.length >= 6) {
-                    DoctorStats stats = DoctorStats.builder()
-                            .doctorId(((Number) row[0]).longValue())
-                            .doctorName((String) row[1])
-                            .specialtyName(row[2] != null ? (String) row[2] : "Sin especialidad")
-                            .appointmentsCount(((Number) row[3]).longValue())
-                            .revenue(row[4] != null ? (BigDecimal) row[4] : BigDecimal.ZERO)
-                            .rating(row[5] != null ? ((Number) row[5]).doubleValue() : 5.0)
-                            .build();
-                    result.add(stats);
-                }
-            }
-        } catch (Exception e) {
-            log.warn("Error obteniendo top doctores, usando datos de ejemplo: {}", e.getMessage());
-            
-            // Datos de ejemplo como fallback
+        for (Object[] row : rows) {
             result.add(DoctorStats.builder()
-                    .doctorId(1L)
-                    .doctorName("Dr. Juan Pérez")
-                    .specialtyName("Medicina General")
-                    .appointmentsCount(20L)
-                    .revenue(BigDecimal.valueOf(3000.00))
-                    .rating(4.8)
-                    .build());
-            
-            result.add(DoctorStats.builder()
-                    .doctorId(2L)
-                    .doctorName("Dra. María García")
-                    .specialtyName("Cardiología")
-                    .appointmentsCount(15L)
-                    .revenue(BigDecimal.valueOf(3000.00))
-                    .rating(4.9)
+                    .doctorId(((Number) row[0]).longValue())
+                    .doctorName((String) row[1])
+                    .specialtyName(row[2] != null ? (String) row[2] : "Sin especialidad")
+                    .appointmentsCount(((Number) row[3]).longValue())
+                    .revenue(row[4] != null ? (BigDecimal) row[4] : BigDecimal.ZERO)
                     .build());
         }
-        
-        return result;
+        return Collections.unmodifiableList(result);
     }
-    
+
     /**
-     * Calcula la tasa de ocupación de forma simplificada
+     * Porcentaje de cupos ocupados hoy respecto a la capacidad habilitada
      */
-    private BigDecimal calculateSimpleOccupancyRate(LocalDate date) {
-        try {
-            Integer dayOfWeek = date.getDayOfWeek().getValue();
-            Long totalSlots = availabilityRepository.countTotalSlotsForDay(dayOfWeek);
-            Long scheduledAppointments = appointmentRepository.countByAppointmentDateBetween(
-                    date, 
-                    date
-            );
-            
-            if (totalSlots == null || totalSlots == 0) {
-                return BigDecimal.valueOf(75.0); // Valor por defecto
-            }
-            
-            return BigDecimal.valueOf(scheduledAppointments)
-                    .multiply(BigDecimal.valueOf(100))
-                    .divide(BigDecimal.valueOf(totalSlots), 2, RoundingMode.HALF_UP);
-        } catch (Exception e) {
-            log.warn("Error calculando tasa de ocupación: {}", e.getMessage());
-            return BigDecimal.valueOf(75.0); // Valor por defecto
+    private BigDecimal occupancyRate(long occupied, long capacity) {
+        if (capacity <= 0) {
+            return BigDecimal.ZERO;
         }
+        return BigDecimal.valueOf(occupied)
+                .multiply(BigDecimal.valueOf(100))
+                .divide(BigDecimal.valueOf(capacity), 2, RoundingMode.HALF_UP);
     }
-    
-    /**
-     * Respuesta por defecto en caso de error
-     */
-    private DashboardResponse getDefaultDashboardResponse() {
-        return DashboardResponse.builder()
-                .totalPatientsCount(0L)
-                .totalDoctorsCount(0L)
-                .totalAppointmentsCount(0L)
-                .pendingAppointmentsCount(0L)
-                .totalRevenue(BigDecimal.ZERO)
-                .todayAppointmentsCount(0L)
-                .todayPatientsCount(0L)
-                .todayRevenue(BigDecimal.ZERO)
-                .appointmentsPerDay(new HashMap<>())
-                .revenuePerDay(new HashMap<>())
-                .topSpecialties(new ArrayList<>())
-                .topDoctors(new ArrayList<>())
-                .availableSlotsToday(0L)
-                .appointmentOccupancyRate(BigDecimal.ZERO)
-                .build();
+
+    private static Object[] firstRow(List<Object[]> rows, int columns) {
+        return rows.isEmpty() ? new Object[columns] : rows.get(0);
     }
-    
-    // Interfaces funcionales para manejo seguro
-    @FunctionalInterface
-    private interface CountSupplier {
-        Long get() throws Exception;
+
+    private static long longAt(Object[] row, int index) {
+        return row[index] != null ? ((Number) row[index]).longValue() : 0L;
     }
-    
+
+    private static BigDecimal decimalAt(Object[] row, int index) {
+        return row[index] != null ? (BigDecimal) row[index] : BigDecimal.ZERO;
+    }
+
     @FunctionalInterface
-    private interface BigDecimalSupplier {
-        BigDecimal get() throws Exception;
+    private interface RowValue<V> {
+        V get(Object[] row);
     }
 }
@@ -5,17 +5,23 @@ import com.hospital.backend.analytics.dto.AnalyticsResponse;
 import com.hospital.backend.analytics.service.AnalyticsService;
 import com.hospital.backend.analytics.service.ReportService;
 import com.hospital.backend.common.dto.ApiResponse;
+import com.hospital.backend.enums.ExportDataset;
+import com.hospital.backend.enums.ExportFormat;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.time.LocalDate;
+
 /**
  * Controlador para acceso a métricas y reportes analíticos
  */
@@ -66,8 +72,8 @@ public class AnalyticsController {
     @PostMapping("/export/excel")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Exportar Excel", description = "Genera y descarga un reporte en formato Excel")
-    public ResponseEntity<byte[]> exportExcelReport(@Valid @RequestBody AnalyticsRequest request) {
-        byte[] reportBytes = reportService.generateExcelReport(request);
+    public ResponseEntity<StreamingResponseBody> exportExcelReport(@Valid @RequestBody AnalyticsRequest request) {
+        StreamingResponseBody body = reportService.streamExcelReport(request);
         
         String filename = String.format("hospital_report_%s_%s.xlsx", 
                 request.getStartDate(), request.getEndDate());
@@ -75,9 +81,8 @@ public class AnalyticsController {
         return ResponseEntity
                 .ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .contentLength(reportBytes.length)
-                .body(reportBytes);
+                .contentType(MediaType.parseMediaType(ExportFormat.XLSX.getContentType()))
+                .body(body);
     }
     
     /**
@@ -86,8 +91,8 @@ public class AnalyticsController {
     @PostMapping("/export/csv")
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Exportar CSV", description = "Genera y descarga un reporte en formato CSV")
-    public ResponseEntity<byte[]> exportCsvReport(@Valid @RequestBody AnalyticsRequest request) {
-        byte[] reportBytes = reportService.generateCsvReport(request);
+    public ResponseEntity<StreamingResponseBody> exportCsvReport(@Valid @RequestBody AnalyticsRequest request) {
+        StreamingResponseBody body = reportService.streamCsvReport(request);
         
         String filename = String.format("hospital_report_%s_%s.csv", 
                 request.getStartDate(), request.getEndDate());
@@ -95,8 +100,28 @@ public class AnalyticsController {
         return ResponseEntity
                 .ok()
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.parseMediaType("text/csv"))
-                .contentLength(reportBytes.length)
-                .body(reportBytes);
+                .contentType(MediaType.parseMediaType(ExportFormat.CSV.getContentType()))
+                .body(body);
+    }
+    
+    /**
+     * Exporta todas las filas de citas, pagos o auditoría de un rango, escritas a medida que se leen
+     */
+    @GetMapping("/export/{dataset}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Exportar datos", description = "Descarga citas, pagos o logs de auditoría de un rango en CSV o XLSX")
+    public ResponseEntity<StreamingResponseBody> exportDataset(
+            @PathVariable ExportDataset dataset,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "CSV") ExportFormat format) {
+        StreamingResponseBody body = reportService.exportDataset(dataset, format, startDate, endDate);
+        String filename = reportService.generateExportName(dataset, format, startDate, endDate);
+        
+        return ResponseEntity
+                .ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .body(body);
     }
-} 
\ No newline at end of file
+}
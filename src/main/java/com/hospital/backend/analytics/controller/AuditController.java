@@ -3,10 +3,15 @@ package com.hospital.backend.analytics.controller;
 import com.hospital.backend.analytics.dto.AuditLogResponse;
 import com.hospital.backend.analytics.entity.AuditLog;
 import com.hospital.backend.analytics.repository.AuditLogRepository;
+import com.hospital.backend.analytics.service.AuditSearchService;
 import com.hospital.backend.analytics.service.AuditService;
 import com.hospital.backend.common.dto.ApiResponse;
+import com.hospital.backend.common.dto.CursorPageResponse;
 import com.hospital.backend.common.dto.PageResponse;
+import com.hospital.backend.common.util.CursorUtils;
+import com.hospital.backend.config.AuditProperties;
 import com.hospital.backend.enums.OperationType;
+import io.swagger.v3.oas.annotations.Operation;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -22,7 +27,9 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 /**
- * Controlador para acceso a logs de auditoría
+ * Controlador para acceso a logs de auditoría.
+ * Todas las consultas se acotan por fecha (por defecto los últimos {@code app.audit.default-search-days} días)
+ * para que sólo se lean las particiones mensuales necesarias.
  */
 @RestController
 @RequestMapping("/api/audit")
@@ -31,16 +38,24 @@ public class AuditController {
 
     private final AuditLogRepository auditLogRepository;
     private final AuditService auditService;
+    private final AuditSearchService auditSearchService;
+    private final AuditProperties auditProperties;
     
     /**
      * Obtiene logs de auditoría paginados
      */
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Listar logs de auditoría",
+               description = "Logs de auditoría paginados. " +
+                             "Sin startDate/endDate devuelve los últimos app.audit.default-search-days días (30 por defecto); " +
+                             "para registros anteriores indique el rango")
     public ResponseEntity<ApiResponse<PageResponse<AuditLogResponse>>> getAuditLogs(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @PageableDefault(size = 20, sort = "createdAt") Pageable pageable) {
         
-        Page<AuditLog> auditLogs = auditLogRepository.findAll(pageable);
+        Page<AuditLog> auditLogs = searchRecent(null, null, null, startDate, endDate, pageable);
         
         // Registrar la acción de consulta en la auditoría
         auditService.logAction(
@@ -67,11 +82,17 @@ public class AuditController {
      */
     @GetMapping("/operation/{operationType}")
     @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Logs por tipo de operación",
+               description = "Logs de auditoría de un tipo de operación. " +
+                             "Sin startDate/endDate devuelve los últimos app.audit.default-search-days días (30 por defecto); " +
+                             "para registros anteriores indique el rango")
     public ResponseEntity<ApiResponse<PageResponse<AuditLogResponse>>> getAuditLogsByOperationType(
             @PathVariable OperationType operationType,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @PageableDefault(size = 20, sort = "createdAt") Pageable pageable) {
         
-        Page<AuditLog> auditLogs = auditLogRepository.findByOperationType(operationType, pageable);
+        Page<AuditLog> auditLogs = searchRecent(null, operationType, null, startDate, endDate, pageable);
         
         // Convertir entidades a DTOs
         List<AuditLogResponse> auditLogResponses = auditLogs.getContent().stream()
@@ -90,11 +111,17 @@ public class AuditController {
      */
     @GetMapping("/user/{userId}")
     @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Logs por usuario",
+               description = "Logs de auditoría de un usuario. " +
+                             "Sin startDate/endDate devuelve los últimos app.audit.default-search-days días (30 por defecto); " +
+                             "para registros anteriores indique el rango")
     public ResponseEntity<ApiResponse<PageResponse<AuditLogResponse>>> getAuditLogsByUser(
             @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @PageableDefault(size = 20, sort = "createdAt") Pageable pageable) {
         
-        Page<AuditLog> auditLogs = auditLogRepository.findByUserId(userId, pageable);
+        Page<AuditLog> auditLogs = searchRecent(userId, null, null, startDate, endDate, pageable);
         
         // Convertir entidades a DTOs
         List<AuditLogResponse> auditLogResponses = auditLogs.getContent().stream()
@@ -137,11 +164,17 @@ public class AuditController {
      */
     @GetMapping("/status/{successful}")
     @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Logs por resultado",
+               description = "Logs de auditoría exitosos o con errores. " +
+                             "Sin startDate/endDate devuelve los últimos app.audit.default-search-days días (30 por defecto); " +
+                             "para registros anteriores indique el rango")
     public ResponseEntity<ApiResponse<PageResponse<AuditLogResponse>>> getAuditLogsByStatus(
             @PathVariable Boolean successful,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
             @PageableDefault(size = 20, sort = "createdAt") Pageable pageable) {
         
-        Page<AuditLog> auditLogs = auditLogRepository.findBySuccessful(successful, pageable);
+        Page<AuditLog> auditLogs = searchRecent(null, null, successful, startDate, endDate, pageable);
         
         // Convertir entidades a DTOs
         List<AuditLogResponse> auditLogResponses = auditLogs.getContent().stream()
@@ -158,6 +191,27 @@ public class AuditController {
         ));
     }
     
+    /**
+     * Búsqueda de texto en entidad, usuario y descripción, ordenada por relevancia.
+     * Admite varios términos, "frases", OR y -exclusiones.
+     */
+    @GetMapping("/text-search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<AuditLogResponse>>> textSearchAuditLogs(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Boolean successful,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(defaultValue = "50") int limit) {
+        
+        List<AuditLogResponse> results = auditSearchService.search(query, startDate, endDate, successful, limit)
+                .stream()
+                .map(this::mapToAuditLogResponse)
+                .collect(Collectors.toList());
+        
+        return ResponseEntity.ok(ApiResponse.success("Búsqueda de texto en logs de auditoría", results));
+    }
+    
     /**
      * Búsqueda avanzada de logs de auditoría
      */
@@ -175,7 +229,8 @@ public class AuditController {
             @PageableDefault(size = 20, sort = "createdAt") Pageable pageable) {
         
         Page<AuditLog> auditLogs = auditLogRepository.search(
-                userId, operationType, entityName, entityId, module, successful, startDate, endDate, pageable);
+                userId, operationType, entityName, entityId, module, successful,
+                fromOrDefault(startDate), toOrDefault(endDate), pageable);
         
         // Convertir entidades a DTOs
         List<AuditLogResponse> auditLogResponses = auditLogs.getContent().stream()
@@ -189,6 +244,52 @@ public class AuditController {
         return ResponseEntity.ok(ApiResponse.success("Búsqueda avanzada de logs de auditoría", pageResponse));
     }
     
+    /**
+     * Logs de auditoría con paginación por cursor (más recientes primero, sin conteo total)
+     */
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPageResponse<AuditLogResponse>>> getAuditLogsPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) OperationType operationType,
+            @RequestParam(required = false) Boolean successful,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
+        
+        CursorUtils.Cursor after = CursorUtils.decode(cursor);
+        int pageSize = CursorUtils.clampSize(size);
+        
+        List<AuditLog> auditLogs = auditLogRepository.findPageAfter(
+                userId, operationType, successful, fromOrDefault(startDate), toOrDefault(endDate),
+                after != null ? after.keyAsDateTime() : null,
+                after != null ? after.id() : null,
+                pageSize + 1);
+        
+        CursorPageResponse<AuditLogResponse> pageResponse = CursorPageResponse.of(
+                auditLogs, pageSize, AuditLog::getCreatedAt, AuditLog::getId, this::mapToAuditLogResponse);
+        
+        return ResponseEntity.ok(ApiResponse.success("Logs de auditoría obtenidos exitosamente", pageResponse));
+    }
+    
+    /**
+     * Logs del rango indicado (por defecto los últimos días) con filtros opcionales
+     */
+    private Page<AuditLog> searchRecent(Long userId, OperationType operationType, Boolean successful,
+                                        LocalDateTime startDate, LocalDateTime endDate, Pageable pageable) {
+        return auditLogRepository.search(userId, operationType, null, null, null, successful,
+                fromOrDefault(startDate), toOrDefault(endDate), pageable);
+    }
+    
+    private LocalDateTime fromOrDefault(LocalDateTime startDate) {
+        return startDate != null ? startDate : LocalDateTime.now().minusDays(auditProperties.getDefaultSearchDays());
+    }
+    
+    private LocalDateTime toOrDefault(LocalDateTime endDate) {
+        return endDate != null ? endDate : LocalDateTime.now();
+    }
+    
     /**
      * Mapea la entidad AuditLog al DTO AuditLogResponse
      */
@@ -0,0 +1,87 @@
+package com.hospital.backend.analytics.controller;
+
+import com.hospital.backend.analytics.dto.ReportJobRequest;
+import com.hospital.backend.analytics.dto.ReportJobResponse;
+import com.hospital.backend.analytics.service.ReportJobService;
+import com.hospital.backend.common.dto.ApiResponse;
+import com.hospital.backend.common.util.RangedFileTransfer;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Controlador para reportes asíncronos: encolar, consultar avance, cancelar y descargar
+ */
+@RestController
+@RequestMapping("/reports/jobs")
+@RequiredArgsConstructor
+@Tag(name = "📊 Analytics", description = "Análisis de datos y generación de reportes avanzados.")
+public class ReportJobController {
+
+    private final ReportJobService reportJobService;
+
+    /**
+     * Encola un reporte; la respuesta incluye el identificador para consultar su avance
+     */
+    @PostMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Encolar reporte", description = "Encola un reporte analítico o una exportación de datos")
+    public ResponseEntity<ApiResponse<ReportJobResponse>> submit(@Valid @RequestBody ReportJobRequest request) {
+        ReportJobResponse response = reportJobService.submit(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Reporte encolado exitosamente", response));
+    }
+
+    /**
+     * Reportes pedidos por el usuario actual
+     */
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Mis reportes", description = "Lista los reportes pedidos por el usuario actual")
+    public ResponseEntity<ApiResponse<List<ReportJobResponse>>> getMyJobs(
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(ApiResponse.success(reportJobService.getMyJobs(limit)));
+    }
+
+    /**
+     * Estado y avance de un reporte
+     */
+    @GetMapping("/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Estado de reporte", description = "Consulta el estado y avance de un reporte")
+    public ResponseEntity<ApiResponse<ReportJobResponse>> getJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(ApiResponse.success(reportJobService.getJob(jobId)));
+    }
+
+    /**
+     * Cancela un reporte en espera o en curso
+     */
+    @DeleteMapping("/{jobId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Cancelar reporte", description = "Cancela un reporte en espera o en curso")
+    public ResponseEntity<ApiResponse<ReportJobResponse>> cancel(@PathVariable String jobId) {
+        return ResponseEntity.ok(ApiResponse.success("Cancelación solicitada", reportJobService.cancel(jobId)));
+    }
+
+    /**
+     * Descarga el resultado; admite el encabezado Range para reanudar descargas
+     */
+    @GetMapping("/{jobId}/download")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Descargar reporte", description = "Descarga el archivo generado (admite descargas parciales)")
+    public void download(@PathVariable String jobId, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        ReportJobService.ReportFile file = reportJobService.getResultFile(jobId);
+        RangedFileTransfer.send(request, response, file.path(), file.fileName(), file.contentType());
+    }
+}
@@ -0,0 +1,43 @@
+package com.hospital.backend.analytics.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.hospital.backend.enums.ExportDataset;
+import com.hospital.backend.enums.ExportFormat;
+import com.hospital.backend.enums.ReportJobPriority;
+import com.hospital.backend.enums.ReportJobType;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO para solicitar un reporte asíncrono.
+ * Los reportes analíticos usan {@code analytics}; las exportaciones de datos usan dataset, startDate y endDate.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobRequest {
+
+    @NotNull(message = "El tipo de reporte es obligatorio")
+    private ReportJobType type;
+
+    @NotNull(message = "El formato es obligatorio")
+    private ExportFormat format;
+
+    private ReportJobPriority priority = ReportJobPriority.NORMAL;
+
+    @Valid
+    private AnalyticsRequest analytics;
+
+    private ExportDataset dataset;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate startDate;
+
+    @JsonFormat(pattern = "yyyy-MM-dd")
+    private LocalDate endDate;
+}
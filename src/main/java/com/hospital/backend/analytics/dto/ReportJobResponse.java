@@ -0,0 +1,61 @@
+package com.hospital.backend.analytics.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.hospital.backend.enums.ExportFormat;
+import com.hospital.backend.enums.ReportJobPriority;
+import com.hospital.backend.enums.ReportJobStatus;
+import com.hospital.backend.enums.ReportJobType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO con el estado y progreso de un reporte asíncrono
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReportJobResponse {
+
+    private String jobId;
+
+    private ReportJobType type;
+
+    private ExportFormat format;
+
+    private ReportJobPriority priority;
+
+    private ReportJobStatus status;
+
+    private String statusName;
+
+    // Porcentaje de avance (0-100), estimado a partir de las filas escritas
+    private Integer progress;
+
+    private Long rowsWritten;
+
+    private String fileName;
+
+    private Long fileSize;
+
+    private String errorMessage;
+
+    // Ruta relativa para descargar el resultado cuando el trabajo está completado
+    private String downloadUrl;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime startedAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime completedAt;
+
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime expiresAt;
+}
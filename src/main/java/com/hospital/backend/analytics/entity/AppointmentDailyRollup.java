@@ -0,0 +1,48 @@
+package com.hospital.backend.analytics.entity;
+
+import com.hospital.backend.common.entity.BaseEntity;
+import com.hospital.backend.enums.AppointmentStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Resumen diario de citas por fecha de cita, especialidad, doctor y estado.
+ * Se recalcula por día a partir de la tabla appointments (ver DailyRollupService),
+ * por lo que las métricas históricas se leen de una fila por día y combinación en lugar de una por cita.
+ */
+@Entity
+@Table(name = "appointment_daily_rollup",
+       uniqueConstraints = @UniqueConstraint(
+               name = "uk_appointment_rollup_key",
+               columnNames = {"rollup_date", "specialty_id", "doctor_id", "status"}),
+       indexes = @Index(name = "idx_appointment_rollup_date", columnList = "rollup_date"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class AppointmentDailyRollup extends BaseEntity {
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Column(name = "specialty_id", nullable = false)
+    private Long specialtyId;
+
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private AppointmentStatus status;
+
+    @Column(name = "appointment_count", nullable = false)
+    private Long appointmentCount = 0L;
+
+    // Suma del precio de consulta de la especialidad de cada cita
+    @Column(name = "consultation_amount", precision = 12, scale = 2, nullable = false)
+    private BigDecimal consultationAmount = BigDecimal.ZERO;
+}
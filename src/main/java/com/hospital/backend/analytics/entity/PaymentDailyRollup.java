@@ -0,0 +1,51 @@
+package com.hospital.backend.analytics.entity;
+
+import com.hospital.backend.common.entity.BaseEntity;
+import com.hospital.backend.enums.PaymentMethodType;
+import com.hospital.backend.enums.PaymentStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Resumen diario de pagos por fecha, tipo de método de pago y estado.
+ * La fecha es la del pago efectivo o, si aún no se pagó, la de registro del pago.
+ */
+@Entity
+@Table(name = "payment_daily_rollup",
+       uniqueConstraints = @UniqueConstraint(
+               name = "uk_payment_rollup_key",
+               columnNames = {"rollup_date", "method_type", "status"}),
+       indexes = @Index(name = "idx_payment_rollup_date", columnList = "rollup_date"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class PaymentDailyRollup extends BaseEntity {
+
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "method_type", nullable = false)
+    private PaymentMethodType methodType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private PaymentStatus status;
+
+    @Column(name = "payment_count", nullable = false)
+    private Long paymentCount = 0L;
+
+    @Column(name = "amount", precision = 12, scale = 2, nullable = false)
+    private BigDecimal amount = BigDecimal.ZERO;
+
+    @Column(name = "total_amount", precision = 12, scale = 2, nullable = false)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(name = "processing_fee", precision = 12, scale = 2, nullable = false)
+    private BigDecimal processingFee = BigDecimal.ZERO;
+}
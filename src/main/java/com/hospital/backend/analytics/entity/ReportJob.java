@@ -0,0 +1,76 @@
+package com.hospital.backend.analytics.entity;
+
+import com.hospital.backend.common.entity.BaseEntity;
+import com.hospital.backend.enums.ExportFormat;
+import com.hospital.backend.enums.ReportJobPriority;
+import com.hospital.backend.enums.ReportJobStatus;
+import com.hospital.backend.enums.ReportJobType;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trabajo de reporte asíncrono y la ubicación de su resultado
+ */
+@Entity
+@Table(name = "report_jobs",
+       indexes = @Index(name = "idx_report_jobs_status_expires", columnList = "status, expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+public class ReportJob extends BaseEntity {
+
+    // Identificador público del trabajo (no secuencial)
+    @Column(name = "job_id", nullable = false, unique = true, length = 36)
+    private String jobId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "job_type", nullable = false, length = 20)
+    private ReportJobType jobType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "format", nullable = false, length = 10)
+    private ExportFormat format;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "priority", nullable = false, length = 10)
+    private ReportJobPriority priority = ReportJobPriority.NORMAL;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private ReportJobStatus status = ReportJobStatus.QUEUED;
+
+    // Parámetros de la solicitud en JSON
+    @Column(name = "parameters", columnDefinition = "TEXT")
+    private String parameters;
+
+    @Column(name = "requested_by", length = 100)
+    private String requestedBy;
+
+    @Column(name = "file_name")
+    private String fileName;
+
+    @Column(name = "file_path", length = 500)
+    private String filePath;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "rows_written")
+    private Long rowsWritten;
+
+    @Column(name = "error_message", length = 1000)
+    private String errorMessage;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @Column(name = "expires_at")
+    private LocalDateTime expiresAt;
+}
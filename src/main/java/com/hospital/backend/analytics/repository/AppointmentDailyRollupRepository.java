@@ -0,0 +1,93 @@
+package com.hospital.backend.analytics.repository;
+
+import com.hospital.backend.analytics.entity.AppointmentDailyRollup;
+import com.hospital.backend.common.util.Constants;
+import com.hospital.backend.enums.AppointmentStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio para el resumen diario de citas
+ */
+@Repository
+public interface AppointmentDailyRollupRepository extends JpaRepository<AppointmentDailyRollup, Long> {
+
+    // Eliminar el resumen de un rango de fechas [startDate, endDate)
+    @Modifying
+    @Query("DELETE FROM AppointmentDailyRollup r WHERE r.rollupDate >= :startDate AND r.rollupDate < :endDate")
+    int deleteRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Recalcular el resumen de un rango de fechas [startDate, endDate) desde la tabla appointments
+    @Modifying
+    @Query("INSERT INTO AppointmentDailyRollup (rollupDate, specialtyId, doctorId, status, " +
+           "appointmentCount, consultationAmount, createdAt, updatedAt) " +
+           "SELECT a.appointmentDate, s.id, a.doctor.id, a.status, " +
+           "COUNT(a), COALESCE(SUM(s.consultationPrice), 0), LOCAL DATETIME, LOCAL DATETIME " +
+           "FROM Appointment a JOIN a.specialty s " +
+           "WHERE a.appointmentDate >= :startDate AND a.appointmentDate < :endDate " +
+           "GROUP BY a.appointmentDate, s.id, a.doctor.id, a.status")
+    int insertRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Filas del resumen en un rango de fechas (ambos extremos incluidos)
+    List<AppointmentDailyRollup> findByRollupDateBetween(LocalDate startDate, LocalDate endDate);
+
+    // Totales generales: [total, pendientes, citas de hoy, citas de hoy que ocupan cupo]
+    @Query("SELECT COALESCE(SUM(r.appointmentCount), 0), " +
+           "COALESCE(SUM(r.appointmentCount) FILTER (WHERE r.status = :pendingStatus), 0), " +
+           "COALESCE(SUM(r.appointmentCount) FILTER (WHERE r.rollupDate = :today), 0), " +
+           "COALESCE(SUM(r.appointmentCount) FILTER (WHERE r.rollupDate = :today AND r.status IN :occupyingStatuses), 0) " +
+           "FROM AppointmentDailyRollup r")
+    List<Object[]> aggregateTotals(@Param("today") LocalDate today,
+                                   @Param("pendingStatus") AppointmentStatus pendingStatus,
+                                   @Param("occupyingStatuses") List<AppointmentStatus> occupyingStatuses);
+
+    // Citas por día en un rango: [fecha, cantidad]
+    @Query("SELECT r.rollupDate, SUM(r.appointmentCount) FROM AppointmentDailyRollup r " +
+           "WHERE r.rollupDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.rollupDate")
+    List<Object[]> sumPerDay(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Especialidades con más citas en un estado: [id, nombre, cantidad, monto]
+    @Query("SELECT r.specialtyId, s.name, SUM(r.appointmentCount), SUM(r.consultationAmount) " +
+           "FROM AppointmentDailyRollup r JOIN Specialty s ON s.id = r.specialtyId " +
+           "WHERE r.status = :status " +
+           "GROUP BY r.specialtyId, s.name " +
+           "ORDER BY SUM(r.appointmentCount) DESC " +
+           "LIMIT :limit")
+    List<Object[]> findTopSpecialties(@Param("status") AppointmentStatus status, @Param("limit") int limit);
+
+    // Doctores con más citas en un estado: [id, nombre, especialidad, cantidad, monto]
+    @Query("SELECT r.doctorId, CONCAT(d.firstName, ' ', d.lastName), s.name, " +
+           "SUM(r.appointmentCount), SUM(r.consultationAmount) " +
+           "FROM AppointmentDailyRollup r JOIN Doctor d ON d.id = r.doctorId JOIN Specialty s ON s.id = r.specialtyId " +
+           "WHERE r.status = :status " +
+           "GROUP BY r.doctorId, d.firstName, d.lastName, s.name " +
+           "ORDER BY SUM(r.appointmentCount) DESC " +
+           "LIMIT :limit")
+    List<Object[]> findTopDoctors(@Param("status") AppointmentStatus status, @Param("limit") int limit);
+
+    // Recorre el resumen de un rango por lotes: [fecha, estado, cantidad, monto de consultas].
+    // Cada filtro se ignora si su bandera all* es true
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAM_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r.rollupDate, r.status, r.appointmentCount, r.consultationAmount FROM AppointmentDailyRollup r " +
+           "WHERE r.rollupDate BETWEEN :startDate AND :endDate AND " +
+           "(:allDoctors = true OR r.doctorId IN :doctorIds) AND " +
+           "(:allSpecialties = true OR r.specialtyId IN :specialtyIds)")
+    Stream<Object[]> streamRange(@Param("startDate") LocalDate startDate,
+                                 @Param("endDate") LocalDate endDate,
+                                 @Param("allDoctors") boolean allDoctors,
+                                 @Param("doctorIds") List<Long> doctorIds,
+                                 @Param("allSpecialties") boolean allSpecialties,
+                                 @Param("specialtyIds") List<Long> specialtyIds);
+}
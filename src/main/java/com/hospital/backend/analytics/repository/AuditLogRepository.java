@@ -1,16 +1,21 @@
 package com.hospital.backend.analytics.repository;
 
 import com.hospital.backend.analytics.entity.AuditLog;
+import com.hospital.backend.common.util.Constants;
 import com.hospital.backend.enums.OperationType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Repositorio para operaciones con logs de auditoría
@@ -76,16 +81,16 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     // Buscar por éxito/error
     Page<AuditLog> findBySuccessful(Boolean successful, Pageable pageable);
     
-    // Búsqueda avanzada
+    // Búsqueda avanzada. El rango de fechas es obligatorio: con límites fijos sobre createdAt
+    // PostgreSQL sólo lee las particiones mensuales del rango
     @Query("SELECT a FROM AuditLog a WHERE " +
+           "a.createdAt >= :startDate AND a.createdAt <= :endDate AND " +
            "(:userId IS NULL OR a.userId = :userId) AND " +
            "(:operationType IS NULL OR a.operationType = :operationType) AND " +
            "(:entityName IS NULL OR a.entityName = :entityName) AND " +
            "(:entityId IS NULL OR a.entityId = :entityId) AND " +
            "(:module IS NULL OR a.module = :module) AND " +
-           "(:successful IS NULL OR a.successful = :successful) AND " +
-           "(:startDate IS NULL OR a.createdAt >= :startDate) AND " +
-           "(:endDate IS NULL OR a.createdAt <= :endDate)")
+           "(:successful IS NULL OR a.successful = :successful)")
     Page<AuditLog> search(
             @Param("userId") Long userId,
             @Param("operationType") OperationType operationType,
@@ -96,4 +101,74 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate,
             Pageable pageable);
-} 
\ No newline at end of file
+    
+    // Paginación keyset por (createdAt DESC, id DESC) sin consulta de conteo, dentro de un rango de fechas obligatorio
+    @Query("SELECT a FROM AuditLog a WHERE " +
+           "a.createdAt >= :startDate AND a.createdAt <= :endDate AND " +
+           "(:userId IS NULL OR a.userId = :userId) AND " +
+           "(:operationType IS NULL OR a.operationType = :operationType) AND " +
+           "(:successful IS NULL OR a.successful = :successful) AND " +
+           "(:afterCreatedAt IS NULL OR a.createdAt < :afterCreatedAt OR " +
+           "(a.createdAt = :afterCreatedAt AND a.id < :afterId)) " +
+           "ORDER BY a.createdAt DESC, a.id DESC " +
+           "LIMIT :limit")
+    List<AuditLog> findPageAfter(
+            @Param("userId") Long userId,
+            @Param("operationType") OperationType operationType,
+            @Param("successful") Boolean successful,
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+            @Param("afterId") Long afterId,
+            @Param("limit") int limit);
+    
+    // Recorrer logs de un rango [startDate, endDate) para exportación, por lotes y ordenados por id:
+    // [id, fecha, usuario, operación, módulo, entidad, id de entidad, éxito, descripción, tiempo de ejecución]
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAM_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT a.id, a.createdAt, a.username, a.operationType, a.module, a.entityName, a.entityId, " +
+           "a.successful, a.description, a.executionTimeMs FROM AuditLog a " +
+           "WHERE a.createdAt >= :startDate AND a.createdAt < :endDate " +
+           "ORDER BY a.id")
+    Stream<Object[]> streamForExport(@Param("startDate") LocalDateTime startDate,
+                                     @Param("endDate") LocalDateTime endDate);
+    
+    // Vector de búsqueda: entidad y usuario con peso A, descripción con peso B. Debe coincidir con la expresión
+    // del índice idx_audit_logs_search (audit_search_index.sql) para que PostgreSQL lo use
+    String SEARCH_VECTOR =
+            "(setweight(to_tsvector('spanish', coalesce(a.entity_name, '')), 'A') || " +
+            "setweight(to_tsvector('spanish', coalesce(a.username, '')), 'A') || " +
+            "setweight(to_tsvector('spanish', coalesce(a.description, '')), 'B'))";
+    
+    // Búsqueda de texto (PostgreSQL): coincidencias del vector de búsqueda (índice GIN) dentro del rango,
+    // ordenadas por relevancia. La consulta admite la sintaxis de websearch_to_tsquery: "frase", OR, -excluir
+    @Query(nativeQuery = true, value =
+           "SELECT a.* FROM audit_logs a, websearch_to_tsquery('spanish', :query) q " +
+           "WHERE " + SEARCH_VECTOR + " @@ q AND a.created_at >= :startDate AND a.created_at <= :endDate " +
+           "AND (CAST(:successful AS boolean) IS NULL OR a.status = CAST(:successful AS boolean)) " +
+           "ORDER BY ts_rank_cd(" + SEARCH_VECTOR + ", q) DESC, a.created_at DESC " +
+           "LIMIT :limit")
+    List<AuditLog> searchText(@Param("query") String query,
+                              @Param("startDate") LocalDateTime startDate,
+                              @Param("endDate") LocalDateTime endDate,
+                              @Param("successful") Boolean successful,
+                              @Param("limit") int limit);
+    
+    // Búsqueda de texto sin PostgreSQL: el término completo en entidad, usuario o descripción, más recientes primero
+    @Query("SELECT a FROM AuditLog a WHERE a.createdAt >= :startDate AND a.createdAt <= :endDate " +
+           "AND (:successful IS NULL OR a.successful = :successful) " +
+           "AND (LOWER(a.entityName) LIKE LOWER(CONCAT('%', :query, '%')) " +
+           "OR LOWER(a.username) LIKE LOWER(CONCAT('%', :query, '%')) " +
+           "OR LOWER(a.description) LIKE LOWER(CONCAT('%', :query, '%'))) " +
+           "ORDER BY a.createdAt DESC")
+    List<AuditLog> searchTextByLike(@Param("query") String query,
+                                    @Param("startDate") LocalDateTime startDate,
+                                    @Param("endDate") LocalDateTime endDate,
+                                    @Param("successful") Boolean successful,
+                                    Pageable pageable);
+    
+    // Contar logs de un rango [startDate, endDate)
+    @Query("SELECT COUNT(a) FROM AuditLog a WHERE a.createdAt >= :startDate AND a.createdAt < :endDate")
+    long countForExport(@Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate);
+}
@@ -0,0 +1,74 @@
+package com.hospital.backend.analytics.repository;
+
+import com.hospital.backend.analytics.entity.PaymentDailyRollup;
+import com.hospital.backend.common.util.Constants;
+import com.hospital.backend.enums.PaymentStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio para el resumen diario de pagos
+ */
+@Repository
+public interface PaymentDailyRollupRepository extends JpaRepository<PaymentDailyRollup, Long> {
+
+    // Eliminar el resumen de un rango de fechas [startDate, endDate)
+    @Modifying
+    @Query("DELETE FROM PaymentDailyRollup r WHERE r.rollupDate >= :startDate AND r.rollupDate < :endDate")
+    int deleteRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Recalcular el resumen de un rango [startDate, endDate) desde la tabla payments.
+    // La fecha del resumen es la del pago o, si no tiene, la de registro
+    @Modifying
+    @Query("INSERT INTO PaymentDailyRollup (rollupDate, methodType, status, paymentCount, " +
+           "amount, totalAmount, processingFee, createdAt, updatedAt) " +
+           "SELECT CAST(COALESCE(p.paymentDate, p.createdAt) AS LocalDate), pm.type, p.status, COUNT(p), " +
+           "COALESCE(SUM(p.amount), 0), COALESCE(SUM(p.totalAmount), 0), COALESCE(SUM(p.processingFee), 0), " +
+           "LOCAL DATETIME, LOCAL DATETIME " +
+           "FROM Payment p JOIN p.paymentMethod pm " +
+           "WHERE (p.paymentDate >= :startDate AND p.paymentDate < :endDate) OR " +
+           "(p.paymentDate IS NULL AND p.createdAt >= :startDate AND p.createdAt < :endDate) " +
+           "GROUP BY CAST(COALESCE(p.paymentDate, p.createdAt) AS LocalDate), pm.type, p.status")
+    int insertRange(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate);
+
+    // Totales por tipo de método y estado en un rango: [tipo, estado, cantidad, monto, monto total, comisiones]
+    @Query("SELECT r.methodType, r.status, SUM(r.paymentCount), SUM(r.amount), SUM(r.totalAmount), SUM(r.processingFee) " +
+           "FROM PaymentDailyRollup r " +
+           "WHERE r.rollupDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.methodType, r.status")
+    List<Object[]> summarizeRange(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+
+    // Ingresos totales y de un día: [total, total del día]
+    @Query("SELECT COALESCE(SUM(r.amount), 0), " +
+           "COALESCE(SUM(r.amount) FILTER (WHERE r.rollupDate = :day), 0) " +
+           "FROM PaymentDailyRollup r WHERE r.status = :status")
+    List<Object[]> aggregateAmounts(@Param("status") PaymentStatus status, @Param("day") LocalDate day);
+
+    // Montos por día en un rango: [fecha, monto]
+    @Query("SELECT r.rollupDate, SUM(r.amount) FROM PaymentDailyRollup r " +
+           "WHERE r.status = :status AND r.rollupDate BETWEEN :startDate AND :endDate " +
+           "GROUP BY r.rollupDate")
+    List<Object[]> sumAmountPerDay(@Param("status") PaymentStatus status,
+                                   @Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate);
+
+    // Recorre el resumen de un estado en un rango por lotes: [fecha, monto]
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAM_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT r.rollupDate, r.amount FROM PaymentDailyRollup r " +
+           "WHERE r.status = :status AND r.rollupDate BETWEEN :startDate AND :endDate")
+    Stream<Object[]> streamAmounts(@Param("status") PaymentStatus status,
+                                   @Param("startDate") LocalDate startDate,
+                                   @Param("endDate") LocalDate endDate);
+}
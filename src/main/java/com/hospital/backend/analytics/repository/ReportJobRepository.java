@@ -0,0 +1,32 @@
+package com.hospital.backend.analytics.repository;
+
+import com.hospital.backend.analytics.entity.ReportJob;
+import com.hospital.backend.enums.ReportJobStatus;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio para trabajos de reporte asíncronos
+ */
+@Repository
+public interface ReportJobRepository extends JpaRepository<ReportJob, Long> {
+
+    // Buscar por identificador público
+    Optional<ReportJob> findByJobId(String jobId);
+
+    // Trabajos de un usuario, más recientes primero
+    Page<ReportJob> findByRequestedByOrderByCreatedAtDesc(String requestedBy, Pageable pageable);
+
+    // Trabajos en ciertos estados (recuperación al iniciar)
+    List<ReportJob> findByStatusIn(Collection<ReportJobStatus> statuses);
+
+    // Trabajos cuyo archivo ya venció
+    List<ReportJob> findByStatusAndExpiresAtBefore(ReportJobStatus status, LocalDateTime dateTime);
+}
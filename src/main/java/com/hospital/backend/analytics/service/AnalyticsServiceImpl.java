@@ -2,26 +2,307 @@ package com.hospital.backend.analytics.service;
 
 import com.hospital.backend.analytics.dto.AnalyticsRequest;
 import com.hospital.backend.analytics.dto.AnalyticsResponse;
+import com.hospital.backend.analytics.dto.AnalyticsResponse.ChartData;
+import com.hospital.backend.analytics.repository.AppointmentDailyRollupRepository;
+import com.hospital.backend.analytics.repository.PaymentDailyRollupRepository;
+import com.hospital.backend.appointment.repository.AppointmentRepository;
+import com.hospital.backend.common.exception.ValidationException;
+import com.hospital.backend.enums.AppointmentStatus;
+import com.hospital.backend.enums.PaymentStatus;
+import com.hospital.backend.enums.PeriodType;
+import com.hospital.backend.payment.repository.PaymentRepository;
+import com.hospital.backend.user.repository.DoctorAvailabilityRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Genera métricas analíticas por período (día, semana, mes o año) en una sola pasada.
+ * Las filas se recorren como {@link Stream} de proyecciones de solo lectura leídas por lotes,
+ * y cada fila se suma al acumulador de su período: la memoria usada depende de la cantidad de
+ * períodos y no de la cantidad de citas o pagos del rango.
+ *
+ * Las citas se leen del resumen diario salvo que se filtre por paciente (dato que el resumen no guarda);
+ * los ingresos se leen del resumen de pagos salvo que haya filtros, que se aplican sobre la cita del pago.
+ */
 @Service
 @RequiredArgsConstructor
-@Transactional
+@Slf4j
+@Transactional(readOnly = true)
 public class AnalyticsServiceImpl implements AnalyticsService {
 
+    /**
+     * Valor de relleno para listas de filtro ignoradas (evita un IN vacío)
+     */
+    private static final List<Long> NO_FILTER = List.of(0L);
+
+    private final AppointmentDailyRollupRepository appointmentRollupRepository;
+    private final PaymentDailyRollupRepository paymentRollupRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final PaymentRepository paymentRepository;
+    private final DoctorAvailabilityRepository availabilityRepository;
+
     @Override
     public AnalyticsResponse generateAnalytics(AnalyticsRequest request) {
-        // Por ahora, implementación básica que retorna una respuesta vacía
-        AnalyticsResponse response = new AnalyticsResponse(
-            request.getStartDate(),
-            request.getEndDate(),
-            request.getPeriodType()
-        );
-        
-        // TODO: Implementar lógica real de generación de métricas
-        
+        long start = System.currentTimeMillis();
+        if (request.getStartDate().isAfter(request.getEndDate())) {
+            throw new ValidationException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+        log.info("Generando análisis {} desde {} hasta {}",
+                request.getPeriodType(), request.getStartDate(), request.getEndDate());
+
+        Filter filter = Filter.from(request);
+        PeriodType periodType = request.getPeriodType();
+        LocalDate startDate = request.getStartDate();
+        LocalDate endDate = request.getEndDate();
+
+        Map<LocalDate, Bucket> buckets = new TreeMap<>();
+        Map<AppointmentStatus, Long> statusTotals = new EnumMap<>(AppointmentStatus.class);
+        Bucket total = new Bucket();
+
+        // [fecha, estado, cantidad, monto de consultas]
+        try (Stream<Object[]> rows = streamAppointments(startDate, endDate, filter)) {
+            rows.forEach(row -> {
+                LocalDate date = (LocalDate) row[0];
+                AppointmentStatus status = (AppointmentStatus) row[1];
+                long count = ((Number) row[2]).longValue();
+                BigDecimal amount = row[3] != null ? (BigDecimal) row[3] : BigDecimal.ZERO;
+                bucket(buckets, date, periodType).addAppointments(status, count, amount);
+                total.addAppointments(status, count, amount);
+                statusTotals.merge(status, count, Long::sum);
+            });
+        }
+
+        // [fecha, monto]
+        try (Stream<Object[]> rows = streamRevenue(startDate, endDate, filter)) {
+            rows.forEach(row -> {
+                LocalDate date = row[0] instanceof LocalDateTime dateTime ? dateTime.toLocalDate() : (LocalDate) row[0];
+                BigDecimal amount = row[1] != null ? (BigDecimal) row[1] : BigDecimal.ZERO;
+                bucket(buckets, date, periodType).addRevenue(amount);
+                total.addRevenue(amount);
+            });
+        }
+
+        // La capacidad se arma con la plantilla semanal: un paso por día del rango, no por registro
+        long[] capacityByDay = capacityByDayOfWeek(filter);
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            long capacity = capacityByDay[date.getDayOfWeek().getValue()];
+            bucket(buckets, date, periodType).capacity += capacity;
+            total.capacity += capacity;
+        }
+
+        AnalyticsResponse response = new AnalyticsResponse(startDate, endDate, periodType);
+        response.addMetric("totalAppointments", total.appointments);
+        response.addMetric("completedAppointments", total.completed);
+        response.addMetric("cancelledAppointments", total.cancelled);
+        response.addMetric("noShowAppointments", total.noShow);
+        response.addMetric("noShowRate", total.noShowRate());
+        response.addMetric("completionRate", rate(total.completed, total.appointments));
+        response.addMetric("occupancyRate", total.occupancyRate());
+        response.addMetric("consultationRevenue", total.consultationRevenue);
+        response.addMetric("totalRevenue", total.revenue);
+        Map<String, Long> byStatus = new TreeMap<>();
+        statusTotals.forEach((status, count) -> byStatus.put(status.name(), count));
+        response.addMetric("appointmentsByStatus", byStatus);
+
+        if (!Boolean.FALSE.equals(request.getIncludeCharts())) {
+            addCharts(response, buckets);
+        }
+
+        response.setGenerationTimeMs(System.currentTimeMillis() - start);
         return response;
     }
-} 
\ No newline at end of file
+
+    private Stream<Object[]> streamAppointments(LocalDate startDate, LocalDate endDate, Filter filter) {
+        if (filter.allPatients()) {
+            return appointmentRollupRepository.streamRange(startDate, endDate,
+                    filter.allDoctors(), filter.doctorIds(), filter.allSpecialties(), filter.specialtyIds());
+        }
+        // Sin resumen por paciente: se recorren las citas, una fila por cita
+        return appointmentRepository.streamAnalyticsRows(startDate, endDate,
+                        filter.allDoctors(), filter.doctorIds(), filter.allSpecialties(), filter.specialtyIds(),
+                        filter.allPatients(), filter.patientIds())
+                .map(row -> new Object[]{row[0], row[1], 1L, row[2]});
+    }
+
+    private Stream<Object[]> streamRevenue(LocalDate startDate, LocalDate endDate, Filter filter) {
+        if (filter.unfiltered()) {
+            return paymentRollupRepository.streamAmounts(PaymentStatus.COMPLETED, startDate, endDate);
+        }
+        return paymentRepository.streamRevenueRows(PaymentStatus.COMPLETED,
+                startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(),
+                filter.allDoctors(), filter.doctorIds(), filter.allSpecialties(), filter.specialtyIds(),
+                filter.allPatients(), filter.patientIds());
+    }
+
+    /**
+     * Capacidad habilitada indexada por día de la semana (1=Lunes, 7=Domingo)
+     */
+    private long[] capacityByDayOfWeek(Filter filter) {
+        long[] capacity = new long[8];
+        for (Object[] row : availabilityRepository.sumCapacityByDayOfWeek(
+                filter.allDoctors(), filter.doctorIds(), filter.allSpecialties(), filter.specialtyIds())) {
+            int dayOfWeek = ((Number) row[0]).intValue();
+            if (dayOfWeek >= 1 && dayOfWeek <= 7 && row[1] != null) {
+                capacity[dayOfWeek] = ((Number) row[1]).longValue();
+            }
+        }
+        return capacity;
+    }
+
+    private void addCharts(AnalyticsResponse response, Map<LocalDate, Bucket> buckets) {
+        List<String> labels = new ArrayList<>();
+        List<Object> appointments = new ArrayList<>();
+        List<Object> completed = new ArrayList<>();
+        List<Object> noShow = new ArrayList<>();
+        List<Object> revenue = new ArrayList<>();
+        List<Object> occupancy = new ArrayList<>();
+        buckets.forEach((date, bucket) -> {
+            labels.add(date.toString());
+            appointments.add(bucket.appointments);
+            completed.add(bucket.completed);
+            noShow.add(bucket.noShow);
+            revenue.add(bucket.revenue);
+            occupancy.add(bucket.occupancyRate());
+        });
+
+        response.addChart(ChartData.builder()
+                .chartId("appointments")
+                .title("Citas por período")
+                .type("bar")
+                .labels(labels)
+                .series(List.of(
+                        series("Total", appointments),
+                        series("Completadas", completed),
+                        series("No asistió", noShow)))
+                .build());
+        response.addChart(ChartData.builder()
+                .chartId("revenue")
+                .title("Ingresos por período")
+                .type("line")
+                .labels(labels)
+                .series(List.of(series("Ingresos", revenue)))
+                .build());
+        response.addChart(ChartData.builder()
+                .chartId("occupancy")
+                .title("Ocupación por período (%)")
+                .type("line")
+                .labels(labels)
+                .series(List.of(series("Ocupación", occupancy)))
+                .build());
+    }
+
+    private static ChartData.Series series(String name, List<Object> data) {
+        return ChartData.Series.builder().name(name).data(data).build();
+    }
+
+    private static Bucket bucket(Map<LocalDate, Bucket> buckets, LocalDate date, PeriodType periodType) {
+        return buckets.computeIfAbsent(bucketStart(date, periodType), d -> new Bucket());
+    }
+
+    /**
+     * Primer día del período al que pertenece una fecha
+     */
+    static LocalDate bucketStart(LocalDate date, PeriodType periodType) {
+        return switch (periodType) {
+            case DAILY -> date;
+            case WEEKLY -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTHLY -> date.withDayOfMonth(1);
+            case YEARLY -> date.withDayOfYear(1);
+        };
+    }
+
+    private static BigDecimal rate(long part, long whole) {
+        if (whole <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(part)
+                .multiply(BigDecimal.valueOf(100))
+                .divide(BigDecimal.valueOf(whole), 2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Filtros de la solicitud; una lista vacía o ausente significa "todos"
+     */
+    private record Filter(boolean allDoctors, List<Long> doctorIds,
+                          boolean allSpecialties, List<Long> specialtyIds,
+                          boolean allPatients, List<Long> patientIds) {
+
+        static Filter from(AnalyticsRequest request) {
+            return new Filter(
+                    isEmpty(request.getDoctorIds()), orNoFilter(request.getDoctorIds()),
+                    isEmpty(request.getSpecialtyIds()), orNoFilter(request.getSpecialtyIds()),
+                    isEmpty(request.getPatientIds()), orNoFilter(request.getPatientIds()));
+        }
+
+        boolean unfiltered() {
+            return allDoctors && allSpecialties && allPatients;
+        }
+
+        private static boolean isEmpty(List<Long> ids) {
+            return ids == null || ids.isEmpty();
+        }
+
+        private static List<Long> orNoFilter(List<Long> ids) {
+            return isEmpty(ids) ? NO_FILTER : ids;
+        }
+    }
+
+    /**
+     * Acumulador de un período
+     */
+    private static final class Bucket {
+        private long appointments;
+        private long completed;
+        private long cancelled;
+        private long noShow;
+        private long capacity;
+        private BigDecimal consultationRevenue = BigDecimal.ZERO;
+        private BigDecimal revenue = BigDecimal.ZERO;
+
+        private void addAppointments(AppointmentStatus status, long count, BigDecimal amount) {
+            appointments += count;
+            switch (status) {
+                case COMPLETED -> {
+                    completed += count;
+                    consultationRevenue = consultationRevenue.add(amount);
+                }
+                case CANCELLED -> cancelled += count;
+                case NO_SHOW -> noShow += count;
+                default -> { }
+            }
+        }
+
+        private void addRevenue(BigDecimal amount) {
+            revenue = revenue.add(amount);
+        }
+
+        /**
+         * Inasistencias sobre las citas que llegaron a su fecha (completadas o no asistidas)
+         */
+        private BigDecimal noShowRate() {
+            return rate(noShow, completed + noShow);
+        }
+
+        /**
+         * Cupos usados (toda cita no cancelada) sobre la capacidad habilitada del período
+         */
+        private BigDecimal occupancyRate() {
+            return rate(appointments - cancelled, capacity);
+        }
+    }
+}
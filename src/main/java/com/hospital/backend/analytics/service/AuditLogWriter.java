@@ -0,0 +1,262 @@
+package com.hospital.backend.analytics.service;
+
+import com.hospital.backend.analytics.entity.AuditLog;
+import com.hospital.backend.common.concurrent.BoundedRingBuffer;
+import com.hospital.backend.config.AuditProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Escritura diferida de logs de auditoría.
+ *
+ * Los logs se arman en el hilo que los registra (usuario, IP, URL) y se dejan en una
+ * {@link BoundedRingBuffer}; un hilo de fondo los inserta en lotes JDBC cuando se juntan
+ * {@code app.audit.batch-size} o pasa {@code app.audit.flush-interval-ms}. Las filas se insertan
+ * sin pasar por Hibernate (que no agrupa inserciones con ids IDENTITY) y el id lo asigna la base.
+ *
+ * Un lote que falla se reintenta fila por fila, así una fila inválida no arrastra al resto.
+ *
+ * Si la cola está llena el llamador espera hasta {@code app.audit.offer-timeout-ms} y luego el log
+ * se descarta y se cuenta en {@code audit.writer.dropped}. Al detener la aplicación se escribe
+ * todo lo pendiente; los logs que llegan después se insertan directamente.
+ */
+@Component
+@Slf4j
+public class AuditLogWriter implements SmartLifecycle {
+
+    private static final String INSERT_SQL = "INSERT INTO audit_logs (user_id, username, user_ip, user_agent, " +
+            "operation_type, entity_name, entity_id, description, request_url, request_method, request_params, " +
+            "old_value, new_value, status, error_message, execution_time_ms, session_id, module, action, " +
+            "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_TYPES = {
+            Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN, Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.TIMESTAMP, Types.TIMESTAMP};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final BoundedRingBuffer<AuditLog> buffer;
+
+    private final Counter enqueued;
+    private final Counter written;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Counter backpressure;
+    private final Timer batchTimer;
+
+    private volatile Thread writerThread;
+    private volatile boolean running;
+
+    public AuditLogWriter(JdbcTemplate jdbcTemplate,
+                          AuditProperties properties,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.buffer = new BoundedRingBuffer<>(properties.getBufferCapacity());
+
+        this.enqueued = meterRegistry.counter("audit.writer.enqueued");
+        this.written = meterRegistry.counter("audit.writer.written");
+        this.dropped = meterRegistry.counter("audit.writer.dropped");
+        this.failed = meterRegistry.counter("audit.writer.failed");
+        this.backpressure = meterRegistry.counter("audit.writer.backpressure");
+        this.batchTimer = meterRegistry.timer("audit.writer.batch");
+        Gauge.builder("audit.writer.pending", buffer, BoundedRingBuffer::size).register(meterRegistry);
+    }
+
+    /**
+     * Registra un log para escribirlo en el próximo lote
+     */
+    public void write(AuditLog auditLog) {
+        LocalDateTime now = LocalDateTime.now();
+        auditLog.setCreatedAt(now);
+        auditLog.setUpdatedAt(now);
+
+        if (!running) {
+            insert(List.of(auditLog));
+            return;
+        }
+        if (!buffer.offer(auditLog) && !awaitCapacity(auditLog)) {
+            dropped.increment();
+            log.warn("Cola de auditoría llena: se descartó el log {} {}",
+                    auditLog.getOperationType(), auditLog.getEntityName());
+            return;
+        }
+        enqueued.increment();
+        if (buffer.size() >= properties.getBatchSize()) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Escribe de inmediato todo lo pendiente (para pruebas y tareas que leen la auditoría)
+     */
+    public synchronized void flush() {
+        List<AuditLog> batch = new ArrayList<>(properties.getBatchSize());
+        while (buffer.drainTo(batch, properties.getBatchSize()) > 0) {
+            insert(batch);
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isWriteBehind() || running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::runWriter, "audit-writer");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = writerThread;
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(properties.getShutdownTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Lo que haya entrado mientras se detenía
+        flush();
+        writerThread = null;
+        log.info("Escritor de auditoría detenido");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Se detiene después del servidor web, para escribir los logs de las últimas solicitudes
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void runWriter() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+        long nextFlush = System.nanoTime() + intervalNanos;
+        while (running) {
+            long now = System.nanoTime();
+            if (buffer.size() >= properties.getBatchSize() || now - nextFlush >= 0) {
+                flush();
+                nextFlush = System.nanoTime() + intervalNanos;
+            } else {
+                LockSupport.parkNanos(this, nextFlush - now);
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Espera lugar en la cola llena hasta el tiempo límite
+     */
+    private boolean awaitCapacity(AuditLog auditLog) {
+        backpressure.increment();
+        LockSupport.unpark(writerThread);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getOfferTimeoutMs());
+        while (System.nanoTime() - deadline < 0 && running) {
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+            if (buffer.offer(auditLog)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Inserta el lote en una transacción. Si falla, nada queda escrito y se reintenta fila por fila,
+     * de modo que sólo se pierden (y cuentan en {@code audit.writer.failed}) las filas rechazadas.
+     */
+    private void insert(List<AuditLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (batch.size() == 1) {
+            // Inserción directa (sin cola): una sola fila no necesita transacción propia
+            insertRow(batch.get(0));
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (AuditLog auditLog : batch) {
+            rows.add(toRow(auditLog));
+        }
+        try {
+            batchTimer.record(() -> transactionTemplate.executeWithoutResult(
+                    status -> jdbcTemplate.batchUpdate(INSERT_SQL, rows, INSERT_TYPES)));
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            log.warn("Falló el lote de {} logs de auditoría, se reintenta fila por fila: {}", rows.size(), e.getMessage());
+            for (AuditLog auditLog : batch) {
+                insertRow(auditLog);
+            }
+        }
+    }
+
+    private void insertRow(AuditLog auditLog) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, toRow(auditLog), INSERT_TYPES);
+            written.increment();
+        } catch (RuntimeException e) {
+            failed.increment();
+            log.error("No se pudo escribir el log de auditoría {} {} {} ({}): {}", auditLog.getOperationType(),
+                    auditLog.getEntityName(), auditLog.getEntityId(), auditLog.getCreatedAt(), e.getMessage());
+        }
+    }
+
+    private static Object[] toRow(AuditLog auditLog) {
+        return new Object[]{
+                auditLog.getUserId(),
+                auditLog.getUsername(),
+                auditLog.getUserIp(),
+                auditLog.getUserAgent(),
+                auditLog.getOperationType() != null ? auditLog.getOperationType().name() : null,
+                auditLog.getEntityName(),
+                auditLog.getEntityId(),
+                auditLog.getDescription(),
+                auditLog.getRequestUrl(),
+                auditLog.getRequestMethod(),
+                auditLog.getRequestParams(),
+                auditLog.getOldValue(),
+                auditLog.getNewValue(),
+                auditLog.getSuccessful(),
+                auditLog.getErrorMessage(),
+                auditLog.getExecutionTimeMs(),
+                auditLog.getSessionId(),
+                auditLog.getModule(),
+                auditLog.getAction(),
+                Timestamp.valueOf(auditLog.getCreatedAt()),
+                Timestamp.valueOf(auditLog.getUpdatedAt())
+        };
+    }
+}
@@ -0,0 +1,294 @@
+package com.hospital.backend.analytics.service;
+
+import com.hospital.backend.config.AuditProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Particionado mensual de audit_logs en PostgreSQL.
+ *
+ * Al iniciar, si audit_logs todavía es una tabla común se convierte en tabla particionada por rango
+ * de created_at: la tabla existente queda como partición histórica (audit_logs_legacy) hasta el fin del
+ * mes en curso, sin copiar filas. Luego se mantienen creadas las particiones de los próximos meses y,
+ * cada noche, las particiones más antiguas que la retención se separan o se eliminan en lugar de
+ * borrar filas con DELETE. Una partición DEFAULT (audit_logs_default) recibe las filas que no caen en
+ * ningún mes creado, para que la inserción nunca falle; el mantenimiento las mueve a su partición al crearla
+ * y avisa en el log si quedan filas allí.
+ *
+ * Las consultas que filtran por created_at con límites fijos sólo leen las particiones del rango.
+ * En otras bases de datos (H2 en pruebas) no hace nada.
+ */
+@Service
+@Slf4j
+public class AuditPartitionService {
+
+    static final String TABLE = "audit_logs";
+    static final String LEGACY_TABLE = "audit_logs_legacy";
+    static final String DEFAULT_PARTITION = "audit_logs_default";
+    private static final String SEQUENCE = "audit_logs_id_seq";
+
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public AuditPartitionService(JdbcTemplate jdbcTemplate,
+                                 AuditProperties properties,
+                                 PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Convierte la tabla si hace falta y crea las particiones próximas
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!isEnabled()) {
+            return;
+        }
+        try {
+            if (!isPartitioned()) {
+                convertToPartitioned(YearMonth.now());
+            }
+            ensureDefaultPartition();
+            createUpcomingPartitions(YearMonth.now());
+            checkDefaultPartition();
+        } catch (RuntimeException e) {
+            log.error("No se pudo preparar el particionado de {}: {}", TABLE, e.getMessage());
+        }
+    }
+
+    /**
+     * Mantenimiento nocturno: particiones faltantes y futuras, retención y revisión de la partición por defecto
+     */
+    @Scheduled(cron = "${app.audit.partition-cron:0 15 3 * * *}")
+    public void maintain() {
+        if (!isEnabled() || !isPartitioned()) {
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        ensureDefaultPartition();
+        createUpcomingPartitions(current);
+        applyRetention(current);
+        checkDefaultPartition();
+    }
+
+    /**
+     * Crea las particiones mensuales que falten hasta {@code partitionsAhead} meses adelante, empezando después
+     * de la última partición existente. Si el mantenimiento no corrió durante meses, también crea los meses
+     * salteados (dentro de la retención); las filas de esos meses que cayeron en la partición por defecto se
+     * mueven a la partición nueva.
+     */
+    void createUpcomingPartitions(YearMonth current) {
+        LocalDateTime coveredUntil = partitions().stream()
+                .map(Partition::upperBound)
+                .filter(bound -> bound != null)
+                .max(LocalDateTime::compareTo)
+                .orElse(null);
+
+        YearMonth last = current.plusMonths(Math.max(0, properties.getPartitionsAhead()));
+        for (YearMonth month = firstMonthToCreate(coveredUntil, current, properties.getRetentionMonths());
+             !month.isAfter(last); month = month.plusMonths(1)) {
+            LocalDateTime start = month.atDay(1).atStartOfDay();
+            if (coveredUntil != null && start.isBefore(coveredUntil)) {
+                continue;
+            }
+            createPartition(month);
+        }
+    }
+
+    /**
+     * Primer mes a revisar: el mes en curso o, si la última partición termina antes, ese mes
+     * (sin ir más atrás que la retención)
+     */
+    static YearMonth firstMonthToCreate(LocalDateTime coveredUntil, YearMonth current, int retentionMonths) {
+        YearMonth first = current;
+        if (coveredUntil != null && YearMonth.from(coveredUntil).isBefore(current)) {
+            first = YearMonth.from(coveredUntil);
+        }
+        if (retentionMonths > 0 && first.isBefore(current.minusMonths(retentionMonths))) {
+            first = current.minusMonths(retentionMonths);
+        }
+        return first;
+    }
+
+    /**
+     * Crea la partición del mes. Con filas del mes en la partición por defecto, PostgreSQL no permite crearla:
+     * se sacan de la partición por defecto, se crea la partición y se vuelven a insertar, en una transacción.
+     */
+    private void createPartition(YearMonth month) {
+        String start = month.atDay(1).atStartOfDay().format(BOUND_FORMAT);
+        String end = month.plusMonths(1).atDay(1).atStartOfDay().format(BOUND_FORMAT);
+        String create = String.format("CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                partitionName(month), TABLE, start, end);
+        String range = "created_at >= '" + start + "' AND created_at < '" + end + "'";
+
+        Integer moved = transactionTemplate.execute(status -> {
+            Integer pending = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM " + DEFAULT_PARTITION + " WHERE " + range, Integer.class);
+            if (pending == null || pending == 0) {
+                jdbcTemplate.execute(create);
+                return 0;
+            }
+            jdbcTemplate.execute("CREATE TEMP TABLE audit_logs_moving ON COMMIT DROP AS " +
+                    "WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE " + range + " RETURNING *) " +
+                    "SELECT * FROM moved");
+            jdbcTemplate.execute(create);
+            jdbcTemplate.execute("INSERT INTO " + TABLE + " SELECT * FROM audit_logs_moving");
+            return pending;
+        });
+        if (moved != null && moved > 0) {
+            log.warn("Partición {} creada; {} filas movidas desde {}", partitionName(month), moved, DEFAULT_PARTITION);
+        } else {
+            log.info("Partición {} creada", partitionName(month));
+        }
+    }
+
+    /**
+     * Partición por defecto: recibe las filas fuera de las particiones mensuales (mantenimiento atrasado,
+     * reloj desfasado, fechas retroactivas) para que la inserción no falle
+     */
+    private void ensureDefaultPartition() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + DEFAULT_PARTITION + " PARTITION OF " + TABLE + " DEFAULT");
+    }
+
+    /**
+     * Avisa si quedan filas en la partición por defecto después del mantenimiento
+     */
+    private void checkDefaultPartition() {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT COUNT(*) AS total, MIN(created_at) AS oldest, MAX(created_at) AS newest FROM " + DEFAULT_PARTITION);
+        Map<String, Object> summary = rows.get(0);
+        long total = ((Number) summary.get("total")).longValue();
+        if (total > 0) {
+            log.warn("{} tiene {} filas fuera de las particiones mensuales (de {} a {}): revisar fechas y retención",
+                    DEFAULT_PARTITION, total, summary.get("oldest"), summary.get("newest"));
+        }
+    }
+
+    /**
+     * Separa o elimina las particiones cuyo rango termina antes del inicio de la retención
+     */
+    void applyRetention(YearMonth current) {
+        if (properties.getRetentionMonths() <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = current.minusMonths(properties.getRetentionMonths()).atDay(1).atStartOfDay();
+        for (Partition partition : partitions()) {
+            if (partition.upperBound() == null || partition.upperBound().isAfter(cutoff)) {
+                continue;
+            }
+            if (properties.getRetentionMode() == AuditProperties.RetentionMode.DROP) {
+                jdbcTemplate.execute("DROP TABLE " + partition.name());
+                log.info("Partición {} eliminada por retención", partition.name());
+            } else {
+                jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition.name());
+                log.info("Partición {} separada por retención (queda como tabla independiente)", partition.name());
+            }
+        }
+    }
+
+    /**
+     * Convierte audit_logs en tabla particionada conservando las filas existentes como partición histórica
+     */
+    private void convertToPartitioned(YearMonth current) {
+        LocalDateTime legacyEnd = current.plusMonths(1).atDay(1).atStartOfDay();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN ACCESS EXCLUSIVE MODE");
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+
+            // Las particiones no admiten columnas IDENTITY: el id pasa a una secuencia propia de la tabla padre
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+            jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " ALTER COLUMN id DROP DEFAULT");
+            List<String> primaryKeys = jdbcTemplate.queryForList(
+                    "SELECT conname FROM pg_constraint WHERE conrelid = '" + LEGACY_TABLE + "'::regclass AND contype = 'p'",
+                    String.class);
+            for (String constraint : primaryKeys) {
+                jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " DROP CONSTRAINT " + constraint);
+            }
+
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE);
+            jdbcTemplate.queryForObject("SELECT setval('" + SEQUENCE + "', " +
+                    "COALESCE((SELECT MAX(id) FROM " + LEGACY_TABLE + "), 0) + 1, false)", Long.class);
+
+            jdbcTemplate.execute("CREATE TABLE " + TABLE + " (LIKE " + LEGACY_TABLE +
+                    " INCLUDING DEFAULTS INCLUDING CONSTRAINTS) PARTITION BY RANGE (created_at)");
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ALTER COLUMN id SET DEFAULT nextval('" + SEQUENCE + "')");
+            jdbcTemplate.execute("ALTER SEQUENCE " + SEQUENCE + " OWNED BY " + TABLE + ".id");
+            // La clave de una tabla particionada debe incluir la columna de partición
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD PRIMARY KEY (id, created_at)");
+
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + LEGACY_TABLE +
+                    " FOR VALUES FROM (MINVALUE) TO ('" + legacyEnd.format(BOUND_FORMAT) + "')");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_audit_logs_created_at ON " + TABLE + " (created_at)");
+        });
+        log.info("{} convertida en tabla particionada por mes; filas anteriores en {}", TABLE, LEGACY_TABLE);
+    }
+
+    private List<Partition> partitions() {
+        return jdbcTemplate.query(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+                "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = '" + TABLE + "'::regclass",
+                (rs, rowNum) -> new Partition(rs.getString(1), parseUpperBound(rs.getString(2))));
+    }
+
+    private boolean isPartitioned() {
+        List<String> kinds = jdbcTemplate.queryForList(
+                "SELECT c.relkind::text FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                "WHERE c.relname = ? AND n.nspname = current_schema()", String.class, TABLE);
+        return kinds.contains("p");
+    }
+
+    private boolean isEnabled() {
+        if (!properties.isPartitioning()) {
+            return false;
+        }
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equalsIgnoreCase(product);
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("%s_y%04dm%02d", TABLE, month.getYear(), month.getMonthValue());
+    }
+
+    /**
+     * Límite superior (exclusivo) de una partición; null para la partición por defecto o sin límite
+     */
+    static LocalDateTime parseUpperBound(String boundExpression) {
+        if (boundExpression == null) {
+            return null;
+        }
+        Matcher matcher = UPPER_BOUND.matcher(boundExpression);
+        if (!matcher.find()) {
+            return null;
+        }
+        String value = matcher.group(1);
+        return value.length() == 10
+                ? LocalDate.parse(value).atStartOfDay()
+                : LocalDateTime.parse(value.substring(0, 19), BOUND_FORMAT);
+    }
+
+    record Partition(String name, LocalDateTime upperBound) {
+    }
+}
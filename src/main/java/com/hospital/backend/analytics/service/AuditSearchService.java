@@ -0,0 +1,102 @@
+package com.hospital.backend.analytics.service;
+
+import com.hospital.backend.analytics.entity.AuditLog;
+import com.hospital.backend.analytics.repository.AuditLogRepository;
+import com.hospital.backend.common.exception.ValidationException;
+import com.hospital.backend.config.AuditProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Búsqueda de texto en los logs de auditoría.
+ *
+ * En PostgreSQL se busca con un tsvector calculado sobre la entidad y el usuario (peso A) y la descripción
+ * (peso B), que el índice GIN de expresión idx_audit_logs_search cubre en cada partición mensual. El índice
+ * se crea aparte con audit_search_index.sql (CONCURRENTLY, partición por partición), no al iniciar. Sin él la
+ * misma consulta sigue funcionando, pero recorre las particiones del rango. En otras bases de datos (H2) se
+ * busca el término completo con LIKE, sin relevancia.
+ */
+@Service
+@Slf4j
+public class AuditSearchService {
+
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int MAX_RESULTS = 200;
+    private static final String SEARCH_INDEX = "idx_audit_logs_search";
+
+    private final AuditLogRepository auditLogRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditProperties properties;
+
+    private volatile Boolean postgres;
+    private volatile boolean indexReady;
+
+    public AuditSearchService(AuditLogRepository auditLogRepository,
+                              JdbcTemplate jdbcTemplate,
+                              AuditProperties properties) {
+        this.auditLogRepository = auditLogRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+    }
+
+    /**
+     * Busca logs que contengan los términos, ordenados por relevancia.
+     * Sin fecha de inicio se buscan los últimos {@code app.audit.default-search-days} días.
+     */
+    @Transactional(readOnly = true)
+    public List<AuditLog> search(String query, LocalDateTime startDate, LocalDateTime endDate,
+                                 Boolean successful, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("q", query, "debe indicar al menos un término");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new ValidationException("q", query.substring(0, 20) + "...",
+                    "no puede superar " + MAX_QUERY_LENGTH + " caracteres");
+        }
+        LocalDateTime start = startDate != null
+                ? startDate : LocalDateTime.now().minusDays(properties.getDefaultSearchDays());
+        LocalDateTime end = endDate != null ? endDate : LocalDateTime.now();
+        if (start.isAfter(end)) {
+            throw new ValidationException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+        int size = Math.min(Math.max(limit, 1), MAX_RESULTS);
+        if (!isPostgres()) {
+            return auditLogRepository.searchTextByLike(query.trim(), start, end, successful, PageRequest.of(0, size));
+        }
+        checkIndex();
+        return auditLogRepository.searchText(query.trim(), start, end, successful, size);
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        return postgres;
+    }
+
+    /**
+     * Avisa mientras el índice de búsqueda no exista o siga inválido (migración sin terminar)
+     */
+    private void checkIndex() {
+        if (indexReady) {
+            return;
+        }
+        List<Boolean> valid = jdbcTemplate.queryForList(
+                "SELECT i.indisvalid FROM pg_index i WHERE i.indexrelid = to_regclass(?)", Boolean.class, SEARCH_INDEX);
+        if (valid.contains(Boolean.TRUE)) {
+            indexReady = true;
+        } else {
+            log.warn("Índice {} ausente o inválido: la búsqueda de texto recorre las particiones del rango. " +
+                    "Ejecute audit_search_index.sql", SEARCH_INDEX);
+        }
+    }
+}
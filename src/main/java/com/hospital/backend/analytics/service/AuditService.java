@@ -1,7 +1,6 @@
 package com.hospital.backend.analytics.service;
 
 import com.hospital.backend.analytics.entity.AuditLog;
-import com.hospital.backend.analytics.repository.AuditLogRepository;
 import com.hospital.backend.enums.OperationType;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -13,18 +12,26 @@ import org.springframework.web.context.request.ServletRequestAttributes;
 
 
 /**
- * Servicio para registrar auditorías de acciones en el sistema
+ * Servicio para registrar auditorías de acciones en el sistema.
+ * Los logs se arman en el hilo del llamador y se escriben en lotes por {@link AuditLogWriter}.
  */
 @Service
 @RequiredArgsConstructor
 public class AuditService {
 
-    private final AuditLogRepository auditLogRepository;
+    private final AuditLogWriter auditLogWriter;
     
     /**
      * Registra una acción en el sistema con el usuario actual
      */
-    public AuditLog logAction(OperationType operationType, String entityName, Long entityId, String description) {
+    public void logAction(OperationType operationType, String entityName, Long entityId, String description) {
+        auditLogWriter.write(buildAction(operationType, entityName, entityId, description));
+    }
+    
+    /**
+     * Arma el log de una acción exitosa con el usuario y la solicitud actuales, sin guardarlo
+     */
+    private AuditLog buildAction(OperationType operationType, String entityName, Long entityId, String description) {
         AuditLog auditLog = new AuditLog();
         
         // Información del usuario actual
@@ -40,13 +47,13 @@ public class AuditService {
         // Información de la solicitud HTTP
         setRequestInfo(auditLog);
         
-        return auditLogRepository.save(auditLog);
+        return auditLog;
     }
     
     /**
      * Registra un error en el sistema
      */
-    public AuditLog logError(OperationType operationType, String entityName, Long entityId, 
+    public void logError(OperationType operationType, String entityName, Long entityId, 
                           String description, String errorMessage) {
         AuditLog auditLog = new AuditLog();
         
@@ -64,13 +71,13 @@ public class AuditService {
         // Información de la solicitud HTTP
         setRequestInfo(auditLog);
         
-        return auditLogRepository.save(auditLog);
+        auditLogWriter.write(auditLog);
     }
     
     /**
      * Registra una acción de login exitosa
      */
-    public AuditLog logLogin(Long userId, String username) {
+    public void logLogin(Long userId, String username) {
         AuditLog auditLog = new AuditLog();
         auditLog.setUserId(userId);
         auditLog.setUsername(username);
@@ -83,13 +90,13 @@ public class AuditService {
         // Información de la solicitud HTTP
         setRequestInfo(auditLog);
         
-        return auditLogRepository.save(auditLog);
+        auditLogWriter.write(auditLog);
     }
     
     /**
      * Registra un intento fallido de login
      */
-    public AuditLog logFailedLogin(String username, String errorMessage) {
+    public void logFailedLogin(String username, String errorMessage) {
         AuditLog auditLog = new AuditLog();
         auditLog.setUsername(username);
         auditLog.setOperationType(OperationType.LOGIN);
@@ -101,17 +108,17 @@ public class AuditService {
         // Información de la solicitud HTTP
         setRequestInfo(auditLog);
         
-        return auditLogRepository.save(auditLog);
+        auditLogWriter.write(auditLog);
     }
     
     /**
      * Registra una acción con tiempo de ejecución
      */
-    public AuditLog logActionWithExecutionTime(OperationType operationType, String entityName, 
+    public void logActionWithExecutionTime(OperationType operationType, String entityName, 
                                            Long entityId, String description, long executionTimeMs) {
-        AuditLog auditLog = logAction(operationType, entityName, entityId, description);
+        AuditLog auditLog = buildAction(operationType, entityName, entityId, description);
         auditLog.setExecutionTimeMs(executionTimeMs);
-        return auditLogRepository.save(auditLog);
+        auditLogWriter.write(auditLog);
     }
     
     /**
@@ -0,0 +1,190 @@
+package com.hospital.backend.analytics.service;
+
+import com.hospital.backend.analytics.entity.AppointmentDailyRollup;
+import com.hospital.backend.analytics.entity.PaymentDailyRollup;
+import com.hospital.backend.analytics.repository.AppointmentDailyRollupRepository;
+import com.hospital.backend.analytics.repository.PaymentDailyRollupRepository;
+import com.hospital.backend.appointment.repository.AppointmentRepository;
+import com.hospital.backend.common.event.EntityChangedEvent;
+import com.hospital.backend.payment.repository.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mantiene las tablas de resumen diario de citas y pagos.
+ * Los cambios confirmados en citas y pagos marcan su fecha como pendiente ({@link RollupChangeListener});
+ * cada pocos segundos se recalculan sólo esas fechas, agrupando ráfagas de escrituras en una sola pasada.
+ * Una reconciliación nocturna reconstruye todo el resumen para corregir cualquier desvío
+ * (por ejemplo, cambios hechos directamente en la base de datos).
+ */
+@Service
+@Slf4j
+public class DailyRollupService {
+
+    private final AppointmentDailyRollupRepository appointmentRollupRepository;
+    private final PaymentDailyRollupRepository paymentRollupRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final PaymentRepository paymentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Set<LocalDate> dirtyAppointmentDates = ConcurrentHashMap.newKeySet();
+    private final Set<LocalDate> dirtyPaymentDates = ConcurrentHashMap.newKeySet();
+
+    public DailyRollupService(AppointmentDailyRollupRepository appointmentRollupRepository,
+                              PaymentDailyRollupRepository paymentRollupRepository,
+                              AppointmentRepository appointmentRepository,
+                              PaymentRepository paymentRepository,
+                              ApplicationEventPublisher eventPublisher,
+                              PlatformTransactionManager transactionManager) {
+        this.appointmentRollupRepository = appointmentRollupRepository;
+        this.paymentRollupRepository = paymentRollupRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.paymentRepository = paymentRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Marcar una fecha de cita para recalcular su resumen
+     */
+    public void markAppointmentDate(LocalDate date) {
+        if (date != null) {
+            dirtyAppointmentDates.add(date);
+        }
+    }
+
+    /**
+     * Marcar una fecha de pago para recalcular su resumen
+     */
+    public void markPaymentDate(LocalDate date) {
+        if (date != null) {
+            dirtyPaymentDates.add(date);
+        }
+    }
+
+    /**
+     * Recalcular las fechas marcadas desde la última pasada
+     */
+    @Scheduled(fixedDelayString = "${app.rollup.flush-interval-ms:5000}")
+    public void flushDirtyDates() {
+        List<LocalDate> appointmentDates = drain(dirtyAppointmentDates);
+        List<LocalDate> paymentDates = drain(dirtyPaymentDates);
+        if (appointmentDates.isEmpty() && paymentDates.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (LocalDate date : appointmentDates) {
+                    rebuildAppointments(date, date.plusDays(1));
+                }
+                for (LocalDate date : paymentDates) {
+                    rebuildPayments(date, date.plusDays(1));
+                }
+            });
+        } catch (RuntimeException e) {
+            // Se reintentan en la próxima pasada
+            dirtyAppointmentDates.addAll(appointmentDates);
+            dirtyPaymentDates.addAll(paymentDates);
+            log.warn("Error actualizando resumen diario: {}", e.getMessage());
+            return;
+        }
+
+        log.debug("Resumen diario actualizado: {} fechas de citas, {} fechas de pagos",
+                appointmentDates.size(), paymentDates.size());
+        publishUpdated(appointmentDates, paymentDates);
+    }
+
+    /**
+     * Reconciliación nocturna: reconstruye todo el resumen desde las tablas de origen
+     */
+    @Scheduled(cron = "${app.rollup.reconcile-cron:0 30 2 * * *}")
+    public void reconcile() {
+        log.info("Reconciliando resumen diario de citas y pagos");
+        rebuildAll();
+    }
+
+    /**
+     * Construir el resumen al iniciar si aún no existe (primer despliegue)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (appointmentRollupRepository.count() == 0 && paymentRollupRepository.count() == 0) {
+            log.info("Resumen diario vacío, construyéndolo desde las tablas de origen");
+            rebuildAll();
+        }
+    }
+
+    /**
+     * Reconstruir todo el resumen en una sola transacción
+     */
+    public void rebuildAll() {
+        transactionTemplate.executeWithoutResult(status -> {
+            appointmentRollupRepository.deleteAllInBatch();
+            paymentRollupRepository.deleteAllInBatch();
+
+            Object[] appointmentRange = firstRow(appointmentRepository.findAppointmentDateRange());
+            if (appointmentRange[0] != null) {
+                appointmentRollupRepository.insertRange((LocalDate) appointmentRange[0],
+                        ((LocalDate) appointmentRange[1]).plusDays(1));
+            }
+
+            Object[] paymentRange = firstRow(paymentRepository.findPaymentDateRange());
+            if (paymentRange[0] != null) {
+                LocalDate start = ((LocalDateTime) paymentRange[0]).toLocalDate();
+                LocalDate end = ((LocalDateTime) paymentRange[1]).toLocalDate().plusDays(1);
+                paymentRollupRepository.insertRange(start.atStartOfDay(), end.atStartOfDay());
+            }
+        });
+        publishUpdated(List.of(), List.of());
+    }
+
+    private void rebuildAppointments(LocalDate start, LocalDate end) {
+        appointmentRollupRepository.deleteRange(start, end);
+        appointmentRollupRepository.insertRange(start, end);
+    }
+
+    private void rebuildPayments(LocalDate start, LocalDate end) {
+        paymentRollupRepository.deleteRange(start, end);
+        paymentRollupRepository.insertRange(start.atStartOfDay(), end.atStartOfDay());
+    }
+
+    private void publishUpdated(List<LocalDate> appointmentDates, List<LocalDate> paymentDates) {
+        boolean all = appointmentDates.isEmpty() && paymentDates.isEmpty();
+        if (all || !appointmentDates.isEmpty()) {
+            eventPublisher.publishEvent(new EntityChangedEvent(AppointmentDailyRollup.class, null));
+        }
+        if (all || !paymentDates.isEmpty()) {
+            eventPublisher.publishEvent(new EntityChangedEvent(PaymentDailyRollup.class, null));
+        }
+    }
+
+    private static List<LocalDate> drain(Set<LocalDate> dates) {
+        List<LocalDate> drained = new ArrayList<>();
+        Iterator<LocalDate> iterator = dates.iterator();
+        while (iterator.hasNext()) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    private static Object[] firstRow(List<Object[]> rows) {
+        return rows.isEmpty() ? new Object[2] : rows.get(0);
+    }
+}
@@ -0,0 +1,518 @@
+package com.hospital.backend.analytics.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.backend.analytics.dto.AnalyticsResponse;
+import com.hospital.backend.analytics.dto.ReportJobRequest;
+import com.hospital.backend.analytics.dto.ReportJobResponse;
+import com.hospital.backend.analytics.entity.ReportJob;
+import com.hospital.backend.analytics.repository.ReportJobRepository;
+import com.hospital.backend.common.exception.BusinessException;
+import com.hospital.backend.common.exception.ResourceNotFoundException;
+import com.hospital.backend.common.exception.ValidationException;
+import com.hospital.backend.config.ReportJobProperties;
+import com.hospital.backend.enums.OperationType;
+import com.hospital.backend.enums.ReportJobPriority;
+import com.hospital.backend.enums.ReportJobStatus;
+import com.hospital.backend.enums.ReportJobType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cola de reportes asíncronos.
+ *
+ * Las solicitudes se guardan como {@link ReportJob} y esperan en una cola ordenada por prioridad
+ * (y por orden de llegada dentro de cada prioridad). Un pool de hilos acotado las ejecuta respetando
+ * un máximo de ejecuciones simultáneas por tipo, de modo que las exportaciones masivas no bloqueen
+ * los reportes analíticos. El resultado se escribe en {@code app.reports.directory} y se conserva
+ * hasta que vence; el avance se consulta por el identificador del trabajo.
+ *
+ * La cola vive en memoria: los trabajos que quedaron pendientes o en curso al reiniciar la aplicación
+ * se marcan como fallidos.
+ */
+@Service
+@Slf4j
+public class ReportJobService implements DisposableBean {
+
+    private static final String PART_SUFFIX = ".part";
+
+    private final ReportJobRepository reportJobRepository;
+    private final ReportService reportService;
+    private final AnalyticsService analyticsService;
+    private final AuditService auditService;
+    private final ReportJobProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor pool;
+
+    private final AtomicLong sequence = new AtomicLong();
+    // Trabajos en espera: mayor prioridad primero y, a igual prioridad, el más antiguo
+    private final NavigableSet<PendingJob> pending = new TreeSet<>(
+            Comparator.comparing((PendingJob job) -> job.priority).reversed()
+                    .thenComparingLong(job -> job.sequence));
+    private final Map<ReportJobType, Integer> running = new EnumMap<>(ReportJobType.class);
+    // Lugares de la cola tomados por solicitudes que todavía se están guardando (protegido por pending)
+    private int reservedSlots;
+    private final Map<String, Progress> progress = new ConcurrentHashMap<>();
+
+    public ReportJobService(ReportJobRepository reportJobRepository,
+                            ReportService reportService,
+                            AnalyticsService analyticsService,
+                            AuditService auditService,
+                            ReportJobProperties properties,
+                            ObjectMapper objectMapper) {
+        this.reportJobRepository = reportJobRepository;
+        this.reportService = reportService;
+        this.analyticsService = analyticsService;
+        this.auditService = auditService;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+
+        int threads = Math.max(1, properties.getWorkerThreads());
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("report-job-");
+        threadFactory.setDaemon(true);
+        // La cola propia del pool no crece: sólo se le entregan trabajos cuando hay un hilo libre
+        this.pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Encola un reporte y devuelve su estado inicial
+     */
+    public ReportJobResponse submit(ReportJobRequest request) {
+        validate(request);
+
+        // El lugar en la cola se reserva junto con la verificación de capacidad, antes de guardar el trabajo,
+        // para que las solicitudes simultáneas no la superen
+        synchronized (pending) {
+            if (pending.size() + reservedSlots >= properties.getQueueCapacity()) {
+                throw new BusinessException("La cola de reportes está llena, intente nuevamente más tarde");
+            }
+            reservedSlots++;
+        }
+
+        ReportJob job;
+        try {
+            job = saveQueuedJob(request);
+        } catch (RuntimeException e) {
+            synchronized (pending) {
+                reservedSlots--;
+            }
+            throw e;
+        }
+        enqueue(job, request);
+        dispatch();
+
+        log.info("Reporte {} encolado ({}, {}, prioridad {})",
+                job.getJobId(), job.getJobType(), job.getFormat(), job.getPriority());
+        return mapToResponse(job);
+    }
+
+    /**
+     * Guardar el trabajo en la cola (QUEUED) con el usuario que lo solicita
+     */
+    private ReportJob saveQueuedJob(ReportJobRequest request) {
+        ReportJob job = new ReportJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setJobType(request.getType());
+        job.setFormat(request.getFormat());
+        job.setPriority(request.getPriority() != null ? request.getPriority() : ReportJobPriority.NORMAL);
+        job.setStatus(ReportJobStatus.QUEUED);
+        job.setParameters(toJson(request));
+        job.setRequestedBy(currentUsername());
+        job.setFileName(fileNameFor(request));
+        return reportJobRepository.save(job);
+    }
+
+    /**
+     * Agrega a la cola un trabajo ya guardado, ocupando el lugar reservado al recibirlo
+     */
+    private void enqueue(ReportJob job, ReportJobRequest request) {
+        // El trabajo corre con el usuario que lo pidió, para que la auditoría lo registre correctamente
+        SecurityContext context = SecurityContextHolder.createEmptyContext();
+        context.setAuthentication(SecurityContextHolder.getContext().getAuthentication());
+        PendingJob pendingJob = new PendingJob(job.getJobId(), job.getJobType(), job.getPriority(),
+                sequence.incrementAndGet(), request, context);
+        progress.put(job.getJobId(), new Progress());
+        synchronized (pending) {
+            reservedSlots--;
+            pending.add(pendingJob);
+        }
+    }
+
+    /**
+     * Obtiene el estado de un trabajo, con el avance en curso si se está ejecutando
+     */
+    public ReportJobResponse getJob(String jobId) {
+        return mapToResponse(findJob(jobId));
+    }
+
+    /**
+     * Trabajos pedidos por el usuario actual, más recientes primero
+     */
+    public List<ReportJobResponse> getMyJobs(int limit) {
+        int size = Math.min(Math.max(limit, 1), 100);
+        return reportJobRepository.findByRequestedByOrderByCreatedAtDesc(currentUsername(), PageRequest.of(0, size))
+                .map(this::mapToResponse)
+                .getContent();
+    }
+
+    /**
+     * Cancela un trabajo en espera o en curso
+     */
+    public ReportJobResponse cancel(String jobId) {
+        ReportJob job = findJob(jobId);
+        if (job.getStatus() != ReportJobStatus.QUEUED && job.getStatus() != ReportJobStatus.RUNNING) {
+            throw new BusinessException("El reporte ya no se puede cancelar (estado: "
+                    + job.getStatus().getDisplayName() + ")");
+        }
+
+        boolean removed;
+        synchronized (pending) {
+            removed = pending.removeIf(p -> p.jobId.equals(jobId));
+        }
+        if (removed) {
+            progress.remove(jobId);
+            job.setStatus(ReportJobStatus.CANCELLED);
+            job.setCompletedAt(LocalDateTime.now());
+            return mapToResponse(reportJobRepository.save(job));
+        }
+
+        // En curso: el hilo que lo ejecuta se detiene en el siguiente lote de filas
+        Progress current = progress.get(jobId);
+        if (current != null) {
+            current.cancelled = true;
+        }
+        return mapToResponse(job);
+    }
+
+    /**
+     * Archivo de un trabajo completado, listo para descargar
+     */
+    public ReportFile getResultFile(String jobId) {
+        ReportJob job = findJob(jobId);
+        if (job.getStatus() == ReportJobStatus.EXPIRED) {
+            throw new BusinessException("El resultado del reporte ya venció, genérelo nuevamente");
+        }
+        if (job.getStatus() != ReportJobStatus.COMPLETED) {
+            throw new BusinessException("El reporte todavía no está disponible (estado: "
+                    + job.getStatus().getDisplayName() + ")");
+        }
+        Path path = Paths.get(job.getFilePath());
+        if (!Files.isReadable(path)) {
+            throw new ResourceNotFoundException("Archivo del reporte", "jobId", jobId);
+        }
+        return new ReportFile(path, job.getFileName(), job.getFormat().getContentType());
+    }
+
+    /**
+     * Los trabajos en espera o en curso se pierden al reiniciar: se marcan como fallidos
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        List<ReportJob> interrupted = reportJobRepository.findByStatusIn(
+                List.of(ReportJobStatus.QUEUED, ReportJobStatus.RUNNING));
+        for (ReportJob job : interrupted) {
+            job.setStatus(ReportJobStatus.FAILED);
+            job.setErrorMessage("Interrumpido por un reinicio de la aplicación");
+            job.setCompletedAt(LocalDateTime.now());
+            deleteQuietly(partFile(job.getJobId()));
+        }
+        if (!interrupted.isEmpty()) {
+            reportJobRepository.saveAll(interrupted);
+            log.warn("{} reportes interrumpidos por el reinicio se marcaron como fallidos", interrupted.size());
+        }
+    }
+
+    /**
+     * Elimina los archivos vencidos
+     */
+    @Scheduled(fixedDelayString = "${app.reports.cleanup-interval-ms:3600000}")
+    public void purgeExpiredResults() {
+        List<ReportJob> expired = reportJobRepository.findByStatusAndExpiresAtBefore(
+                ReportJobStatus.COMPLETED, LocalDateTime.now());
+        for (ReportJob job : expired) {
+            if (job.getFilePath() != null) {
+                deleteQuietly(Paths.get(job.getFilePath()));
+            }
+            job.setStatus(ReportJobStatus.EXPIRED);
+            job.setFilePath(null);
+        }
+        if (!expired.isEmpty()) {
+            reportJobRepository.saveAll(expired);
+            log.info("Se eliminaron {} reportes vencidos", expired.size());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Entrega al pool los trabajos que pueden empezar según los hilos y los límites por tipo libres
+     */
+    private void dispatch() {
+        List<PendingJob> ready = new ArrayList<>();
+        synchronized (pending) {
+            int busy = running.values().stream().mapToInt(Integer::intValue).sum();
+            Iterator<PendingJob> iterator = pending.iterator();
+            while (iterator.hasNext() && busy < pool.getMaximumPoolSize()) {
+                PendingJob job = iterator.next();
+                int runningOfType = running.getOrDefault(job.type, 0);
+                if (runningOfType < properties.maxConcurrentFor(job.type)) {
+                    iterator.remove();
+                    running.put(job.type, runningOfType + 1);
+                    busy++;
+                    ready.add(job);
+                }
+            }
+        }
+        for (PendingJob job : ready) {
+            pool.execute(new DelegatingSecurityContextRunnable(() -> {
+                try {
+                    execute(job);
+                } finally {
+                    synchronized (pending) {
+                        running.merge(job.type, -1, Integer::sum);
+                    }
+                    dispatch();
+                }
+            }, job.securityContext));
+        }
+    }
+
+    /**
+     * Genera el archivo de un trabajo y registra el resultado
+     */
+    private void execute(PendingJob pendingJob) {
+        ReportJob job = reportJobRepository.findByJobId(pendingJob.jobId).orElse(null);
+        Progress current = progress.get(pendingJob.jobId);
+        if (job == null || current == null) {
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        job.setStatus(ReportJobStatus.RUNNING);
+        job.setStartedAt(LocalDateTime.now());
+        job = reportJobRepository.save(job);
+
+        Path part = partFile(job.getJobId());
+        try {
+            Files.createDirectories(part.getParent());
+            long rows;
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(part))) {
+                rows = generate(pendingJob.request, out, current);
+            }
+            Path target = resultsDirectory().resolve(job.getJobId() + "." + job.getFormat().getExtension());
+            Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            job.setStatus(ReportJobStatus.COMPLETED);
+            job.setFilePath(target.toString());
+            job.setFileSize(Files.size(target));
+            job.setRowsWritten(rows);
+            job.setCompletedAt(LocalDateTime.now());
+            job.setExpiresAt(job.getCompletedAt().plusHours(properties.getResultTtlHours()));
+            reportJobRepository.save(job);
+
+            auditService.logActionWithExecutionTime(OperationType.EXPORT, "ReportJob", job.getId(),
+                    "Reporte asíncrono generado: " + job.getFileName(), System.currentTimeMillis() - startTime);
+            log.info("Reporte {} completado: {} bytes, {} filas", job.getJobId(), job.getFileSize(), rows);
+        } catch (CancellationException e) {
+            deleteQuietly(part);
+            job.setStatus(ReportJobStatus.CANCELLED);
+            job.setCompletedAt(LocalDateTime.now());
+            reportJobRepository.save(job);
+            log.info("Reporte {} cancelado", job.getJobId());
+        } catch (Exception e) {
+            deleteQuietly(part);
+            job.setStatus(ReportJobStatus.FAILED);
+            job.setErrorMessage(truncate(e.getMessage()));
+            job.setCompletedAt(LocalDateTime.now());
+            reportJobRepository.save(job);
+            auditService.logError(OperationType.EXPORT, "ReportJob", job.getId(),
+                    "Error generando reporte asíncrono: " + job.getFileName(), e.getMessage());
+            log.error("Error generando reporte {}", job.getJobId(), e);
+        } finally {
+            progress.remove(pendingJob.jobId);
+        }
+    }
+
+    /**
+     * Escribe el contenido del reporte y devuelve la cantidad de filas de datos
+     */
+    private long generate(ReportJobRequest request, OutputStream out, Progress current) throws IOException {
+        if (request.getType() == ReportJobType.ANALYTICS) {
+            AnalyticsResponse data = analyticsService.generateAnalytics(request.getAnalytics());
+            current.checkCancelled();
+            reportService.writeAnalyticsReport(data, request.getFormat(), out);
+            return 0L;
+        }
+        current.total = reportService.countDatasetRows(
+                request.getDataset(), request.getStartDate(), request.getEndDate());
+        return reportService.writeDatasetExport(request.getDataset(), request.getFormat(),
+                request.getStartDate(), request.getEndDate(), out, written -> {
+                    current.rows = written;
+                    current.checkCancelled();
+                });
+    }
+
+    private void validate(ReportJobRequest request) {
+        if (request.getType() == ReportJobType.ANALYTICS) {
+            if (request.getAnalytics() == null) {
+                throw new ValidationException("analytics", null, "es obligatorio para reportes analíticos");
+            }
+            return;
+        }
+        if (request.getDataset() == null) {
+            throw new ValidationException("dataset", null, "es obligatorio para exportaciones de datos");
+        }
+        reportService.validateDatasetExport(request.getFormat(), request.getStartDate(), request.getEndDate());
+    }
+
+    private String fileNameFor(ReportJobRequest request) {
+        if (request.getType() == ReportJobType.ANALYTICS) {
+            return reportService.generateReportName(request.getAnalytics(), request.getFormat().getExtension());
+        }
+        return reportService.generateExportName(request.getDataset(), request.getFormat(),
+                request.getStartDate(), request.getEndDate());
+    }
+
+    private ReportJob findJob(String jobId) {
+        return reportJobRepository.findByJobId(jobId)
+                .orElseThrow(() -> new ResourceNotFoundException("Reporte", "jobId", jobId));
+    }
+
+    private ReportJobResponse mapToResponse(ReportJob job) {
+        Progress current = progress.get(job.getJobId());
+        Long rowsWritten = job.getRowsWritten();
+        Integer percent = null;
+        if (job.getStatus() == ReportJobStatus.COMPLETED) {
+            percent = 100;
+        } else if (job.getStatus() == ReportJobStatus.QUEUED) {
+            percent = 0;
+        } else if (current != null && job.getStatus() == ReportJobStatus.RUNNING) {
+            rowsWritten = current.rows;
+            if (current.total > 0) {
+                percent = (int) Math.min(99, current.rows * 100 / current.total);
+            }
+        }
+
+        return ReportJobResponse.builder()
+                .jobId(job.getJobId())
+                .type(job.getJobType())
+                .format(job.getFormat())
+                .priority(job.getPriority())
+                .status(job.getStatus())
+                .statusName(job.getStatus().getDisplayName())
+                .progress(percent)
+                .rowsWritten(rowsWritten)
+                .fileName(job.getFileName())
+                .fileSize(job.getFileSize())
+                .errorMessage(job.getErrorMessage())
+                .downloadUrl(job.getStatus() == ReportJobStatus.COMPLETED
+                        ? "/reports/jobs/" + job.getJobId() + "/download" : null)
+                .createdAt(job.getCreatedAt())
+                .startedAt(job.getStartedAt())
+                .completedAt(job.getCompletedAt())
+                .expiresAt(job.getExpiresAt())
+                .build();
+    }
+
+    private Path resultsDirectory() {
+        return Paths.get(properties.getDirectory()).toAbsolutePath().normalize();
+    }
+
+    private Path partFile(String jobId) {
+        return resultsDirectory().resolve(jobId + PART_SUFFIX);
+    }
+
+    private String toJson(ReportJobRequest request) {
+        try {
+            return objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException("No se pudieron registrar los parámetros del reporte", e);
+        }
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "anonymous";
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("No se pudo eliminar {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Archivo generado por un trabajo
+     */
+    public record ReportFile(Path path, String fileName, String contentType) {
+    }
+
+    /**
+     * Trabajo esperando un hilo libre
+     */
+    private record PendingJob(String jobId, ReportJobType type, ReportJobPriority priority, long sequence,
+                              ReportJobRequest request, SecurityContext securityContext) {
+    }
+
+    /**
+     * Avance de un trabajo en curso (sólo en memoria)
+     */
+    private static final class Progress {
+        private volatile long rows;
+        private volatile long total;
+        private volatile boolean cancelled;
+
+        private void checkCancelled() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+        }
+    }
+}
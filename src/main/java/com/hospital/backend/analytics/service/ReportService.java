@@ -2,47 +2,100 @@ package com.hospital.backend.analytics.service;
 
 import com.hospital.backend.analytics.dto.AnalyticsRequest;
 import com.hospital.backend.analytics.dto.AnalyticsResponse;
+import com.hospital.backend.analytics.repository.AuditLogRepository;
+import com.hospital.backend.appointment.repository.AppointmentRepository;
 import com.hospital.backend.common.exception.BusinessException;
+import com.hospital.backend.common.exception.ValidationException;
+import com.hospital.backend.common.export.TabularWriter;
+import com.hospital.backend.enums.ExportDataset;
+import com.hospital.backend.enums.ExportFormat;
 import com.hospital.backend.enums.OperationType;
-import lombok.RequiredArgsConstructor;
+import com.hospital.backend.payment.repository.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 /**
- * Servicio para la generación de reportes en diferentes formatos
+ * Servicio para la generación de reportes en diferentes formatos.
+ * Los reportes CSV y Excel y las exportaciones de datos se escriben directamente sobre la respuesta
+ * ({@link StreamingResponseBody}); las exportaciones de datos se alimentan fila por fila desde un
+ * {@link Stream} de la base de datos, por lo que la memoria usada no depende de la cantidad de filas.
+ * Los mismos métodos de escritura se usan para los reportes asíncronos ({@link ReportJobService}).
  */
 @Service
-@RequiredArgsConstructor
+@Slf4j
 public class ReportService {
 
+    /**
+     * Cada cuántas filas se envía al cliente lo escrito
+     */
+    private static final int FLUSH_EVERY_ROWS = 1000;
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm");
+
+    private static final Object[] APPOINTMENT_HEADER = {
+            "ID", "Fecha", "Bloque", "Estado", "Paciente", "Doctor", "Especialidad", "Motivo", "Precio consulta"};
+    private static final Object[] PAYMENT_HEADER = {
+            "ID", "Fecha", "Recibo", "Estado", "Método", "Monto", "Comisión", "Monto total", "Cita"};
+    private static final Object[] AUDIT_HEADER = {
+            "ID", "Fecha", "Usuario", "Operación", "Módulo", "Entidad", "ID entidad", "Exitoso", "Descripción",
+            "Tiempo (ms)"};
+
     private final AnalyticsService analyticsService;
     private final AuditService auditService;
-    
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm");
-    
+    private final AppointmentRepository appointmentRepository;
+    private final PaymentRepository paymentRepository;
+    private final AuditLogRepository auditLogRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ReportService(AnalyticsService analyticsService,
+                         AuditService auditService,
+                         AppointmentRepository appointmentRepository,
+                         PaymentRepository paymentRepository,
+                         AuditLogRepository auditLogRepository,
+                         PlatformTransactionManager transactionManager) {
+        this.analyticsService = analyticsService;
+        this.auditService = auditService;
+        this.appointmentRepository = appointmentRepository;
+        this.paymentRepository = paymentRepository;
+        this.auditLogRepository = auditLogRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
     /**
      * Genera un reporte en formato PDF
      */
     public byte[] generatePdfReport(AnalyticsRequest request) {
         long startTime = System.currentTimeMillis();
-        
+
         // Obtener datos analíticos
         AnalyticsResponse analyticsData = analyticsService.generateAnalytics(request);
-        
+
         // Generar nombre del reporte
         String reportName = generateReportName(request, "pdf");
-        
+
         try {
-            // Aquí iría la implementación real de generación de PDF 
+            // Aquí iría la implementación real de generación de PDF
             // usando librerías como iText, JasperReports, etc.
             // Por ahora, simularemos la generación
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             simulatePdfGeneration(outputStream, analyticsData);
-            
+
             // Registrar generación en auditoría
             long endTime = System.currentTimeMillis();
             auditService.logActionWithExecutionTime(
@@ -52,7 +105,7 @@ public class ReportService {
                     "Generación de reporte PDF: " + reportName,
                     endTime - startTime
             );
-            
+
             return outputStream.toByteArray();
         } catch (Exception e) {
             auditService.logError(
@@ -65,114 +118,203 @@ public class ReportService {
             throw new BusinessException("Error generando reporte PDF: " + e.getMessage());
         }
     }
-    
+
     /**
-     * Genera un reporte en formato Excel
+     * Genera un reporte en formato Excel (XLSX) escrito directamente sobre la respuesta.
+     * Las métricas se calculan antes de devolver el cuerpo, de modo que los errores de validación
+     * se informan con su código HTTP habitual.
      */
-    public byte[] generateExcelReport(AnalyticsRequest request) {
+    public StreamingResponseBody streamExcelReport(AnalyticsRequest request) {
         long startTime = System.currentTimeMillis();
-        
-        // Obtener datos analíticos
         AnalyticsResponse analyticsData = analyticsService.generateAnalytics(request);
-        
-        // Generar nombre del reporte
         String reportName = generateReportName(request, "xlsx");
-        
-        try {
-            // Aquí iría la implementación real de generación de Excel
-            // usando librerías como Apache POI, etc.
-            // Por ahora, simularemos la generación
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            simulateExcelGeneration(outputStream, analyticsData);
-            
-            // Registrar generación en auditoría
-            long endTime = System.currentTimeMillis();
-            auditService.logActionWithExecutionTime(
-                    OperationType.EXPORT,
-                    "Report",
-                    null,
-                    "Generación de reporte Excel: " + reportName,
-                    endTime - startTime
-            );
-            
-            return outputStream.toByteArray();
-        } catch (Exception e) {
-            auditService.logError(
-                    OperationType.EXPORT,
-                    "Report",
-                    null,
-                    "Error generando reporte Excel: " + reportName,
-                    e.getMessage()
-            );
-            throw new BusinessException("Error generando reporte Excel: " + e.getMessage());
-        }
+
+        return outputStream -> writeAudited("Excel", reportName, startTime,
+                () -> writeAnalyticsReport(analyticsData, ExportFormat.XLSX, outputStream));
     }
-    
+
     /**
-     * Genera un reporte en formato CSV
+     * Genera un reporte en formato CSV escrito directamente sobre la respuesta
      */
-    public byte[] generateCsvReport(AnalyticsRequest request) {
+    public StreamingResponseBody streamCsvReport(AnalyticsRequest request) {
         long startTime = System.currentTimeMillis();
-        
-        // Obtener datos analíticos
         AnalyticsResponse analyticsData = analyticsService.generateAnalytics(request);
-        
-        // Generar nombre del reporte
         String reportName = generateReportName(request, "csv");
-        
+
+        return outputStream -> writeAudited("CSV", reportName, startTime,
+                () -> writeAnalyticsReport(analyticsData, ExportFormat.CSV, outputStream));
+    }
+
+    /**
+     * Exporta todas las filas de un conjunto de datos en un rango de fechas (ambos extremos incluidos).
+     * Las filas se leen con un cursor de la base de datos y se escriben a medida que llegan.
+     */
+    public StreamingResponseBody exportDataset(ExportDataset dataset, ExportFormat format,
+                                               LocalDate startDate, LocalDate endDate) {
+        validateDatasetExport(format, startDate, endDate);
+        long startTime = System.currentTimeMillis();
+        String exportName = generateExportName(dataset, format, startDate, endDate);
+
+        return outputStream -> writeAudited(format.name(), exportName, startTime, () -> {
+            long rows = writeDatasetExport(dataset, format, startDate, endDate, outputStream, written -> { });
+            log.info("Exportación {} completada: {} filas", exportName, rows);
+        });
+    }
+
+    /**
+     * Valida los parámetros de una exportación de datos
+     */
+    public void validateDatasetExport(ExportFormat format, LocalDate startDate, LocalDate endDate) {
+        if (startDate == null || endDate == null) {
+            throw new ValidationException("Las fechas de inicio y fin son obligatorias");
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new ValidationException("La fecha de inicio no puede ser posterior a la fecha de fin");
+        }
+        if (format == ExportFormat.PDF) {
+            throw new ValidationException("format", format.name(), "las exportaciones de datos sólo admiten CSV o XLSX");
+        }
+    }
+
+    /**
+     * Escribe un reporte analítico ya calculado en el formato pedido
+     */
+    public void writeAnalyticsReport(AnalyticsResponse data, ExportFormat format, OutputStream outputStream) throws IOException {
+        switch (format) {
+            case CSV -> writeReport(TabularWriter.csv(outputStream), data);
+            case XLSX -> writeReport(TabularWriter.xlsx(outputStream, "Reporte"), data);
+            case PDF -> simulatePdfGeneration(outputStream, data);
+        }
+    }
+
+    /**
+     * Escribe todas las filas de un conjunto de datos dentro de una transacción de solo lectura.
+     * @param onRows recibe la cantidad de filas escritas cada vez que se envía un lote
+     * @return cantidad de filas escritas
+     */
+    public long writeDatasetExport(ExportDataset dataset, ExportFormat format, LocalDate startDate, LocalDate endDate,
+                                   OutputStream outputStream, LongConsumer onRows) throws IOException {
+        try (TabularWriter writer = createWriter(format, outputStream, dataset.getDisplayName())) {
+            Long rows = readOnlyTransaction.execute(status -> writeDataset(writer, dataset, startDate, endDate, onRows));
+            return rows != null ? rows : 0L;
+        }
+    }
+
+    /**
+     * Cantidad de filas que tendrá una exportación (para estimar el progreso)
+     */
+    public long countDatasetRows(ExportDataset dataset, LocalDate startDate, LocalDate endDate) {
+        LocalDateTime start = startDate.atStartOfDay();
+        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
+        return switch (dataset) {
+            case APPOINTMENTS -> appointmentRepository.countByAppointmentDateBetween(startDate, endDate);
+            case PAYMENTS -> paymentRepository.countForExport(start, end);
+            case AUDIT_LOGS -> auditLogRepository.countForExport(start, end);
+        };
+    }
+
+    /**
+     * Nombre de archivo para una exportación de datos
+     */
+    public String generateExportName(ExportDataset dataset, ExportFormat format, LocalDate startDate, LocalDate endDate) {
+        return String.format("%s_%s_%s.%s",
+                dataset.name().toLowerCase(), startDate, endDate, format.getExtension());
+    }
+
+    /**
+     * Genera un nombre para el reporte basado en parámetros y fecha
+     */
+    public String generateReportName(AnalyticsRequest request, String extension) {
+        LocalDateTime now = LocalDateTime.now();
+        String timestamp = now.format(DATE_FORMATTER);
+        String periodType = request.getPeriodType().name().toLowerCase();
+
+        return String.format("hospital_report_%s_%s_%s_%s.%s",
+                request.getStartDate(),
+                request.getEndDate(),
+                periodType,
+                timestamp,
+                extension);
+    }
+
+    /**
+     * Escribe un reporte y registra el resultado en auditoría
+     */
+    private void writeAudited(String formatName, String reportName, long startTime, ReportWriter body) throws IOException {
         try {
-            // Generar CSV
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            generateCsvContent(outputStream, analyticsData);
-            
-            // Registrar generación en auditoría
-            long endTime = System.currentTimeMillis();
+            body.write();
             auditService.logActionWithExecutionTime(
                     OperationType.EXPORT,
                     "Report",
                     null,
-                    "Generación de reporte CSV: " + reportName,
-                    endTime - startTime
+                    "Generación de reporte " + formatName + ": " + reportName,
+                    System.currentTimeMillis() - startTime
             );
-            
-            return outputStream.toByteArray();
-        } catch (Exception e) {
+        } catch (IOException | RuntimeException e) {
+            // La respuesta ya puede estar parcialmente enviada: sólo queda registrar el error y cortar la descarga
+            log.warn("Error generando reporte {}: {}", reportName, e.getMessage());
             auditService.logError(
                     OperationType.EXPORT,
                     "Report",
                     null,
-                    "Error generando reporte CSV: " + reportName,
+                    "Error generando reporte " + formatName + ": " + reportName,
                     e.getMessage()
             );
-            throw new BusinessException("Error generando reporte CSV: " + e.getMessage());
+            throw e;
         }
     }
-    
+
+    private long writeDataset(TabularWriter writer, ExportDataset dataset, LocalDate startDate, LocalDate endDate,
+                              LongConsumer onRows) {
+        LocalDateTime start = startDate.atStartOfDay();
+        LocalDateTime end = endDate.plusDays(1).atStartOfDay();
+        return switch (dataset) {
+            case APPOINTMENTS -> writeRows(writer, APPOINTMENT_HEADER,
+                    appointmentRepository.streamForExport(startDate, endDate), onRows);
+            case PAYMENTS -> writeRows(writer, PAYMENT_HEADER, paymentRepository.streamForExport(start, end), onRows);
+            case AUDIT_LOGS -> writeRows(writer, AUDIT_HEADER, auditLogRepository.streamForExport(start, end), onRows);
+        };
+    }
+
     /**
-     * Genera un nombre para el reporte basado en parámetros y fecha
+     * Escribe la cabecera y las filas de un cursor, enviando al cliente cada {@link #FLUSH_EVERY_ROWS} filas
      */
-    private String generateReportName(AnalyticsRequest request, String extension) {
-        LocalDateTime now = LocalDateTime.now();
-        String timestamp = now.format(DATE_FORMATTER);
-        String periodType = request.getPeriodType().name().toLowerCase();
-        
-        return String.format("hospital_report_%s_%s_%s_%s.%s",
-                request.getStartDate(),
-                request.getEndDate(),
-                periodType,
-                timestamp,
-                extension);
+    private long writeRows(TabularWriter writer, Object[] header, Stream<Object[]> rows, LongConsumer onRows) {
+        try (rows) {
+            writer.writeRow(header);
+            writer.flush();
+            long count = 0;
+            for (Object[] row : (Iterable<Object[]>) rows::iterator) {
+                writer.writeRow(row);
+                if (++count % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                    onRows.accept(count);
+                }
+            }
+            onRows.accept(count);
+            return count;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private TabularWriter createWriter(ExportFormat format, OutputStream outputStream, String sheetName) throws IOException {
+        return switch (format) {
+            case CSV -> TabularWriter.csv(outputStream);
+            case XLSX -> TabularWriter.xlsx(outputStream, sheetName);
+            case PDF -> throw new ValidationException("format", format.name(), "formato no tabular");
+        };
     }
-    
+
     /**
      * Simulación de generación de PDF (implementación real requeriría una librería PDF)
      */
-    private void simulatePdfGeneration(ByteArrayOutputStream outputStream, AnalyticsResponse data) throws Exception {
+    private void simulatePdfGeneration(OutputStream outputStream, AnalyticsResponse data) throws IOException {
         // Aquí iría el código real para generar PDF
         // En una implementación real, usaríamos iText, JasperReports, etc.
         // Por ahora, solo simulamos la generación
         outputStream.write("PDF REPORT CONTENT".getBytes());
-        
+
         // Escribir métricas
         if (data.getMetrics() != null) {
             for (Map.Entry<String, Object> entry : data.getMetrics().entrySet()) {
@@ -181,54 +323,69 @@ public class ReportService {
             }
         }
     }
-    
+
     /**
-     * Simulación de generación de Excel (implementación real requeriría Apache POI)
+     * Escribe las métricas del análisis y, si existen, los valores por período de cada gráfico
      */
-    private void simulateExcelGeneration(ByteArrayOutputStream outputStream, AnalyticsResponse data) throws Exception {
-        // Aquí iría el código real para generar Excel
-        // En una implementación real, usaríamos Apache POI
-        // Por ahora, solo simulamos la generación
-        outputStream.write("EXCEL REPORT CONTENT".getBytes());
-        
-        // Escribir métricas
-        if (data.getMetrics() != null) {
-            for (Map.Entry<String, Object> entry : data.getMetrics().entrySet()) {
-                String line = entry.getKey() + "\t" + entry.getValue() + "\n";
-                outputStream.write(line.getBytes());
+    private void writeReport(TabularWriter writer, AnalyticsResponse data) throws IOException {
+        try (writer) {
+            // Cabecera
+            writer.writeRow("Métrica", "Valor");
+
+            // Escribir métricas básicas
+            writer.writeRow("Fecha Inicio", data.getStartDate());
+            writer.writeRow("Fecha Fin", data.getEndDate());
+            writer.writeRow("Tipo Período", data.getPeriodType());
+
+            // Escribir métricas detalladas
+            if (data.getMetrics() != null) {
+                for (Map.Entry<String, Object> entry : data.getMetrics().entrySet()) {
+                    if (entry.getValue() instanceof Map<?, ?> nestedMap) {
+                        // Para mapas anidados
+                        for (Map.Entry<?, ?> nestedEntry : nestedMap.entrySet()) {
+                            writer.writeRow(entry.getKey() + " - " + nestedEntry.getKey(), nestedEntry.getValue());
+                        }
+                    } else {
+                        // Para valores simples
+                        writer.writeRow(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+
+            // Valores por período
+            if (data.getCharts() != null) {
+                for (AnalyticsResponse.ChartData chart : data.getCharts()) {
+                    writeChart(writer, chart);
+                }
             }
         }
     }
-    
-    /**
-     * Generación de contenido CSV
-     */
-    private void generateCsvContent(ByteArrayOutputStream outputStream, AnalyticsResponse data) throws Exception {
-        // Cabecera
-        outputStream.write("Métrica,Valor\n".getBytes());
-        
-        // Escribir métricas básicas
-        outputStream.write(("Fecha Inicio," + data.getStartDate() + "\n").getBytes());
-        outputStream.write(("Fecha Fin," + data.getEndDate() + "\n").getBytes());
-        outputStream.write(("Tipo Período," + data.getPeriodType() + "\n").getBytes());
-        
-        // Escribir métricas detalladas
-        if (data.getMetrics() != null) {
-            for (Map.Entry<String, Object> entry : data.getMetrics().entrySet()) {
-                if (entry.getValue() instanceof Map) {
-                    // Para mapas anidados
-                    @SuppressWarnings("unchecked")
-                    Map<String, Object> nestedMap = (Map<String, Object>) entry.getValue();
-                    for (Map.Entry<String, Object> nestedEntry : nestedMap.entrySet()) {
-                        String line = entry.getKey() + " - " + nestedEntry.getKey() + "," + nestedEntry.getValue() + "\n";
-                        outputStream.write(line.getBytes());
-                    }
-                } else {
-                    // Para valores simples
-                    String line = entry.getKey() + "," + entry.getValue() + "\n";
-                    outputStream.write(line.getBytes());
-                }
+
+    private void writeChart(TabularWriter writer, AnalyticsResponse.ChartData chart) throws IOException {
+        List<AnalyticsResponse.ChartData.Series> series = chart.getSeries() != null ? chart.getSeries() : List.of();
+        List<String> labels = chart.getLabels() != null ? chart.getLabels() : List.of();
+
+        writer.writeRow();
+        Object[] header = new Object[series.size() + 1];
+        header[0] = chart.getTitle();
+        for (int i = 0; i < series.size(); i++) {
+            header[i + 1] = series.get(i).getName();
+        }
+        writer.writeRow(header);
+
+        for (int row = 0; row < labels.size(); row++) {
+            Object[] values = new Object[series.size() + 1];
+            values[0] = labels.get(row);
+            for (int i = 0; i < series.size(); i++) {
+                List<Object> data = series.get(i).getData();
+                values[i + 1] = data != null && row < data.size() ? data.get(row) : null;
             }
+            writer.writeRow(values);
         }
     }
-} 
\ No newline at end of file
+
+    @FunctionalInterface
+    private interface ReportWriter {
+        void write() throws IOException;
+    }
+}
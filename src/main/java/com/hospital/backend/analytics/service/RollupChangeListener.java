@@ -0,0 +1,103 @@
+package com.hospital.backend.analytics.service;
+
+import com.hospital.backend.appointment.entity.Appointment;
+import com.hospital.backend.payment.entity.Payment;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Marca como pendientes de recálculo las fechas afectadas por cambios confirmados en citas y pagos.
+ * En las actualizaciones se marcan la fecha anterior y la nueva (por ejemplo, al reprogramar una cita).
+ */
+@Component
+@RequiredArgsConstructor
+public class RollupChangeListener implements PostCommitInsertEventListener,
+        PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final DailyRollupService dailyRollupService;
+
+    @PostConstruct
+    void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return Appointment.class.isAssignableFrom(type) || Payment.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        mark(event.getEntity());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        mark(event.getEntity());
+        Object[] oldState = event.getOldState();
+        if (oldState == null) {
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        if (event.getEntity() instanceof Appointment) {
+            dailyRollupService.markAppointmentDate(
+                    (LocalDate) oldState[persister.getPropertyIndex("appointmentDate")]);
+        } else if (event.getEntity() instanceof Payment) {
+            LocalDateTime paymentDate = (LocalDateTime) oldState[persister.getPropertyIndex("paymentDate")];
+            LocalDateTime createdAt = (LocalDateTime) oldState[persister.getPropertyIndex("createdAt")];
+            LocalDateTime effective = paymentDate != null ? paymentDate : createdAt;
+            dailyRollupService.markPaymentDate(effective != null ? effective.toLocalDate() : null);
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        mark(event.getEntity());
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {
+        // Sin cambios confirmados, no hay nada que recalcular
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {
+        // Sin cambios confirmados, no hay nada que recalcular
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {
+        // Sin cambios confirmados, no hay nada que recalcular
+    }
+
+    private void mark(Object entity) {
+        if (entity instanceof Appointment appointment) {
+            dailyRollupService.markAppointmentDate(appointment.getAppointmentDate());
+        } else if (entity instanceof Payment payment) {
+            LocalDateTime effective = payment.getPaymentDate() != null ? payment.getPaymentDate() : payment.getCreatedAt();
+            dailyRollupService.markPaymentDate(effective != null ? effective.toLocalDate() : null);
+        }
+    }
+}
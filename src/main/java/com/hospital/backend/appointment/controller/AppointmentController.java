@@ -4,10 +4,12 @@ import com.hospital.backend.appointment.dto.request.CreateAppointmentRequest;
 import com.hospital.backend.appointment.dto.request.UpdateAppointmentRequest;
 import com.hospital.backend.appointment.dto.response.AppointmentResponse;
 import com.hospital.backend.appointment.dto.response.AppointmentSummaryResponse;
+import com.hospital.backend.appointment.dto.response.AvailabilityCalendarResponse;
 import com.hospital.backend.appointment.dto.response.BlockAvailabilityResponse;
 import com.hospital.backend.appointment.service.AppointmentService;
 import com.hospital.backend.appointment.service.AvailabilityService;
 import com.hospital.backend.common.dto.ApiResponse;
+import com.hospital.backend.common.dto.CursorPageResponse;
 import com.hospital.backend.common.dto.PageResponse;
 import com.hospital.backend.enums.AppointmentStatus;
 import com.hospital.backend.enums.TimeBlock;
@@ -135,6 +137,25 @@ public class AppointmentController {
         return ResponseEntity.ok(ApiResponse.success("Lista de citas obtenida", response));
     }
     
+    @Operation(summary = "Listar citas con paginación por cursor",
+               description = "Más recientes primero y sin conteo total; enviar nextCursor para obtener la siguiente página")
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<ApiResponse<CursorPageResponse<AppointmentResponse>>> getAppointmentsPage(
+            @Parameter(description = "Cursor de continuación") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página") @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Estado de la cita") @RequestParam(required = false) AppointmentStatus status,
+            @Parameter(description = "ID del doctor") @RequestParam(required = false) Long doctorId,
+            @Parameter(description = "ID del paciente") @RequestParam(required = false) Long patientId,
+            @Parameter(description = "ID de la especialidad") @RequestParam(required = false) Long specialtyId) {
+        
+        log.debug("GET /api/appointments/cursor - Listando citas por cursor (tamaño: {})", size);
+        CursorPageResponse<AppointmentResponse> response = appointmentService.getAppointmentsPage(
+                status, doctorId, patientId, specialtyId, cursor, size);
+        
+        return ResponseEntity.ok(ApiResponse.success("Lista de citas obtenida", response));
+    }
+    
     @Operation(summary = "Actualizar cita médica")
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('PATIENT') or hasRole('ADMIN') or hasRole('DOCTOR')")
@@ -307,6 +328,34 @@ public class AppointmentController {
         return ResponseEntity.ok(ApiResponse.success("Disponibilidad por especialidad obtenida", response));
     }
     
+    @Operation(summary = "Obtener calendario de disponibilidad de un doctor por rango de fechas")
+    @GetMapping("/availability/calendar/{doctorId}")
+    @PreAuthorize("hasRole('PATIENT') or hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<ApiResponse<AvailabilityCalendarResponse>> getDoctorCalendar(
+            @Parameter(description = "ID del doctor") @PathVariable Long doctorId,
+            @Parameter(description = "Fecha inicio (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Fecha fin (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        log.info("GET /api/appointments/availability/calendar/{} - Obteniendo calendario del {} al {}", doctorId, startDate, endDate);
+        AvailabilityCalendarResponse response = availabilityService.getDoctorCalendar(doctorId, startDate, endDate);
+        
+        return ResponseEntity.ok(ApiResponse.success("Calendario de disponibilidad obtenido", response));
+    }
+    
+    @Operation(summary = "Obtener calendario de disponibilidad de una especialidad por rango de fechas")
+    @GetMapping("/availability/calendar/specialty/{specialtyId}")
+    @PreAuthorize("hasRole('PATIENT') or hasRole('ADMIN') or hasRole('DOCTOR')")
+    public ResponseEntity<ApiResponse<List<AvailabilityCalendarResponse>>> getSpecialtyCalendar(
+            @Parameter(description = "ID de la especialidad") @PathVariable Long specialtyId,
+            @Parameter(description = "Fecha inicio (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @Parameter(description = "Fecha fin (YYYY-MM-DD)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        
+        log.info("GET /api/appointments/availability/calendar/specialty/{} - Obteniendo calendario del {} al {}", specialtyId, startDate, endDate);
+        List<AvailabilityCalendarResponse> response = availabilityService.getSpecialtyCalendar(specialtyId, startDate, endDate);
+        
+        return ResponseEntity.ok(ApiResponse.success("Calendario de disponibilidad por especialidad obtenido", response));
+    }
+    
     @Operation(summary = "Obtener citas por bloque de tiempo y fecha")
     @GetMapping("/date/{date}/block/{block}")
     @PreAuthorize("hasRole('ADMIN') or hasRole('DOCTOR')")
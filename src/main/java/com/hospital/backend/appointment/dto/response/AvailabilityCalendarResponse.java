@@ -0,0 +1,27 @@
+package com.hospital.backend.appointment.dto.response;
+
+import com.hospital.backend.enums.TimeBlock;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * DTO compacto de disponibilidad de un doctor en un rango de fechas.
+ * Para cada bloque se envía un arreglo con un valor por día del rango (índice 0 = startDate):
+ * la cantidad de cupos restantes, o -1 si el doctor no atiende ese día en ese bloque.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AvailabilityCalendarResponse {
+    
+    private Long doctorId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private Map<TimeBlock, int[]> remainingSlots;
+}
@@ -2,6 +2,7 @@ package com.hospital.backend.appointment.entity;
 
 import com.hospital.backend.catalog.entity.Specialty;
 import com.hospital.backend.common.entity.BaseEntity;
+import com.hospital.backend.common.event.EntityChangeListener;
 import com.hospital.backend.enums.AppointmentStatus;
 import com.hospital.backend.enums.PaymentStatus;
 import com.hospital.backend.enums.TimeBlock;
@@ -21,7 +22,9 @@ import java.time.LocalDate;
  * Todas las citas en este sistema son virtuales, ya que las presenciales se manejan en el sistema de Urovital
  */
 @Entity
-@Table(name = "appointments")
+@EntityListeners(EntityChangeListener.class)
+@Table(name = "appointments",
+       indexes = @Index(name = "idx_appointments_date_patient", columnList = "appointment_date, patient_id"))
 @Getter
 @Setter
 @NoArgsConstructor
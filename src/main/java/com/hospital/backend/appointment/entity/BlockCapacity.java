@@ -0,0 +1,46 @@
+package com.hospital.backend.appointment.entity;
+
+import com.hospital.backend.common.entity.BaseEntity;
+import com.hospital.backend.enums.TimeBlock;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+
+/**
+ * Contador de cupos ocupados por doctor, fecha y bloque de tiempo.
+ * Es la fuente de verdad para las reservas concurrentes: cada reserva es un UPDATE
+ * condicional sobre una sola fila, por lo que sólo compiten las reservas del mismo bloque.
+ */
+@Entity
+@Table(name = "block_capacity",
+       uniqueConstraints = @UniqueConstraint(
+               name = "uk_block_capacity_doctor_date_block",
+               columnNames = {"doctor_id", "appointment_date", "time_block"}))
+@Getter
+@Setter
+@NoArgsConstructor
+public class BlockCapacity extends BaseEntity {
+    
+    @Column(name = "doctor_id", nullable = false)
+    private Long doctorId;
+    
+    @Column(name = "appointment_date", nullable = false)
+    private LocalDate appointmentDate;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "time_block", nullable = false)
+    private TimeBlock timeBlock;
+    
+    @Column(name = "max_patients", nullable = false)
+    private Integer maxPatients;
+    
+    @Column(name = "booked_count", nullable = false)
+    private Integer bookedCount = 0;
+    
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version = 0L;
+}
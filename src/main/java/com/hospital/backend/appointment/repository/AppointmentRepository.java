@@ -1,12 +1,17 @@
 package com.hospital.backend.appointment.repository;
 
 import com.hospital.backend.appointment.entity.Appointment;
+import com.hospital.backend.common.util.Constants;
 import com.hospital.backend.enums.AppointmentStatus;
 import com.hospital.backend.enums.TimeBlock;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -14,6 +19,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repository para operaciones de base de datos de citas médicas
@@ -22,6 +28,13 @@ import java.util.Optional;
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
     
+    /**
+     * Listar todas las citas con paciente, doctor y especialidad en la misma consulta
+     */
+    @Override
+    @EntityGraph(attributePaths = {"patient", "doctor", "specialty"})
+    Page<Appointment> findAll(Pageable pageable);
+    
     // =========================
     // Verificación de disponibilidad
     // =========================
@@ -63,7 +76,73 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
             @Param("doctorId") Long doctorId,
             @Param("date") LocalDate date,
             @Param("timeBlock") TimeBlock timeBlock);
-    
+
+    /**
+     * Contar citas que ocupan cupo en un bloque (según los estados indicados)
+     */
+    @Query("SELECT COUNT(a) FROM Appointment a WHERE " +
+           "a.doctor.id = :doctorId AND " +
+           "a.appointmentDate = :date AND " +
+           "a.timeBlock = :timeBlock AND " +
+           "a.status IN :statuses")
+    int countByDoctorIdAndAppointmentDateAndTimeBlockAndStatusIn(
+            @Param("doctorId") Long doctorId,
+            @Param("date") LocalDate date,
+            @Param("timeBlock") TimeBlock timeBlock,
+            @Param("statuses") List<AppointmentStatus> statuses);
+
+    /**
+     * Conteo de cupos ocupados agrupado por doctor, fecha y bloque desde una fecha dada.
+     * Devuelve filas [doctorId, appointmentDate, timeBlock, count]
+     */
+    @Query("SELECT a.doctor.id, a.appointmentDate, a.timeBlock, COUNT(a) FROM Appointment a WHERE " +
+           "a.appointmentDate >= :fromDate AND " +
+           "a.status IN :statuses " +
+           "GROUP BY a.doctor.id, a.appointmentDate, a.timeBlock")
+    List<Object[]> countOccupiedSlotsGroupedFrom(@Param("fromDate") LocalDate fromDate,
+                                                 @Param("statuses") List<AppointmentStatus> statuses);
+
+    /**
+     * Conteo de cupos ocupados por doctor y bloque para todos los doctores de una especialidad en una fecha.
+     * Devuelve filas [doctorId, timeBlock, count]
+     */
+    @Query("SELECT a.doctor.id, a.timeBlock, COUNT(a) FROM Appointment a WHERE " +
+           "a.appointmentDate = :date AND " +
+           "a.status IN :statuses AND " +
+           "a.doctor.id IN (SELECT ds.doctor.id FROM DoctorSpecialty ds WHERE ds.specialty.id = :specialtyId) " +
+           "GROUP BY a.doctor.id, a.timeBlock")
+    List<Object[]> countOccupiedSlotsBySpecialtyAndDate(@Param("specialtyId") Long specialtyId,
+                                                        @Param("date") LocalDate date,
+                                                        @Param("statuses") List<AppointmentStatus> statuses);
+
+    /**
+     * Conteo de cupos ocupados de un doctor por fecha y bloque en un rango de fechas.
+     * Devuelve filas [doctorId, appointmentDate, timeBlock, count]
+     */
+    @Query("SELECT a.doctor.id, a.appointmentDate, a.timeBlock, COUNT(a) FROM Appointment a WHERE " +
+           "a.doctor.id = :doctorId AND " +
+           "a.appointmentDate BETWEEN :startDate AND :endDate AND " +
+           "a.status IN :statuses " +
+           "GROUP BY a.doctor.id, a.appointmentDate, a.timeBlock")
+    List<Object[]> countOccupiedSlotsByDoctorAndDateRange(@Param("doctorId") Long doctorId,
+                                                          @Param("startDate") LocalDate startDate,
+                                                          @Param("endDate") LocalDate endDate,
+                                                          @Param("statuses") List<AppointmentStatus> statuses);
+
+    /**
+     * Conteo de cupos ocupados de los doctores de una especialidad por fecha y bloque en un rango de fechas.
+     * Devuelve filas [doctorId, appointmentDate, timeBlock, count]
+     */
+    @Query("SELECT a.doctor.id, a.appointmentDate, a.timeBlock, COUNT(a) FROM Appointment a WHERE " +
+           "a.appointmentDate BETWEEN :startDate AND :endDate AND " +
+           "a.status IN :statuses AND " +
+           "a.doctor.id IN (SELECT ds.doctor.id FROM DoctorSpecialty ds WHERE ds.specialty.id = :specialtyId) " +
+           "GROUP BY a.doctor.id, a.appointmentDate, a.timeBlock")
+    List<Object[]> countOccupiedSlotsBySpecialtyAndDateRange(@Param("specialtyId") Long specialtyId,
+                                                             @Param("startDate") LocalDate startDate,
+                                                             @Param("endDate") LocalDate endDate,
+                                                             @Param("statuses") List<AppointmentStatus> statuses);
+
     // =========================
     // Consultas por entidades
     // =========================
@@ -71,6 +150,7 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     /**
      * Buscar citas por paciente
      */
+    @EntityGraph(attributePaths = {"patient", "doctor", "specialty"})
     @Query("SELECT a FROM Appointment a WHERE a.patient.id = :patientId ORDER BY a.appointmentDate DESC")
     Page<Appointment> findByPatientId(@Param("patientId") Long patientId, Pageable pageable);
     
@@ -78,17 +158,20 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
      * Buscar citas por paciente ordenadas por fecha descendente
      * Usado en el portal virtual para mostrar el historial de citas al paciente
      */
+    @EntityGraph(attributePaths = {"patient", "doctor", "specialty"})
     List<Appointment> findByPatientIdOrderByAppointmentDateDesc(Long patientId);
     
     /**
      * Buscar citas por doctor
      */
+    @EntityGraph(attributePaths = {"patient", "doctor", "specialty"})
     @Query("SELECT a FROM Appointment a WHERE a.doctor.id = :doctorId ORDER BY a.appointmentDate ASC")
     Page<Appointment> findByDoctorId(@Param("doctorId") Long doctorId, Pageable pageable);
     
     /**
      * Buscar citas por especialidad
      */
+    @EntityGraph(attributePaths = {"patient", "doctor", "specialty"})
     @Query("SELECT a FROM Appointment a WHERE a.specialty.id = :specialtyId ORDER BY a.appointmentDate ASC")
     Page<Appointment> findBySpecialtyId(@Param("specialtyId") Long specialtyId, Pageable pageable);
     
@@ -99,12 +182,14 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     /**
      * Buscar citas de un doctor en una fecha específica
      */
+    @EntityGraph(attributePaths = {"patient", "doctor", "specialty"})
     @Query("SELECT a FROM Appointment a WHERE a.doctor.id = :doctorId AND a.appointmentDate = :date ORDER BY a.timeBlock")
     List<Appointment> findByDoctorIdAndAppointmentDate(@Param("doctorId") Long doctorId, @Param("date") LocalDate date);
     
     /**
      * Buscar citas por fecha y bloque de tiempo
      */
+    @EntityGraph(attributePaths = {"patient", "doctor", "specialty"})
     @Query("SELECT a FROM Appointment a WHERE a.appointmentDate = :date AND a.timeBlock = :timeBlock ORDER BY a.doctor.id")
     List<Appointment> findByAppointmentDateAndTimeBlock(@Param("date") LocalDate date, @Param("timeBlock") TimeBlock timeBlock);
     
@@ -126,6 +211,7 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     /**
      * Buscar citas por estado
      */
+    @EntityGraph(attributePaths = {"patient", "doctor", "specialty"})
     @Query("SELECT a FROM Appointment a WHERE a.status = :status ORDER BY a.appointmentDate ASC")
     Page<Appointment> findByStatus(@Param("status") AppointmentStatus status, Pageable pageable);
     
@@ -284,4 +370,79 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
            "ORDER BY COUNT(a) DESC " +
            "LIMIT :limit")
     List<Object[]> findTopDoctors(@Param("limit") int limit);
+    
+    /**
+     * Paginación keyset de citas ordenadas por (fecha DESC, id DESC), sin consulta de conteo.
+     * Los filtros nulos se ignoran; afterDate/afterId nulos indican la primera página.
+     */
+    @EntityGraph(attributePaths = {"patient", "doctor", "specialty"})
+    @Query("SELECT a FROM Appointment a WHERE " +
+           "(:status IS NULL OR a.status = :status) AND " +
+           "(:doctorId IS NULL OR a.doctor.id = :doctorId) AND " +
+           "(:patientId IS NULL OR a.patient.id = :patientId) AND " +
+           "(:specialtyId IS NULL OR a.specialty.id = :specialtyId) AND " +
+           "(:afterDate IS NULL OR a.appointmentDate < :afterDate OR " +
+           "(a.appointmentDate = :afterDate AND a.id < :afterId)) " +
+           "ORDER BY a.appointmentDate DESC, a.id DESC " +
+           "LIMIT :limit")
+    List<Appointment> findPageAfter(@Param("status") AppointmentStatus status,
+                                    @Param("doctorId") Long doctorId,
+                                    @Param("patientId") Long patientId,
+                                    @Param("specialtyId") Long specialtyId,
+                                    @Param("afterDate") LocalDate afterDate,
+                                    @Param("afterId") Long afterId,
+                                    @Param("limit") int limit);
+    
+    /**
+     * Conteos del dashboard que no salen del resumen diario.
+     * Devuelve una fila: [pacientes distintos hoy, total de pacientes, total de doctores].
+     * Sólo lee las citas del día (índice idx_appointments_date_patient); sin GROUP BY la fila existe
+     * aunque hoy no haya citas.
+     */
+    @Query("SELECT COUNT(DISTINCT a.patient.id), " +
+           "(SELECT COUNT(p) FROM Patient p), " +
+           "(SELECT COUNT(d) FROM Doctor d) " +
+           "FROM Appointment a WHERE a.appointmentDate = :today")
+    List<Object[]> aggregateDashboardMetrics(@Param("today") LocalDate today);
+    
+    /**
+     * Rango de fechas con citas: [mínima, máxima]
+     */
+    @Query("SELECT MIN(a.appointmentDate), MAX(a.appointmentDate) FROM Appointment a")
+    List<Object[]> findAppointmentDateRange();
+    
+    /**
+     * Recorre las citas de un rango como proyección de solo lectura, por lotes y sin cargarlas en memoria:
+     * filas [fecha, estado, precio de consulta]. Cada filtro se ignora si su bandera all* es true.
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAM_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT a.appointmentDate, a.status, s.consultationPrice FROM Appointment a JOIN a.specialty s WHERE " +
+           "a.appointmentDate BETWEEN :startDate AND :endDate AND " +
+           "(:allDoctors = true OR a.doctor.id IN :doctorIds) AND " +
+           "(:allSpecialties = true OR s.id IN :specialtyIds) AND " +
+           "(:allPatients = true OR a.patient.id IN :patientIds)")
+    Stream<Object[]> streamAnalyticsRows(@Param("startDate") LocalDate startDate,
+                                         @Param("endDate") LocalDate endDate,
+                                         @Param("allDoctors") boolean allDoctors,
+                                         @Param("doctorIds") List<Long> doctorIds,
+                                         @Param("allSpecialties") boolean allSpecialties,
+                                         @Param("specialtyIds") List<Long> specialtyIds,
+                                         @Param("allPatients") boolean allPatients,
+                                         @Param("patientIds") List<Long> patientIds);
+    
+    /**
+     * Recorre las citas de un rango para exportación, por lotes y ordenadas por id:
+     * [id, fecha, bloque, estado, paciente, doctor, especialidad, motivo, precio de consulta]
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAM_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT a.id, a.appointmentDate, a.timeBlock, a.status, " +
+           "CONCAT(p.firstName, ' ', p.lastName), CONCAT(d.firstName, ' ', d.lastName), s.name, " +
+           "a.reason, s.consultationPrice " +
+           "FROM Appointment a JOIN a.patient p JOIN a.doctor d JOIN a.specialty s " +
+           "WHERE a.appointmentDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY a.id")
+    Stream<Object[]> streamForExport(@Param("startDate") LocalDate startDate,
+                                     @Param("endDate") LocalDate endDate);
 }
@@ -0,0 +1,103 @@
+package com.hospital.backend.appointment.repository;
+
+import com.hospital.backend.appointment.entity.BlockCapacity;
+import com.hospital.backend.enums.AppointmentStatus;
+import com.hospital.backend.enums.TimeBlock;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository para los contadores de cupos por bloque
+ */
+@Repository
+public interface BlockCapacityRepository extends JpaRepository<BlockCapacity, Long> {
+    
+    /**
+     * Crear el contador de un bloque, sembrado con las citas que ocupan cupo, si todavía no existe.
+     * Corre en la conexión de la transacción actual: si otra transacción lo está creando,
+     * espera a que termine y no inserta nada.
+     * ON CONFLICT es sintaxis de PostgreSQL: las pruebas dependen del modo PostgreSQL de H2 (perfil h2).
+     */
+    @Modifying
+    @Query(value = "INSERT INTO block_capacity " +
+                   "(doctor_id, appointment_date, time_block, max_patients, booked_count, version, created_at, updated_at) " +
+                   "SELECT :doctorId, :date, :timeBlock, :maxPatients, COUNT(*), 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP " +
+                   "FROM appointments a " +
+                   "WHERE a.doctor_id = :doctorId AND " +
+                   "a.appointment_date = :date AND " +
+                   "a.time_block = :timeBlock AND " +
+                   "a.status IN (:statuses) " +
+                   "ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int insertIfAbsent(@Param("doctorId") Long doctorId,
+                       @Param("date") LocalDate date,
+                       @Param("timeBlock") String timeBlock,
+                       @Param("maxPatients") int maxPatients,
+                       @Param("statuses") List<String> statuses);
+    
+    /**
+     * Ids de los contadores desde una fecha cuyo valor no coincide con las citas que ocupan cupo.
+     * Puede incluir bloques con reservas en curso; cada uno se vuelve a verificar con la fila bloqueada.
+     */
+    @Query("SELECT bc.id FROM BlockCapacity bc WHERE " +
+           "bc.appointmentDate >= :fromDate AND " +
+           "bc.bookedCount <> (SELECT COUNT(a) FROM Appointment a WHERE " +
+           "a.doctor.id = bc.doctorId AND " +
+           "a.appointmentDate = bc.appointmentDate AND " +
+           "a.timeBlock = bc.timeBlock AND " +
+           "a.status IN :statuses)")
+    List<Long> findDriftedIdsFrom(@Param("fromDate") LocalDate fromDate,
+                                  @Param("statuses") List<AppointmentStatus> statuses);
+    
+    /**
+     * Obtener un contador bloqueando su fila hasta el fin de la transacción
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT bc FROM BlockCapacity bc WHERE bc.id = :id")
+    Optional<BlockCapacity> findByIdForUpdate(@Param("id") Long id);
+    
+    /**
+     * Ocupar un cupo sólo si el bloque no alcanzó la capacidad indicada.
+     * El UPDATE bloquea únicamente la fila del bloque hasta el fin de la transacción.
+     * Devuelve 1 si se reservó el cupo, 0 si el bloque está lleno.
+     */
+    @Modifying
+    @Query("UPDATE BlockCapacity bc SET " +
+           "bc.bookedCount = bc.bookedCount + 1, " +
+           "bc.maxPatients = :maxPatients, " +
+           "bc.version = bc.version + 1, " +
+           "bc.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE bc.doctorId = :doctorId AND " +
+           "bc.appointmentDate = :date AND " +
+           "bc.timeBlock = :timeBlock AND " +
+           "bc.bookedCount < :maxPatients")
+    int incrementIfBelowCapacity(@Param("doctorId") Long doctorId,
+                                 @Param("date") LocalDate date,
+                                 @Param("timeBlock") TimeBlock timeBlock,
+                                 @Param("maxPatients") int maxPatients);
+    
+    /**
+     * Liberar un cupo del bloque
+     */
+    @Modifying
+    @Query("UPDATE BlockCapacity bc SET " +
+           "bc.bookedCount = bc.bookedCount - 1, " +
+           "bc.version = bc.version + 1, " +
+           "bc.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE bc.doctorId = :doctorId AND " +
+           "bc.appointmentDate = :date AND " +
+           "bc.timeBlock = :timeBlock AND " +
+           "bc.bookedCount > 0")
+    int decrementIfPositive(@Param("doctorId") Long doctorId,
+                            @Param("date") LocalDate date,
+                            @Param("timeBlock") TimeBlock timeBlock);
+}
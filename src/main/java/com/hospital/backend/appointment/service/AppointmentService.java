@@ -12,15 +12,18 @@ import com.hospital.backend.catalog.entity.PaymentMethod;
 import com.hospital.backend.catalog.entity.Specialty;
 import com.hospital.backend.catalog.repository.PaymentMethodRepository;
 import com.hospital.backend.catalog.repository.SpecialtyRepository;
+import com.hospital.backend.common.dto.CursorPageResponse;
 import com.hospital.backend.common.dto.PageResponse;
 import com.hospital.backend.common.exception.BusinessException;
 import com.hospital.backend.common.exception.ResourceNotFoundException;
+import com.hospital.backend.common.util.CursorUtils;
 import com.hospital.backend.enums.AppointmentStatus;
 import com.hospital.backend.enums.PaymentStatus;
 import com.hospital.backend.enums.TimeBlock;
 import com.hospital.backend.payment.entity.Payment;
 import com.hospital.backend.payment.repository.PaymentRepository;
 import com.hospital.backend.user.entity.Doctor;
+import com.hospital.backend.user.entity.DoctorAvailability;
 import com.hospital.backend.user.entity.Patient;
 import com.hospital.backend.user.repository.DoctorRepository;
 import com.hospital.backend.user.repository.PatientRepository;
@@ -62,6 +65,7 @@ public class AppointmentService {
     private final PaymentMethodRepository paymentMethodRepository;
     private final UserRepository userRepository;
     private final AvailabilityService availabilityService;
+    private final SlotReservationService slotReservationService;
     
     @Value("${app.uploads.payment-receipts:uploads/receipts}")
     private String paymentReceiptsPath;
@@ -96,8 +100,8 @@ public class AppointmentService {
         // 3. Validar que el doctor tenga esa especialidad
         validateDoctorSpecialty(doctor, specialty);
         
-        // 4. Validar disponibilidad del doctor
-        validateDoctorAvailability(doctor.getId(), request.getAppointmentDate(), request.getTimeBlock());
+        // 4. Validar disponibilidad del doctor y reservar el cupo del bloque
+        reserveBlockSlot(doctor.getId(), request.getAppointmentDate(), request.getTimeBlock());
         
         // 5. Validar si la especialidad requiere derivación (DESHABILITADO)
         /* if (specialty.getRequiresReferral() != null && specialty.getRequiresReferral() 
@@ -212,6 +216,9 @@ public class AppointmentService {
             throw new BusinessException("No se puede modificar una cita con estado: " + appointment.getStatus());
         }
         
+        LocalDate previousDate = appointment.getAppointmentDate();
+        TimeBlock previousTimeBlock = appointment.getTimeBlock();
+        
         // Actualizar campos si se proporcionan
         if (request.getAppointmentDate() != null) {
             appointment.setAppointmentDate(request.getAppointmentDate());
@@ -219,10 +226,14 @@ public class AppointmentService {
         
         if (request.getTimeBlock() != null) {
             appointment.setTimeBlock(request.getTimeBlock());
-            // Validar nueva disponibilidad
-            validateDoctorAvailability(appointment.getDoctor().getId(), 
-                                     appointment.getAppointmentDate(),
-                                     request.getTimeBlock());
+        }
+        
+        // Si cambió el bloque o la fecha, reservar el nuevo cupo y liberar el anterior
+        if (!appointment.getAppointmentDate().equals(previousDate) || appointment.getTimeBlock() != previousTimeBlock) {
+            reserveBlockSlot(appointment.getDoctor().getId(), 
+                             appointment.getAppointmentDate(),
+                             appointment.getTimeBlock());
+            slotReservationService.release(appointment.getDoctor().getId(), previousDate, previousTimeBlock);
         }
         
         if (request.getReason() != null && !request.getReason().trim().isEmpty()) {
@@ -254,6 +265,25 @@ public class AppointmentService {
         return new PageResponse<>(mappedPage);
     }
     
+    /**
+     * Listar citas con paginación por cursor (más recientes primero, sin conteo total)
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<AppointmentResponse> getAppointmentsPage(AppointmentStatus status, Long doctorId,
+                                                                       Long patientId, Long specialtyId,
+                                                                       String cursor, int size) {
+        CursorUtils.Cursor after = CursorUtils.decode(cursor);
+        int pageSize = CursorUtils.clampSize(size);
+        
+        List<Appointment> rows = appointmentRepository.findPageAfter(
+                status, doctorId, patientId, specialtyId,
+                after != null ? after.keyAsDate() : null,
+                after != null ? after.id() : null,
+                pageSize + 1);
+        
+        return CursorPageResponse.of(rows, pageSize, Appointment::getAppointmentDate, Appointment::getId, this::mapToResponse);
+    }
+    
     // =========================
     // Cambios de estado
     // =========================
@@ -292,6 +322,7 @@ public class AppointmentService {
             throw new BusinessException("Solo se pueden completar citas en consulta");
         }
         
+        // La cita completada conserva su cupo (SlotCapacityLedger.OCCUPYING_STATUSES)
         appointment.setStatus(AppointmentStatus.COMPLETED);
         Appointment savedAppointment = appointmentRepository.save(appointment);
         
@@ -314,6 +345,7 @@ public class AppointmentService {
         
         appointment.setStatus(AppointmentStatus.CANCELLED);
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        slotReservationService.release(appointment.getDoctor().getId(), appointment.getAppointmentDate(), appointment.getTimeBlock());
         
         return mapToResponse(savedAppointment);
     }
@@ -334,6 +366,7 @@ public class AppointmentService {
         
         appointment.setStatus(AppointmentStatus.NO_SHOW);
         Appointment savedAppointment = appointmentRepository.save(appointment);
+        slotReservationService.release(appointment.getDoctor().getId(), appointment.getAppointmentDate(), appointment.getTimeBlock());
         
         return mapToResponse(savedAppointment);
     }
@@ -469,7 +502,7 @@ public class AppointmentService {
      * Buscar cita con detalles
      */
     private Appointment findAppointmentWithDetails(Long id) {
-        return appointmentRepository.findById(id)
+        return appointmentRepository.findByIdWithDetails(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Appointment", "id", id));
     }
     
@@ -489,23 +522,21 @@ public class AppointmentService {
     }
     
     /**
-     * Validar disponibilidad del doctor por bloque
+     * Validar disponibilidad del doctor por bloque y reservar un cupo de forma atómica.
+     * Si la transacción no confirma, el cupo se libera automáticamente.
      */
-    private void validateDoctorAvailability(Long doctorId, LocalDate date, TimeBlock timeBlock) {
+    private void reserveBlockSlot(Long doctorId, LocalDate date, TimeBlock timeBlock) {
         // Verificar si el doctor está disponible en ese bloque
-        boolean isAvailable = availabilityService.isDoctorAvailableInTimeBlock(doctorId, date, timeBlock);
-        
-        if (!isAvailable) {
-            throw new BusinessException(
-                    String.format("El doctor no está disponible en la fecha %s, bloque %s", 
-                            date, timeBlock.getDisplayName())
-            );
-        }
+        DoctorAvailability schedule = availabilityService.findBlockSchedule(doctorId, date, timeBlock)
+                .orElseThrow(() -> new BusinessException(
+                        String.format("El doctor no está disponible en la fecha %s, bloque %s", 
+                                date, timeBlock.getDisplayName())
+                ));
         
-        // Verificar capacidad del bloque
-        boolean hasCapacity = availabilityService.hasBlockCapacity(doctorId, date, timeBlock);
+        // Reservar cupo del bloque
+        boolean reserved = slotReservationService.reserve(doctorId, date, timeBlock, schedule.getMaxPatients());
         
-        if (!hasCapacity) {
+        if (!reserved) {
             throw new BusinessException(
                     String.format("El bloque %s del %s ya está a capacidad máxima", 
                             timeBlock.getDisplayName(), date)
@@ -1,8 +1,10 @@
 package com.hospital.backend.appointment.service;
 
+import com.hospital.backend.appointment.dto.response.AvailabilityCalendarResponse;
 import com.hospital.backend.appointment.dto.response.BlockAvailabilityResponse;
 import com.hospital.backend.appointment.repository.AppointmentRepository;
 import com.hospital.backend.catalog.repository.SpecialtyRepository;
+import com.hospital.backend.common.exception.BusinessException;
 import com.hospital.backend.common.exception.ResourceNotFoundException;
 import com.hospital.backend.enums.TimeBlock;
 import com.hospital.backend.user.entity.DoctorAvailability;
@@ -15,10 +17,14 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 /**
  * Servicio para calcular disponibilidad de doctores por bloques de tiempo
@@ -28,10 +34,16 @@ import java.util.stream.Collectors;
 @Slf4j
 public class AvailabilityService {
     
+    /**
+     * Máximo de días que se pueden consultar en el calendario de disponibilidad
+     */
+    private static final int MAX_CALENDAR_DAYS = 62;
+    
     private final DoctorRepository doctorRepository;
     private final DoctorAvailabilityRepository doctorAvailabilityRepository;
     private final SpecialtyRepository specialtyRepository;
     private final AppointmentRepository appointmentRepository;
+    private final SlotCapacityLedger slotCapacityLedger;
     
     /**
      * Obtener bloques disponibles para un doctor en una fecha específica.
@@ -65,8 +77,7 @@ public class AvailabilityService {
             if (schedule != null) {
                 // 3. Si se encuentra un horario y está marcado como disponible, verificar los cupos.
                 int maxPatients = schedule.getMaxPatients();
-                long appointmentsCount = appointmentRepository.countByDoctorIdAndAppointmentDateAndTimeBlock(
-                        doctorId, date, block);
+                long appointmentsCount = slotCapacityLedger.getBookedCount(doctorId, date, block);
                 boolean hasCapacity = appointmentsCount < maxPatients;
 
                 responseBlocks.add(BlockAvailabilityResponse.builder()
@@ -100,14 +111,8 @@ public class AvailabilityService {
                 doctorId, date, timeBlock);
         
         // 1. Verificar que el doctor trabaja ese día en ese bloque
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        int dayNumber = dayOfWeek.getValue();
-        
-        List<DoctorAvailability> schedules = doctorAvailabilityRepository
-                .findByDoctorIdAndDayOfWeekAndTimeBlockAndIsAvailable(doctorId, dayNumber, timeBlock, true);
-        
-        if (schedules.isEmpty()) {
-            log.debug("Doctor {} no trabaja los {} en bloque {}", doctorId, dayOfWeek, timeBlock);
+        if (findBlockSchedule(doctorId, date, timeBlock).isEmpty()) {
+            log.debug("Doctor {} no trabaja los {} en bloque {}", doctorId, date.getDayOfWeek(), timeBlock);
             return false;
         }
         
@@ -120,30 +125,32 @@ public class AvailabilityService {
     @Transactional(readOnly = true)
     public boolean hasBlockCapacity(Long doctorId, LocalDate date, TimeBlock timeBlock) {
         // Obtener la configuración del bloque
-        DayOfWeek dayOfWeek = date.getDayOfWeek();
-        int dayNumber = dayOfWeek.getValue();
-        
-        DoctorAvailability availability = doctorAvailabilityRepository
-                .findByDoctorIdAndDayOfWeekAndTimeBlockAndIsAvailable(doctorId, dayNumber, timeBlock, true)
-                .stream()
-                .findFirst()
-                .orElse(null);
+        DoctorAvailability availability = findBlockSchedule(doctorId, date, timeBlock).orElse(null);
         
         if (availability == null) {
             return false;
         }
         
-        int maxPatients = availability.getMaxPatients();
-        
-        // Contar cuántas citas ya hay en este bloque
-        long appointmentsCount = appointmentRepository.countByDoctorIdAndAppointmentDateAndTimeBlock(
-                doctorId, date, timeBlock);
+        // Los cupos ocupados se leen del ledger en memoria
+        return slotCapacityLedger.getBookedCount(doctorId, date, timeBlock) < availability.getMaxPatients();
+    }
+    
+    /**
+     * Obtener el horario habilitado de un doctor para la fecha y bloque indicados
+     */
+    @Transactional(readOnly = true)
+    public Optional<DoctorAvailability> findBlockSchedule(Long doctorId, LocalDate date, TimeBlock timeBlock) {
+        int dayNumber = date.getDayOfWeek().getValue();
         
-        return appointmentsCount < maxPatients;
+        return doctorAvailabilityRepository
+                .findByDoctorIdAndDayOfWeekAndTimeBlockAndIsAvailable(doctorId, dayNumber, timeBlock, true)
+                .stream()
+                .findFirst();
     }
     
     /**
-     * Obtener resumen de disponibilidad por especialidad
+     * Obtener resumen de disponibilidad por especialidad.
+     * Resuelve todos los doctores con dos consultas agrupadas en lugar de consultar doctor por doctor.
      */
     @Transactional(readOnly = true)
     public Map<TimeBlock, List<BlockAvailabilityResponse>> getAvailabilityBySpecialty(
@@ -154,26 +161,168 @@ public class AvailabilityService {
             throw new ResourceNotFoundException("Specialty", "id", specialtyId);
         }
         
-        // Obtener todos los doctores de esa especialidad
-        List<Long> doctorIds = doctorRepository.findIdsBySpecialtyId(specialtyId);
+        // 1. Horarios de todos los doctores de la especialidad para ese día (una sola consulta)
+        int dayNumber = date.getDayOfWeek().getValue();
+        Map<Long, Map<TimeBlock, Integer>> schedulesByDoctor = new LinkedHashMap<>();
+        for (Object[] row : doctorAvailabilityRepository.findAvailableBlocksBySpecialtyAndDayOfWeek(specialtyId, dayNumber)) {
+            schedulesByDoctor.computeIfAbsent((Long) row[0], id -> new EnumMap<>(TimeBlock.class))
+                    .putIfAbsent((TimeBlock) row[1], (Integer) row[2]);
+        }
         
-        List<BlockAvailabilityResponse> allBlocks = new ArrayList<>();
+        if (schedulesByDoctor.isEmpty()) {
+            return new EnumMap<>(TimeBlock.class);
+        }
+        
+        // 2. Cupos ocupados de todos esos doctores en la fecha, agrupados (una sola consulta)
+        Map<Long, Map<TimeBlock, Integer>> countsByDoctor = new HashMap<>();
+        for (Object[] row : appointmentRepository.countOccupiedSlotsBySpecialtyAndDate(
+                specialtyId, date, SlotCapacityLedger.OCCUPYING_STATUSES)) {
+            countsByDoctor.computeIfAbsent((Long) row[0], id -> new EnumMap<>(TimeBlock.class))
+                    .put((TimeBlock) row[1], ((Number) row[2]).intValue());
+        }
         
-        // Para cada doctor, obtener sus bloques disponibles
-        for (Long doctorId : doctorIds) {
-            List<BlockAvailabilityResponse> doctorBlocks = getAvailableBlocks(doctorId, date);
+        // 3. Armar la disponibilidad en memoria, agrupada por bloque de tiempo
+        Map<TimeBlock, List<BlockAvailabilityResponse>> result = new EnumMap<>(TimeBlock.class);
+        schedulesByDoctor.forEach((doctorId, blocks) -> blocks.forEach((block, maxPatients) -> {
+            int seed = countsByDoctor.getOrDefault(doctorId, Map.of()).getOrDefault(block, 0);
+            int appointmentsCount = slotCapacityLedger.getBookedCount(doctorId, date, block, seed);
             
-            // Agregar el ID del doctor a cada bloque
-            doctorBlocks.forEach(block -> block.setDoctorId(doctorId));
+            if (appointmentsCount < maxPatients) {
+                result.computeIfAbsent(block, b -> new ArrayList<>()).add(BlockAvailabilityResponse.builder()
+                        .timeBlock(block)
+                        .isAvailable(true)
+                        .maxPatients(maxPatients)
+                        .currentPatients(appointmentsCount)
+                        .remainingSlots(maxPatients - appointmentsCount)
+                        .doctorId(doctorId)
+                        .build());
+            }
+        }));
+        
+        return result;
+    }
+    
+    /**
+     * Obtener el calendario de disponibilidad de un doctor en un rango de fechas.
+     * Lee la plantilla semanal una sola vez y los cupos ocupados con una consulta agrupada.
+     */
+    @Transactional(readOnly = true)
+    public AvailabilityCalendarResponse getDoctorCalendar(Long doctorId, LocalDate startDate, LocalDate endDate) {
+        int days = validateCalendarRange(startDate, endDate);
+        
+        if (!doctorRepository.existsById(doctorId)) {
+            throw new ResourceNotFoundException("Doctor", "id", doctorId);
+        }
+        
+        Map<Integer, Map<TimeBlock, Integer>> template = new HashMap<>();
+        for (DoctorAvailability schedule : doctorAvailabilityRepository.findAvailableByDoctorId(doctorId)) {
+            template.computeIfAbsent(schedule.getDayOfWeek(), day -> new EnumMap<>(TimeBlock.class))
+                    .putIfAbsent(schedule.getTimeBlock(), schedule.getMaxPatients());
+        }
+        
+        Map<SlotCapacityLedger.SlotKey, Integer> counts = toSlotCounts(appointmentRepository
+                .countOccupiedSlotsByDoctorAndDateRange(doctorId, startDate, endDate, SlotCapacityLedger.OCCUPYING_STATUSES));
+        
+        return buildCalendar(doctorId, startDate, endDate, days, template, counts);
+    }
+    
+    /**
+     * Obtener el calendario de disponibilidad de todos los doctores de una especialidad en un rango de fechas
+     */
+    @Transactional(readOnly = true)
+    public List<AvailabilityCalendarResponse> getSpecialtyCalendar(Long specialtyId, LocalDate startDate, LocalDate endDate) {
+        int days = validateCalendarRange(startDate, endDate);
+        
+        if (!specialtyRepository.existsById(specialtyId)) {
+            throw new ResourceNotFoundException("Specialty", "id", specialtyId);
+        }
+        
+        // Plantilla semanal por doctor: doctorId -> díaSemana -> bloque -> maxPatients
+        Map<Long, Map<Integer, Map<TimeBlock, Integer>>> templates = new LinkedHashMap<>();
+        for (Object[] row : doctorAvailabilityRepository.findWeeklyTemplateBySpecialty(specialtyId)) {
+            templates.computeIfAbsent((Long) row[0], id -> new HashMap<>())
+                    .computeIfAbsent((Integer) row[1], day -> new EnumMap<>(TimeBlock.class))
+                    .putIfAbsent((TimeBlock) row[2], (Integer) row[3]);
+        }
+        
+        if (templates.isEmpty()) {
+            return List.of();
+        }
+        
+        Map<SlotCapacityLedger.SlotKey, Integer> counts = toSlotCounts(appointmentRepository
+                .countOccupiedSlotsBySpecialtyAndDateRange(specialtyId, startDate, endDate, SlotCapacityLedger.OCCUPYING_STATUSES));
+        
+        List<AvailabilityCalendarResponse> calendars = new ArrayList<>(templates.size());
+        templates.forEach((doctorId, template) ->
+                calendars.add(buildCalendar(doctorId, startDate, endDate, days, template, counts)));
+        return calendars;
+    }
+    
+    // =========================
+    // Métodos auxiliares
+    // =========================
+    
+    /**
+     * Validar el rango del calendario y devolver la cantidad de días que abarca
+     */
+    private int validateCalendarRange(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new BusinessException("La fecha de fin no puede ser anterior a la fecha de inicio");
+        }
+        
+        long days = ChronoUnit.DAYS.between(startDate, endDate) + 1;
+        if (days > MAX_CALENDAR_DAYS) {
+            throw new BusinessException(
+                    String.format("El rango de fechas no puede superar los %d días", MAX_CALENDAR_DAYS));
+        }
+        return (int) days;
+    }
+    
+    /**
+     * Convertir filas [doctorId, fecha, bloque, count] en un mapa de conteos por bloque
+     */
+    private Map<SlotCapacityLedger.SlotKey, Integer> toSlotCounts(List<Object[]> rows) {
+        Map<SlotCapacityLedger.SlotKey, Integer> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put(new SlotCapacityLedger.SlotKey((Long) row[0], (LocalDate) row[1], (TimeBlock) row[2]),
+                    ((Number) row[3]).intValue());
+        }
+        return counts;
+    }
+    
+    /**
+     * Armar el calendario compacto de un doctor a partir de su plantilla semanal y los conteos del rango
+     */
+    private AvailabilityCalendarResponse buildCalendar(Long doctorId, LocalDate startDate, LocalDate endDate, int days,
+                                                       Map<Integer, Map<TimeBlock, Integer>> template,
+                                                       Map<SlotCapacityLedger.SlotKey, Integer> counts) {
+        Map<TimeBlock, int[]> remainingSlots = new EnumMap<>(TimeBlock.class);
+        for (TimeBlock block : TimeBlock.values()) {
+            remainingSlots.put(block, new int[days]);
+        }
+        
+        for (int i = 0; i < days; i++) {
+            LocalDate date = startDate.plusDays(i);
+            Map<TimeBlock, Integer> daySchedule = template.getOrDefault(date.getDayOfWeek().getValue(), Map.of());
             
-            allBlocks.addAll(doctorBlocks);
+            for (TimeBlock block : TimeBlock.values()) {
+                Integer maxPatients = daySchedule.get(block);
+                if (maxPatients == null) {
+                    remainingSlots.get(block)[i] = -1;
+                    continue;
+                }
+                
+                int seed = counts.getOrDefault(new SlotCapacityLedger.SlotKey(doctorId, date, block), 0);
+                int booked = slotCapacityLedger.getBookedCount(doctorId, date, block, seed);
+                remainingSlots.get(block)[i] = Math.max(0, maxPatients - booked);
+            }
         }
         
-        // Agrupar por bloque de tiempo
-        return allBlocks.stream()
-                .filter(BlockAvailabilityResponse::getIsAvailable)
-                .collect(Collectors.groupingBy(BlockAvailabilityResponse::getTimeBlock));
+        return AvailabilityCalendarResponse.builder()
+                .doctorId(doctorId)
+                .startDate(startDate)
+                .endDate(endDate)
+                .remainingSlots(remainingSlots)
+                .build();
     }
 }
-
-
@@ -0,0 +1,256 @@
+package com.hospital.backend.appointment.service;
+
+import com.hospital.backend.appointment.repository.AppointmentRepository;
+import com.hospital.backend.enums.AppointmentStatus;
+import com.hospital.backend.enums.TimeBlock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ledger en memoria de cupos ocupados por (doctor, fecha, bloque) para las consultas de disponibilidad.
+ * Los contadores se siembran desde la base de datos la primera vez que se consultan,
+ * se actualizan tras cada reserva o liberación y se reconcilian periódicamente contra la tabla appointments.
+ * Las reservas en sí las decide {@link SlotReservationService} sobre la tabla block_capacity.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SlotCapacityLedger {
+
+    /**
+     * Estados de cita que ocupan un cupo del bloque: todos salvo la cancelación y la no asistencia,
+     * que son los únicos cambios de estado que liberan el cupo. Una cita completada conserva el suyo.
+     * Es la regla de ocupación de block_capacity, de este ledger y de las consultas de disponibilidad.
+     */
+    public static final List<AppointmentStatus> OCCUPYING_STATUSES = List.of(
+            AppointmentStatus.PENDING_VALIDATION,
+            AppointmentStatus.SCHEDULED,
+            AppointmentStatus.IN_CONSULTATION,
+            AppointmentStatus.COMPLETED);
+
+    private final AppointmentRepository appointmentRepository;
+
+    private final Map<SlotKey, Slot> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Obtener la cantidad de cupos ocupados en un bloque
+     */
+    public int getBookedCount(Long doctorId, LocalDate date, TimeBlock timeBlock) {
+        return counter(new SlotKey(doctorId, date, timeBlock)).booked();
+    }
+
+    /**
+     * Obtener la cantidad de cupos ocupados usando un conteo ya calculado como semilla
+     * si el bloque aún no tiene contador (evita una consulta por bloque en lecturas masivas)
+     */
+    public int getBookedCount(Long doctorId, LocalDate date, TimeBlock timeBlock, int seed) {
+        return counters.computeIfAbsent(new SlotKey(doctorId, date, timeBlock), key -> new Slot(seed)).booked();
+    }
+
+    /**
+     * Registrar un cupo ya reservado en block_capacity.
+     * Si hay una transacción activa, el cupo queda pendiente hasta que ésta termine
+     * y se descuenta automáticamente si no confirma.
+     */
+    public void recordReservation(Long doctorId, LocalDate date, TimeBlock timeBlock) {
+        SlotKey key = new SlotKey(doctorId, date, timeBlock);
+        Slot slot = counters.get(key);
+        if (slot == null) {
+            // Sin contador en memoria: se sembrará desde la base de datos en la próxima lectura
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            slot.reserve();
+            return;
+        }
+
+        slot.reservationStarted();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                slot.reservationFinished(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    /**
+     * Liberar un cupo (cancelación, no asistencia o cambio de bloque).
+     * Si hay una transacción activa, la liberación queda pendiente y se aplica sólo tras el commit.
+     */
+    public void release(Long doctorId, LocalDate date, TimeBlock timeBlock) {
+        Slot slot = counters.get(new SlotKey(doctorId, date, timeBlock));
+        if (slot == null) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            slot.release();
+            return;
+        }
+
+        slot.releaseStarted();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                slot.releaseFinished(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    /**
+     * Reconciliar los contadores con la tabla appointments.
+     * Descarta las fechas pasadas y reemplaza los valores vigentes por el conteo real, salvo en los bloques
+     * con reservas o liberaciones en curso o modificados mientras se contaba: el conteo no las incluye
+     * y pisarlas dejaría el contador por debajo de la ocupación real cuando terminen.
+     */
+    @Scheduled(fixedDelayString = "${app.appointment.ledger.reconcile-interval-ms:300000}",
+               initialDelayString = "${app.appointment.ledger.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        LocalDate today = LocalDate.now();
+        counters.keySet().removeIf(key -> key.date().isBefore(today));
+
+        if (counters.isEmpty()) {
+            return;
+        }
+
+        // Versión de cada contador antes de leer la base, para detectar cambios durante la consulta
+        Map<SlotKey, Long> versions = new HashMap<>();
+        counters.forEach((key, slot) -> versions.put(key, slot.version()));
+
+        Map<SlotKey, Integer> actual = new HashMap<>();
+        for (Object[] row : appointmentRepository.countOccupiedSlotsGroupedFrom(today, OCCUPYING_STATUSES)) {
+            SlotKey key = new SlotKey((Long) row[0], (LocalDate) row[1], (TimeBlock) row[2]);
+            actual.put(key, ((Number) row[3]).intValue());
+        }
+
+        int corrected = 0;
+        int skipped = 0;
+        for (Map.Entry<SlotKey, Long> entry : versions.entrySet()) {
+            Slot slot = counters.get(entry.getKey());
+            if (slot == null) {
+                continue;
+            }
+            switch (slot.reconcile(actual.getOrDefault(entry.getKey(), 0), entry.getValue())) {
+                case CORRECTED -> corrected++;
+                case SKIPPED -> skipped++;
+                default -> { }
+            }
+        }
+
+        if (corrected > 0 || skipped > 0) {
+            log.info("Ledger de cupos reconciliado: {} bloques corregidos y {} con cambios en curso de {}",
+                    corrected, skipped, counters.size());
+        }
+    }
+
+    /**
+     * Descartar el contador de un bloque para que se vuelva a sembrar desde la base de datos
+     */
+    public void invalidate(Long doctorId, LocalDate date, TimeBlock timeBlock) {
+        counters.remove(new SlotKey(doctorId, date, timeBlock));
+    }
+
+    private Slot counter(SlotKey key) {
+        Slot slot = counters.get(key);
+        if (slot != null) {
+            return slot;
+        }
+        // La consulta se hace fuera de computeIfAbsent para no bloquear el mapa durante el round trip
+        int seed = appointmentRepository.countByDoctorIdAndAppointmentDateAndTimeBlockAndStatusIn(
+                key.doctorId(), key.date(), key.timeBlock(), OCCUPYING_STATUSES);
+        Slot created = new Slot(seed);
+        Slot existing = counters.putIfAbsent(key, created);
+        return existing != null ? existing : created;
+    }
+
+    enum ReconcileResult { UNCHANGED, CORRECTED, SKIPPED }
+
+    /**
+     * Cupos ocupados de un bloque, con las reservas y liberaciones cuyas transacciones aún no terminan.
+     * Las reservas pendientes ya cuentan como ocupadas; las liberaciones pendientes todavía no.
+     */
+    static final class Slot {
+
+        private int booked;
+        private int pending;
+        private long version;
+
+        Slot(int booked) {
+            this.booked = booked;
+        }
+
+        synchronized int booked() {
+            return booked;
+        }
+
+        synchronized long version() {
+            return version;
+        }
+
+        synchronized void reserve() {
+            booked++;
+            version++;
+        }
+
+        synchronized void reservationStarted() {
+            booked++;
+            pending++;
+            version++;
+        }
+
+        synchronized void reservationFinished(boolean committed) {
+            pending--;
+            if (!committed) {
+                booked = Math.max(0, booked - 1);
+            }
+            version++;
+        }
+
+        synchronized void release() {
+            booked = Math.max(0, booked - 1);
+            version++;
+        }
+
+        synchronized void releaseStarted() {
+            pending++;
+            version++;
+        }
+
+        synchronized void releaseFinished(boolean committed) {
+            pending--;
+            if (committed) {
+                booked = Math.max(0, booked - 1);
+            }
+            version++;
+        }
+
+        /**
+         * Reemplazar el valor por el conteo de la base si nada cambió desde que se leyó la versión indicada
+         */
+        synchronized ReconcileResult reconcile(int expected, long versionBeforeCount) {
+            if (pending > 0 || version != versionBeforeCount) {
+                return ReconcileResult.SKIPPED;
+            }
+            if (booked == expected) {
+                return ReconcileResult.UNCHANGED;
+            }
+            booked = expected;
+            version++;
+            return ReconcileResult.CORRECTED;
+        }
+    }
+
+    record SlotKey(Long doctorId, LocalDate date, TimeBlock timeBlock) {
+    }
+}
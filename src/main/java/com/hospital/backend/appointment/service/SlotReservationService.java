@@ -0,0 +1,118 @@
+package com.hospital.backend.appointment.service;
+
+import com.hospital.backend.appointment.repository.AppointmentRepository;
+import com.hospital.backend.appointment.repository.BlockCapacityRepository;
+import com.hospital.backend.enums.AppointmentStatus;
+import com.hospital.backend.enums.TimeBlock;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Servicio de reserva atómica de cupos por bloque.
+ * La tabla block_capacity es la fuente de verdad entre instancias de la aplicación;
+ * el {@link SlotCapacityLedger} en memoria sólo se actualiza para servir las lecturas.
+ * Ambos cuentan las citas con la misma regla de ocupación ({@link SlotCapacityLedger#OCCUPYING_STATUSES}).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlotReservationService {
+    
+    private static final List<String> OCCUPYING_STATUS_NAMES = SlotCapacityLedger.OCCUPYING_STATUSES.stream()
+            .map(AppointmentStatus::name)
+            .toList();
+    
+    private final BlockCapacityRepository blockCapacityRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final SlotCapacityLedger slotCapacityLedger;
+    private final PlatformTransactionManager transactionManager;
+    
+    /**
+     * Reservar un cupo en el bloque dentro de la transacción actual.
+     * Devuelve false si el bloque ya alcanzó maxPatients.
+     */
+    @Transactional
+    public boolean reserve(Long doctorId, LocalDate date, TimeBlock timeBlock, int maxPatients) {
+        ensureCapacityRow(doctorId, date, timeBlock, maxPatients);
+        
+        int updated = blockCapacityRepository.incrementIfBelowCapacity(doctorId, date, timeBlock, maxPatients);
+        
+        if (updated == 0) {
+            log.debug("Bloque lleno para doctor: {}, fecha: {}, bloque: {}", doctorId, date, timeBlock);
+            // Otra instancia pudo ocupar el bloque: el ledger se vuelve a sembrar en la próxima lectura
+            slotCapacityLedger.invalidate(doctorId, date, timeBlock);
+            return false;
+        }
+        
+        slotCapacityLedger.recordReservation(doctorId, date, timeBlock);
+        return true;
+    }
+    
+    /**
+     * Liberar un cupo del bloque dentro de la transacción actual
+     */
+    @Transactional
+    public void release(Long doctorId, LocalDate date, TimeBlock timeBlock) {
+        blockCapacityRepository.decrementIfPositive(doctorId, date, timeBlock);
+        slotCapacityLedger.release(doctorId, date, timeBlock);
+    }
+    
+    /**
+     * Reconciliar los contadores de block_capacity desde hoy con la tabla appointments.
+     * Cada bloque desfasado se corrige en una transacción corta con su fila bloqueada, de modo que el
+     * conteo incluye las reservas que estaban en curso al detectarlo y no pisa ninguna.
+     */
+    @Scheduled(fixedDelayString = "${app.appointment.capacity.reconcile-interval-ms:900000}",
+               initialDelayString = "${app.appointment.capacity.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        List<Long> drifted = blockCapacityRepository.findDriftedIdsFrom(LocalDate.now(), SlotCapacityLedger.OCCUPYING_STATUSES);
+        if (drifted.isEmpty()) {
+            return;
+        }
+        
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        int corrected = 0;
+        for (Long id : drifted) {
+            if (Boolean.TRUE.equals(template.execute(status -> correct(id)))) {
+                corrected++;
+            }
+        }
+        
+        if (corrected > 0) {
+            log.warn("Contadores de cupos reconciliados: {} bloques corregidos de {} revisados", corrected, drifted.size());
+        }
+    }
+    
+    private boolean correct(Long id) {
+        return blockCapacityRepository.findByIdForUpdate(id)
+                .map(capacity -> {
+                    int actual = appointmentRepository.countByDoctorIdAndAppointmentDateAndTimeBlockAndStatusIn(
+                            capacity.getDoctorId(), capacity.getAppointmentDate(), capacity.getTimeBlock(),
+                            SlotCapacityLedger.OCCUPYING_STATUSES);
+                    if (capacity.getBookedCount() == actual) {
+                        return false;
+                    }
+                    capacity.setBookedCount(actual);
+                    slotCapacityLedger.invalidate(capacity.getDoctorId(), capacity.getAppointmentDate(), capacity.getTimeBlock());
+                    return true;
+                })
+                .orElse(false);
+    }
+    
+    /**
+     * Crear el contador del bloque si no existe, sembrado con las citas ya registradas.
+     * Se crea con un upsert en la conexión de la transacción actual, sin pedir otra al pool; si ya existe,
+     * ON CONFLICT no hace nada, así que no hace falta consultarlo antes.
+     */
+    private void ensureCapacityRow(Long doctorId, LocalDate date, TimeBlock timeBlock, int maxPatients) {
+        blockCapacityRepository.insertIfAbsent(doctorId, date, timeBlock.name(), maxPatients, OCCUPYING_STATUS_NAMES);
+    }
+}
@@ -2,6 +2,7 @@
 package com.hospital.backend.auth.controller;
 
 import com.hospital.backend.auth.dto.request.LoginRequest;
+import com.hospital.backend.auth.dto.request.RefreshTokenRequest;
 import com.hospital.backend.auth.dto.request.RegisterRequest;
 import com.hospital.backend.auth.dto.response.AuthResponse;
 import com.hospital.backend.auth.entity.User;
@@ -13,6 +14,7 @@ import io.swagger.v3.oas.annotations.Parameter;
 
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -36,8 +38,9 @@ public class AuthController {
     
     @PostMapping("/login")
     @Operation(summary = "🚪 Iniciar Sesión", description = "Autenticar usuario y obtener token JWT")
-    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request) {
-        AuthResponse response = authService.login(request);
+    public ResponseEntity<ApiResponse<AuthResponse>> login(@Valid @RequestBody LoginRequest request,
+                                                           HttpServletRequest servletRequest) {
+        AuthResponse response = authService.login(request, servletRequest.getRemoteAddr());
         return ResponseEntity.ok(ApiResponse.success("Login exitoso", response));
     }
     
@@ -78,36 +81,18 @@ public class AuthController {
     }
 
     @PostMapping("/refresh")
-    @SecurityRequirement(name = "JWT Authentication")
-    @Operation(summary = "🔄 Renovar Token JWT", description = "Generar nuevo token JWT")
-    public ResponseEntity<ApiResponse<Map<String, Object>>> refreshToken() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        
-        if (authentication == null || !authentication.isAuthenticated()) {
-            throw new com.hospital.backend.common.exception.UnauthorizedException("Token requerido para renovación");
-        }
-        
-        User user = (User) authentication.getPrincipal();
-        AuthResponse newAuthResponse = authService.refreshToken(user.getEmail());
-        
-        Map<String, Object> response = new HashMap<>();
-        response.put("token", newAuthResponse.getToken());
-        response.put("type", "Bearer");
-        response.put("expiresIn", 86400000);
-        response.put("refreshedAt", LocalDateTime.now());
-        response.put("user", Map.of(
-            "id", user.getId(),
-            "email", user.getEmail(),
-            "role", user.getRole()
-        ));
-        
+    @Operation(summary = "🔄 Renovar Token JWT", description = "Obtener un nuevo access token con el refresh token; el refresh token usado se reemplaza por otro")
+    public ResponseEntity<ApiResponse<AuthResponse>> refreshToken(@Valid @RequestBody RefreshTokenRequest request) {
+        AuthResponse response = authService.refreshToken(request.getRefreshToken());
         return ResponseEntity.ok(ApiResponse.success("Token renovado exitosamente", response));
     }
 
     @PostMapping("/logout")
-    @SecurityRequirement(name = "JWT Authentication")
-    @Operation(summary = "🚪 Cerrar Sesión", description = "Cerrar sesión del usuario")
-    public ResponseEntity<ApiResponse<String>> logout() {
+    @Operation(summary = "🚪 Cerrar Sesión", description = "Cerrar sesión del usuario revocando su refresh token")
+    public ResponseEntity<ApiResponse<String>> logout(@RequestBody(required = false) RefreshTokenRequest request) {
+        if (request != null && request.getRefreshToken() != null && !request.getRefreshToken().isBlank()) {
+            authService.logout(request.getRefreshToken());
+        }
         return ResponseEntity.ok(ApiResponse.success("Logout exitoso"));
     }
 
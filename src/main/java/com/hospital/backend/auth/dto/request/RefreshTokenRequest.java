@@ -0,0 +1,16 @@
+// DTO para solicitud de renovación de token o cierre de sesión
+package com.hospital.backend.auth.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RefreshTokenRequest {
+    
+    @NotBlank(message = "El refresh token es requerido")
+    private String refreshToken;
+}
@@ -18,4 +18,6 @@ public class AuthResponse {
     private String email;
     private UserRole role;
     private LocalDateTime expiresAt;
+    private String refreshToken;
+    private LocalDateTime refreshExpiresAt;
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+// Entidad de refresh token: sólo se guarda el hash del token
+package com.hospital.backend.auth.entity;
+
+import com.hospital.backend.common.entity.BaseEntity;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Refresh token emitido a un usuario. El token en claro sólo lo conoce el cliente; aquí se guarda su SHA-256.
+ *
+ * Los tokens de una misma sesión comparten {@code familyId}: cada renovación marca el token usado y emite el
+ * siguiente de la familia. Presentar un token ya usado revoca la familia completa (posible robo del token),
+ * igual que cerrar sesión. El id de familia viaja en los access tokens como claim "sid".
+ */
+@Entity
+@Table(name = "refresh_tokens",
+       uniqueConstraints = @UniqueConstraint(name = "uk_refresh_token_hash", columnNames = "token_hash"),
+       indexes = {
+               @Index(name = "idx_refresh_token_family", columnList = "family_id"),
+               @Index(name = "idx_refresh_token_user", columnList = "user_id"),
+               @Index(name = "idx_refresh_token_revoked_at", columnList = "revoked_at")
+       })
+@Getter
+@Setter
+@NoArgsConstructor
+public class RefreshToken extends BaseEntity {
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "family_id", nullable = false, length = 36)
+    private String familyId;
+
+    // SHA-256 del token en Base64 URL sin relleno
+    @Column(name = "token_hash", nullable = false, length = 43)
+    private String tokenHash;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Renovado: ya se emitió el siguiente token de la familia
+    @Column(name = "used_at")
+    private LocalDateTime usedAt;
+
+    // Sesión cerrada o revocada: se marca en todos los tokens de la familia
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
+}
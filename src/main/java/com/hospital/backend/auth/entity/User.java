@@ -43,4 +43,17 @@ public class User extends BaseEntity {
     @Column(name = "requires_activation", nullable = false)
     private Boolean requiresActivation = false;
     
+    /**
+     * Versión de los tokens emitidos: los tokens con una versión anterior dejan de ser válidos
+     */
+    @Column(name = "token_version", nullable = false, columnDefinition = "integer default 0")
+    private Integer tokenVersion = 0;
+    
+    /**
+     * Invalida todos los tokens emitidos hasta ahora para este usuario
+     */
+    public void revokeTokens() {
+        tokenVersion = (tokenVersion != null ? tokenVersion : 0) + 1;
+    }
+    
 }
\ No newline at end of file
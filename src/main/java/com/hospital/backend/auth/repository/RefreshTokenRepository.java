@@ -0,0 +1,48 @@
+// Repository para refresh tokens
+package com.hospital.backend.auth.repository;
+
+import com.hospital.backend.auth.entity.RefreshToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
+    
+    Optional<RefreshToken> findByTokenHash(String tokenHash);
+    
+    boolean existsByFamilyIdAndRevokedAtIsNotNull(String familyId);
+    
+    /**
+     * Marca el token como usado sólo si nadie lo usó antes (dos renovaciones simultáneas: gana una)
+     * @return 1 si se marcó
+     */
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.usedAt = :now WHERE t.id = :id AND t.usedAt IS NULL AND t.revokedAt IS NULL")
+    int markUsed(@Param("id") Long id, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.familyId = :familyId AND t.revokedAt IS NULL")
+    int revokeFamily(@Param("familyId") String familyId, @Param("now") LocalDateTime now);
+    
+    @Query("SELECT DISTINCT t.familyId FROM RefreshToken t " +
+           "WHERE t.userId = :userId AND t.revokedAt IS NULL AND t.expiresAt > :now")
+    List<String> findActiveFamilyIds(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+    
+    @Modifying
+    @Query("UPDATE RefreshToken t SET t.revokedAt = :now WHERE t.userId = :userId AND t.revokedAt IS NULL")
+    int revokeAllForUser(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+    
+    @Query("SELECT DISTINCT t.familyId FROM RefreshToken t WHERE t.revokedAt >= :since")
+    List<String> findFamilyIdsRevokedSince(@Param("since") LocalDateTime since);
+    
+    @Modifying
+    @Query("DELETE FROM RefreshToken t WHERE t.expiresAt < :cutoff")
+    int deleteExpiredBefore(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -16,9 +16,9 @@ import com.hospital.backend.user.entity.Patient;
 import com.hospital.backend.user.repository.PatientRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 
@@ -29,31 +29,51 @@ public class AuthService {
     
     private final UserRepository userRepository;
     private final PatientRepository patientRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final LoginThrottle loginThrottle;
+    private final RefreshTokenService refreshTokenService;
     private final JwtTokenProvider jwtTokenProvider;
+    private final PlatformTransactionManager transactionManager;
     
-    @Transactional
-    public AuthResponse login(LoginRequest request) {
+    /**
+     * Inicia sesión con DNI y contraseña.
+     * Sin transacción abierta mientras se verifica el hash, para no retener una conexión durante BCrypt.
+     * @param clientIp IP del cliente, para el límite de intentos fallidos
+     */
+    public AuthResponse login(LoginRequest request, String clientIp) {
         String dni = request.getDni();
-        User user = userRepository.findByDniAndIsActive(dni, true)
-                .orElseThrow(() -> new UnauthorizedException("Credenciales inválidas o usuario inactivo."));
+        loginThrottle.checkAllowed(dni, clientIp);
         
-        if (!passwordEncoder.matches(request.getPassword(), user.getPasswordHash())) {
+        User user = userRepository.findByDniAndIsActive(dni, true).orElse(null);
+        if (user == null) {
+            loginThrottle.recordFailure(dni, clientIp);
+            throw new UnauthorizedException("Credenciales inválidas o usuario inactivo.");
+        }
+        
+        if (!passwordHashingService.matches(request.getPassword(), user.getPasswordHash())) {
+            loginThrottle.recordFailure(dni, clientIp);
             throw new UnauthorizedException("Credenciales inválidas.");
         }
+        loginThrottle.recordSuccess(dni);
+        
+        // Hash calculado con un costo anterior: se recalcula con el actual aprovechando la contraseña en claro
+        if (passwordHashingService.needsRehash(user.getPasswordHash())) {
+            user.setPasswordHash(passwordHashingService.encode(request.getPassword()));
+            log.info("Hash de contraseña actualizado al costo vigente para usuario {}", user.getId());
+        }
         
         user.setLastLogin(DateUtils.nowInLima());
         userRepository.save(user);
         
-        String token = jwtTokenProvider.generateToken(user);
-        LocalDateTime expiresAt = DateUtils.nowInLima().plusSeconds(jwtTokenProvider.getExpirationTime() / 1000);
-        
         log.info("Usuario {} ha iniciado sesión", user.getEmail());
         
-        return new AuthResponse(token, user.getId(), user.getEmail(), user.getRole(), expiresAt);
+        return authResponse(user, refreshTokenService.issue(user));
     }
     
-    @Transactional
+    /**
+     * Registra un usuario con su paciente asociado.
+     * El hash se calcula antes de abrir la transacción, para no retener una conexión durante BCrypt.
+     */
     public AuthResponse register(RegisterRequest request) {
         validateRegisterRequest(request);
         
@@ -61,46 +81,66 @@ public class AuthService {
             throw new BusinessException("El DNI o email ya está registrado");
         }
         
-        // 1. Crear y guardar el usuario
-        User user = new User();
-        user.setDni(request.getDni());
-        user.setEmail(request.getEmail());
-        user.setPasswordHash(passwordEncoder.encode(request.getPassword()));
-        user.setRole(request.getRole());
-        user.setIsActive(true);
-        User savedUser = userRepository.save(user);
+        String passwordHash = passwordHashingService.encode(request.getPassword());
         
-        // 2. Crear y guardar el paciente asociado
-        Patient patient = new Patient();
-        patient.setUser(savedUser);
-        patient.setFirstName(request.getFirstName());
-        patient.setLastName(request.getLastName());
-        patient.setSecondLastName(request.getSecondLastName());
-        patient.setBirthDate(request.getBirthDate());
-        patient.setGender(Gender.fromString(request.getGender()));
-        patient.setPhone(request.getPhone());
-        patientRepository.save(patient);
-        
-        // 3. Generar token y respuesta
-        String token = jwtTokenProvider.generateToken(savedUser);
-        LocalDateTime expiresAt = DateUtils.nowInLima().plusSeconds(jwtTokenProvider.getExpirationTime() / 1000);
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            // Se vuelve a verificar dentro de la transacción: otro registro pudo entrar mientras se calculaba el hash
+            if (userRepository.existsByDniOrEmail(request.getDni(), request.getEmail())) {
+                throw new BusinessException("El DNI o email ya está registrado");
+            }
+            
+            // 1. Crear y guardar el usuario
+            User user = new User();
+            user.setDni(request.getDni());
+            user.setEmail(request.getEmail());
+            user.setPasswordHash(passwordHash);
+            user.setRole(request.getRole());
+            user.setIsActive(true);
+            User savedUser = userRepository.save(user);
+            
+            // 2. Crear y guardar el paciente asociado
+            Patient patient = new Patient();
+            patient.setUser(savedUser);
+            patient.setFirstName(request.getFirstName());
+            patient.setLastName(request.getLastName());
+            patient.setSecondLastName(request.getSecondLastName());
+            patient.setBirthDate(request.getBirthDate());
+            patient.setGender(Gender.fromString(request.getGender()));
+            patient.setPhone(request.getPhone());
+            patientRepository.save(patient);
+            
+            // 3. Generar tokens y respuesta
+            log.info("Nuevo usuario y paciente registrado: {} con rol {}", savedUser.getEmail(), savedUser.getRole());
+            
+            return authResponse(savedUser, refreshTokenService.issue(savedUser));
+        });
+    }
+    
+    /**
+     * Renueva el access token con un refresh token, que se consume y se reemplaza por otro
+     */
+    public AuthResponse refreshToken(String refreshToken) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshToken);
+        User user = rotation.user();
         
-        log.info("Nuevo usuario y paciente registrado: {} con rol {}", savedUser.getEmail(), savedUser.getRole());
+        log.info("Token renovado para usuario {}", user.getEmail());
         
-        return new AuthResponse(token, savedUser.getId(), savedUser.getEmail(), savedUser.getRole(), expiresAt);
+        return authResponse(user, rotation.refreshToken());
     }
     
-    @Transactional
-    public AuthResponse refreshToken(String email) {
-        User user = userRepository.findByEmailAndIsActive(email, true)
-                .orElseThrow(() -> new UnauthorizedException("Usuario no encontrado"));
-        
-        String token = jwtTokenProvider.generateToken(user);
+    /**
+     * Cierra la sesión del refresh token: ni él ni los access tokens de la sesión vuelven a aceptarse
+     */
+    public void logout(String refreshToken) {
+        refreshTokenService.revoke(refreshToken);
+    }
+    
+    private AuthResponse authResponse(User user, RefreshTokenService.IssuedRefreshToken refreshToken) {
+        String token = jwtTokenProvider.generateToken(user, refreshToken.sessionId());
         LocalDateTime expiresAt = DateUtils.nowInLima().plusSeconds(jwtTokenProvider.getExpirationTime() / 1000);
         
-        log.info("Token renovado para usuario {}", user.getEmail());
-        
-        return new AuthResponse(token, user.getId(), user.getEmail(), user.getRole(), expiresAt);
+        return new AuthResponse(token, user.getId(), user.getEmail(), user.getRole(), expiresAt,
+                refreshToken.token(), refreshToken.expiresAt());
     }
     
     private void validateRegisterRequest(RegisterRequest request) {
@@ -0,0 +1,135 @@
+package com.hospital.backend.auth.service;
+
+import com.hospital.backend.common.exception.TooManyRequestsException;
+import com.hospital.backend.config.AuthProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Límite de inicios de sesión fallidos por DNI y por IP, en ventanas fijas.
+ *
+ * Se consulta antes de buscar al usuario y de verificar la contraseña: un DNI o una IP que superó el límite
+ * recibe 429 sin consumir CPU en BCrypt hasta que termina su ventana. Un inicio de sesión exitoso limpia
+ * los fallos del DNI, no los de la IP.
+ *
+ * La IP es {@code getRemoteAddr()}: detrás de un proxy debe configurarse
+ * {@code server.forward-headers-strategy} para que sea la del cliente.
+ *
+ * Se recuerdan a lo sumo {@code app.auth.max-tracked-keys} claves. Las ventanas se guardan en el orden en que
+ * empezaron, así que con el mapa lleno se descarta la más antigua (la más próxima a terminar) sin recorrerlo;
+ * las ventanas terminadas sólo se limpian en la tarea programada.
+ */
+@Component
+public class LoginThrottle {
+
+    private final int maxFailuresPerDni;
+    private final int maxFailuresPerIp;
+    private final long windowMs;
+    private final int maxTrackedKeys;
+    // Orden de inserción = orden de inicio de la ventana; protegido por el monitor de la instancia
+    private final LinkedHashMap<String, Window> failures = new LinkedHashMap<>();
+
+    private final Counter blocked;
+    private final Counter evicted;
+
+    public LoginThrottle(AuthProperties properties, MeterRegistry meterRegistry) {
+        this.maxFailuresPerDni = properties.getMaxFailuresPerDni();
+        this.maxFailuresPerIp = properties.getMaxFailuresPerIp();
+        this.windowMs = properties.getFailureWindowMs();
+        this.maxTrackedKeys = properties.getMaxTrackedKeys();
+        this.blocked = Counter.builder("auth.login.throttled").register(meterRegistry);
+        this.evicted = Counter.builder("auth.login.evicted").register(meterRegistry);
+        Gauge.builder("auth.login.tracked", this, LoginThrottle::trackedKeys).register(meterRegistry);
+    }
+
+    /**
+     * Lanza {@link TooManyRequestsException} si el DNI o la IP superaron el límite de fallos
+     */
+    public void checkAllowed(String dni, String ip) {
+        long now = System.currentTimeMillis();
+        long retryAfterMs = Math.max(blockedFor(dniKey(dni), maxFailuresPerDni, now),
+                blockedFor(ipKey(ip), maxFailuresPerIp, now));
+        if (retryAfterMs > 0) {
+            blocked.increment();
+            throw new TooManyRequestsException(
+                    "Demasiados intentos fallidos de inicio de sesión, intente nuevamente más tarde",
+                    Math.max(1, retryAfterMs / 1000));
+        }
+    }
+
+    public synchronized void recordFailure(String dni, String ip) {
+        long now = System.currentTimeMillis();
+        increment(dniKey(dni), now);
+        increment(ipKey(ip), now);
+    }
+
+    public synchronized void recordSuccess(String dni) {
+        String key = dniKey(dni);
+        if (key != null) {
+            failures.remove(key);
+        }
+    }
+
+    /**
+     * Descarta las ventanas terminadas
+     */
+    @Scheduled(fixedDelayString = "${app.auth.failure-window-ms:900000}")
+    public synchronized void removeExpired() {
+        long now = System.currentTimeMillis();
+        Iterator<Window> windows = failures.values().iterator();
+        // Las ventanas están ordenadas por inicio: basta llegar a la primera vigente
+        while (windows.hasNext() && now - windows.next().start() >= windowMs) {
+            windows.remove();
+        }
+    }
+
+    synchronized int trackedKeys() {
+        return failures.size();
+    }
+
+    private synchronized long blockedFor(String key, int maxFailures, long now) {
+        Window window = key != null ? failures.get(key) : null;
+        if (window == null || window.count() < maxFailures) {
+            return 0;
+        }
+        long remaining = window.start() + windowMs - now;
+        return Math.max(0, remaining);
+    }
+
+    private void increment(String key, long now) {
+        if (key == null) {
+            return;
+        }
+        Window window = failures.get(key);
+        if (window != null && now - window.start() < windowMs) {
+            failures.put(key, new Window(window.start(), window.count() + 1));
+            return;
+        }
+        // Ventana nueva: se quita la anterior para que pase al final del orden
+        failures.remove(key);
+        if (!failures.isEmpty() && failures.size() >= maxTrackedKeys) {
+            Iterator<Window> oldest = failures.values().iterator();
+            oldest.next();
+            oldest.remove();
+            evicted.increment();
+        }
+        failures.put(key, new Window(now, 1));
+    }
+
+    private static String dniKey(String dni) {
+        return dni != null ? "dni:" + dni : null;
+    }
+
+    private static String ipKey(String ip) {
+        return ip != null ? "ip:" + ip : null;
+    }
+
+    private record Window(long start, int count) {
+    }
+}
@@ -0,0 +1,134 @@
+package com.hospital.backend.auth.service;
+
+import com.hospital.backend.common.exception.TooManyRequestsException;
+import com.hospital.backend.config.AuthProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Calcula y verifica hashes de contraseñas en un pool de hilos propio y acotado.
+ *
+ * BCrypt cuesta cientos de milisegundos de CPU por hash: con muchos inicios de sesión simultáneos, calcularlos
+ * en los hilos del servidor ocuparía todos los procesadores. Aquí como máximo {@code hashWorkers} hilos
+ * calculan hashes a la vez; el resto espera en una cola acotada y, si está llena o la espera excede
+ * {@code hashTimeoutMs}, el request recibe 429 en lugar de acumular trabajo.
+ *
+ * Métricas: {@code auth.password.hash} (tiempo de cálculo por operación), {@code auth.password.queue}
+ * (hashes esperando), {@code auth.password.active} (hilos calculando) y {@code auth.password.rejected}.
+ */
+@Slf4j
+@Service
+public class PasswordHashingService implements DisposableBean {
+
+    private static final long RETRY_AFTER_SECONDS = 2;
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor pool;
+    private final long timeoutMs;
+
+    private final Timer matchesTimer;
+    private final Timer encodeTimer;
+    private final Counter rejected;
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, AuthProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMs = properties.getHashTimeoutMs();
+        int workers = properties.getHashWorkers() > 0
+                ? properties.getHashWorkers()
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("password-hash-");
+        threadFactory.setDaemon(true);
+        this.pool = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getHashQueueCapacity())), threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+
+        this.matchesTimer = Timer.builder("auth.password.hash").tag("operation", "matches").register(meterRegistry);
+        this.encodeTimer = Timer.builder("auth.password.hash").tag("operation", "encode").register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.rejected").register(meterRegistry);
+        Gauge.builder("auth.password.queue", pool, executor -> executor.getQueue().size()).register(meterRegistry);
+        Gauge.builder("auth.password.active", pool, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+    }
+
+    /**
+     * Verifica la contraseña contra su hash
+     */
+    public boolean matches(CharSequence rawPassword, String passwordHash) {
+        if (rawPassword == null || passwordHash == null || passwordHash.isEmpty()) {
+            return false;
+        }
+        return run(() -> matchesTimer.recordCallable(() -> passwordEncoder.matches(rawPassword, passwordHash)));
+    }
+
+    /**
+     * Hash de la contraseña con el costo configurado
+     */
+    public String encode(CharSequence rawPassword) {
+        return run(() -> encodeTimer.recordCallable(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    /**
+     * true si el hash se calculó con un costo menor al configurado y conviene recalcularlo
+     */
+    public boolean needsRehash(String passwordHash) {
+        return passwordHash != null && !passwordHash.isEmpty() && passwordEncoder.upgradeEncoding(passwordHash);
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = pool.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw busy();
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Si todavía no empezó, se quita de la cola; un hash en curso no se interrumpe
+            future.cancel(false);
+            if (future instanceof Runnable queued) {
+                pool.remove(queued);
+            }
+            rejected.increment();
+            throw busy();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras se esperaba el hash de la contraseña", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Error al calcular el hash de la contraseña", e.getCause());
+        }
+    }
+
+    private static TooManyRequestsException busy() {
+        log.warn("Pool de hash de contraseñas saturado");
+        return new TooManyRequestsException(
+                "Hay demasiados inicios de sesión en curso, intente nuevamente en unos segundos", RETRY_AFTER_SECONDS);
+    }
+}
@@ -0,0 +1,186 @@
+// Servicio de refresh tokens rotativos
+package com.hospital.backend.auth.service;
+
+import com.hospital.backend.auth.entity.RefreshToken;
+import com.hospital.backend.auth.entity.User;
+import com.hospital.backend.auth.repository.RefreshTokenRepository;
+import com.hospital.backend.auth.repository.UserRepository;
+import com.hospital.backend.common.exception.UnauthorizedException;
+import com.hospital.backend.common.util.DateUtils;
+import com.hospital.backend.config.JwtProperties;
+import com.hospital.backend.security.RevokedSessionRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Emite, rota y revoca refresh tokens.
+ *
+ * El token es un valor aleatorio de 256 bits que sólo conoce el cliente; en la tabla se guarda su SHA-256.
+ * Cada renovación consume el token y emite otro de la misma familia (sesión). Si se presenta un token ya
+ * consumido, alguien más lo tiene: se revoca la familia completa y sus access tokens dejan de valer en cuanto
+ * {@link RevokedSessionRegistry} registra la revocación.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RefreshTokenService {
+    
+    private static final int TOKEN_BYTES = 32;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final RevokedSessionRegistry revokedSessionRegistry;
+    private final JwtProperties jwtProperties;
+    
+    /**
+     * Abre una sesión nueva para el usuario
+     */
+    @Transactional
+    public IssuedRefreshToken issue(User user) {
+        return issue(user.getId(), UUID.randomUUID().toString());
+    }
+    
+    /**
+     * Consume el refresh token y emite el siguiente de su sesión
+     * @throws UnauthorizedException si el token no existe, venció, fue revocado o ya se había usado
+     */
+    @Transactional(noRollbackFor = UnauthorizedException.class)
+    public Rotation rotate(String rawToken) {
+        RefreshToken token = refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .orElseThrow(() -> new UnauthorizedException("Refresh token inválido"));
+        
+        if (token.getRevokedAt() != null) {
+            throw new UnauthorizedException("La sesión fue cerrada");
+        }
+        LocalDateTime now = DateUtils.nowInLima();
+        if (!token.getExpiresAt().isAfter(now)) {
+            throw new UnauthorizedException("Refresh token expirado");
+        }
+        if (token.getUsedAt() != null || refreshTokenRepository.markUsed(token.getId(), now) == 0) {
+            log.warn("Refresh token reutilizado para usuario {}: se revoca la sesión {}", token.getUserId(), token.getFamilyId());
+            revokeFamily(token.getFamilyId(), now);
+            throw new UnauthorizedException("Refresh token ya utilizado, inicie sesión nuevamente");
+        }
+        
+        User user = userRepository.findById(token.getUserId()).orElse(null);
+        if (user == null || !Boolean.TRUE.equals(user.getIsActive())) {
+            revokeFamily(token.getFamilyId(), now);
+            throw new UnauthorizedException("Usuario inactivo");
+        }
+        
+        return new Rotation(user, issue(user.getId(), token.getFamilyId()));
+    }
+    
+    /**
+     * Cierra la sesión del refresh token (si existe)
+     */
+    @Transactional
+    public void revoke(String rawToken) {
+        refreshTokenRepository.findByTokenHash(hash(rawToken))
+                .ifPresent(token -> revokeFamily(token.getFamilyId(), DateUtils.nowInLima()));
+    }
+    
+    /**
+     * Cierra todas las sesiones del usuario
+     */
+    @Transactional
+    public void revokeAllForUser(Long userId) {
+        LocalDateTime now = DateUtils.nowInLima();
+        List<String> families = refreshTokenRepository.findActiveFamilyIds(userId, now);
+        refreshTokenRepository.revokeAllForUser(userId, now);
+        afterCommit(() -> families.forEach(revokedSessionRegistry::revoke));
+    }
+    
+    /**
+     * Borra los refresh tokens vencidos: para entonces los access tokens de su sesión también vencieron
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.refresh-cleanup-interval-ms:3600000}")
+    @Transactional
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpiredBefore(DateUtils.nowInLima());
+        if (deleted > 0) {
+            log.info("Refresh tokens vencidos eliminados: {}", deleted);
+        }
+    }
+    
+    private IssuedRefreshToken issue(Long userId, String familyId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(bytes);
+        String rawToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        
+        RefreshToken token = new RefreshToken();
+        token.setUserId(userId);
+        token.setFamilyId(familyId);
+        token.setTokenHash(hash(rawToken));
+        token.setExpiresAt(DateUtils.nowInLima().plusNanos(jwtProperties.getRefreshExpirationTime() * 1_000_000L));
+        refreshTokenRepository.save(token);
+        
+        return new IssuedRefreshToken(rawToken, familyId, token.getExpiresAt());
+    }
+    
+    private void revokeFamily(String familyId, LocalDateTime now) {
+        refreshTokenRepository.revokeFamily(familyId, now);
+        afterCommit(() -> revokedSessionRegistry.revoke(familyId));
+    }
+    
+    /**
+     * Ejecuta la acción al confirmarse la transacción actual (o enseguida si no hay ninguna)
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+    
+    /**
+     * SHA-256 del token en Base64 URL sin relleno (43 caracteres)
+     */
+    static String hash(String rawToken) {
+        if (rawToken == null) {
+            throw new UnauthorizedException("Refresh token requerido");
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(rawToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+    
+    /**
+     * Refresh token recién emitido
+     * @param token valor en claro para el cliente (no se guarda)
+     * @param sessionId familia del token, claim "sid" de los access tokens
+     * @param expiresAt vencimiento del refresh token
+     */
+    public record IssuedRefreshToken(String token, String sessionId, LocalDateTime expiresAt) {
+    }
+    
+    /**
+     * Resultado de una renovación
+     */
+    public record Rotation(User user, IssuedRefreshToken refreshToken) {
+    }
+}
@@ -5,11 +5,11 @@ import com.hospital.backend.auth.entity.User;
 import com.hospital.backend.auth.repository.UserRepository;
 import com.hospital.backend.common.exception.ResourceNotFoundException;
 import com.hospital.backend.enums.UserRole;
+import com.hospital.backend.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,7 +19,9 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserService {
     
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final PrincipalCache principalCache;
+    private final RefreshTokenService refreshTokenService;
     
     public User findById(Long id) {
         return userRepository.findById(id)
@@ -52,10 +54,15 @@ public class UserService {
     public User updateUser(Long id, User updatedUser) {
         User user = findById(id);
         
+        boolean deactivated = Boolean.TRUE.equals(user.getIsActive()) && !Boolean.TRUE.equals(updatedUser.getIsActive());
         user.setEmail(updatedUser.getEmail());
         user.setRole(updatedUser.getRole());
         user.setIsActive(updatedUser.getIsActive());
         user.setRequiresActivation(updatedUser.getRequiresActivation());
+        if (deactivated) {
+            revokeSessions(user);
+        }
+        principalCache.evictAfterCommit(id);
         
         log.info("Usuario {} actualizado", user.getEmail() != null ? user.getEmail() : "sin email");
         return userRepository.save(user);
@@ -67,12 +74,12 @@ public class UserService {
         
         // Si el usuario no tiene contraseña (creado en recepción), no verificar la contraseña actual
         if (user.getPasswordHash() != null) {
-            if (!passwordEncoder.matches(currentPassword, user.getPasswordHash())) {
+            if (!passwordHashingService.matches(currentPassword, user.getPasswordHash())) {
                 throw new IllegalArgumentException("Contraseña actual incorrecta");
             }
         }
         
-        user.setPasswordHash(passwordEncoder.encode(newPassword));
+        user.setPasswordHash(passwordHashingService.encode(newPassword));
         // Si el usuario tenía requires_activation en true, actualizarlo a false
         if (user.getRequiresActivation() != null && user.getRequiresActivation()) {
             user.setRequiresActivation(false);
@@ -87,6 +94,7 @@ public class UserService {
         User user = findById(id);
         user.setIsActive(true);
         userRepository.save(user);
+        principalCache.evictAfterCommit(id);
         
         log.info("Usuario {} activado", user.getEmail() != null ? user.getEmail() : "sin email");
     }
@@ -95,11 +103,22 @@ public class UserService {
     public void deactivateUser(Long id) {
         User user = findById(id);
         user.setIsActive(false);
+        revokeSessions(user);
         userRepository.save(user);
         
         log.info("Usuario {} desactivado", user.getEmail() != null ? user.getEmail() : "sin email");
     }
     
+    /**
+     * Invalida los access tokens y cierra las sesiones (refresh tokens) del usuario, que debe guardarse después
+     */
+    @Transactional
+    public void revokeSessions(User user) {
+        user.revokeTokens();
+        refreshTokenService.revokeAllForUser(user.getId());
+        principalCache.evictAfterCommit(user.getId());
+    }
+    
     @Transactional
     public User createUserWithoutCredentials(UserRole role) {
         User user = new User();
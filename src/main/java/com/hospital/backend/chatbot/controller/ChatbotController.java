@@ -17,9 +17,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.Map;
@@ -49,25 +52,31 @@ public class ChatbotController {
             @Valid @RequestBody ChatbotQueryRequest request,
             HttpServletRequest servletRequest) {
         
-        // Configurar datos del cliente
-        if (request.getIpAddress() == null) {
-            request.setIpAddress(servletRequest.getRemoteAddr());
-        }
-        
-        if (request.getUserAgent() == null) {
-            request.setUserAgent(servletRequest.getHeader("User-Agent"));
-        }
-        
-        // Generar ID de sesión si no se proporciona
-        if (request.getSessionId() == null || request.getSessionId().isEmpty()) {
-            request.setSessionId(UUID.randomUUID().toString());
-        }
+        prepareQuery(request, servletRequest);
         
         ChatbotResponse response = chatbotService.processQuery(request);
         
         return ResponseEntity.ok(ApiResponse.success("Consulta procesada exitosamente", response));
     }
     
+    /**
+     * Enviar consulta al chatbot y recibir la respuesta como Server-Sent Events.
+     * Se usa GET con parámetros para que funcione con EventSource; el hilo del servidor se libera mientras
+     * se transmiten los eventos.
+     */
+    @GetMapping(value = "/query/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Consultar chatbot (SSE)",
+               description = "Transmite la respuesta (answer), cada referencia (reference), las preguntas sugeridas "
+                       + "(suggestions) y el id de la conversación (done)")
+    public Flux<ServerSentEvent<Object>> queryStream(
+            @Valid @ModelAttribute ChatbotQueryRequest request,
+            HttpServletRequest servletRequest) {
+        
+        prepareQuery(request, servletRequest);
+        
+        return chatbotService.streamQuery(request);
+    }
+    
     /**
      * Obtener historial de conversaciones por sesión
      */
@@ -221,4 +230,23 @@ public class ChatbotController {
         
         return ResponseEntity.ok(ApiResponse.success("Conteo por categoría obtenido exitosamente", counts));
     }
-} 
\ No newline at end of file
+    
+    /**
+     * Completar los datos del cliente y la sesión de una consulta
+     */
+    private void prepareQuery(ChatbotQueryRequest request, HttpServletRequest servletRequest) {
+        // Configurar datos del cliente
+        if (request.getIpAddress() == null) {
+            request.setIpAddress(servletRequest.getRemoteAddr());
+        }
+        
+        if (request.getUserAgent() == null) {
+            request.setUserAgent(servletRequest.getHeader("User-Agent"));
+        }
+        
+        // Generar ID de sesión si no se proporciona
+        if (request.getSessionId() == null || request.getSessionId().isEmpty()) {
+            request.setSessionId(UUID.randomUUID().toString());
+        }
+    }
+}
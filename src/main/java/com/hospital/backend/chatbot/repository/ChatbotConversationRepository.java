@@ -65,12 +65,18 @@ public interface ChatbotConversationRepository extends JpaRepository<ChatbotConv
     Page<ChatbotConversation> findByIsHandledByHumanTrue(Pageable pageable);
     
     /**
-     * Buscar por texto de consulta (búsqueda de texto completo)
+     * Buscar conversaciones cuya consulta o respuesta contenga cada uno de los términos
+     * (para menos de tres términos se repite el último)
      */
     @Query("SELECT c FROM ChatbotConversation c WHERE " +
-           "LOWER(c.query) LIKE LOWER(CONCAT('%', :text, '%')) OR " +
-           "LOWER(c.response) LIKE LOWER(CONCAT('%', :text, '%'))")
-    Page<ChatbotConversation> searchByText(@Param("text") String text, Pageable pageable);
+           "(LOWER(c.query) LIKE CONCAT('%', :term1, '%') OR LOWER(c.response) LIKE CONCAT('%', :term1, '%')) AND " +
+           "(LOWER(c.query) LIKE CONCAT('%', :term2, '%') OR LOWER(c.response) LIKE CONCAT('%', :term2, '%')) AND " +
+           "(LOWER(c.query) LIKE CONCAT('%', :term3, '%') OR LOWER(c.response) LIKE CONCAT('%', :term3, '%'))")
+    Page<ChatbotConversation> searchByTerms(
+            @Param("term1") String term1,
+            @Param("term2") String term2,
+            @Param("term3") String term3,
+            Pageable pageable);
     
     /**
      * Contar conversaciones por día en el último mes
@@ -27,31 +27,9 @@ public interface ChatbotKnowledgeBaseRepository extends JpaRepository<ChatbotKno
     List<ChatbotKnowledgeBase> findActiveByKeyword(@Param("keyword") String keyword);
     
     /**
-     * Buscar entradas activas por múltiples palabras clave con prioridad
+     * Entradas activas (carga del índice en memoria)
      */
-    @Query("SELECT kb FROM ChatbotKnowledgeBase kb WHERE kb.isActive = true AND " +
-           "(" +
-           "   LOWER(kb.question) LIKE LOWER(CONCAT('%', :keyword1, '%')) OR " +
-           "   LOWER(kb.answer) LIKE LOWER(CONCAT('%', :keyword1, '%')) OR " +
-           "   LOWER(kb.keywords) LIKE LOWER(CONCAT('%', :keyword1, '%')) OR " +
-           "   LOWER(kb.question) LIKE LOWER(CONCAT('%', :keyword2, '%')) OR " +
-           "   LOWER(kb.answer) LIKE LOWER(CONCAT('%', :keyword2, '%')) OR " +
-           "   LOWER(kb.keywords) LIKE LOWER(CONCAT('%', :keyword2, '%')) OR " +
-           "   LOWER(kb.question) LIKE LOWER(CONCAT('%', :keyword3, '%')) OR " +
-           "   LOWER(kb.answer) LIKE LOWER(CONCAT('%', :keyword3, '%')) OR " +
-           "   LOWER(kb.keywords) LIKE LOWER(CONCAT('%', :keyword3, '%'))" +
-           ") " +
-           "ORDER BY CASE " +
-           "    WHEN LOWER(kb.question) LIKE LOWER(CONCAT('%', :keyword1, '%', :keyword2, '%', :keyword3, '%')) THEN 1 " + // Coincidencia de frase
-           "    WHEN LOWER(kb.question) LIKE LOWER(CONCAT('%', :keyword1, '%')) AND LOWER(kb.question) LIKE LOWER(CONCAT('%', :keyword2, '%')) AND LOWER(kb.question) LIKE LOWER(CONCAT('%', :keyword3, '%')) THEN 2 " + // Todas las palabras clave en la pregunta
-           "    WHEN LOWER(kb.question) LIKE LOWER(CONCAT('%', :keyword1, '%')) THEN 3 " + // Palabra clave principal en la pregunta
-           "    WHEN LOWER(kb.keywords) LIKE LOWER(CONCAT('%', :keyword1, '%')) THEN 4 " + // Palabra clave principal en las keywords
-           "    ELSE 5 " +
-           "END, kb.priority DESC, kb.usageCount DESC")
-    List<ChatbotKnowledgeBase> findActiveByMultipleKeywords(
-            @Param("keyword1") String keyword1, 
-            @Param("keyword2") String keyword2, 
-            @Param("keyword3") String keyword3);
+    List<ChatbotKnowledgeBase> findByIsActiveTrue();
     
     /**
      * Buscar entradas por tema
@@ -74,13 +52,6 @@ public interface ChatbotKnowledgeBaseRepository extends JpaRepository<ChatbotKno
     List<ChatbotKnowledgeBase> findByRelatedEntityTypeAndRelatedEntityIdAndIsActiveTrue(
             String relatedEntityType, Long relatedEntityId);
     
-    /**
-     * Incrementar contador de uso
-     */
-    @Modifying
-    @Query("UPDATE ChatbotKnowledgeBase kb SET kb.usageCount = kb.usageCount + 1 WHERE kb.id = :id")
-    void incrementUsageCount(@Param("id") Long id);
-    
     /**
      * Actualizar tasa de éxito
      */
@@ -0,0 +1,97 @@
+package com.hospital.backend.chatbot.service;
+
+import com.hospital.backend.config.ChatbotProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+/**
+ * Caché LRU de las entradas relevantes para cada consulta del chatbot.
+ *
+ * La clave es el conjunto de términos normalizados de la consulta (sin orden ni repeticiones), de modo que
+ * "¿Horario de atención?" y "atencion horarios" comparten resultado. Cada valor guarda la versión de la base
+ * de conocimientos con que se calculó y deja de valer cuando esa versión cambia.
+ *
+ * Las métricas siguen la convención de cachés de Micrometer ({@code cache.gets} con result=hit|miss,
+ * {@code cache.evictions} y {@code cache.size}, con cache=chatbot.answers) y se ven en /actuator/metrics.
+ */
+@Component
+public class AnswerCache {
+
+    static final String CACHE_NAME = "chatbot.answers";
+
+    private final int maxSize;
+    private final Map<String, CachedAnswer> entries;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public AnswerCache(ChatbotProperties properties, MeterRegistry meterRegistry) {
+        this.maxSize = properties.getAnswerCacheSize();
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        this.entries = new LinkedHashMap<>(Math.max(16, maxSize * 4 / 3 + 1), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAnswer> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("cache.size", this, AnswerCache::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    /**
+     * Entradas relevantes para la consulta: las guardadas si se calcularon con la versión vigente,
+     * o las que devuelve {@code search} (que se guardan)
+     */
+    public List<KnowledgeIndex.Hit> get(String query, long version, Supplier<List<KnowledgeIndex.Hit>> search) {
+        String key = key(query);
+        if (key.isEmpty() || maxSize <= 0) {
+            return search.get();
+        }
+        CachedAnswer cached;
+        synchronized (entries) {
+            cached = entries.get(key);
+        }
+        if (cached != null && cached.version() == version) {
+            hits.increment();
+            return cached.hits();
+        }
+        misses.increment();
+        List<KnowledgeIndex.Hit> result = List.copyOf(search.get());
+        synchronized (entries) {
+            entries.put(key, new CachedAnswer(version, result));
+        }
+        return result;
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Términos normalizados de la consulta, ordenados y sin repetir
+     */
+    static String key(String query) {
+        return String.join(" ", new TreeSet<>(SpanishTextAnalyzer.analyze(query)));
+    }
+
+    private record CachedAnswer(long version, List<KnowledgeIndex.Hit> hits) {
+    }
+}
@@ -8,17 +8,24 @@ import com.hospital.backend.common.dto.PageResponse;
 import com.hospital.backend.common.exception.ResourceNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
- * Servicio para la gestión de la base de conocimientos del chatbot
+ * Servicio para la gestión de la base de conocimientos del chatbot.
+ * Mantiene actualizado el {@link KnowledgeIndex} con las entradas activas: lo carga al iniciar,
+ * lo modifica tras confirmar cada alta, cambio o baja y lo recarga periódicamente desde la base de datos.
  */
 @Service
 @RequiredArgsConstructor
@@ -26,6 +33,43 @@ import java.util.stream.Collectors;
 public class ChatbotKnowledgeService {
 
     private final ChatbotKnowledgeBaseRepository knowledgeBaseRepository;
+    private final KnowledgeIndex knowledgeIndex;
+    
+    /**
+     * Cargar el índice con las entradas activas
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndex() {
+        knowledgeIndex.rebuild(findActiveEntries());
+        log.info("Índice de la base de conocimientos cargado: {} entradas", knowledgeIndex.size());
+    }
+    
+    /**
+     * Recargar el índice para incorporar cambios hechos fuera de este servicio (otras instancias o SQL directo).
+     * Si el índice se modificó mientras se leía la base de datos, se descarta la recarga.
+     */
+    @Scheduled(fixedDelayString = "${app.chatbot.index-refresh-interval-ms:600000}",
+               initialDelayString = "${app.chatbot.index-refresh-interval-ms:600000}")
+    public void refreshIndex() {
+        long version = knowledgeIndex.version();
+        if (!knowledgeIndex.rebuildIfUnchanged(findActiveEntries(), version)) {
+            log.debug("Recarga del índice descartada por cambios concurrentes");
+        }
+    }
+    
+    /**
+     * Buscar en el índice las entradas activas más relevantes para un texto
+     */
+    public List<KnowledgeIndex.Hit> searchIndex(String text, int limit) {
+        return knowledgeIndex.search(text, limit);
+    }
+    
+    /**
+     * Versión de la base de conocimientos: cambia con cada alta, modificación, activación o baja confirmada
+     */
+    public long getKnowledgeBaseVersion() {
+        return knowledgeIndex.version();
+    }
     
     /**
      * Crear una nueva entrada en la base de conocimientos
@@ -36,6 +80,7 @@ public class ChatbotKnowledgeService {
         mapRequestToEntity(request, entry);
         
         ChatbotKnowledgeBase savedEntry = knowledgeBaseRepository.save(entry);
+        indexAfterCommit(mapToResponse(savedEntry));
         
         return mapToResponse(savedEntry);
     }
@@ -61,6 +106,7 @@ public class ChatbotKnowledgeService {
         mapRequestToEntity(request, entry);
         
         ChatbotKnowledgeBase updatedEntry = knowledgeBaseRepository.save(entry);
+        indexAfterCommit(mapToResponse(updatedEntry));
         
         return mapToResponse(updatedEntry);
     }
@@ -75,6 +121,7 @@ public class ChatbotKnowledgeService {
         }
         
         knowledgeBaseRepository.deleteById(id);
+        afterCommit(() -> knowledgeIndex.remove(id));
     }
     
     /**
@@ -88,6 +135,7 @@ public class ChatbotKnowledgeService {
         entry.setIsActive(!entry.getIsActive());
         
         ChatbotKnowledgeBase updatedEntry = knowledgeBaseRepository.save(entry);
+        indexAfterCommit(mapToResponse(updatedEntry));
         
         return mapToResponse(updatedEntry);
     }
@@ -144,14 +192,6 @@ public class ChatbotKnowledgeService {
                 .collect(Collectors.toList());
     }
     
-    /**
-     * Incrementar contador de uso
-     */
-    @Transactional
-    public void incrementUsageCount(Long id) {
-        knowledgeBaseRepository.incrementUsageCount(id);
-    }
-    
     /**
      * Actualizar tasa de éxito
      */
@@ -185,15 +225,27 @@ public class ChatbotKnowledgeService {
     }
     
     /**
-     * Buscar entradas por múltiples palabras clave
+     * Actualizar el índice con la entrada una vez confirmada la transacción
      */
-    public List<KnowledgeBaseEntryResponse> searchByMultipleKeywords(
-            String keyword1, String keyword2, String keyword3) {
-        
-        List<ChatbotKnowledgeBase> entries = knowledgeBaseRepository
-                .findActiveByMultipleKeywords(keyword1, keyword2, keyword3);
-        
-        return entries.stream()
+    private void indexAfterCommit(KnowledgeBaseEntryResponse entry) {
+        afterCommit(() -> knowledgeIndex.upsert(entry));
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    private List<KnowledgeBaseEntryResponse> findActiveEntries() {
+        return knowledgeBaseRepository.findByIsActiveTrue().stream()
                 .map(this::mapToResponse)
                 .collect(Collectors.toList());
     }
@@ -2,8 +2,6 @@ package com.hospital.backend.chatbot.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.hospital.backend.auth.entity.User;
-import com.hospital.backend.auth.repository.UserRepository;
 import com.hospital.backend.chatbot.dto.request.ChatbotQueryRequest;
 import com.hospital.backend.chatbot.dto.request.FeedbackRequest;
 import com.hospital.backend.chatbot.dto.response.ChatbotResponse;
@@ -19,8 +17,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -36,33 +38,108 @@ public class ChatbotService {
 
     private final ChatbotConversationRepository conversationRepository;
     private final ChatbotKnowledgeService knowledgeService;
-    private final UserRepository userRepository;
+    private final ConversationWriter conversationWriter;
+    private final AnswerCache answerCache;
     private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
     
-    // Número máximo de palabras clave a extraer de la consulta
-    private static final int MAX_KEYWORDS = 5;
+    // Entradas consideradas: la mejor responde, las 3 primeras son referencias y el resto sugerencias
+    private static final int MAX_RELEVANT_ENTRIES = 5;
+    
+    // Palabras de la búsqueda de conversaciones que se exigen en cada resultado
+    private static final int MAX_SEARCH_TERMS = 3;
+    
+    // Eventos de la respuesta transmitida por SSE
+    private static final String EVENT_ANSWER = "answer";
+    private static final String EVENT_REFERENCE = "reference";
+    private static final String EVENT_SUGGESTIONS = "suggestions";
+    private static final String EVENT_DONE = "done";
+    private static final String EVENT_ERROR = "error";
     
     /**
-     * Procesar una consulta al chatbot
+     * Procesar una consulta al chatbot.
+     * La respuesta sale del índice en memoria; la conversación y el uso de la entrada se escriben en segundo plano.
      */
-    @Transactional
     public ChatbotResponse processQuery(ChatbotQueryRequest request) {
         long startTime = System.currentTimeMillis();
+        ChatbotResponse response = answer(request);
         
-        // Crear respuesta
+        // Guardar la conversación
+        saveConversation(request, response, System.currentTimeMillis() - startTime);
+        
+        return response;
+    }
+    
+    /**
+     * Procesar una consulta al chatbot como eventos SSE: primero la respuesta ("answer"), luego cada
+     * referencia ("reference"), las preguntas sugeridas ("suggestions") y por último el id de la
+     * conversación guardada ("done"). Las referencias y sugerencias se arman recién después de emitir
+     * la respuesta, al pedirse cada evento.
+     */
+    public Flux<ServerSentEvent<Object>> streamQuery(ChatbotQueryRequest request) {
+        return Flux.defer(() -> {
+            long startTime = System.currentTimeMillis();
+            ChatbotResponse response = newResponse(request);
+            List<KnowledgeIndex.Hit> relevantEntries = resolveAnswer(request, response);
+            
+            Map<String, Object> answer = new LinkedHashMap<>();
+            answer.put("sessionId", response.getSessionId());
+            answer.put("query", response.getQuery());
+            answer.put("response", response.getResponse());
+            answer.put("isSuccessful", response.getIsSuccessful());
+            answer.put("needsHumanIntervention", response.getNeedsHumanIntervention());
+            
+            return Flux.concat(
+                    Mono.just(event(EVENT_ANSWER, answer)),
+                    Flux.defer(() -> {
+                        addReferences(response, relevantEntries);
+                        return Flux.fromIterable(response.getReferences()).map(ref -> event(EVENT_REFERENCE, ref));
+                    }),
+                    Mono.fromSupplier(() -> {
+                        addSuggestedQuestions(response, relevantEntries);
+                        return event(EVENT_SUGGESTIONS, response.getSuggestedQuestions());
+                    }),
+                    Mono.fromSupplier(() -> {
+                        long responseTimeMs = System.currentTimeMillis() - startTime;
+                        saveConversation(request, response, responseTimeMs);
+                        Map<String, Object> done = new LinkedHashMap<>();
+                        done.put("conversationId", response.getConversationId());
+                        done.put("responseTimeMs", responseTimeMs);
+                        return event(EVENT_DONE, done);
+                    }));
+        }).onErrorResume(e -> {
+            log.error("Error al transmitir la respuesta del chatbot: {}", e.getMessage());
+            return Mono.just(event(EVENT_ERROR, Map.of("message",
+                    "Lo siento, ocurrió un error al procesar su consulta. Por favor, inténtelo de nuevo más tarde.")));
+        });
+    }
+    
+    /**
+     * Armar la respuesta a partir de las entradas más relevantes (sin guardar la conversación)
+     */
+    private ChatbotResponse answer(ChatbotQueryRequest request) {
+        ChatbotResponse response = newResponse(request);
+        List<KnowledgeIndex.Hit> relevantEntries = resolveAnswer(request, response);
+        addReferences(response, relevantEntries);
+        addSuggestedQuestions(response, relevantEntries);
+        return response;
+    }
+    
+    private static ChatbotResponse newResponse(ChatbotQueryRequest request) {
         ChatbotResponse response = new ChatbotResponse();
         response.setSessionId(request.getSessionId());
         response.setQuery(request.getQuery());
-        
+        return response;
+    }
+    
+    /**
+     * Completar el texto de la respuesta con la mejor coincidencia y devolver las entradas relevantes
+     * (vacía si no hubo coincidencias o si ocurrió un error)
+     */
+    private List<KnowledgeIndex.Hit> resolveAnswer(ChatbotQueryRequest request, ChatbotResponse response) {
         try {
-            // Preparar el texto de la consulta
-            String query = prepareText(request.getQuery());
-            
-            // Extraer palabras clave de la consulta
-            List<String> keywords = extractKeywords(query);
-            
             // Buscar entradas relevantes en la base de conocimientos
-            List<KnowledgeBaseEntryResponse> relevantEntries = findRelevantEntries(keywords);
+            List<KnowledgeIndex.Hit> relevantEntries = findRelevantEntries(request.getQuery());
             
             if (relevantEntries.isEmpty()) {
                 // No se encontraron coincidencias
@@ -70,46 +147,19 @@ public class ChatbotService {
                         + "¿Podría reformular su pregunta o ser más específico?");
                 response.setIsSuccessful(false);
                 response.setNeedsHumanIntervention(true);
-            } else {
-                // Generar respuesta basada en las entradas más relevantes
-                KnowledgeBaseEntryResponse bestMatch = relevantEntries.get(0);
-                
-                // Actualizar contador de uso para la entrada más relevante
-                knowledgeService.incrementUsageCount(bestMatch.getId());
-                
-                // Configurar respuesta
-                response.setResponse(bestMatch.getAnswer());
-                response.setIsSuccessful(true);
-                
-                // Agregar referencias a las entradas utilizadas
-                for (KnowledgeBaseEntryResponse entry : relevantEntries.subList(0, Math.min(3, relevantEntries.size()))) {
-                    KnowledgeBaseReferenceResponse ref = new KnowledgeBaseReferenceResponse();
-                    ref.setId(entry.getId());
-                    ref.setTopic(entry.getTopic());
-                    ref.setQuestion(entry.getQuestion());
-                    ref.setAnswer(entry.getAnswer());
-                    ref.setCategory(entry.getCategory());
-                    ref.setSubcategory(entry.getSubcategory());
-                    ref.setExternalReference(entry.getExternalReference());
-                    
-                    // Calcular puntuación de relevancia (simplificada para el ejemplo)
-                    ref.setRelevanceScore(entry.equals(bestMatch) ? 1.0 : 0.7);
-                    
-                    response.addReference(ref);
-                }
-                
-                // Sugerir preguntas relacionadas
-                for (KnowledgeBaseEntryResponse entry : relevantEntries.subList(0, Math.min(5, relevantEntries.size()))) {
-                    if (!entry.equals(bestMatch)) {
-                        response.addSuggestedQuestion(entry.getQuestion());
-                    }
-                }
+                return relevantEntries;
             }
             
-            // Guardar la conversación
-            saveConversation(request, response, System.currentTimeMillis() - startTime);
+            // Generar respuesta basada en la entrada más relevante
+            KnowledgeBaseEntryResponse bestMatch = relevantEntries.get(0).entry();
+            
+            // Contar el uso de la entrada más relevante (se acumula en memoria)
+            conversationWriter.recordUsage(bestMatch.getId());
             
-            return response;
+            // Configurar respuesta
+            response.setResponse(bestMatch.getAnswer());
+            response.setIsSuccessful(true);
+            return relevantEntries;
             
         } catch (Exception e) {
             log.error("Error al procesar consulta del chatbot: {}", e.getMessage());
@@ -119,19 +169,62 @@ public class ChatbotService {
                     + "Por favor, inténtelo de nuevo más tarde o contacte con soporte.");
             response.setIsSuccessful(false);
             response.setErrorMessage(e.getMessage());
+            return List.of();
+        }
+    }
+    
+    /**
+     * Agregar referencias a las tres entradas más relevantes
+     */
+    private void addReferences(ChatbotResponse response, List<KnowledgeIndex.Hit> relevantEntries) {
+        if (relevantEntries.isEmpty()) {
+            return;
+        }
+        double bestScore = relevantEntries.get(0).score();
+        for (KnowledgeIndex.Hit hit : relevantEntries.subList(0, Math.min(3, relevantEntries.size()))) {
+            KnowledgeBaseEntryResponse entry = hit.entry();
+            KnowledgeBaseReferenceResponse ref = new KnowledgeBaseReferenceResponse();
+            ref.setId(entry.getId());
+            ref.setTopic(entry.getTopic());
+            ref.setQuestion(entry.getQuestion());
+            ref.setAnswer(entry.getAnswer());
+            ref.setCategory(entry.getCategory());
+            ref.setSubcategory(entry.getSubcategory());
+            ref.setExternalReference(entry.getExternalReference());
             
-            // Guardar la conversación con error
-            saveConversation(request, response, System.currentTimeMillis() - startTime);
+            // Puntuación BM25 relativa a la mejor coincidencia (0-1)
+            ref.setRelevanceScore(hit.score() / bestScore);
             
-            return response;
+            response.addReference(ref);
         }
     }
     
     /**
-     * Proporcionar feedback sobre una respuesta del chatbot
+     * Sugerir las preguntas de las demás entradas relevantes
+     */
+    private void addSuggestedQuestions(ChatbotResponse response, List<KnowledgeIndex.Hit> relevantEntries) {
+        for (int i = 1; i < relevantEntries.size(); i++) {
+            response.addSuggestedQuestion(relevantEntries.get(i).entry().getQuestion());
+        }
+    }
+    
+    private static ServerSentEvent<Object> event(String name, Object data) {
+        return ServerSentEvent.builder(data).event(name).build();
+    }
+    
+    /**
+     * Proporcionar feedback sobre una respuesta del chatbot.
+     * Si la conversación sigue en la cola de escritura se escribe antes de abrir la transacción del feedback,
+     * para que el lote del escritor no quede atado a ella.
      */
-    @Transactional
     public ConversationResponse provideFeedback(FeedbackRequest request) {
+        if (!conversationRepository.existsById(request.getConversationId())) {
+            conversationWriter.flush();
+        }
+        return new TransactionTemplate(transactionManager).execute(status -> applyFeedback(request));
+    }
+    
+    private ConversationResponse applyFeedback(FeedbackRequest request) {
         ChatbotConversation conversation = conversationRepository.findById(request.getConversationId())
                 .orElseThrow(() -> new ResourceNotFoundException("Conversación no encontrada con ID: " + request.getConversationId()));
         
@@ -184,63 +277,90 @@ public class ChatbotService {
      * Buscar conversaciones por texto
      */
     public PageResponse<ConversationResponse> searchConversations(String text, Pageable pageable) {
-        Page<ChatbotConversation> conversations = conversationRepository.searchByText(text, pageable);
+        List<String> terms = selectSearchTerms(text);
+        if (terms.isEmpty()) {
+            // Sólo palabras vacías o puntuación: se busca el texto tal cual
+            String raw = text != null ? text.trim().toLowerCase() : "";
+            terms = List.of(raw);
+        }
+        String term1 = terms.get(0);
+        String term2 = terms.size() > 1 ? terms.get(1) : term1;
+        String term3 = terms.size() > 2 ? terms.get(2) : term2;
+        Page<ChatbotConversation> conversations = conversationRepository.searchByTerms(term1, term2, term3, pageable);
         Page<ConversationResponse> conversationResponses = conversations.map(this::mapToConversationResponse);
         return new PageResponse<>(conversationResponses);
     }
     
     /**
-     * Guardar una conversación
+     * Buscar entradas relevantes: de la caché si la consulta (por sus términos) ya se respondió con la versión
+     * vigente de la base de conocimientos, si no del índice
      */
-    private void saveConversation(ChatbotQueryRequest request, ChatbotResponse response, long responseTimeMs) {
-        try {
-            ChatbotConversation conversation = new ChatbotConversation();
-            
-            // Datos básicos
-            conversation.setSessionId(request.getSessionId());
-            conversation.setQuery(request.getQuery());
-            conversation.setResponse(response.getResponse());
-            conversation.setContext(request.getContext());
-            conversation.setIsSuccessful(response.getIsSuccessful());
-            conversation.setResponseTimeMs(responseTimeMs);
-            
-            // Datos del cliente
-            conversation.setIpAddress(request.getIpAddress());
-            conversation.setUserAgent(request.getUserAgent());
-            conversation.setSource(request.getSource());
-            
-            // Usuario (si está autenticado)
-            if (request.getUserId() != null) {
-                userRepository.findById(request.getUserId()).ifPresent(conversation::setUser);
+    private List<KnowledgeIndex.Hit> findRelevantEntries(String query) {
+        // La versión se lee antes de buscar: si cambia durante la búsqueda, el resultado queda como obsoleto
+        long version = knowledgeService.getKnowledgeBaseVersion();
+        return answerCache.get(query, version, () -> knowledgeService.searchIndex(query, MAX_RELEVANT_ENTRIES));
+    }
+    
+    /**
+     * Hasta tres palabras distintas de la búsqueda, las más largas primero (suelen ser las más selectivas)
+     */
+    private List<String> selectSearchTerms(String text) {
+        List<String> words = SpanishTextAnalyzer.searchTerms(text);
+        String[] selected = new String[MAX_SEARCH_TERMS];
+        int count = 0;
+        for (String word : words) {
+            boolean repeated = false;
+            for (int i = 0; i < count && !repeated; i++) {
+                repeated = selected[i].equals(word);
             }
-            
-            // Metadatos
-            conversation.setIntentDetected(response.getIntentDetected());
-            if (response.getEntitiesDetected() != null && !response.getEntitiesDetected().isEmpty()) {
-                conversation.setEntitiesDetected(convertToJson(response.getEntitiesDetected()));
+            if (repeated) {
+                continue;
             }
-            
-            // Referencias a la base de conocimientos
-            if (response.getReferences() != null && !response.getReferences().isEmpty()) {
-                List<Long> knowledgeBaseIds = response.getReferences().stream()
-                        .map(KnowledgeBaseReferenceResponse::getId)
-                        .filter(Objects::nonNull)
-                        .collect(Collectors.toList());
-                if (!knowledgeBaseIds.isEmpty()) {
-                    conversation.setKnowledgeBaseEntriesUsed(convertToJson(knowledgeBaseIds));
+            int position = count < MAX_SEARCH_TERMS ? count++ : MAX_SEARCH_TERMS;
+            while (position > 0 && selected[position - 1].length() < word.length()) {
+                if (position < MAX_SEARCH_TERMS) {
+                    selected[position] = selected[position - 1];
                 }
+                position--;
             }
-            
-            // Acciones
-            if (response.getActions() != null && !response.getActions().isEmpty()) {
-                conversation.setActionsTaken(convertToJson(response.getActions()));
+            if (position < MAX_SEARCH_TERMS) {
+                selected[position] = word;
             }
+        }
+        return Arrays.asList(selected).subList(0, count);
+    }
+    
+    /**
+     * Guardar una conversación: reserva su id y la deja en la cola de escritura
+     */
+    private void saveConversation(ChatbotQueryRequest request, ChatbotResponse response, long responseTimeMs) {
+        try {
+            // Referencias a la base de conocimientos
+            List<Long> knowledgeBaseIds = response.getReferences() == null ? null : response.getReferences().stream()
+                    .map(KnowledgeBaseReferenceResponse::getId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
             
-            // Guardar en la base de datos
-            ChatbotConversation savedConversation = conversationRepository.save(conversation);
+            long conversationId = conversationWriter.nextConversationId();
+            conversationWriter.write(new ConversationWriter.ConversationRecord(
+                    conversationId,
+                    request.getUserId(),
+                    request.getSessionId(),
+                    request.getQuery(),
+                    response.getResponse(),
+                    request.getContext(),
+                    !Boolean.FALSE.equals(response.getIsSuccessful()),
+                    responseTimeMs,
+                    request.getIpAddress(),
+                    request.getUserAgent(),
+                    request.getSource(),
+                    knowledgeBaseIds,
+                    response.getActions(),
+                    response.getIntentDetected(),
+                    response.getEntitiesDetected()));
             
             // Establecer ID en la respuesta
-            response.setConversationId(savedConversation.getId());
+            response.setConversationId(conversationId);
             
         } catch (Exception e) {
             log.error("Error catastrófico al intentar guardar la conversación del chatbot. SessionID: {}. Query: '{}'. Error: {}", 
@@ -267,74 +387,6 @@ public class ChatbotService {
         }
     }
     
-    /**
-     * Preparar el texto de la consulta
-     */
-    private String prepareText(String text) {
-        if (text == null) {
-            return "";
-        }
-        
-        // Normalizar el texto: convertir a minúsculas y eliminar caracteres especiales
-        return text.toLowerCase()
-                .replaceAll("[^a-záéíóúüñ0-9\\s]", " ")
-                .replaceAll("\\s+", " ")
-                .trim();
-    }
-    
-    /**
-     * Extraer palabras clave de la consulta
-     */
-    private List<String> extractKeywords(String text) {
-        if (text == null || text.isEmpty()) {
-            return Collections.emptyList();
-        }
-        
-        // Dividir el texto en palabras
-        String[] words = text.split("\\s+");
-        
-        // Filtrar palabras vacías y ordenar por longitud (las palabras más largas suelen ser más significativas)
-        List<String> keywords = Arrays.stream(words)
-                .filter(word -> word.length() > 3) // Ignorar palabras cortas
-                .sorted((a, b) -> Integer.compare(b.length(), a.length()))
-                .limit(MAX_KEYWORDS)
-                .collect(Collectors.toList());
-        
-        return keywords.isEmpty() ? Arrays.asList(words).subList(0, Math.min(MAX_KEYWORDS, words.length)) : keywords;
-    }
-    
-    /**
-     * Buscar entradas relevantes en la base de conocimientos
-     */
-    private List<KnowledgeBaseEntryResponse> findRelevantEntries(List<String> keywords) {
-        if (keywords == null || keywords.isEmpty()) {
-            return Collections.emptyList();
-        }
-        
-        // Utilizar las tres primeras palabras clave (si hay suficientes)
-        String keyword1 = keywords.get(0);
-        String keyword2 = keywords.size() > 1 ? keywords.get(1) : keyword1;
-        String keyword3 = keywords.size() > 2 ? keywords.get(2) : keyword2;
-        
-        return knowledgeService.searchByMultipleKeywords(keyword1, keyword2, keyword3);
-    }
-    
-    /**
-     * Convertir objeto a JSON
-     */
-    private String convertToJson(Object object) {
-        if (object == null) {
-            return null;
-        }
-        
-        try {
-            return objectMapper.writeValueAsString(object);
-        } catch (JsonProcessingException e) {
-            log.error("Error al convertir objeto a JSON: {}", e.getMessage());
-            return null;
-        }
-    }
-    
     /**
      * Parsear JSON a lista
      */
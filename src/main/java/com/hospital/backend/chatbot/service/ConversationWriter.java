@@ -0,0 +1,364 @@
+package com.hospital.backend.chatbot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.backend.common.concurrent.BoundedRingBuffer;
+import com.hospital.backend.config.ChatbotProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Escritura diferida de conversaciones del chatbot y de los contadores de uso de la base de conocimientos.
+ *
+ * El id de cada conversación se reserva antes de escribirla (por bloques de la secuencia de la columna id
+ * en PostgreSQL), así la respuesta lo incluye sin esperar la inserción. Las conversaciones se dejan en una
+ * {@link BoundedRingBuffer} y un hilo de fondo las inserta en lotes JDBC cuando se juntan
+ * {@code app.chatbot.batch-size} o pasa {@code app.chatbot.flush-interval-ms}; la conversión a JSON se hace
+ * en ese hilo. Los usos de cada entrada se suman en memoria y se aplican con un UPDATE por entrada cada
+ * {@code app.chatbot.usage-flush-interval-ms}.
+ *
+ * Si la cola está llena, la conversación se inserta en el hilo del llamador. Al detener la aplicación se
+ * escribe todo lo pendiente.
+ */
+@Component
+@Slf4j
+public class ConversationWriter implements SmartLifecycle {
+
+    private static final String INSERT_SQL = "INSERT INTO chatbot_conversations (id, user_id, session_id, query, " +
+            "response, context, is_successful, response_time_ms, ip_address, user_agent, source, is_handled_by_human, " +
+            "knowledge_base_entries_used, actions_taken, intent_detected, entities_detected, " +
+            "created_at, updated_at, created_by, updated_by) " +
+            // Un usuario inexistente queda como null en lugar de hacer fallar el lote completo
+            "VALUES (?, (SELECT u.id FROM users u WHERE u.id = ?), ?, ?, ?, ?, ?, ?, ?, ?, ?, false, " +
+            "?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final int[] INSERT_TYPES = {
+            Types.BIGINT, Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.BOOLEAN,
+            Types.BIGINT, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR,
+            Types.TIMESTAMP, Types.TIMESTAMP, Types.VARCHAR, Types.VARCHAR};
+
+    private static final String USAGE_SQL =
+            "UPDATE chatbot_knowledge_base SET usage_count = usage_count + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final AuditorAware<String> auditorAware;
+    private final ChatbotProperties properties;
+    private final BoundedRingBuffer<PendingConversation> buffer;
+    private final Map<Long, AtomicLong> usageCounts = new ConcurrentHashMap<>();
+
+    private final Counter enqueued;
+    private final Counter written;
+    private final Counter direct;
+    private final Counter failed;
+    private final Timer batchTimer;
+
+    private final Object idLock = new Object();
+    private long[] idBlock = new long[0];
+    private int idBlockPosition;
+    private Boolean postgres;
+
+    private volatile Thread writerThread;
+    private volatile boolean running;
+
+    public ConversationWriter(JdbcTemplate jdbcTemplate,
+                              ObjectMapper objectMapper,
+                              AuditorAware<String> auditorAware,
+                              ChatbotProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.auditorAware = auditorAware;
+        this.properties = properties;
+        this.buffer = new BoundedRingBuffer<>(properties.getBufferCapacity());
+
+        this.enqueued = meterRegistry.counter("chatbot.writer.enqueued");
+        this.written = meterRegistry.counter("chatbot.writer.written");
+        this.direct = meterRegistry.counter("chatbot.writer.direct");
+        this.failed = meterRegistry.counter("chatbot.writer.failed");
+        this.batchTimer = meterRegistry.timer("chatbot.writer.batch");
+        Gauge.builder("chatbot.writer.pending", buffer, BoundedRingBuffer::size).register(meterRegistry);
+    }
+
+    /**
+     * Reserva el id de una conversación
+     */
+    public long nextConversationId() {
+        synchronized (idLock) {
+            if (idBlockPosition == idBlock.length) {
+                idBlock = allocateIds(Math.max(1, properties.getIdBlockSize()));
+                idBlockPosition = 0;
+            }
+            return idBlock[idBlockPosition++];
+        }
+    }
+
+    /**
+     * Registra una conversación (con id ya reservado) para escribirla en el próximo lote
+     */
+    public void write(ConversationRecord conversation) {
+        String auditor = auditorAware.getCurrentAuditor().orElse("SYSTEM");
+        PendingConversation pending = new PendingConversation(conversation, auditor, LocalDateTime.now());
+
+        if (!running || !buffer.offer(pending)) {
+            if (running) {
+                direct.increment();
+            }
+            insert(List.of(pending));
+            return;
+        }
+        enqueued.increment();
+        if (buffer.size() >= properties.getBatchSize()) {
+            LockSupport.unpark(writerThread);
+        }
+    }
+
+    /**
+     * Suma un uso a la entrada de la base de conocimientos
+     */
+    public void recordUsage(Long entryId) {
+        if (entryId == null) {
+            return;
+        }
+        usageCounts.computeIfAbsent(entryId, id -> new AtomicLong()).incrementAndGet();
+        if (!running) {
+            flushUsage();
+        }
+    }
+
+    /**
+     * Escribe de inmediato las conversaciones pendientes (para pruebas y para leer una recién respondida).
+     * Sólo toma las que ya estaban en la cola al empezar, para no quedar escribiendo mientras sigan llegando.
+     */
+    public synchronized void flush() {
+        int remaining = buffer.size();
+        List<PendingConversation> batch = new ArrayList<>(properties.getBatchSize());
+        int drained;
+        while (remaining > 0 && (drained = buffer.drainTo(batch, Math.min(remaining, properties.getBatchSize()))) > 0) {
+            insert(batch);
+            batch.clear();
+            remaining -= drained;
+        }
+    }
+
+    /**
+     * Aplica en la base los usos acumulados en memoria
+     */
+    public synchronized void flushUsage() {
+        List<Object[]> updates = new ArrayList<>();
+        List<Map.Entry<Long, Long>> taken = new ArrayList<>();
+        for (Map.Entry<Long, AtomicLong> entry : usageCounts.entrySet()) {
+            long count = entry.getValue().getAndSet(0);
+            if (count > 0) {
+                updates.add(new Object[]{count, entry.getKey()});
+                taken.add(Map.entry(entry.getKey(), count));
+            }
+        }
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(USAGE_SQL, updates, new int[]{Types.BIGINT, Types.BIGINT});
+        } catch (RuntimeException e) {
+            // Se conservan para el próximo intento
+            for (Map.Entry<Long, Long> entry : taken) {
+                usageCounts.computeIfAbsent(entry.getKey(), id -> new AtomicLong()).addAndGet(entry.getValue());
+            }
+            log.error("No se pudieron actualizar los contadores de uso de {} entradas: {}", updates.size(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!properties.isWriteBehind() || running) {
+            return;
+        }
+        running = true;
+        Thread thread = new Thread(this::runWriter, "chatbot-writer");
+        thread.setDaemon(true);
+        writerThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        Thread thread = writerThread;
+        running = false;
+        if (thread == null) {
+            return;
+        }
+        LockSupport.unpark(thread);
+        try {
+            thread.join(properties.getShutdownTimeoutMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Lo que haya entrado mientras se detenía
+        flush();
+        flushUsage();
+        writerThread = null;
+        log.info("Escritor de conversaciones del chatbot detenido");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Se detiene después del servidor web, para escribir las conversaciones de las últimas solicitudes
+     */
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void runWriter() {
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getFlushIntervalMs());
+        long usageIntervalNanos = TimeUnit.MILLISECONDS.toNanos(properties.getUsageFlushIntervalMs());
+        long nextFlush = System.nanoTime() + intervalNanos;
+        long nextUsageFlush = System.nanoTime() + usageIntervalNanos;
+        while (running) {
+            long now = System.nanoTime();
+            if (buffer.size() >= properties.getBatchSize() || now - nextFlush >= 0) {
+                flush();
+                nextFlush = System.nanoTime() + intervalNanos;
+            }
+            // Se revisa aparte: con carga sostenida siempre hay un lote lleno y los usos no deben esperar a que baje
+            if (now - nextUsageFlush >= 0) {
+                flushUsage();
+                nextUsageFlush = System.nanoTime() + usageIntervalNanos;
+            }
+            long wait = Math.min(nextFlush, nextUsageFlush) - System.nanoTime();
+            if (wait > 0 && buffer.size() < properties.getBatchSize()) {
+                LockSupport.parkNanos(this, wait);
+            }
+        }
+        flush();
+        flushUsage();
+    }
+
+    /**
+     * Reserva un bloque de ids de la secuencia de chatbot_conversations.id. En otras bases de datos
+     * (H2 en pruebas) los ids se asignan en memoria a partir del máximo existente, válido con una sola instancia.
+     */
+    private long[] allocateIds(int count) {
+        if (postgres == null) {
+            String product = jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+            postgres = "PostgreSQL".equalsIgnoreCase(product);
+        }
+        if (postgres) {
+            List<Long> ids = jdbcTemplate.queryForList(
+                    "SELECT nextval(pg_get_serial_sequence('chatbot_conversations', 'id')) FROM generate_series(1, ?)",
+                    Long.class, count);
+            return ids.stream().mapToLong(Long::longValue).toArray();
+        }
+        long last = idBlock.length > 0 ? idBlock[idBlock.length - 1] : jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0) FROM chatbot_conversations", Long.class);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = last + 1 + i;
+        }
+        return ids;
+    }
+
+    private void insert(List<PendingConversation> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (PendingConversation pending : batch) {
+            rows.add(toRow(pending));
+        }
+        try {
+            batchTimer.record(() -> jdbcTemplate.batchUpdate(INSERT_SQL, rows, INSERT_TYPES));
+            written.increment(batch.size());
+        } catch (RuntimeException e) {
+            failed.increment(batch.size());
+            log.error("No se pudieron escribir {} conversaciones del chatbot: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private Object[] toRow(PendingConversation pending) {
+        ConversationRecord conversation = pending.conversation();
+        Timestamp createdAt = Timestamp.valueOf(pending.createdAt());
+        return new Object[]{
+                conversation.id(),
+                conversation.userId(),
+                conversation.sessionId(),
+                conversation.query(),
+                conversation.response(),
+                conversation.context(),
+                conversation.successful(),
+                conversation.responseTimeMs(),
+                conversation.ipAddress(),
+                conversation.userAgent(),
+                conversation.source(),
+                toJson(conversation.knowledgeBaseIds()),
+                toJson(conversation.actions()),
+                conversation.intentDetected(),
+                toJson(conversation.entities()),
+                createdAt,
+                createdAt,
+                pending.auditor(),
+                pending.auditor()
+        };
+    }
+
+    private String toJson(Object value) {
+        if (value == null || (value instanceof List<?> list && list.isEmpty())
+                || (value instanceof Map<?, ?> map && map.isEmpty())) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            log.error("Error al convertir objeto a JSON: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Datos de una conversación a escribir; las listas y mapas se guardan como JSON
+     */
+    public record ConversationRecord(long id,
+                                     Long userId,
+                                     String sessionId,
+                                     String query,
+                                     String response,
+                                     String context,
+                                     boolean successful,
+                                     Long responseTimeMs,
+                                     String ipAddress,
+                                     String userAgent,
+                                     String source,
+                                     List<Long> knowledgeBaseIds,
+                                     Map<String, Object> actions,
+                                     String intentDetected,
+                                     Map<String, Object> entities) {
+    }
+
+    private record PendingConversation(ConversationRecord conversation, String auditor, LocalDateTime createdAt) {
+    }
+}
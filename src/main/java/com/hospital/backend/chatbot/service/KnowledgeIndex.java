@@ -0,0 +1,346 @@
+package com.hospital.backend.chatbot.service;
+
+import com.hospital.backend.chatbot.dto.response.KnowledgeBaseEntryResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Índice invertido en memoria de las entradas activas de la base de conocimientos, con ranking BM25.
+ *
+ * Cada término apunta a una lista de postings con arreglos de int (documento, frecuencia). El tema, la
+ * pregunta y las palabras clave pesan más que la respuesta: sus apariciones cuentan varias veces en la
+ * frecuencia y en la longitud del documento.
+ *
+ * Las lecturas no usan bloqueos: trabajan sobre una instantánea inmutable publicada en un campo volatile.
+ * Las altas y modificaciones agregan el documento al final de los postings de sus términos; las bajas lo
+ * marcan como eliminado. Cuando los eliminados superan a los vigentes el índice se reconstruye completo.
+ */
+@Component
+public class KnowledgeIndex {
+
+    static final double K1 = 1.2;
+    static final double B = 0.75;
+
+    private static final int TOPIC_WEIGHT = 2;
+    private static final int QUESTION_WEIGHT = 2;
+    private static final int KEYWORDS_WEIGHT = 3;
+    private static final int ANSWER_WEIGHT = 1;
+
+    // Eliminados tolerados antes de compactar, aunque el índice sea pequeño
+    private static final int MIN_DELETED_BEFORE_COMPACTION = 64;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    // Se incrementa después de publicar cada instantánea: quien lee una versión ve al menos ese contenido
+    private volatile long version;
+    private final Object writeLock = new Object();
+
+    /**
+     * Entradas más relevantes para el texto, de mayor a menor puntuación.
+     * Los empates se resuelven por prioridad y luego por uso.
+     */
+    public List<Hit> search(String text, int limit) {
+        Snapshot current = snapshot;
+        if (current.liveDocs == 0 || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Set<String> terms = new LinkedHashSet<>(SpanishTextAnalyzer.analyze(text));
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        double averageLength = (double) current.totalLength / current.liveDocs;
+        double[] scores = new double[current.docs.length];
+        int[] matched = new int[16];
+        int matchedCount = 0;
+
+        for (String term : terms) {
+            Postings postings = current.postings.get(term);
+            if (postings == null || postings.liveCount == 0) {
+                continue;
+            }
+            double idf = Math.log(1 + (current.liveDocs - postings.liveCount + 0.5) / (postings.liveCount + 0.5));
+            for (int i = 0; i < postings.size; i++) {
+                int slot = postings.slots[i];
+                Doc doc = current.docs[slot];
+                if (doc == null) {
+                    continue;
+                }
+                int tf = postings.freqs[i];
+                double norm = K1 * (1 - B + B * doc.length / averageLength);
+                if (scores[slot] == 0) {
+                    if (matchedCount == matched.length) {
+                        matched = Arrays.copyOf(matched, matchedCount * 2);
+                    }
+                    matched[matchedCount++] = slot;
+                }
+                scores[slot] += idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(matchedCount);
+        for (int i = 0; i < matchedCount; i++) {
+            hits.add(new Hit(current.docs[matched[i]].entry, scores[matched[i]]));
+        }
+        hits.sort((a, b) -> {
+            int byScore = Double.compare(b.score(), a.score());
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byPriority = Integer.compare(orZero(b.entry().getPriority()), orZero(a.entry().getPriority()));
+            return byPriority != 0
+                    ? byPriority
+                    : Integer.compare(orZero(b.entry().getUsageCount()), orZero(a.entry().getUsageCount()));
+        });
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    /**
+     * Reemplaza el contenido del índice por las entradas indicadas (sólo se indexan las activas)
+     */
+    public void rebuild(Collection<KnowledgeBaseEntryResponse> entries) {
+        synchronized (writeLock) {
+            publish(build(entries));
+        }
+    }
+
+    /**
+     * Reemplaza el contenido del índice sólo si sigue en la versión {@code expectedVersion}
+     * (para recargas desde la base de datos que no deben pisar cambios confirmados mientras se leía)
+     * @return true si se aplicó
+     */
+    public boolean rebuildIfUnchanged(Collection<KnowledgeBaseEntryResponse> entries, long expectedVersion) {
+        synchronized (writeLock) {
+            if (version != expectedVersion) {
+                return false;
+            }
+            publish(build(entries));
+            return true;
+        }
+    }
+
+    /**
+     * Versión de la base de conocimientos indexada: aumenta con cada alta, cambio, baja o recarga
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Agrega o reemplaza una entrada; si está inactiva, la quita del índice
+     */
+    public void upsert(KnowledgeBaseEntryResponse entry) {
+        synchronized (writeLock) {
+            Snapshot next = snapshot.without(entry.getId());
+            if (Boolean.TRUE.equals(entry.getIsActive())) {
+                next = next.with(entry);
+            }
+            publish(compactIfNeeded(next));
+        }
+    }
+
+    /**
+     * Quita una entrada del índice
+     */
+    public void remove(Long id) {
+        synchronized (writeLock) {
+            publish(compactIfNeeded(snapshot.without(id)));
+        }
+    }
+
+    /**
+     * Cantidad de entradas indexadas
+     */
+    public int size() {
+        return snapshot.liveDocs;
+    }
+
+    private void publish(Snapshot next) {
+        snapshot = next;
+        version++;
+    }
+
+    private Snapshot compactIfNeeded(Snapshot candidate) {
+        int deleted = candidate.docs.length - candidate.liveDocs;
+        if (deleted < MIN_DELETED_BEFORE_COMPACTION || deleted <= candidate.liveDocs) {
+            return candidate;
+        }
+        List<KnowledgeBaseEntryResponse> live = new ArrayList<>(candidate.liveDocs);
+        for (Doc doc : candidate.docs) {
+            if (doc != null) {
+                live.add(doc.entry);
+            }
+        }
+        return build(live);
+    }
+
+    private static Snapshot build(Collection<KnowledgeBaseEntryResponse> entries) {
+        List<Doc> docs = new ArrayList<>(entries.size());
+        Map<String, Postings> postings = new HashMap<>();
+        Map<Long, Integer> slotsById = new HashMap<>();
+        long totalLength = 0;
+        for (KnowledgeBaseEntryResponse entry : entries) {
+            if (!Boolean.TRUE.equals(entry.getIsActive()) || slotsById.containsKey(entry.getId())) {
+                continue;
+            }
+            int slot = docs.size();
+            Doc doc = indexTerms(entry, slot, postings);
+            docs.add(doc);
+            slotsById.put(entry.getId(), slot);
+            totalLength += doc.length;
+        }
+        return new Snapshot(docs.toArray(new Doc[0]), postings, slotsById, docs.size(), totalLength);
+    }
+
+    /**
+     * Agrega la entrada en {@code slot} a los postings de sus términos
+     */
+    private static Doc indexTerms(KnowledgeBaseEntryResponse entry, int slot, Map<String, Postings> postings) {
+        Map<String, Integer> frequencies = termFrequencies(entry);
+        int length = 0;
+        for (Map.Entry<String, Integer> term : frequencies.entrySet()) {
+            Postings current = postings.get(term.getKey());
+            if (current == null) {
+                current = new Postings(new int[0], new int[0], 0, 0);
+            }
+            postings.put(term.getKey(), current.append(slot, term.getValue()));
+            length += term.getValue();
+        }
+        return new Doc(entry, length, frequencies.keySet().toArray(new String[0]));
+    }
+
+    /**
+     * Frecuencias ponderadas de los términos de una entrada
+     */
+    static Map<String, Integer> termFrequencies(KnowledgeBaseEntryResponse entry) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        addField(frequencies, entry.getTopic(), TOPIC_WEIGHT);
+        addField(frequencies, entry.getQuestion(), QUESTION_WEIGHT);
+        addField(frequencies, entry.getKeywords(), KEYWORDS_WEIGHT);
+        addField(frequencies, entry.getAnswer(), ANSWER_WEIGHT);
+        return frequencies;
+    }
+
+    private static void addField(Map<String, Integer> frequencies, String text, int weight) {
+        for (String term : SpanishTextAnalyzer.analyze(text)) {
+            frequencies.merge(term, weight, Integer::sum);
+        }
+    }
+
+    private static int orZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    /**
+     * Resultado de una búsqueda
+     * @param entry entrada de la base de conocimientos
+     * @param score puntuación BM25 (sólo comparable dentro de la misma búsqueda)
+     */
+    public record Hit(KnowledgeBaseEntryResponse entry, double score) {
+    }
+
+    private record Doc(KnowledgeBaseEntryResponse entry, int length, String[] terms) {
+    }
+
+    /**
+     * Lista de postings de un término. Los arreglos se comparten entre instantáneas: una versión nueva sólo
+     * escribe posiciones a partir de {@code size} de la anterior, que sus lectores nunca leen.
+     */
+    private static final class Postings {
+
+        final int[] slots;
+        final int[] freqs;
+        final int size;
+        final int liveCount;
+
+        Postings(int[] slots, int[] freqs, int size, int liveCount) {
+            this.slots = slots;
+            this.freqs = freqs;
+            this.size = size;
+            this.liveCount = liveCount;
+        }
+
+        Postings append(int slot, int freq) {
+            int[] newSlots = slots;
+            int[] newFreqs = freqs;
+            if (size == slots.length) {
+                int capacity = Math.max(4, size * 2);
+                newSlots = Arrays.copyOf(slots, capacity);
+                newFreqs = Arrays.copyOf(freqs, capacity);
+            }
+            newSlots[size] = slot;
+            newFreqs[size] = freq;
+            return new Postings(newSlots, newFreqs, size + 1, liveCount + 1);
+        }
+
+        Postings withoutOne() {
+            return new Postings(slots, freqs, size, liveCount - 1);
+        }
+    }
+
+    /**
+     * Estado inmutable del índice. Los documentos eliminados quedan como null en {@code docs}.
+     */
+    private static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(new Doc[0], Map.of(), Map.of(), 0, 0);
+
+        final Doc[] docs;
+        final Map<String, Postings> postings;
+        final Map<Long, Integer> slotsById;
+        final int liveDocs;
+        final long totalLength;
+
+        Snapshot(Doc[] docs, Map<String, Postings> postings, Map<Long, Integer> slotsById,
+                 int liveDocs, long totalLength) {
+            this.docs = docs;
+            this.postings = postings;
+            this.slotsById = slotsById;
+            this.liveDocs = liveDocs;
+            this.totalLength = totalLength;
+        }
+
+        Snapshot with(KnowledgeBaseEntryResponse entry) {
+            int slot = docs.length;
+            Map<String, Postings> newPostings = new HashMap<>(postings);
+            Doc doc = indexTerms(entry, slot, newPostings);
+
+            Doc[] newDocs = Arrays.copyOf(docs, slot + 1);
+            newDocs[slot] = doc;
+            Map<Long, Integer> newSlots = new HashMap<>(slotsById);
+            newSlots.put(entry.getId(), slot);
+            return new Snapshot(newDocs, newPostings, newSlots, liveDocs + 1, totalLength + doc.length);
+        }
+
+        Snapshot without(Long id) {
+            Integer slot = slotsById.get(id);
+            if (slot == null) {
+                return this;
+            }
+            Doc doc = docs[slot];
+            Map<String, Postings> newPostings = new HashMap<>(postings);
+            for (String term : doc.terms) {
+                Postings current = newPostings.get(term).withoutOne();
+                if (current.liveCount == 0) {
+                    newPostings.remove(term);
+                } else {
+                    newPostings.put(term, current);
+                }
+            }
+
+            Doc[] newDocs = docs.clone();
+            newDocs[slot] = null;
+            Map<Long, Integer> newSlots = new HashMap<>(slotsById);
+            newSlots.remove(id);
+            return new Snapshot(newDocs, newPostings, newSlots, liveDocs - 1, totalLength - doc.length);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.hospital.backend.chatbot.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Análisis de texto en español para el chatbot.
+ *
+ * Recorre el texto una sola vez carácter por carácter: pasa a minúsculas, quita tildes y diéresis (conserva
+ * la ñ), trata como separador todo lo que no sea letra o dígito y descarta las palabras vacías sin crear
+ * cadenas intermedias. Sólo se crea un String por término emitido.
+ *
+ * {@link #analyze} produce los términos del índice de la base de conocimientos, reducidos con un stemmer
+ * ligero (plural y género), de modo que "Cardiólogos", "cardiologo" y "cardióloga" dan el mismo término.
+ * {@link #searchTerms} produce las palabras de una búsqueda en texto guardado, sin stemming y con tildes.
+ */
+public final class SpanishTextAnalyzer {
+
+    // Caracteres latinos con tabla de normalización (Latin-1 y Latin Extended-A/B)
+    private static final int TABLE_SIZE = 0x250;
+    // Minúscula sin tilde de cada carácter; 0 = separador
+    private static final char[] FOLDED = new char[TABLE_SIZE];
+    // Minúscula conservando la tilde; 0 = separador
+    private static final char[] LOWER = new char[TABLE_SIZE];
+
+    private static final String[] STOPWORD_LIST = {
+            "a", "al", "algo", "algun", "alguna", "alguno", "ante", "antes", "como", "con", "contra", "cual",
+            "cuales", "cuando", "de", "del", "desde", "donde", "durante", "e", "el", "ella", "ellas", "ellos",
+            "en", "entre", "era", "es", "esa", "ese", "eso", "esta", "estan", "este", "esto", "estoy", "fue",
+            "ha", "hay", "la", "las", "le", "les", "lo", "los", "mas", "me", "mi", "mis", "muy", "ni", "no",
+            "nos", "o", "os", "para", "pero", "por", "porque", "puedo", "que", "quien", "se", "sea", "ser",
+            "si", "sin", "sobre", "son", "su", "sus", "tambien", "te", "tengo", "ti", "tu", "tus", "u", "un",
+            "una", "uno", "unos", "unas", "usted", "ustedes", "y", "ya", "yo"};
+
+    // Tabla hash abierta de palabras vacías, consultada directamente sobre el buffer de caracteres
+    private static final char[][] STOPWORDS = new char[256][];
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            FOLDED[c] = c;
+            LOWER[c] = c;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            FOLDED[c] = c;
+            LOWER[c] = c;
+            FOLDED[c - 32] = c;
+            LOWER[c - 32] = c;
+        }
+        foldTo("ÀÁÂÃÄÅàáâãäåĀāĂăĄą", 'a');
+        foldTo("ÈÉÊËèéêëĒēĔĕĖėĘęĚě", 'e');
+        foldTo("ÌÍÎÏìíîïĨĩĪīĬĭĮįİ", 'i');
+        foldTo("ÒÓÔÕÖØòóôõöøŌōŎŏŐő", 'o');
+        foldTo("ÙÚÛÜùúûüŨũŪūŬŭŮůŰűŲų", 'u');
+        foldTo("ÇçĆćĈĉĊċČč", 'c');
+        foldTo("ÝýÿŶŷŸ", 'y');
+        foldTo("Ññ", 'ñ');
+        for (char c = 0; c < TABLE_SIZE; c++) {
+            if (FOLDED[c] == 0 && Character.isLetterOrDigit(c)) {
+                FOLDED[c] = Character.toLowerCase(c);
+                LOWER[c] = FOLDED[c];
+            }
+        }
+
+        for (String word : STOPWORD_LIST) {
+            int slot = word.hashCode() & (STOPWORDS.length - 1);
+            while (STOPWORDS[slot] != null) {
+                slot = (slot + 1) & (STOPWORDS.length - 1);
+            }
+            STOPWORDS[slot] = word.toCharArray();
+        }
+    }
+
+    private SpanishTextAnalyzer() {
+    }
+
+    /**
+     * Términos normalizados y reducidos del texto, en orden de aparición (con repeticiones)
+     */
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        scan(text, true, terms);
+        return terms;
+    }
+
+    /**
+     * Palabras del texto en minúsculas, sin puntuación ni palabras vacías. Conservan las tildes para
+     * compararse con texto guardado tal como se escribió.
+     */
+    public static List<String> searchTerms(String text) {
+        List<String> terms = new ArrayList<>();
+        scan(text, false, terms);
+        return terms;
+    }
+
+    /**
+     * Recorre el texto y agrega a {@code terms} cada palabra que no sea vacía.
+     * La palabra vacía se decide sobre la forma sin tildes ("también" = "tambien").
+     */
+    private static void scan(String text, boolean stem, List<String> terms) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        char[] folded = new char[length];
+        char[] lower = stem ? null : new char[length];
+        int size = 0;
+
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? text.charAt(i) : ' ';
+            char f;
+            char l;
+            if (c < TABLE_SIZE) {
+                f = FOLDED[c];
+                l = LOWER[c];
+            } else if (c >= '\u0300' && c <= '\u036F') {
+                // Marca diacrítica combinable (texto descompuesto): se une a la letra anterior sin cortar
+                // la palabra, así "n" + tilde (U+0303) vuelve a ser ñ y no se confunde con n
+                if (size > 0) {
+                    if (c == '\u0303' && folded[size - 1] == 'n') {
+                        folded[size - 1] = 'ñ';
+                    }
+                    if (lower != null) {
+                        lower[size - 1] = compose(lower[size - 1], c);
+                    }
+                }
+                continue;
+            } else if (Character.isLetterOrDigit(c)) {
+                f = Character.toLowerCase(c);
+                l = f;
+            } else {
+                f = 0;
+                l = 0;
+            }
+
+            if (f != 0) {
+                folded[size] = f;
+                if (lower != null) {
+                    lower[size] = l;
+                }
+                size++;
+                continue;
+            }
+            if (size > 0 && !isStopword(folded, size)) {
+                terms.add(stem ? new String(folded, 0, stem(folded, size)) : new String(lower, 0, size));
+            }
+            size = 0;
+        }
+    }
+
+    /**
+     * Letra compuesta (NFC) de la letra base con la marca, o la base si no existe una forma compuesta
+     */
+    private static char compose(char base, char mark) {
+        String composed = Normalizer.normalize(new String(new char[]{base, mark}), Normalizer.Form.NFC);
+        return composed.length() == 1 ? composed.charAt(0) : base;
+    }
+
+    private static boolean isStopword(char[] buffer, int size) {
+        int hash = 0;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+        int slot = hash & (STOPWORDS.length - 1);
+        for (char[] word = STOPWORDS[slot]; word != null; word = STOPWORDS[slot]) {
+            if (equals(word, buffer, size)) {
+                return true;
+            }
+            slot = (slot + 1) & (STOPWORDS.length - 1);
+        }
+        return false;
+    }
+
+    private static boolean equals(char[] word, char[] buffer, int size) {
+        if (word.length != size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (word[i] != buffer[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stemmer ligero para español sobre el buffer: quita el plural y luego la vocal final de género si quedan
+     * 5 letras o más ("doctores" → "doctor", "cardióloga" → "cardiolog", "luces" → "luz", "citas" → "cita")
+     * @return longitud del término reducido
+     */
+    static int stem(char[] buffer, int size) {
+        if (size < 4) {
+            return size;
+        }
+        if (size >= 5 && buffer[size - 3] == 'c' && buffer[size - 2] == 'e' && buffer[size - 1] == 's') {
+            buffer[size - 3] = 'z';
+            return size - 2;
+        }
+        if (buffer[size - 1] == 's' && isGenderVowel(buffer[size - 2])) {
+            size--;
+        }
+        if (size >= 5 && isGenderVowel(buffer[size - 1])) {
+            size--;
+        }
+        return size;
+    }
+
+    private static boolean isGenderVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'o';
+    }
+
+    private static void foldTo(String characters, char target) {
+        for (int i = 0; i < characters.length(); i++) {
+            char c = characters.charAt(i);
+            FOLDED[c] = target;
+            LOWER[c] = Character.toLowerCase(c);
+        }
+    }
+}
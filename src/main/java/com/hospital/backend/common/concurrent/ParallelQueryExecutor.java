@@ -0,0 +1,187 @@
+// Ejecutor acotado para lanzar consultas independientes en paralelo con tiempo límite por tarea
+package com.hospital.backend.common.concurrent;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Ejecuta en paralelo consultas independientes (métricas, health checks, secciones de reportes)
+ * de modo que la latencia total dependa de la consulta más lenta y no de la suma de todas.
+ *
+ * Uso estructurado: cada grupo de tareas se abre con {@link #open()} en un try-with-resources;
+ * al cerrarse el grupo se cancelan las tareas que sigan pendientes.
+ * Cada tarea tiene su propio tiempo límite y un valor de respaldo, por lo que una consulta lenta
+ * o con error degrada sólo su propio resultado.
+ *
+ * Usa un pool de hilos de plataforma acotado (el proyecto compila con Java 17); al migrar a Java 21
+ * basta con reemplazar el pool por {@code Executors.newVirtualThreadPerTaskExecutor()}.
+ * Con {@code app.concurrency.query-pool-size=0} las tareas se ejecutan en el hilo que las lanza.
+ */
+@Component
+@Slf4j
+public class ParallelQueryExecutor implements DisposableBean {
+
+    private final ThreadPoolExecutor pool;
+    private final Duration defaultTimeout;
+
+    public ParallelQueryExecutor(@Value("${app.concurrency.query-pool-size:8}") int poolSize,
+                                 @Value("${app.concurrency.query-queue-capacity:100}") int queueCapacity,
+                                 @Value("${app.concurrency.query-timeout-ms:3000}") long timeoutMs) {
+        this.defaultTimeout = Duration.ofMillis(timeoutMs);
+        if (poolSize <= 0) {
+            this.pool = null;
+            return;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("query-fanout-");
+        threadFactory.setDaemon(true);
+        // Si el pool y la cola están llenos la tarea corre en el hilo que la lanza (degrada a secuencial)
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), threadFactory,
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Abre un grupo de tareas con el tiempo límite por defecto
+     */
+    public Scope open() {
+        return new Scope(defaultTimeout);
+    }
+
+    /**
+     * Abre un grupo de tareas con un tiempo límite propio para cada tarea
+     */
+    public Scope open(Duration timeout) {
+        return new Scope(timeout);
+    }
+
+    @Override
+    public void destroy() {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Grupo de tareas lanzadas juntas. Al cerrarlo se cancelan las que sigan en curso.
+     */
+    public final class Scope implements AutoCloseable {
+
+        private final Duration timeout;
+        private final List<Future<?>> futures = new ArrayList<>();
+
+        private Scope(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        /**
+         * Lanza una tarea
+         * @param name nombre de la tarea para los logs
+         * @param task consulta a ejecutar
+         * @param fallback valor a usar si la tarea falla, devuelve null o excede el tiempo límite
+         * @return resultado diferido de la tarea
+         */
+        public <T> Result<T> fork(String name, Callable<T> task, T fallback) {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            Future<T> future;
+            if (pool == null) {
+                future = runInline(task);
+            } else {
+                future = pool.submit(task);
+            }
+            futures.add(future);
+            return new Result<>(name, future, fallback, deadline);
+        }
+
+        @Override
+        public void close() {
+            for (Future<?> future : futures) {
+                if (!future.isDone()) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        private <T> Future<T> runInline(Callable<T> task) {
+            try {
+                return CompletableFuture.completedFuture(task.call());
+            } catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+    }
+
+    /**
+     * Resultado diferido de una tarea con su valor de respaldo
+     */
+    public static final class Result<T> {
+
+        private final String name;
+        private final Future<T> future;
+        private final T fallback;
+        private final long deadline;
+        private boolean resolved;
+        private boolean usedFallback;
+        private T value;
+
+        private Result(String name, Future<T> future, T fallback, long deadline) {
+            this.name = name;
+            this.future = future;
+            this.fallback = fallback;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Espera el resultado hasta el tiempo límite de la tarea; si no llega, devuelve el valor de respaldo
+         */
+        public synchronized T get() {
+            if (!resolved) {
+                value = await();
+                resolved = true;
+            }
+            return value;
+        }
+
+        /**
+         * Indica si el resultado es el valor de respaldo (error, null o tiempo agotado)
+         */
+        public synchronized boolean isFallback() {
+            get();
+            return usedFallback;
+        }
+
+        private T await() {
+            try {
+                T result = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (result != null) {
+                    return result;
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.warn("Tiempo agotado obteniendo {}", name);
+            } catch (ExecutionException e) {
+                log.warn("Error obteniendo {}: {}", name, e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+            }
+            usedFallback = true;
+            return fallback;
+        }
+    }
+}
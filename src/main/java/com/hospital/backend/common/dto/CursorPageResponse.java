@@ -0,0 +1,55 @@
+// Respuesta para datos paginados por cursor (keyset) sin conteo total
+package com.hospital.backend.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.hospital.backend.common.util.CursorUtils;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Response DTO para paginación por cursor.
+ * A diferencia de {@link PageResponse} no expone totales: la siguiente página se solicita
+ * enviando {@code nextCursor}, que codifica la clave de orden y el id de la última fila.
+ * @param <T> tipo de dato contenido en la página
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class CursorPageResponse<T> {
+
+    private List<T> content;
+    private int size;
+    private String nextCursor;
+    private boolean hasNext;
+
+    /**
+     * Construye la página a partir de las filas obtenidas con límite {@code size + 1}.
+     * La fila adicional sólo indica si existe una página siguiente y se descarta.
+     * @param rows filas obtenidas de la consulta keyset
+     * @param size tamaño de página solicitado
+     * @param sortKey función que obtiene la clave de orden de una fila
+     * @param idOf función que obtiene el id de una fila
+     * @param mapper conversión de entidad a DTO
+     */
+    public static <E, T> CursorPageResponse<T> of(List<E> rows, int size,
+                                                  Function<E, Object> sortKey,
+                                                  Function<E, Long> idOf,
+                                                  Function<E, T> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            E last = page.get(page.size() - 1);
+            nextCursor = CursorUtils.encode(sortKey.apply(last), idOf.apply(last));
+        }
+
+        List<T> content = page.stream().map(mapper).toList();
+        return new CursorPageResponse<>(content, content.size(), nextCursor, hasNext);
+    }
+}
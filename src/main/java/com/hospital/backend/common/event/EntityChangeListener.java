@@ -0,0 +1,29 @@
+// Listener JPA que publica EntityChangedEvent para las entidades que lo declaran
+package com.hospital.backend.common.event;
+
+import com.hospital.backend.common.entity.BaseEntity;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Se registra con {@code @EntityListeners(EntityChangeListener.class)} en las entidades cuyos cambios
+ * deben notificarse (por ejemplo, para invalidar métricas precalculadas).
+ * Hibernate lo instancia a través del contenedor de Spring, que inyecta el publicador de eventos.
+ */
+public class EntityChangeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public EntityChangeListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(BaseEntity entity) {
+        eventPublisher.publishEvent(new EntityChangedEvent(entity.getClass(), entity.getId()));
+    }
+}
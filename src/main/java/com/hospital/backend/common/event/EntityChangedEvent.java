@@ -0,0 +1,12 @@
+// Evento publicado cuando se inserta, actualiza o elimina una entidad observada
+package com.hospital.backend.common.event;
+
+/**
+ * Evento de cambio de entidad. Se publica dentro de la transacción que modifica la entidad,
+ * por lo que los consumidores interesados sólo en datos confirmados deben usar
+ * {@code @TransactionalEventListener}.
+ * @param entityType clase de la entidad modificada
+ * @param entityId id de la entidad (puede ser null si aún no fue asignado)
+ */
+public record EntityChangedEvent(Class<?> entityType, Long entityId) {
+}
@@ -0,0 +1,17 @@
+// Excepción para solicitudes rechazadas por límite de intentos o de capacidad (429)
+package com.hospital.backend.common.exception;
+
+public class TooManyRequestsException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    private final long retryAfterSeconds;
+    
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,250 @@
+// Salida ZIP con entradas comprimidas que se pueden vaciar al cliente a mitad de una entrada
+package com.hospital.backend.common.export;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Escritor ZIP mínimo cuyas entradas DEFLATE admiten {@link #flush()} con SYNC_FLUSH.
+ *
+ * {@link java.util.zip.ZipOutputStream#flush()} no vacía el Deflater, así que los bytes de una entrada
+ * quedan retenidos hasta que se llena su búfer interno o se cierra la entrada. Aquí cada entrada se
+ * comprime con un {@link DeflaterOutputStream} en modo syncFlush: un flush emite todo lo escrito hasta
+ * ese momento. El CRC y los tamaños van en un descriptor de datos al final de cada entrada (bit 3),
+ * por lo que no hace falta conocerlos al escribir la cabecera. No admite Zip64 (entradas o archivos
+ * de más de 4 GB).
+ */
+class SyncFlushZipOutputStream extends OutputStream {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int DATA_DESCRIPTOR = 0x08074b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+
+    private static final int VERSION = 20;
+    // Bit 3: CRC y tamaños en el descriptor de datos; bit 11: nombres en UTF-8
+    private static final int FLAGS = 0x0808;
+    private static final int METHOD_DEFLATED = 8;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+
+    private final CountingOutputStream out;
+    private final int level;
+    private final int dosTime;
+    private final int dosDate;
+    private final List<Entry> entries = new ArrayList<>();
+
+    private Entry current;
+    private Deflater deflater;
+    private DeflaterOutputStream deflating;
+    private CRC32 crc;
+    private boolean finished;
+
+    SyncFlushZipOutputStream(OutputStream out) {
+        this(out, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    SyncFlushZipOutputStream(OutputStream out, int level) {
+        this.out = new CountingOutputStream(out);
+        this.level = level;
+        LocalDateTime now = LocalDateTime.now();
+        this.dosTime = now.getHour() << 11 | now.getMinute() << 5 | now.getSecond() / 2;
+        this.dosDate = (now.getYear() - 1980) << 9 | now.getMonthValue() << 5 | now.getDayOfMonth();
+    }
+
+    /**
+     * Comenzar una entrada, cerrando la anterior si sigue abierta
+     */
+    void putNextEntry(String name) throws IOException {
+        ensureOpen();
+        closeEntry();
+        byte[] encodedName = name.getBytes(StandardCharsets.UTF_8);
+        current = new Entry(encodedName, out.count);
+        writeInt(LOCAL_HEADER);
+        writeShort(VERSION);
+        writeShort(FLAGS);
+        writeShort(METHOD_DEFLATED);
+        writeShort(dosTime);
+        writeShort(dosDate);
+        writeInt(0);
+        writeInt(0);
+        writeInt(0);
+        writeShort(encodedName.length);
+        writeShort(0);
+        out.write(encodedName);
+
+        current.dataOffset = out.count;
+        crc = new CRC32();
+        deflater = new Deflater(level, true);
+        deflating = new DeflaterOutputStream(out, deflater, 8192, true);
+    }
+
+    /**
+     * Terminar la entrada actual y escribir su descriptor de datos
+     */
+    void closeEntry() throws IOException {
+        if (current == null) {
+            return;
+        }
+        deflating.finish();
+        deflater.end();
+        current.crc = crc.getValue();
+        current.compressedSize = out.count - current.dataOffset;
+        if (current.size > MAX_SIZE || current.compressedSize > MAX_SIZE) {
+            throw new IOException("La entrada " + new String(current.name, StandardCharsets.UTF_8)
+                    + " supera el tamaño máximo de un ZIP sin Zip64");
+        }
+        writeInt(DATA_DESCRIPTOR);
+        writeInt(current.crc);
+        writeInt(current.compressedSize);
+        writeInt(current.size);
+        entries.add(current);
+        current = null;
+        deflating = null;
+        deflater = null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureEntry();
+        crc.update(b);
+        current.size++;
+        deflating.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureEntry();
+        crc.update(b, off, len);
+        current.size += len;
+        deflating.write(b, off, len);
+    }
+
+    /**
+     * Emitir lo escrito en la entrada actual (SYNC_FLUSH) y vaciar la salida
+     */
+    @Override
+    public void flush() throws IOException {
+        if (deflating != null) {
+            deflating.flush();
+        }
+        out.flush();
+    }
+
+    /**
+     * Cerrar la entrada actual y escribir el directorio central, sin cerrar la salida
+     */
+    void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        closeEntry();
+        long centralOffset = out.count;
+        for (Entry entry : entries) {
+            writeInt(CENTRAL_HEADER);
+            writeShort(VERSION);
+            writeShort(VERSION);
+            writeShort(FLAGS);
+            writeShort(METHOD_DEFLATED);
+            writeShort(dosTime);
+            writeShort(dosDate);
+            writeInt(entry.crc);
+            writeInt(entry.compressedSize);
+            writeInt(entry.size);
+            writeShort(entry.name.length);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeShort(0);
+            writeInt(0);
+            writeInt(entry.headerOffset);
+            out.write(entry.name);
+        }
+        long centralSize = out.count - centralOffset;
+        if (centralOffset > MAX_SIZE || entries.size() > 0xFFFF) {
+            throw new IOException("El archivo supera el tamaño máximo de un ZIP sin Zip64");
+        }
+        writeInt(END_OF_CENTRAL_DIRECTORY);
+        writeShort(0);
+        writeShort(0);
+        writeShort(entries.size());
+        writeShort(entries.size());
+        writeInt(centralSize);
+        writeInt(centralOffset);
+        writeShort(0);
+        finished = true;
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+        out.close();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("El ZIP ya fue finalizado");
+        }
+    }
+
+    private void ensureEntry() throws IOException {
+        if (current == null) {
+            throw new IOException("No hay una entrada ZIP abierta");
+        }
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >>> 16) & 0xFFFF));
+    }
+
+    private static final class Entry {
+        private final byte[] name;
+        private final long headerOffset;
+        private long dataOffset;
+        private long crc;
+        private long size;
+        private long compressedSize;
+
+        private Entry(byte[] name, long headerOffset) {
+            this.name = name;
+            this.headerOffset = headerOffset;
+        }
+    }
+
+    /**
+     * Cuenta los bytes escritos para calcular desplazamientos y tamaños comprimidos
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+// Escritor de filas tabulares directo a un flujo de salida
+package com.hospital.backend.common.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Escribe un archivo tabular fila por fila sobre un {@link OutputStream}, sin acumular el contenido en memoria.
+ * Las implementaciones sólo guardan un búfer de tamaño fijo, por lo que el costo de memoria no depende
+ * de la cantidad de filas exportadas.
+ */
+public interface TabularWriter extends AutoCloseable {
+
+    /**
+     * Escribe una fila; los valores nulos se escriben como celdas vacías
+     */
+    void writeRow(Object... values) throws IOException;
+
+    /**
+     * Envía al cliente lo escrito hasta el momento
+     */
+    void flush() throws IOException;
+
+    /**
+     * Termina el archivo. No cierra el flujo de salida recibido.
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Crea un escritor CSV (UTF-8 con BOM para que Excel reconozca los acentos)
+     */
+    static TabularWriter csv(OutputStream out) throws IOException {
+        return new CsvTabularWriter(out);
+    }
+
+    /**
+     * Crea un escritor XLSX de una sola hoja
+     */
+    static TabularWriter xlsx(OutputStream out, String sheetName) throws IOException {
+        return new XlsxTabularWriter(out, sheetName);
+    }
+}
@@ -0,0 +1,142 @@
+// Escritor XLSX por filas (Office Open XML mínimo, sin dependencias externas)
+package com.hospital.backend.common.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Genera un libro XLSX de una hoja escribiendo el ZIP directamente sobre la salida.
+ * Las partes fijas del paquete se escriben al inicio y la hoja se emite fila por fila con textos en línea
+ * (sin tabla de textos compartidos), de modo que nada del contenido queda retenido en memoria.
+ * El ZIP se escribe con {@link SyncFlushZipOutputStream} para que {@link #flush()} entregue al cliente
+ * las filas ya comprimidas sin esperar a que se cierre la hoja.
+ */
+class XlsxTabularWriter implements TabularWriter {
+
+    private static final String CONTENT_TYPES =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+            "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
+            "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
+            "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
+            "<Override PartName=\"/xl/workbook.xml\" " +
+            "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" +
+            "<Override PartName=\"/xl/worksheets/sheet1.xml\" " +
+            "ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" +
+            "</Types>";
+
+    private static final String ROOT_RELS =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" " +
+            "Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" " +
+            "Target=\"xl/workbook.xml\"/>" +
+            "</Relationships>";
+
+    private static final String WORKBOOK_RELS =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" " +
+            "Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" " +
+            "Target=\"worksheets/sheet1.xml\"/>" +
+            "</Relationships>";
+
+    private static final int MAX_SHEET_NAME = 31;
+
+    private final SyncFlushZipOutputStream zip;
+    private final Writer writer;
+
+    XlsxTabularWriter(OutputStream out, String sheetName) throws IOException {
+        this.zip = new SyncFlushZipOutputStream(out);
+        this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+
+        writeEntry("[Content_Types].xml", CONTENT_TYPES);
+        writeEntry("_rels/.rels", ROOT_RELS);
+        writeEntry("xl/workbook.xml",
+                "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" " +
+                "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">" +
+                "<sheets><sheet name=\"" + escape(sheetName(sheetName)) + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets>" +
+                "</workbook>");
+        writeEntry("xl/_rels/workbook.xml.rels", WORKBOOK_RELS);
+
+        zip.putNextEntry("xl/worksheets/sheet1.xml");
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+                "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+    }
+
+    @Override
+    public void writeRow(Object... values) throws IOException {
+        writer.write("<row>");
+        for (Object value : values) {
+            if (value == null) {
+                writer.write("<c/>");
+            } else if (value instanceof Number) {
+                writer.write("<c><v>");
+                writer.write(value.toString());
+                writer.write("</v></c>");
+            } else if (value instanceof Boolean bool) {
+                writer.write("<c t=\"b\"><v>");
+                writer.write(bool ? "1" : "0");
+                writer.write("</v></c>");
+            } else {
+                writer.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+                writer.write(escape(value.toString()));
+                writer.write("</t></is></c>");
+            }
+        }
+        writer.write("</row>");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+        zip.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+        // Termina el ZIP sin cerrar la salida del cliente
+        zip.finish();
+    }
+
+    private void writeEntry(String name, String content) throws IOException {
+        zip.putNextEntry(name);
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private static String sheetName(String name) {
+        String clean = name == null || name.isBlank() ? "Datos" : name.replaceAll("[\\\\/?*\\[\\]:]", " ");
+        return clean.length() > MAX_SHEET_NAME ? clean.substring(0, MAX_SHEET_NAME) : clean;
+    }
+
+    /**
+     * Escapa caracteres especiales de XML y descarta los caracteres de control no permitidos
+     */
+    private static String escape(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '&' -> result.append("&amp;");
+                case '<' -> result.append("&lt;");
+                case '>' -> result.append("&gt;");
+                case '"' -> result.append("&quot;");
+                default -> {
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        result.append(c);
+                    }
+                }
+            }
+        }
+        return result.toString();
+    }
+}
@@ -49,6 +49,7 @@ public class Constants {
     public static final int DEFAULT_APPOINTMENT_DURATION = 30; // minutos
     public static final int MIN_APPOINTMENT_NOTICE_HOURS = 2;
     public static final int APPOINTMENT_REMINDER_HOURS = 24;
+    public static final String STREAM_FETCH_SIZE = "500"; // filas por viaje al recorrer consultas con Stream
     
     // Mensajes comunes
     public static final String MSG_RECORD_NOT_FOUND = "Registro no encontrado";
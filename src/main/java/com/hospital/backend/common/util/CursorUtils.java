@@ -0,0 +1,68 @@
+// Utilidades para codificar y decodificar cursores de paginación keyset
+package com.hospital.backend.common.util;
+
+import com.hospital.backend.common.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Los cursores son opacos para el cliente: Base64 URL-safe de "claveDeOrden|id".
+ */
+public class CursorUtils {
+
+    private static final char SEPARATOR = '|';
+
+    public static String encode(Object sortKey, Long id) {
+        String raw = String.valueOf(sortKey) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursor. Devuelve null si no se envió cursor (primera página).
+     */
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            if (separator <= 0) {
+                throw new ValidationException("cursor", token, "formato inválido");
+            }
+            return new Cursor(raw.substring(0, separator), Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("cursor", token, "formato inválido");
+        }
+    }
+
+    /**
+     * Normaliza el tamaño de página al rango permitido
+     */
+    public static int clampSize(int size) {
+        return Math.max(1, Math.min(size, Constants.MAX_PAGE_SIZE));
+    }
+
+    public record Cursor(String key, Long id) {
+
+        public LocalDate keyAsDate() {
+            try {
+                return LocalDate.parse(key);
+            } catch (DateTimeParseException e) {
+                throw new ValidationException("cursor", key, "fecha inválida");
+            }
+        }
+
+        public LocalDateTime keyAsDateTime() {
+            try {
+                return LocalDateTime.parse(key);
+            } catch (DateTimeParseException e) {
+                throw new ValidationException("cursor", key, "fecha y hora inválida");
+            }
+        }
+    }
+}
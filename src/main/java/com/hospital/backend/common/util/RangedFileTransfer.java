@@ -0,0 +1,132 @@
+// Descarga de archivos con soporte de rangos HTTP y envío directo desde disco
+package com.hospital.backend.common.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Envía un archivo de disco respetando un único rango {@code Range: bytes=...} (respuesta 206),
+ * para que las descargas grandes puedan reanudarse.
+ *
+ * Cuando el conector de Tomcat soporta sendfile, el envío se delega al contenedor y los bytes pasan
+ * del disco al socket sin atravesar la JVM; si no, se copia con {@link FileChannel#transferTo}.
+ */
+public final class RangedFileTransfer {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private RangedFileTransfer() {
+    }
+
+    /**
+     * Escribe el archivo (o el rango pedido) en la respuesta
+     */
+    public static void send(HttpServletRequest request, HttpServletResponse response,
+                            Path file, String fileName, String contentType) throws IOException {
+        long size = Files.size(file);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        long[] range = parseRange(request.getHeader(HttpHeaders.RANGE), size);
+        if (range == null) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        long start = range[0];
+        long end = range[1];
+        long length = end - start + 1;
+
+        if (length != size) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+        response.setContentType(contentType);
+        response.setContentLengthLong(length);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build().toString());
+
+        if (length == 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            // Tomcat toma el fin como exclusivo
+            request.setAttribute(SENDFILE_END, end + 1);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = length;
+            while (remaining > 0) {
+                long sent = channel.transferTo(position, remaining, out);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+                remaining -= sent;
+            }
+        }
+    }
+
+    /**
+     * Interpreta el encabezado Range.
+     * @return {inicio, fin} inclusivos; el archivo completo si no hay rango o pide varios
+     *         ({0, -1} para un archivo vacío, que se envía con 200 y sin cuerpo);
+     *         null si el rango no se puede satisfacer
+     */
+    static long[] parseRange(String header, long size) {
+        long[] full = {0, size - 1};
+        if (header == null || !header.startsWith("bytes=") || header.indexOf(',') >= 0) {
+            return full;
+        }
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return full;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // bytes=-N: los últimos N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0) {
+                    return null;
+                }
+                start = Math.max(0, size - suffix);
+                end = size - 1;
+            } else {
+                start = Long.parseLong(first);
+                end = last.isEmpty() ? size - 1 : Math.min(Long.parseLong(last), size - 1);
+            }
+            if (start < 0 || start >= size || end < start) {
+                return null;
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return full;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.hospital.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Propiedades de los logs de auditoría: escritura diferida, particionado y retención
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.audit")
+@Getter
+@Setter
+public class AuditProperties {
+
+    /**
+     * Si es false, cada log se inserta en el hilo que lo registra
+     */
+    private boolean writeBehind = true;
+
+    /**
+     * Logs que pueden esperar en memoria (se redondea a potencia de dos)
+     */
+    private int bufferCapacity = 8192;
+
+    /**
+     * Filas por inserción en lote; al alcanzarlas se escribe sin esperar el intervalo
+     */
+    private int batchSize = 200;
+
+    /**
+     * Tiempo máximo (ms) que un log espera en memoria antes de escribirse
+     */
+    private long flushIntervalMs = 1000;
+
+    /**
+     * Tiempo máximo (ms) que el llamador espera lugar en la cola llena antes de descartar el log
+     */
+    private long offerTimeoutMs = 50;
+
+    /**
+     * Tiempo máximo (ms) para escribir lo pendiente al detener la aplicación
+     */
+    private long shutdownTimeoutMs = 10000;
+
+    /**
+     * Particionar audit_logs por mes en PostgreSQL (convierte la tabla existente al iniciar)
+     */
+    private boolean partitioning = true;
+
+    /**
+     * Meses futuros con partición creada de antemano
+     */
+    private int partitionsAhead = 3;
+
+    /**
+     * Meses completos que se conservan; las particiones más antiguas se separan o se eliminan
+     */
+    private int retentionMonths = 24;
+
+    /**
+     * Qué hacer con las particiones vencidas
+     */
+    private RetentionMode retentionMode = RetentionMode.DETACH;
+
+    /**
+     * Días hacia atrás que se consultan cuando una búsqueda no indica fecha de inicio
+     */
+    private int defaultSearchDays = 30;
+
+    public enum RetentionMode {
+        // Separa la partición de audit_logs y la conserva como tabla independiente (para archivarla)
+        DETACH,
+        // Elimina la partición
+        DROP
+    }
+}
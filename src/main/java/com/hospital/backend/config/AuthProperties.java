@@ -0,0 +1,57 @@
+package com.hospital.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Propiedades del inicio de sesión: costo y ejecutor del hash de contraseñas, y límite de intentos fallidos
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.auth")
+@Getter
+@Setter
+public class AuthProperties {
+
+    /**
+     * Costo de BCrypt para los hashes nuevos. Al subirlo, los hashes anteriores se recalculan en el
+     * siguiente inicio de sesión exitoso de cada usuario.
+     */
+    private int bcryptStrength = 12;
+
+    /**
+     * Hilos dedicados a calcular hashes; 0 usa la mitad de los procesadores
+     */
+    private int hashWorkers = 0;
+
+    /**
+     * Hashes que pueden esperar un hilo libre; con la cola llena se responde 429
+     */
+    private int hashQueueCapacity = 64;
+
+    /**
+     * Tiempo máximo (ms) que un request espera su hash antes de responder 429
+     */
+    private long hashTimeoutMs = 5000;
+
+    /**
+     * Intentos fallidos permitidos por DNI dentro de la ventana
+     */
+    private int maxFailuresPerDni = 5;
+
+    /**
+     * Intentos fallidos permitidos por IP dentro de la ventana
+     */
+    private int maxFailuresPerIp = 50;
+
+    /**
+     * Duración (ms) de la ventana de intentos fallidos; al superarse el límite se bloquea hasta que termine
+     */
+    private long failureWindowMs = 900000;
+
+    /**
+     * DNIs e IPs con intentos fallidos que se recuerdan como máximo
+     */
+    private int maxTrackedKeys = 100000;
+}
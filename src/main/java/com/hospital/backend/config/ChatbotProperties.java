@@ -0,0 +1,62 @@
+package com.hospital.backend.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Propiedades del chatbot: índice y caché de respuestas de la base de conocimientos, y escritura diferida
+ * de conversaciones y contadores de uso
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.chatbot")
+@Getter
+@Setter
+public class ChatbotProperties {
+
+    /**
+     * Intervalo (ms) de recarga completa del índice desde la base de datos
+     */
+    private long indexRefreshIntervalMs = 600000;
+
+    /**
+     * Consultas distintas (por conjunto de términos) con respuesta en caché; 0 la desactiva
+     */
+    private int answerCacheSize = 1000;
+
+    /**
+     * Si es false, cada conversación se inserta antes de responder
+     */
+    private boolean writeBehind = true;
+
+    /**
+     * Conversaciones que pueden esperar en memoria (se redondea a potencia de dos)
+     */
+    private int bufferCapacity = 4096;
+
+    /**
+     * Filas por inserción en lote; al alcanzarlas se escribe sin esperar el intervalo
+     */
+    private int batchSize = 100;
+
+    /**
+     * Tiempo máximo (ms) que una conversación espera en memoria antes de escribirse
+     */
+    private long flushIntervalMs = 1000;
+
+    /**
+     * Intervalo (ms) con que se suman a la base los contadores de uso acumulados en memoria
+     */
+    private long usageFlushIntervalMs = 10000;
+
+    /**
+     * Ids de conversación que se reservan de la secuencia en cada consulta
+     */
+    private int idBlockSize = 100;
+
+    /**
+     * Tiempo máximo (ms) para escribir lo pendiente al detener la aplicación
+     */
+    private long shutdownTimeoutMs = 10000;
+}
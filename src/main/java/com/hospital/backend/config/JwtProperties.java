@@ -9,7 +9,12 @@ import lombok.Data;
 public class JwtProperties {
     private String secret;
     private long expirationTime; // en milisegundos (se mapea desde expiration-time)
+    private long refreshExpirationTime = 604800000; // vigencia de los refresh tokens en milisegundos
+    private int revocationFilterSize = 10000; // sesiones revocadas esperadas por vigencia de access token
     private String issuer;
     private String tokenPrefix = "Bearer "; // se mapea desde token-prefix
     private String headerName = "Authorization"; // se mapea desde header-name
+    private int verifiedTokenCacheSize = 10000; // tokens ya verificados en caché hasta su expiración (0 la desactiva)
+    private int principalCacheSize = 10000; // usuarios autenticados en caché (0 la desactiva)
+    private long principalCacheTtlMs = 300000; // vigencia de cada usuario en caché
 }
\ No newline at end of file
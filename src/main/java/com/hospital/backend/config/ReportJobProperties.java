@@ -0,0 +1,51 @@
+package com.hospital.backend.config;
+
+import com.hospital.backend.enums.ReportJobType;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Propiedades de la cola de trabajos de reporte asíncronos
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.reports")
+@Getter
+@Setter
+public class ReportJobProperties {
+
+    /**
+     * Directorio donde se guardan los archivos generados (fuera del directorio público de subidas)
+     */
+    private String directory = "reports";
+
+    /**
+     * Hilos que ejecutan trabajos
+     */
+    private int workerThreads = 2;
+
+    /**
+     * Máximo de trabajos esperando en cola
+     */
+    private int queueCapacity = 50;
+
+    /**
+     * Ejecuciones simultáneas permitidas por tipo de trabajo
+     */
+    private Map<ReportJobType, Integer> maxConcurrent = new EnumMap<>(Map.of(
+            ReportJobType.ANALYTICS, 2,
+            ReportJobType.DATASET_EXPORT, 1));
+
+    /**
+     * Horas que se conserva un archivo generado
+     */
+    private int resultTtlHours = 24;
+
+    public int maxConcurrentFor(ReportJobType type) {
+        return Math.max(1, maxConcurrent.getOrDefault(type, 1));
+    }
+}
@@ -0,0 +1,21 @@
+// Enumeración de conjuntos de datos exportables
+package com.hospital.backend.enums;
+
+/**
+ * Conjuntos de datos que se pueden exportar fila por fila
+ */
+public enum ExportDataset {
+    APPOINTMENTS("Citas"),
+    PAYMENTS("Pagos"),
+    AUDIT_LOGS("Auditoría");
+
+    private final String displayName;
+
+    ExportDataset(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
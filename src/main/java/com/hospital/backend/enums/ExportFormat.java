@@ -0,0 +1,27 @@
+// Enumeración de formatos de exportación
+package com.hospital.backend.enums;
+
+/**
+ * Formatos de archivo para reportes y exportaciones
+ */
+public enum ExportFormat {
+    CSV("csv", "text/csv"),
+    XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"),
+    PDF("pdf", "application/pdf"); // Sólo para reportes analíticos
+
+    private final String extension;
+    private final String contentType;
+
+    ExportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+}
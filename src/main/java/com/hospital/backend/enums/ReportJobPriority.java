@@ -0,0 +1,11 @@
+// Enumeración de prioridades de trabajos de reporte
+package com.hospital.backend.enums;
+
+/**
+ * Prioridad de un trabajo de reporte: entre trabajos en cola se atiende primero el de mayor prioridad
+ */
+public enum ReportJobPriority {
+    LOW,
+    NORMAL,
+    HIGH
+}
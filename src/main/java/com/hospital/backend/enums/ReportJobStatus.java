@@ -0,0 +1,24 @@
+// Enumeración de estados de trabajos de reporte
+package com.hospital.backend.enums;
+
+/**
+ * Estados de un trabajo de reporte asíncrono
+ */
+public enum ReportJobStatus {
+    QUEUED("En cola"),
+    RUNNING("En ejecución"),
+    COMPLETED("Completado"),
+    FAILED("Fallido"),
+    CANCELLED("Cancelado"),
+    EXPIRED("Expirado"); // El archivo generado ya fue eliminado
+
+    private final String displayName;
+
+    ReportJobStatus(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
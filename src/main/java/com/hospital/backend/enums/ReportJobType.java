@@ -0,0 +1,20 @@
+// Enumeración de tipos de trabajos de reporte
+package com.hospital.backend.enums;
+
+/**
+ * Tipos de trabajos de reporte asíncronos; cada tipo tiene su propio límite de ejecuciones simultáneas
+ */
+public enum ReportJobType {
+    ANALYTICS("Reporte analítico"),
+    DATASET_EXPORT("Exportación de datos");
+
+    private final String displayName;
+
+    ReportJobType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
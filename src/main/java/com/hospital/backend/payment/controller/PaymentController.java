@@ -1,6 +1,7 @@
 package com.hospital.backend.payment.controller;
 
 import com.hospital.backend.common.dto.ApiResponse;
+import com.hospital.backend.common.dto.CursorPageResponse;
 import com.hospital.backend.common.dto.PageResponse;
 import com.hospital.backend.common.exception.ResourceNotFoundException;
 import com.hospital.backend.enums.PaymentStatus;
@@ -104,6 +105,21 @@ public class PaymentController {
         return ResponseEntity.ok(ApiResponse.success("Lista de pagos obtenida", response));
     }
     
+    @Operation(summary = "Listar pagos con paginación por cursor",
+               description = "Más recientes primero y sin conteo total; enviar nextCursor para obtener la siguiente página")
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPageResponse<PaymentResponse>>> getPaymentsPage(
+            @Parameter(description = "Cursor de continuación") @RequestParam(required = false) String cursor,
+            @Parameter(description = "Tamaño de página") @RequestParam(defaultValue = "20") int size,
+            @Parameter(description = "Estado del pago") @RequestParam(required = false) PaymentStatus status) {
+        
+        log.debug("GET /api/payments/cursor - Listando pagos por cursor (tamaño: {})", size);
+        CursorPageResponse<PaymentResponse> response = paymentService.getPaymentsPage(status, cursor, size);
+        
+        return ResponseEntity.ok(ApiResponse.success("Lista de pagos obtenida", response));
+    }
+    
     // =========================
     // Cambios de estado
     // =========================
@@ -4,6 +4,7 @@ import com.hospital.backend.appointment.entity.Appointment;
 import com.hospital.backend.auth.entity.User;
 import com.hospital.backend.catalog.entity.PaymentMethod;
 import com.hospital.backend.common.entity.BaseEntity;
+import com.hospital.backend.common.event.EntityChangeListener;
 import com.hospital.backend.enums.PaymentStatus;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
@@ -20,6 +21,7 @@ import java.time.LocalDateTime;
  * La recepcionista valida el comprobante de pago y cambia el estado a COMPLETED
  */
 @Entity
+@EntityListeners(EntityChangeListener.class)
 @Table(name = "payments")
 @Getter
 @Setter
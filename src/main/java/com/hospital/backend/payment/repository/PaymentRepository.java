@@ -1,12 +1,17 @@
 package com.hospital.backend.payment.repository;
 
+import com.hospital.backend.common.util.Constants;
 import com.hospital.backend.enums.PaymentMethodType;
 import com.hospital.backend.enums.PaymentStatus;
 import com.hospital.backend.payment.entity.Payment;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
@@ -14,6 +19,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositorio para operaciones con pagos
@@ -231,4 +237,75 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
            "GROUP BY DATE(p.paymentDate) " +
            "ORDER BY DATE(p.paymentDate)")
     List<Object[]> calculateRevenuePerDayForLastWeek(@Param("startDate") LocalDateTime startDate);
+    
+    /**
+     * Paginación keyset de pagos ordenados por (createdAt DESC, id DESC), sin consulta de conteo.
+     * afterCreatedAt/afterId nulos indican la primera página.
+     */
+    @EntityGraph(attributePaths = {"appointment", "appointment.patient", "appointment.doctor",
+                                   "appointment.specialty", "paymentMethod"})
+    @Query("SELECT p FROM Payment p WHERE " +
+           "(:status IS NULL OR p.status = :status) AND " +
+           "(:afterCreatedAt IS NULL OR p.createdAt < :afterCreatedAt OR " +
+           "(p.createdAt = :afterCreatedAt AND p.id < :afterId)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC " +
+           "LIMIT :limit")
+    List<Payment> findPageAfter(@Param("status") PaymentStatus status,
+                                @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                @Param("afterId") Long afterId,
+                                @Param("limit") int limit);
+    
+    /**
+     * Rango de fechas de pago (o de registro si no se pagó): [mínima, máxima]
+     */
+    @Query("SELECT MIN(COALESCE(p.paymentDate, p.createdAt)), MAX(COALESCE(p.paymentDate, p.createdAt)) FROM Payment p")
+    List<Object[]> findPaymentDateRange();
+    
+    /**
+     * Recorre los pagos de un estado en un rango [startDate, endDate) como proyección de solo lectura:
+     * filas [fecha de pago (o de registro), monto]. Los filtros se aplican sobre la cita del pago
+     * y cada uno se ignora si su bandera all* es true.
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAM_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT COALESCE(p.paymentDate, p.createdAt), p.amount FROM Payment p JOIN p.appointment a WHERE " +
+           "p.status = :status AND " +
+           "((p.paymentDate >= :startDate AND p.paymentDate < :endDate) OR " +
+           "(p.paymentDate IS NULL AND p.createdAt >= :startDate AND p.createdAt < :endDate)) AND " +
+           "(:allDoctors = true OR a.doctor.id IN :doctorIds) AND " +
+           "(:allSpecialties = true OR a.specialty.id IN :specialtyIds) AND " +
+           "(:allPatients = true OR a.patient.id IN :patientIds)")
+    Stream<Object[]> streamRevenueRows(@Param("status") PaymentStatus status,
+                                       @Param("startDate") LocalDateTime startDate,
+                                       @Param("endDate") LocalDateTime endDate,
+                                       @Param("allDoctors") boolean allDoctors,
+                                       @Param("doctorIds") List<Long> doctorIds,
+                                       @Param("allSpecialties") boolean allSpecialties,
+                                       @Param("specialtyIds") List<Long> specialtyIds,
+                                       @Param("allPatients") boolean allPatients,
+                                       @Param("patientIds") List<Long> patientIds);
+    
+    /**
+     * Recorre los pagos de un rango [startDate, endDate) para exportación, por lotes y ordenados por id:
+     * [id, fecha de pago (o de registro), recibo, estado, tipo de método, monto, comisión, monto total, cita]
+     */
+    @QueryHints({@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = Constants.STREAM_FETCH_SIZE),
+                 @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT p.id, COALESCE(p.paymentDate, p.createdAt), p.receiptNumber, p.status, pm.type, " +
+           "p.amount, p.processingFee, p.totalAmount, p.appointment.id " +
+           "FROM Payment p JOIN p.paymentMethod pm WHERE " +
+           "(p.paymentDate >= :startDate AND p.paymentDate < :endDate) OR " +
+           "(p.paymentDate IS NULL AND p.createdAt >= :startDate AND p.createdAt < :endDate) " +
+           "ORDER BY p.id")
+    Stream<Object[]> streamForExport(@Param("startDate") LocalDateTime startDate,
+                                     @Param("endDate") LocalDateTime endDate);
+    
+    /**
+     * Contar los pagos de un rango [startDate, endDate) con el mismo criterio de fecha que streamForExport
+     */
+    @Query("SELECT COUNT(p) FROM Payment p WHERE " +
+           "(p.paymentDate >= :startDate AND p.paymentDate < :endDate) OR " +
+           "(p.paymentDate IS NULL AND p.createdAt >= :startDate AND p.createdAt < :endDate)")
+    long countForExport(@Param("startDate") LocalDateTime startDate,
+                        @Param("endDate") LocalDateTime endDate);
 }
@@ -1,12 +1,15 @@
 package com.hospital.backend.payment.service;
 
+import com.hospital.backend.analytics.repository.PaymentDailyRollupRepository;
 import com.hospital.backend.appointment.entity.Appointment;
 import com.hospital.backend.appointment.repository.AppointmentRepository;
 import com.hospital.backend.catalog.entity.PaymentMethod;
 import com.hospital.backend.catalog.repository.PaymentMethodRepository;
+import com.hospital.backend.common.dto.CursorPageResponse;
 import com.hospital.backend.common.dto.PageResponse;
 import com.hospital.backend.common.exception.BusinessException;
 import com.hospital.backend.common.exception.ResourceNotFoundException;
+import com.hospital.backend.common.util.CursorUtils;
 import com.hospital.backend.enums.AppointmentStatus;
 import com.hospital.backend.enums.PaymentMethodType;
 import com.hospital.backend.enums.PaymentStatus;
@@ -42,6 +45,7 @@ public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final AppointmentRepository appointmentRepository;
     private final PaymentMethodRepository paymentMethodRepository;
+    private final PaymentDailyRollupRepository paymentRollupRepository;
     
     private static final DateTimeFormatter RECEIPT_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
     
@@ -279,6 +283,23 @@ public class PaymentService {
         return new PageResponse<>(mappedPage);
     }
     
+    /**
+     * Lista pagos con paginación por cursor (más recientes primero, sin conteo total)
+     */
+    @Transactional(readOnly = true)
+    public CursorPageResponse<PaymentResponse> getPaymentsPage(PaymentStatus status, String cursor, int size) {
+        CursorUtils.Cursor after = CursorUtils.decode(cursor);
+        int pageSize = CursorUtils.clampSize(size);
+        
+        List<Payment> rows = paymentRepository.findPageAfter(
+                status,
+                after != null ? after.keyAsDateTime() : null,
+                after != null ? after.id() : null,
+                pageSize + 1);
+        
+        return CursorPageResponse.of(rows, pageSize, Payment::getCreatedAt, Payment::getId, this::mapToPaymentResponse);
+    }
+    
     /**
      * Lista pagos por estado
      */
@@ -303,17 +324,16 @@ public class PaymentService {
     }
     
     /**
-     * Genera reportes de pagos por período
+     * Genera reportes de pagos por período.
+     * Se calcula desde el resumen diario de pagos: una fila por día, tipo de método y estado.
+     * El período se evalúa sobre la fecha de pago (o la de registro si el pago no tiene fecha).
      */
     @Transactional(readOnly = true)
     public PaymentSummaryResponse generatePaymentSummary(LocalDate startDate, LocalDate endDate) {
         log.info("Generando resumen de pagos desde {} hasta {}", startDate, endDate);
         
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.atTime(LocalTime.MAX);
-        
-        // Obtener todos los pagos en el rango de fechas
-        List<Payment> payments = paymentRepository.findByCreatedAtBetween(startDateTime, endDateTime);
+        // [tipo, estado, cantidad, monto, monto total, comisiones]
+        List<Object[]> rows = paymentRollupRepository.summarizeRange(startDate, endDate);
         
         // Inicializar contadores y totales
         BigDecimal totalRevenue = BigDecimal.ZERO;
@@ -323,25 +343,27 @@ public class PaymentService {
         BigDecimal cardPayments = BigDecimal.ZERO;
         BigDecimal digitalPayments = BigDecimal.ZERO;
         
+        long totalTransactions = 0;
         long completedCount = 0;
         long processingCount = 0;
         long refundedCount = 0;
         long failedCount = 0;
         
-        for (Payment payment : payments) {
-            PaymentStatus status = payment.getStatus();
+        for (Object[] row : rows) {
+            PaymentMethodType type = (PaymentMethodType) row[0];
+            PaymentStatus status = (PaymentStatus) row[1];
+            long count = ((Number) row[2]).longValue();
+            totalTransactions += count;
             
             // Contar por estado
             switch (status) {
                 case COMPLETED:
-                    completedCount++;
-                    totalRevenue = totalRevenue.add(payment.getAmount());
-                    totalFees = totalFees.add(payment.getProcessingFee() != null ? payment.getProcessingFee() : BigDecimal.ZERO);
+                    completedCount += count;
+                    totalRevenue = totalRevenue.add((BigDecimal) row[3]);
+                    totalFees = totalFees.add((BigDecimal) row[5]);
                     
                     // Clasificar por tipo de pago
-                    BigDecimal amount = payment.getTotalAmount();
-                    PaymentMethodType type = payment.getPaymentMethod().getType();
-                    
+                    BigDecimal amount = (BigDecimal) row[4];
                     switch (type) {
                         case CASH:
                             cashPayments = cashPayments.add(amount);
@@ -355,13 +377,13 @@ public class PaymentService {
                     }
                     break;
                 case PROCESSING:
-                    processingCount++;
+                    processingCount += count;
                     break;
                 case REFUNDED:
-                    refundedCount++;
+                    refundedCount += count;
                     break;
                 case FAILED:
-                    failedCount++;
+                    failedCount += count;
                     break;
             }
         }
@@ -379,7 +401,7 @@ public class PaymentService {
                 .totalRevenue(totalRevenue)
                 .totalFees(totalFees)
                 .netRevenue(netRevenue)
-                .totalTransactions((long) payments.size())
+                .totalTransactions(totalTransactions)
                 .averageTransactionAmount(averageAmount)
                 .cashPayments(cashPayments)
                 .cardPayments(cardPayments)
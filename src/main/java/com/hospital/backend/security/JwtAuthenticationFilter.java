@@ -1,8 +1,6 @@
 // Filtro de autenticación JWT para validar tokens en cada request
 package com.hospital.backend.security;
 
-import com.hospital.backend.auth.entity.User;
-import com.hospital.backend.auth.repository.UserRepository;
 import com.hospital.backend.common.exception.UnauthorizedException;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
@@ -10,7 +8,8 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -22,17 +21,24 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtTokenProvider tokenProvider;
-    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final RevokedSessionRegistry revokedSessionRegistry;
+    
+    // Tiempo de autenticación de las rutas protegidas, por resultado
+    private final Timer authenticatedTimer;
+    private final Timer anonymousTimer;
+    private final Timer rejectedTimer;
+    private final Timer errorTimer;
 
     // Lista de rutas a excluir del filtro JWT
-    private static final List<String> EXCLUDED_PATHS = List.of(
+    static final List<String> EXCLUDED_PATHS = List.of(
         "/auth/",
         "/api/auth/",
         "/api/v1/external/",
@@ -59,6 +65,19 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         "/api/payment-methods/",
         "/payment-methods/"
     );
+    
+    private static final PathPrefixMatcher EXCLUDED_PATH_MATCHER = new PathPrefixMatcher(EXCLUDED_PATHS);
+    
+    public JwtAuthenticationFilter(JwtTokenProvider tokenProvider, PrincipalCache principalCache,
+                                   RevokedSessionRegistry revokedSessionRegistry, MeterRegistry meterRegistry) {
+        this.tokenProvider = tokenProvider;
+        this.principalCache = principalCache;
+        this.revokedSessionRegistry = revokedSessionRegistry;
+        this.authenticatedTimer = authenticationTimer(meterRegistry, "authenticated");
+        this.anonymousTimer = authenticationTimer(meterRegistry, "anonymous");
+        this.rejectedTimer = authenticationTimer(meterRegistry, "rejected");
+        this.errorTimer = authenticationTimer(meterRegistry, "error");
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
@@ -68,19 +87,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         final String requestURI = request.getRequestURI();
         boolean isExcluded = isExcluded(requestURI);
 
-        log.info("--- JWT Filter ---");
-        log.info("Request URI: {}", requestURI);
-        log.info("Is path excluded? {}", isExcluded);
+        if (log.isDebugEnabled()) {
+            log.debug("JWT filter: {} {}", requestURI, isExcluded ? "pública, sin validación" : "requiere autenticación");
+        }
 
         // Si la ruta está en la lista de exclusión, saltar el filtro
         if (isExcluded) {
-            log.info("Result: Path is public. Skipping JWT validation.");
             filterChain.doFilter(request, response);
             return;
         }
 
-        log.info("Result: Path requires authentication. Proceeding with JWT validation.");
-
+        long start = System.nanoTime();
+        Timer outcome = anonymousTimer;
         try {
             String jwt = getJwtFromRequest(request);
             
@@ -89,50 +107,72 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 Claims claims = tokenProvider.validateToken(jwt);
                 Long userId = Long.parseLong(claims.getSubject());
                 
-                User user = userRepository.findById(userId)
-                        .orElseThrow(() -> new UnauthorizedException("Usuario no encontrado"));
+                // Usuario desde la caché de principales; sólo se consulta la base de datos al vencer la entrada
+                PrincipalCache.CachedPrincipal user = principalCache.get(userId);
+                if (user == null) {
+                    throw new UnauthorizedException("Usuario no encontrado");
+                }
                 
-                if (!user.getIsActive()) {
+                if (!user.active()) {
                     throw new UnauthorizedException("Usuario inactivo");
                 }
+                
+                // Tokens emitidos antes de una desactivación (u otra revocación) quedan invalidados
+                if (tokenProvider.getTokenVersion(claims) != user.tokenVersion()) {
+                    throw new UnauthorizedException("Token revocado");
+                }
+                
+                // Sesión cerrada o revocada: se resuelve en memoria salvo los positivos del filtro de Bloom
+                String sessionId = tokenProvider.getSessionId(claims);
+                if (sessionId != null && revokedSessionRegistry.isRevoked(sessionId)) {
+                    throw new UnauthorizedException("Sesión cerrada");
+                }
 
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                        user,
+                        user.toUser(),
                         null,
-                        Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole().name()))
+                        Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.role().name()))
                 );
                 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-                log.debug("Usuario autenticado: {} con rol: {}", user.getEmail(), user.getRole());
+                outcome = authenticatedTimer;
+                if (log.isDebugEnabled()) {
+                    log.debug("Usuario autenticado: {} con rol: {}", user.email(), user.role());
+                }
             }
             
-            // Continuar con el filtro solo si no hay excepciones
-            filterChain.doFilter(request, response);
-            
         } catch (UnauthorizedException ex) {
             // Manejar tokens inválidos o usuarios no autorizados
             log.warn("Token JWT inválido o usuario no autorizado: {}", ex.getMessage());
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             handleUnauthorized(response, ex.getMessage());
             return; // NO continuar con el filtro
             
         } catch (JwtException ex) {
             // Manejar errores específicos de JWT (malformado, expirado, etc.)
             log.warn("Error en token JWT: {}", ex.getMessage());
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             handleUnauthorized(response, "Token JWT inválido");
             return; // NO continuar con el filtro
             
         } catch (NumberFormatException ex) {
             // Manejar error al parsear userId del token
             log.warn("Token JWT contiene userId inválido: {}", ex.getMessage());
+            rejectedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             handleUnauthorized(response, "Token JWT malformado");
             return; // NO continuar con el filtro
             
         } catch (Exception ex) {
             // Manejar cualquier otro error inesperado
             log.error("Error inesperado en autenticación JWT: ", ex);
+            errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             handleInternalError(response);
             return; // NO continuar con el filtro
         }
+        outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        
+        // Continuar con el filtro solo si no hay excepciones
+        filterChain.doFilter(request, response);
     }
     
     private String getJwtFromRequest(HttpServletRequest request) {
@@ -146,7 +186,14 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
     
     private boolean isExcluded(String requestURI) {
-        return EXCLUDED_PATHS.stream().anyMatch(requestURI::startsWith);
+        return EXCLUDED_PATH_MATCHER.matches(requestURI);
+    }
+    
+    private static Timer authenticationTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("security.authentication")
+                .description("Tiempo de validación del token y carga del usuario en el filtro JWT")
+                .tag("result", result)
+                .register(meterRegistry);
     }
     
     /**
@@ -6,57 +6,126 @@ import com.hospital.backend.common.exception.UnauthorizedException;
 import com.hospital.backend.config.JwtProperties;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Emite y valida los JWT de la API.
+ *
+ * La clave y el parser se construyen una sola vez (el parser de jjwt es inmutable y seguro entre hilos).
+ * Los tokens ya verificados se guardan en una caché acotada, por digest SHA-256 del token y hasta su
+ * expiración, para no repetir la verificación HMAC y la lectura de claims en cada request del mismo token.
+ */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class JwtTokenProvider {
     
+    // Claim con la versión de tokens del usuario al emitirse (ver User.tokenVersion)
+    static final String TOKEN_VERSION_CLAIM = "ver";
+    // Claim con la sesión (familia de refresh tokens) a la que pertenece el token
+    static final String SESSION_ID_CLAIM = "sid";
+    
+    static final String CACHE_NAME = "security.tokens";
+    // Con la caché llena se descarta esta fracción de la capacidad
+    private static final int EVICTION_DIVISOR = 10;
+    
     private final JwtProperties jwtProperties;
-    private SecretKey key;
+    private final SecretKey key;
+    private final JwtParser parser;
     
-    private SecretKey getKey() {
-        if (key == null) {
-            key = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8));
-        }
-        return key;
+    private final int maxCachedTokens;
+    private final Map<String, VerifiedToken> verifiedTokens = new ConcurrentHashMap<>();
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    
+    public JwtTokenProvider(JwtProperties jwtProperties, MeterRegistry meterRegistry) {
+        this.jwtProperties = jwtProperties;
+        this.key = Keys.hmacShaKeyFor(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.maxCachedTokens = jwtProperties.getVerifiedTokenCacheSize();
+        this.cacheHits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+                .register(meterRegistry);
+        this.cacheMisses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("cache.size", verifiedTokens, Map::size).tag("cache", CACHE_NAME).register(meterRegistry);
     }
     
     public String generateToken(User user) {
+        return generateToken(user, null);
+    }
+    
+    /**
+     * Access token del usuario para la sesión indicada (sin sesión si es null)
+     */
+    public String generateToken(User user, String sessionId) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtProperties.getExpirationTime());
         
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .subject(String.valueOf(user.getId()))
                 .claim("email", user.getEmail())
                 .claim("role", user.getRole().name())
+                .claim(TOKEN_VERSION_CLAIM, user.getTokenVersion() != null ? user.getTokenVersion() : 0);
+        if (sessionId != null) {
+            builder.claim(SESSION_ID_CLAIM, sessionId);
+        }
+        return builder
                 .issuedAt(now)
                 .expiration(expiryDate)
                 .issuer(jwtProperties.getIssuer())
-                .signWith(getKey())
+                .signWith(key)
                 .compact();
     }
     
     public Claims validateToken(String token) {
-        try {
-            // Validar que el token no esté vacío o sea null
-            if (token == null || token.trim().isEmpty()) {
-                throw new UnauthorizedException("Token vacío o nulo");
+        // Validar que el token no esté vacío o sea null
+        if (token == null || token.trim().isEmpty()) {
+            throw new UnauthorizedException("Token vacío o nulo");
+        }
+        
+        if (maxCachedTokens <= 0) {
+            return parseAndValidate(token);
+        }
+        
+        // Token ya verificado y todavía vigente: no se vuelve a verificar la firma
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        VerifiedToken cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (now < cached.expiresAt()) {
+                cacheHits.increment();
+                return cached.claims();
             }
-            
+            verifiedTokens.remove(digest, cached);
+        }
+        cacheMisses.increment();
+        
+        Claims claims = parseAndValidate(token);
+        if (verifiedTokens.size() >= maxCachedTokens) {
+            makeRoom(now);
+        }
+        verifiedTokens.put(digest, new VerifiedToken(claims, claims.getExpiration().getTime()));
+        return claims;
+    }
+    
+    private Claims parseAndValidate(String token) {
+        try {
             // Parsear y validar el token
-            Claims claims = Jwts.parser()
-                    .verifyWith(getKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
             
             // Validaciones adicionales
             validateTokenClaims(claims);
@@ -118,6 +187,67 @@ public class JwtTokenProvider {
         if (role == null || role.trim().isEmpty()) {
             throw new UnauthorizedException("Token sin rol de usuario");
         }
+        
+        // Validar que tenga expiración (la caché de tokens verificados depende de ella)
+        if (claims.getExpiration() == null) {
+            throw new UnauthorizedException("Token sin expiración");
+        }
+    }
+    
+    /**
+     * Descarta los tokens vencidos y, si no alcanza, los que vencen antes (un décimo de la capacidad),
+     * así el recorrido completo se paga una vez cada varias inserciones y la caché nunca queda vacía
+     */
+    private synchronized void makeRoom(long now) {
+        // Otro hilo pudo hacer lugar mientras este esperaba
+        if (verifiedTokens.size() < maxCachedTokens) {
+            return;
+        }
+        verifiedTokens.values().removeIf(cached -> now >= cached.expiresAt());
+        if (verifiedTokens.size() < maxCachedTokens) {
+            return;
+        }
+        int toEvict = Math.max(1, maxCachedTokens / EVICTION_DIVISOR);
+        // Montículo con los que vencen antes: el primero es el más tardío de los elegidos
+        PriorityQueue<Map.Entry<String, VerifiedToken>> soonest = new PriorityQueue<>(toEvict + 1,
+                Comparator.comparingLong((Map.Entry<String, VerifiedToken> entry) -> entry.getValue().expiresAt())
+                        .reversed());
+        for (Map.Entry<String, VerifiedToken> entry : verifiedTokens.entrySet()) {
+            soonest.add(Map.entry(entry.getKey(), entry.getValue()));
+            if (soonest.size() > toEvict) {
+                soonest.poll();
+            }
+        }
+        for (Map.Entry<String, VerifiedToken> entry : soonest) {
+            verifiedTokens.remove(entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * SHA-256 del token: la caché no guarda los tokens en claro
+     */
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+    
+    /**
+     * Versión de tokens con que se emitió el token (0 para los emitidos antes de existir el claim)
+     */
+    public int getTokenVersion(Claims claims) {
+        Integer version = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+        return version != null ? version : 0;
+    }
+    
+    /**
+     * Sesión a la que pertenece el token (null en tokens emitidos sin refresh token)
+     */
+    public String getSessionId(Claims claims) {
+        return claims.get(SESSION_ID_CLAIM, String.class);
     }
     
     public long getExpirationTime() {
@@ -129,11 +259,7 @@ public class JwtTokenProvider {
      */
     public boolean isTokenExpired(String token) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
             return claims.getExpiration().before(new Date());
         } catch (Exception e) {
             return true; // Si hay cualquier error, consideramos el token como expirado
@@ -145,14 +271,13 @@ public class JwtTokenProvider {
      */
     public String getEmailFromToken(String token) {
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
+            Claims claims = parser.parseSignedClaims(token).getPayload();
             return claims.get("email", String.class);
         } catch (Exception e) {
             return null;
         }
     }
+    
+    private record VerifiedToken(Claims claims, long expiresAt) {
+    }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package com.hospital.backend.security;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Trie de prefijos de rutas, construido una vez y de sólo lectura.
+ *
+ * {@link #matches(String)} recorre la ruta carácter por carácter sin crear objetos y se detiene en el primer
+ * prefijo completo, así que el costo depende del largo del prefijo y no de la cantidad de prefijos.
+ */
+final class PathPrefixMatcher {
+
+    private final Node root = new Node();
+
+    PathPrefixMatcher(Collection<String> prefixes) {
+        for (String prefix : prefixes) {
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.childOrCreate(prefix.charAt(i));
+            }
+            node.terminal = true;
+        }
+    }
+
+    /**
+     * true si la ruta empieza con alguno de los prefijos
+     */
+    boolean matches(String path) {
+        if (path == null) {
+            return false;
+        }
+        Node node = root;
+        for (int i = 0; i < path.length(); i++) {
+            if (node.terminal) {
+                return true;
+            }
+            node = node.child(path.charAt(i));
+            if (node == null) {
+                return false;
+            }
+        }
+        return node.terminal;
+    }
+
+    private static final class Node {
+
+        // Pocos hijos por nodo: búsqueda lineal sobre arreglos paralelos
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private boolean terminal;
+
+        Node child(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node childOrCreate(char key) {
+            Node existing = child(key);
+            if (existing != null) {
+                return existing;
+            }
+            Node created = new Node();
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = key;
+            children[children.length - 1] = created;
+            return created;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.hospital.backend.security;
+
+import com.hospital.backend.auth.entity.User;
+import com.hospital.backend.auth.repository.UserRepository;
+import com.hospital.backend.config.JwtProperties;
+import com.hospital.backend.enums.UserRole;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de los usuarios autenticados por el filtro JWT, por id y con vigencia corta.
+ *
+ * Evita leer el usuario de la base de datos en cada request. Los cambios de estado, rol o email se reflejan
+ * al vencer la entrada o, en esta instancia, en cuanto se confirma la transacción que llama a
+ * {@link #evictAfterCommit(Long)}. La desactivación además incrementa la versión de tokens del usuario,
+ * de modo que sus tokens anteriores se rechazan aunque lleguen con la firma y la vigencia correctas.
+ *
+ * Las métricas siguen la convención de cachés de Micrometer ({@code cache.gets} con result=hit|miss,
+ * {@code cache.evictions} y {@code cache.size}, con cache=security.principals).
+ */
+@Component
+public class PrincipalCache {
+
+    static final String CACHE_NAME = "security.principals";
+
+    private final UserRepository userRepository;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<Long, CachedPrincipal> entries = new ConcurrentHashMap<>();
+    // Aumenta con cada invalidación: una carga que empezó antes no se guarda
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public PrincipalCache(UserRepository userRepository, JwtProperties jwtProperties, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.maxSize = jwtProperties.getPrincipalCacheSize();
+        this.ttlNanos = jwtProperties.getPrincipalCacheTtlMs() * 1_000_000L;
+        this.hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME).register(meterRegistry);
+        Gauge.builder("cache.size", entries, Map::size).tag("cache", CACHE_NAME).register(meterRegistry);
+    }
+
+    /**
+     * Usuario con el id indicado, desde la caché si sigue vigente o desde la base de datos
+     * @return null si el usuario no existe
+     */
+    public CachedPrincipal get(Long userId) {
+        long now = System.nanoTime();
+        CachedPrincipal cached = entries.get(userId);
+        if (cached != null && now - cached.loadedAt() < ttlNanos) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        long invalidationsBefore = invalidations.get();
+        CachedPrincipal loaded = userRepository.findById(userId)
+                .map(user -> CachedPrincipal.of(user, now))
+                .orElse(null);
+        if (loaded == null || maxSize <= 0) {
+            return loaded;
+        }
+        if (entries.size() >= maxSize && !entries.containsKey(userId)) {
+            makeRoom(now);
+        }
+        entries.put(userId, loaded);
+        if (invalidations.get() != invalidationsBefore) {
+            // Pudo leerse el estado anterior a un cambio confirmado mientras se cargaba
+            entries.remove(userId, loaded);
+        }
+        return loaded;
+    }
+
+    /**
+     * Quita al usuario de la caché
+     */
+    public void evict(Long userId) {
+        invalidations.incrementAndGet();
+        if (entries.remove(userId) != null) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Quita al usuario de la caché al confirmarse la transacción actual (o enseguida si no hay ninguna)
+     */
+    public void evictAfterCommit(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userId);
+            }
+        });
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Descarta las entradas vencidas y, si no alcanza, vacía la caché
+     */
+    private void makeRoom(long now) {
+        int before = entries.size();
+        entries.values().removeIf(cached -> now - cached.loadedAt() >= ttlNanos);
+        if (entries.size() >= maxSize) {
+            entries.clear();
+        }
+        evictions.increment(Math.max(0, before - entries.size()));
+    }
+
+    /**
+     * Datos del usuario necesarios para autenticar un request (sin la contraseña)
+     */
+    public record CachedPrincipal(Long id, String dni, String email, UserRole role, boolean active,
+                                  Boolean requiresActivation, LocalDateTime lastLogin, int tokenVersion,
+                                  LocalDateTime createdAt, LocalDateTime updatedAt, long loadedAt) {
+
+        static CachedPrincipal of(User user, long loadedAt) {
+            return new CachedPrincipal(user.getId(), user.getDni(), user.getEmail(), user.getRole(),
+                    Boolean.TRUE.equals(user.getIsActive()), user.getRequiresActivation(), user.getLastLogin(),
+                    user.getTokenVersion() != null ? user.getTokenVersion() : 0,
+                    user.getCreatedAt(), user.getUpdatedAt(), loadedAt);
+        }
+
+        /**
+         * Copia desacoplada del usuario para el contexto de seguridad del request
+         */
+        public User toUser() {
+            User user = new User();
+            user.setId(id);
+            user.setDni(dni);
+            user.setEmail(email);
+            user.setRole(role);
+            user.setIsActive(active);
+            user.setRequiresActivation(requiresActivation);
+            user.setLastLogin(lastLogin);
+            user.setTokenVersion(tokenVersion);
+            user.setCreatedAt(createdAt);
+            user.setUpdatedAt(updatedAt);
+            return user;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.hospital.backend.security;
+
+import com.hospital.backend.auth.repository.RefreshTokenRepository;
+import com.hospital.backend.common.concurrent.ConcurrentBloomFilter;
+import com.hospital.backend.common.util.DateUtils;
+import com.hospital.backend.config.JwtProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sesiones (familias de refresh tokens) revocadas cuyos access tokens todavía pueden estar vigentes.
+ *
+ * El filtro JWT consulta {@link #isRevoked(String)} en cada request con el claim "sid" del token. La respuesta
+ * sale de un filtro de Bloom en memoria: si la sesión no está, no fue revocada y no se consulta la base de
+ * datos. Sólo los positivos (revocaciones reales y falsos positivos, cerca del 1%) se confirman una vez contra
+ * la tabla refresh_tokens y la decisión queda en memoria.
+ *
+ * Un access token dura {@code app.jwt.expiration-time}, así que basta recordar las revocaciones de ese
+ * período: se usan dos generaciones de filtro que rotan con ese intervalo. Las revocaciones de otras
+ * instancias se leen de la base cada {@code app.jwt.revocation-sync-interval-ms}.
+ */
+@Slf4j
+@Component
+public class RevokedSessionRegistry {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final long generationMs;
+    private final int expectedRevocations;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+    private volatile LocalDateTime lastSync;
+    private final Object rotationLock = new Object();
+
+    private final Counter databaseChecks;
+
+    public RevokedSessionRegistry(RefreshTokenRepository refreshTokenRepository, JwtProperties jwtProperties,
+                                  MeterRegistry meterRegistry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.generationMs = Math.max(1, jwtProperties.getExpirationTime());
+        this.expectedRevocations = Math.max(1, jwtProperties.getRevocationFilterSize());
+        this.current = new Generation(System.currentTimeMillis(), expectedRevocations);
+        this.previous = new Generation(current.startedAt, expectedRevocations);
+        this.databaseChecks = Counter.builder("security.revocation.db.checks").register(meterRegistry);
+    }
+
+    /**
+     * true si la sesión fue revocada (cierre de sesión, reutilización de un refresh token o desactivación)
+     */
+    public boolean isRevoked(String sessionId) {
+        rotateIfNeeded();
+        Generation now = current;
+        Generation before = previous;
+        if (!now.filter.mightContain(sessionId) && !before.filter.mightContain(sessionId)) {
+            return false;
+        }
+        Boolean known = now.decisions.get(sessionId);
+        if (known != null) {
+            return known;
+        }
+        databaseChecks.increment();
+        boolean revoked = refreshTokenRepository.existsByFamilyIdAndRevokedAtIsNotNull(sessionId);
+        now.decisions.putIfAbsent(sessionId, revoked);
+        return revoked;
+    }
+
+    /**
+     * Registra la revocación de una sesión en esta instancia
+     */
+    public void revoke(String sessionId) {
+        rotateIfNeeded();
+        Generation now = current;
+        now.filter.put(sessionId);
+        now.decisions.put(sessionId, Boolean.TRUE);
+    }
+
+    /**
+     * Carga las revocaciones de la vigencia de un access token al iniciar
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRecentRevocations() {
+        LocalDateTime since = DateUtils.nowInLima().minusNanos(generationMs * 1_000_000L);
+        load(since);
+    }
+
+    /**
+     * Incorpora las revocaciones hechas por otras instancias desde la última lectura
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation-sync-interval-ms:30000}")
+    public void syncRevocations() {
+        LocalDateTime since = lastSync;
+        if (since == null) {
+            loadRecentRevocations();
+            return;
+        }
+        // Margen para transacciones confirmadas con un revoked_at anterior a la lectura previa
+        load(since.minusSeconds(30));
+    }
+
+    private void load(LocalDateTime since) {
+        LocalDateTime startedAt = DateUtils.nowInLima();
+        try {
+            List<String> families = refreshTokenRepository.findFamilyIdsRevokedSince(since);
+            families.forEach(this::revoke);
+            lastSync = startedAt;
+            log.debug("Sesiones revocadas leídas desde {}: {}", since, families.size());
+        } catch (Exception e) {
+            log.warn("No se pudieron leer las sesiones revocadas: {}", e.getMessage());
+        }
+    }
+
+    private void rotateIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (now - current.startedAt < generationMs) {
+            return;
+        }
+        synchronized (rotationLock) {
+            if (now - current.startedAt >= generationMs) {
+                previous = current;
+                current = new Generation(now, expectedRevocations);
+            }
+        }
+    }
+
+    /**
+     * Revocaciones registradas durante un intervalo, con las decisiones ya confirmadas contra la base
+     */
+    private static final class Generation {
+
+        final long startedAt;
+        final ConcurrentBloomFilter filter;
+        final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+        Generation(long startedAt, int expectedRevocations) {
+            this.startedAt = startedAt;
+            this.filter = new ConcurrentBloomFilter(expectedRevocations, FALSE_POSITIVE_RATE);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.hospital.backend.user.entity;
 
 import com.hospital.backend.auth.entity.User;
 import com.hospital.backend.common.entity.BaseEntity;
+import com.hospital.backend.common.event.EntityChangeListener;
 import com.hospital.backend.enums.DoctorType;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -17,6 +18,7 @@ import java.util.List;
  */
 @Data
 @Entity
+@EntityListeners(EntityChangeListener.class)
 @Table(name = "doctors")
 @EqualsAndHashCode(callSuper = true)
 public class Doctor extends BaseEntity {
@@ -3,6 +3,7 @@ package com.hospital.backend.user.entity;
 
 import com.hospital.backend.auth.entity.User;
 import com.hospital.backend.common.entity.BaseEntity;
+import com.hospital.backend.common.event.EntityChangeListener;
 import com.hospital.backend.enums.BloodType;
 import com.hospital.backend.enums.Gender;
 import jakarta.persistence.*;
@@ -17,6 +18,7 @@ import java.time.LocalDate;
  */
 @Data
 @Entity
+@EntityListeners(EntityChangeListener.class)
 @Table(name = "patients")
 @EqualsAndHashCode(callSuper = true)
 public class Patient extends BaseEntity {
@@ -59,6 +59,30 @@ public interface DoctorAvailabilityRepository extends JpaRepository<DoctorAvaila
            "ORDER BY da.dayOfWeek ASC, da.timeBlock ASC")
     List<DoctorAvailability> findByDoctorId(@Param("doctorId") Long doctorId);
     
+    /**
+     * Horarios habilitados de todos los doctores activos de una especialidad para un día de la semana.
+     * Devuelve filas [doctorId, timeBlock, maxPatients]
+     */
+    @Query("SELECT da.doctor.id, da.timeBlock, da.maxPatients FROM DoctorAvailability da WHERE " +
+           "da.dayOfWeek = :dayOfWeek AND " +
+           "da.isAvailable = true AND " +
+           "da.doctor.id IN (SELECT ds.doctor.id FROM DoctorSpecialty ds " +
+           "WHERE ds.specialty.id = :specialtyId AND ds.doctor.isActive = true) " +
+           "ORDER BY da.doctor.id ASC, da.id ASC")
+    List<Object[]> findAvailableBlocksBySpecialtyAndDayOfWeek(@Param("specialtyId") Long specialtyId,
+                                                             @Param("dayOfWeek") Integer dayOfWeek);
+    
+    /**
+     * Plantilla semanal de horarios habilitados de todos los doctores activos de una especialidad.
+     * Devuelve filas [doctorId, dayOfWeek, timeBlock, maxPatients]
+     */
+    @Query("SELECT da.doctor.id, da.dayOfWeek, da.timeBlock, da.maxPatients FROM DoctorAvailability da WHERE " +
+           "da.isAvailable = true AND " +
+           "da.doctor.id IN (SELECT ds.doctor.id FROM DoctorSpecialty ds " +
+           "WHERE ds.specialty.id = :specialtyId AND ds.doctor.isActive = true) " +
+           "ORDER BY da.doctor.id ASC, da.id ASC")
+    List<Object[]> findWeeklyTemplateBySpecialty(@Param("specialtyId") Long specialtyId);
+    
     /**
      * Verificar si un doctor trabaja en un día específico
      */
@@ -98,6 +122,13 @@ public interface DoctorAvailabilityRepository extends JpaRepository<DoctorAvaila
            "da.dayOfWeek = :dayOfWeek")
     Long countTotalSlotsForDay(@Param("dayOfWeek") Integer dayOfWeek);
     
+    /**
+     * Capacidad total de pacientes habilitada para un día (suma de maxPatients de los bloques disponibles)
+     */
+    @Query("SELECT COALESCE(SUM(da.maxPatients) FILTER (WHERE da.isAvailable = true), 0) " +
+           "FROM DoctorAvailability da WHERE da.dayOfWeek = :dayOfWeek")
+    Long sumAvailableCapacityForDay(@Param("dayOfWeek") Integer dayOfWeek);
+    
     /**
      * Buscar horarios por doctor y día
      */
@@ -105,4 +136,19 @@ public interface DoctorAvailabilityRepository extends JpaRepository<DoctorAvaila
            "da.doctor.id = :doctorId AND " +
            "da.dayOfWeek = :dayOfWeek")
     List<DoctorAvailability> findByDoctorIdAndDayOfWeek(@Param("doctorId") Long doctorId, @Param("dayOfWeek") Integer dayOfWeek);
+    
+    /**
+     * Capacidad habilitada por día de la semana: filas [dayOfWeek, suma de maxPatients].
+     * Cada filtro se ignora si su bandera all* es true
+     */
+    @Query("SELECT da.dayOfWeek, SUM(da.maxPatients) FROM DoctorAvailability da WHERE " +
+           "da.isAvailable = true AND " +
+           "(:allDoctors = true OR da.doctor.id IN :doctorIds) AND " +
+           "(:allSpecialties = true OR da.doctor.id IN (SELECT ds.doctor.id FROM DoctorSpecialty ds " +
+           "WHERE ds.specialty.id IN :specialtyIds)) " +
+           "GROUP BY da.dayOfWeek")
+    List<Object[]> sumCapacityByDayOfWeek(@Param("allDoctors") boolean allDoctors,
+                                          @Param("doctorIds") List<Long> doctorIds,
+                                          @Param("allSpecialties") boolean allSpecialties,
+                                          @Param("specialtyIds") List<Long> specialtyIds);
 }
@@ -2,6 +2,7 @@ package com.hospital.backend.user.service;
 
 import com.hospital.backend.auth.entity.User;
 import com.hospital.backend.auth.repository.UserRepository;
+import com.hospital.backend.auth.service.UserService;
 import com.hospital.backend.catalog.entity.Specialty;
 import com.hospital.backend.catalog.repository.SpecialtyRepository;
 import com.hospital.backend.common.dto.PageResponse;
@@ -41,6 +42,7 @@ public class DoctorService {
     private final DoctorSpecialtyRepository doctorSpecialtyRepository;
     private final SpecialtyRepository specialtyRepository;
     private final UserRepository userRepository;
+    private final UserService userService;
     private final PasswordEncoder passwordEncoder;
     private final ProfileImageService profileImageService;
     
@@ -172,6 +174,7 @@ public class DoctorService {
         if (doctor.getUser() != null) {
             var user = doctor.getUser();
             user.setIsActive(false);
+            userService.revokeSessions(user);
             userRepository.save(user);
             log.info("Usuario del doctor marcado como inactivo, ID: {}", user.getId());
         } else {
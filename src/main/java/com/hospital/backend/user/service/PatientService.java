@@ -2,6 +2,7 @@ package com.hospital.backend.user.service;
 
 import com.hospital.backend.auth.entity.User;
 import com.hospital.backend.auth.repository.UserRepository;
+import com.hospital.backend.auth.service.UserService;
 import com.hospital.backend.common.dto.PageResponse;
 import com.hospital.backend.common.exception.AccessDeniedException;
 import com.hospital.backend.common.exception.BusinessException;
@@ -36,6 +37,7 @@ public class PatientService {
 
     private final PatientRepository patientRepository;
     private final UserRepository userRepository;
+    private final UserService userService;
     private final PasswordEncoder passwordEncoder;
     
     @Transactional(readOnly = true)
@@ -186,6 +188,7 @@ public class PatientService {
         if (patient.getUser() != null) {
             var user = patient.getUser();
             user.setIsActive(false);
+            userService.revokeSessions(user);
             userRepository.save(user);
             log.info("Usuario del paciente marcado como inactivo, ID: {}", user.getId());
         } else {
@@ -0,0 +1,49 @@
+-- ============================================================================
+-- ÍNDICE DE BÚSQUEDA DE TEXTO PARA AUDIT_LOGS
+-- ============================================================================
+-- Índice GIN de expresión sobre entidad, usuario (peso A) y descripción (peso B). No agrega columnas,
+-- así que la tabla no se reescribe. La expresión debe coincidir exactamente con la de
+-- AuditLogRepository.SEARCH_VECTOR para que el planificador use el índice.
+--
+-- Ejecutar con psql (usa \gexec), después de que la aplicación haya particionado audit_logs:
+--     psql -d <base> -f audit_search_index.sql
+-- Cada partición se indexa con CREATE INDEX CONCURRENTLY, sin bloquear las escrituras de auditoría.
+-- Es seguro volver a ejecutarlo: sólo crea y adjunta lo que falta. Si un CREATE INDEX CONCURRENTLY falla,
+-- deja un índice inválido: eliminarlo con DROP INDEX CONCURRENTLY y volver a ejecutar el script.
+
+-- 1. Índice en la tabla padre únicamente: se crea al instante y queda inválido hasta adjuntar
+--    el de cada partición. Las particiones nuevas (PARTITION OF) ya lo reciben al crearse.
+CREATE INDEX IF NOT EXISTS idx_audit_logs_search ON ONLY audit_logs USING GIN ((
+    setweight(to_tsvector('spanish', coalesce(entity_name, '')), 'A') ||
+    setweight(to_tsvector('spanish', coalesce(username, '')), 'A') ||
+    setweight(to_tsvector('spanish', coalesce(description, '')), 'B')));
+
+-- 2. Índice de cada partición existente, sin bloquear escrituras (no puede ir dentro de una transacción)
+SELECT format('CREATE INDEX CONCURRENTLY IF NOT EXISTS %I ON %I USING GIN ((' ||
+              'setweight(to_tsvector(''spanish'', coalesce(entity_name, '''')), ''A'') || ' ||
+              'setweight(to_tsvector(''spanish'', coalesce(username, '''')), ''A'') || ' ||
+              'setweight(to_tsvector(''spanish'', coalesce(description, '''')), ''B'')))',
+              c.relname || '_search_idx', c.relname)
+FROM pg_inherits i
+JOIN pg_class c ON c.oid = i.inhrelid
+WHERE i.inhparent = 'audit_logs'::regclass
+  AND NOT EXISTS (SELECT 1 FROM pg_inherits x
+                  WHERE x.inhparent = 'idx_audit_logs_search'::regclass
+                    AND x.inhrelid IN (SELECT indexrelid FROM pg_index WHERE indrelid = c.oid))
+ORDER BY c.relname
+\gexec
+
+-- 3. Adjuntar al padre los índices de partición que todavía no lo están; con el último el padre queda válido
+SELECT format('ALTER INDEX idx_audit_logs_search ATTACH PARTITION %I', c.relname || '_search_idx')
+FROM pg_inherits i
+JOIN pg_class c ON c.oid = i.inhrelid
+WHERE i.inhparent = 'audit_logs'::regclass
+  AND to_regclass(quote_ident(c.relname || '_search_idx')) IS NOT NULL
+  AND NOT EXISTS (SELECT 1 FROM pg_inherits x
+                  WHERE x.inhparent = 'idx_audit_logs_search'::regclass
+                    AND x.inhrelid = to_regclass(quote_ident(c.relname || '_search_idx')))
+ORDER BY c.relname
+\gexec
+
+-- 4. Verificación: debe devolver true
+SELECT indisvalid FROM pg_index WHERE indexrelid = 'idx_audit_logs_search'::regclass;
@@ -38,4 +38,17 @@ BEGIN
         ALTER TABLE users ALTER COLUMN password_hash DROP NOT NULL;
     END IF;
 END
-$$; 
\ No newline at end of file
+$$; 
+
+-- Versión de tokens: al incrementarla se invalidan los JWT emitidos antes
+DO $$
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1 
+        FROM information_schema.columns 
+        WHERE table_name='users' AND column_name='token_version'
+    ) THEN
+        ALTER TABLE users ADD COLUMN token_version INTEGER NOT NULL DEFAULT 0;
+    END IF;
+END
+$$;
@@ -0,0 +1,208 @@
+package com.hospital.backend.admin.service;
+
+import com.hospital.backend.admin.dto.DashboardResponse;
+import com.hospital.backend.analytics.service.DailyRollupService;
+import com.hospital.backend.appointment.entity.Appointment;
+import com.hospital.backend.appointment.repository.AppointmentRepository;
+import com.hospital.backend.catalog.entity.PaymentMethod;
+import com.hospital.backend.catalog.entity.Specialty;
+import com.hospital.backend.common.concurrent.ParallelQueryExecutor;
+import com.hospital.backend.config.PersistenceConfig;
+import com.hospital.backend.enums.AppointmentStatus;
+import com.hospital.backend.enums.PaymentMethodType;
+import com.hospital.backend.enums.PaymentStatus;
+import com.hospital.backend.enums.TimeBlock;
+import com.hospital.backend.payment.entity.Payment;
+import com.hospital.backend.support.TestEntities;
+import com.hospital.backend.user.entity.Doctor;
+import com.hospital.backend.user.entity.DoctorAvailability;
+import com.hospital.backend.user.entity.Patient;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que el dashboard se calcule desde el resumen diario y se sirva desde la instantánea
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.hospital.backend.admin.service.DashboardServiceTest$SqlRecorder")
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DashboardService.class, DailyRollupService.class, ParallelQueryExecutor.class, PersistenceConfig.class})
+class DashboardServiceTest {
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("dd/MM");
+
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private DailyRollupService dailyRollupService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        today = LocalDate.now();
+
+        TestEntities entities = new TestEntities(entityManager);
+        Specialty specialty = entities.specialty("Urología");
+
+        PaymentMethod cash = new PaymentMethod();
+        cash.setName("Efectivo");
+        cash.setType(PaymentMethodType.CASH);
+        entityManager.persist(cash);
+
+        Doctor doctor = entities.doctor(0);
+        entities.doctor(1);
+        Patient first = entities.patient(0);
+        Patient second = entities.patient(1);
+        entities.patient(2);
+
+        entityManager.persist(availability(doctor, TimeBlock.MORNING, 10, true));
+        entityManager.persist(availability(doctor, TimeBlock.AFTERNOON, 5, false));
+
+        Appointment scheduled = entities.appointment(first, doctor, specialty, today, AppointmentStatus.SCHEDULED);
+        entities.appointment(second, doctor, specialty, today, AppointmentStatus.SCHEDULED);
+        Appointment completed = entities.appointment(first, doctor, specialty, today, AppointmentStatus.COMPLETED);
+        Appointment cancelled = entities.appointment(second, doctor, specialty, today.minusDays(1), AppointmentStatus.CANCELLED);
+
+        entityManager.persist(payment(completed, cash, "100.00", PaymentStatus.COMPLETED, today));
+        entityManager.persist(payment(cancelled, cash, "50.00", PaymentStatus.COMPLETED, today.minusDays(1)));
+        entityManager.persist(payment(scheduled, cash, "30.00", PaymentStatus.PROCESSING, today));
+
+        entityManager.flush();
+        entityManager.clear();
+        dailyRollupService.rebuildAll();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void computesMetricsWithAggregateQueries() {
+        DashboardResponse metrics = dashboardService.refreshSnapshot();
+
+        assertEquals(4L, metrics.getTotalAppointmentsCount());
+        assertEquals(2L, metrics.getPendingAppointmentsCount());
+        assertEquals(3L, metrics.getTodayAppointmentsCount());
+        assertEquals(2L, metrics.getTodayPatientsCount());
+        assertEquals(3L, metrics.getTotalPatientsCount());
+        assertEquals(2L, metrics.getTotalDoctorsCount());
+        assertEquals(0, new BigDecimal("150.00").compareTo(metrics.getTotalRevenue()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(metrics.getTodayRevenue()));
+
+        assertEquals(7, metrics.getAppointmentsPerDay().size());
+        assertEquals(3L, metrics.getAppointmentsPerDay().get(today.format(DAY_FORMATTER)));
+        assertEquals(1L, metrics.getAppointmentsPerDay().get(today.minusDays(1).format(DAY_FORMATTER)));
+        assertEquals(0, new BigDecimal("50.00").compareTo(
+                metrics.getRevenuePerDay().get(today.minusDays(1).format(DAY_FORMATTER))));
+
+        // Capacidad 10 (el bloque no disponible no cuenta) y 3 citas que ocupan cupo (la completada conserva el suyo)
+        assertEquals(7L, metrics.getAvailableSlotsToday());
+        assertEquals(0, new BigDecimal("30.00").compareTo(metrics.getAppointmentOccupancyRate()));
+
+        assertEquals(1, metrics.getTopSpecialties().size());
+        assertEquals(1, metrics.getTopDoctors().size());
+
+        assertTrue(statistics.getPrepareStatementCount() <= 8,
+                "Se esperaban a lo sumo 8 consultas, hubo " + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void servesSnapshotWithoutQueryingAgain() {
+        DashboardResponse first = dashboardService.getDashboardMetrics();
+        statistics.clear();
+
+        DashboardResponse second = dashboardService.getDashboardMetrics();
+
+        assertSame(first, second);
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void peopleCountsReadOnlyTodaysAppointments() {
+        SqlRecorder.STATEMENTS.clear();
+        Object[] row = appointmentRepository.aggregateDashboardMetrics(today).get(0);
+        String sql = SqlRecorder.STATEMENTS.get(SqlRecorder.STATEMENTS.size() - 1);
+
+        assertEquals(2L, ((Number) row[0]).longValue());
+        assertEquals(3L, ((Number) row[1]).longValue());
+        // El plan recorre sólo el rango de la fecha en el índice, no la tabla completa
+        String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, today);
+        assertTrue(plan.toUpperCase().contains("IDX_APPOINTMENTS_DATE_PATIENT"), plan);
+
+        // Sin citas en el día sigue habiendo una fila con los totales
+        List<Object[]> empty = appointmentRepository.aggregateDashboardMetrics(today.plusDays(30));
+        assertEquals(1, empty.size());
+        assertEquals(0L, ((Number) empty.get(0)[0]).longValue());
+        assertEquals(2L, ((Number) empty.get(0)[2]).longValue());
+    }
+
+    private Payment payment(Appointment appointment, PaymentMethod method, String amount, PaymentStatus status, LocalDate date) {
+        Payment payment = new Payment();
+        payment.setAppointment(appointment);
+        payment.setPaymentMethod(method);
+        payment.setAmount(new BigDecimal(amount));
+        payment.setTotalAmount(new BigDecimal(amount));
+        payment.setStatus(status);
+        payment.setPaymentDate(date.atTime(10, 0));
+        return payment;
+    }
+
+    private DoctorAvailability availability(Doctor doctor, TimeBlock timeBlock, int maxPatients, boolean available) {
+        DoctorAvailability availability = new DoctorAvailability();
+        availability.setDoctor(doctor);
+        availability.setDayOfWeek(today.getDayOfWeek().getValue());
+        availability.setTimeBlock(timeBlock);
+        availability.setMaxPatients(maxPatients);
+        availability.setIsAvailable(available);
+        return availability;
+    }
+
+    /**
+     * Registra el SQL que genera Hibernate, para inspeccionar el plan de una consulta
+     */
+    public static class SqlRecorder implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.hospital.backend.analytics.service;
+
+import com.hospital.backend.analytics.dto.AnalyticsRequest;
+import com.hospital.backend.analytics.dto.AnalyticsResponse;
+import com.hospital.backend.catalog.entity.Specialty;
+import com.hospital.backend.config.PersistenceConfig;
+import com.hospital.backend.enums.AppointmentStatus;
+import com.hospital.backend.enums.PeriodType;
+import com.hospital.backend.enums.TimeBlock;
+import com.hospital.backend.support.TestEntities;
+import com.hospital.backend.user.entity.Doctor;
+import com.hospital.backend.user.entity.DoctorAvailability;
+import com.hospital.backend.user.entity.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifica las métricas por período leídas del resumen diario y, con filtro de paciente, de las citas
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DailyRollupService.class, AnalyticsServiceImpl.class, PersistenceConfig.class})
+class AnalyticsServiceImplTest {
+
+    // Lunes, para que las dos primeras fechas caigan en la misma semana
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+
+    @Autowired
+    private DailyRollupService dailyRollupService;
+
+    @Autowired
+    private AnalyticsServiceImpl analyticsService;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Patient patient;
+
+    @BeforeEach
+    void setUp() {
+        TestEntities entities = new TestEntities(entityManager);
+        Specialty specialty = entities.specialty("Urología");
+
+        Doctor doctor = entities.doctor(0);
+        patient = entities.patient(0);
+        entityManager.persist(mondayAvailability(doctor));
+
+        entities.appointment(patient, doctor, specialty, MONDAY, AppointmentStatus.COMPLETED);
+        entities.appointment(patient, doctor, specialty, MONDAY.plusDays(2), AppointmentStatus.NO_SHOW);
+        entities.appointment(patient, doctor, specialty, MONDAY, AppointmentStatus.SCHEDULED);
+        entities.appointment(patient, doctor, specialty, MONDAY.plusDays(7), AppointmentStatus.COMPLETED);
+        entityManager.flush();
+
+        dailyRollupService.rebuildAll();
+    }
+
+    @Test
+    void bucketsMetricsByWeekFromRollup() {
+        AnalyticsRequest request = new AnalyticsRequest();
+        request.setStartDate(MONDAY);
+        request.setEndDate(MONDAY.plusDays(13));
+        request.setPeriodType(PeriodType.WEEKLY);
+
+        AnalyticsResponse response = analyticsService.generateAnalytics(request);
+
+        assertEquals(4L, response.getMetrics().get("totalAppointments"));
+        assertEquals(2L, response.getMetrics().get("completedAppointments"));
+        assertEquals(0, new BigDecimal("33.33").compareTo((BigDecimal) response.getMetrics().get("noShowRate")));
+        assertEquals(0, new BigDecimal("240.00").compareTo((BigDecimal) response.getMetrics().get("consultationRevenue")));
+
+        AnalyticsResponse.ChartData appointments = response.getCharts().get(0);
+        assertEquals(List.of(MONDAY.toString(), MONDAY.plusDays(7).toString()), appointments.getLabels());
+        assertEquals(List.of(3L, 1L), appointments.getSeries().get(0).getData());
+
+        // Dos lunes con capacidad 10 y 4 citas no canceladas
+        assertEquals(0, new BigDecimal("20.00").compareTo((BigDecimal) response.getMetrics().get("occupancyRate")));
+    }
+
+    @Test
+    void streamsRawAppointmentsWhenFilteringByPatient() {
+        AnalyticsRequest request = new AnalyticsRequest();
+        request.setStartDate(MONDAY);
+        request.setEndDate(MONDAY.plusDays(13));
+        request.setPeriodType(PeriodType.MONTHLY);
+        request.setPatientIds(List.of(patient.getId()));
+
+        AnalyticsResponse response = analyticsService.generateAnalytics(request);
+
+        assertEquals(4L, response.getMetrics().get("totalAppointments"));
+        assertEquals(1L, response.getMetrics().get("noShowAppointments"));
+        assertEquals(List.of(MONDAY.withDayOfMonth(1).toString()), response.getCharts().get(0).getLabels());
+
+        request.setPatientIds(List.of(patient.getId() + 1));
+        assertEquals(0L, analyticsService.generateAnalytics(request).getMetrics().get("totalAppointments"));
+    }
+
+    private DoctorAvailability mondayAvailability(Doctor doctor) {
+        DoctorAvailability availability = new DoctorAvailability();
+        availability.setDoctor(doctor);
+        availability.setDayOfWeek(1);
+        availability.setTimeBlock(TimeBlock.MORNING);
+        availability.setMaxPatients(10);
+        availability.setIsAvailable(true);
+        return availability;
+    }
+}
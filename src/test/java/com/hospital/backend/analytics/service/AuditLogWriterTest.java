@@ -0,0 +1,110 @@
+package com.hospital.backend.analytics.service;
+
+import com.hospital.backend.analytics.entity.AuditLog;
+import com.hospital.backend.analytics.repository.AuditLogRepository;
+import com.hospital.backend.config.AuditProperties;
+import com.hospital.backend.config.PersistenceConfig;
+import com.hospital.backend.enums.OperationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PersistenceConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AuditLogWriterTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanUp() {
+        auditLogRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void writesQueuedLogsInBatchesAndFlushesOnStop() {
+        AuditProperties properties = new AuditProperties();
+        properties.setBatchSize(50);
+        properties.setFlushIntervalMs(60_000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, properties, transactionManager, registry);
+        writer.start();
+
+        for (int i = 0; i < 120; i++) {
+            writer.write(AuditLog.createLog(1L, "admin", OperationType.ACCESS, "Patient", (long) i, "Consulta " + i));
+        }
+        writer.stop();
+
+        List<AuditLog> saved = auditLogRepository.findAll();
+        assertEquals(120, saved.size());
+        assertNotNull(saved.get(0).getId());
+        assertNotNull(saved.get(0).getCreatedAt());
+        assertEquals(120.0, registry.counter("audit.writer.written").count());
+        assertEquals(0.0, registry.counter("audit.writer.dropped").count());
+    }
+
+    @Test
+    void dropsAndCountsWhenTheBufferStaysFull() {
+        AuditProperties properties = new AuditProperties();
+        properties.setBufferCapacity(4);
+        properties.setBatchSize(1000);
+        properties.setFlushIntervalMs(60_000);
+        properties.setOfferTimeoutMs(5);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, properties, transactionManager, registry);
+        writer.start();
+
+        for (int i = 0; i < 6; i++) {
+            writer.write(AuditLog.createLog(1L, "admin", OperationType.ACCESS, "Patient", (long) i, "Consulta " + i));
+        }
+        writer.stop();
+
+        assertEquals(4, auditLogRepository.count());
+        assertEquals(2.0, registry.counter("audit.writer.dropped").count());
+        assertEquals(2.0, registry.counter("audit.writer.backpressure").count());
+    }
+
+    @Test
+    void writesTheRestOfABatchWhenOneRowIsRejected() {
+        AuditProperties properties = new AuditProperties();
+        properties.setBatchSize(50);
+        properties.setFlushIntervalMs(60_000);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, properties, transactionManager, registry);
+        writer.start();
+
+        for (int i = 0; i < 10; i++) {
+            // El usuario supera los 100 caracteres de la columna: la base rechaza sólo esa fila
+            String username = i == 4 ? "x".repeat(150) : "admin";
+            writer.write(AuditLog.createLog(1L, username, OperationType.ACCESS, "Patient", (long) i, "Consulta " + i));
+        }
+        writer.stop();
+
+        assertEquals(9, auditLogRepository.count());
+        assertEquals(9.0, registry.counter("audit.writer.written").count());
+        assertEquals(1.0, registry.counter("audit.writer.failed").count());
+    }
+}
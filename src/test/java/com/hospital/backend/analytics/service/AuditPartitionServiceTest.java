@@ -0,0 +1,42 @@
+package com.hospital.backend.analytics.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AuditPartitionServiceTest {
+
+    @Test
+    void partitionNamesSortByMonth() {
+        assertEquals("audit_logs_y2026m03", AuditPartitionService.partitionName(YearMonth.of(2026, 3)));
+        assertEquals("audit_logs_y2026m11", AuditPartitionService.partitionName(YearMonth.of(2026, 11)));
+    }
+
+    @Test
+    void readsUpperBoundFromPostgresPartitionExpression() {
+        assertEquals(LocalDateTime.of(2026, 11, 1, 0, 0), AuditPartitionService.parseUpperBound(
+                "FOR VALUES FROM ('2026-10-01 00:00:00') TO ('2026-11-01 00:00:00')"));
+        assertEquals(LocalDateTime.of(2026, 11, 1, 0, 0), AuditPartitionService.parseUpperBound(
+                "FOR VALUES FROM (MINVALUE) TO ('2026-11-01 00:00:00')"));
+        assertEquals(LocalDateTime.of(2026, 11, 1, 0, 0), AuditPartitionService.parseUpperBound(
+                "FOR VALUES FROM ('2026-10-01') TO ('2026-11-01')"));
+        assertNull(AuditPartitionService.parseUpperBound("FOR VALUES FROM ('2026-10-01') TO (MAXVALUE)"));
+        assertNull(AuditPartitionService.parseUpperBound("DEFAULT"));
+    }
+
+    @Test
+    void fillsMonthsSkippedByMaintenanceWithinRetention() {
+        YearMonth current = YearMonth.of(2026, 10);
+        assertEquals(current, AuditPartitionService.firstMonthToCreate(null, current, 24));
+        assertEquals(current, AuditPartitionService.firstMonthToCreate(LocalDateTime.of(2027, 1, 1, 0, 0), current, 24));
+        // La última partición terminó en julio: se crean julio, agosto y septiembre además de los próximos
+        assertEquals(YearMonth.of(2026, 7),
+                AuditPartitionService.firstMonthToCreate(LocalDateTime.of(2026, 7, 1, 0, 0), current, 24));
+        assertEquals(YearMonth.of(2026, 4),
+                AuditPartitionService.firstMonthToCreate(LocalDateTime.of(2025, 1, 1, 0, 0), current, 6));
+    }
+}
@@ -0,0 +1,86 @@
+package com.hospital.backend.analytics.service;
+
+import com.hospital.backend.analytics.entity.AppointmentDailyRollup;
+import com.hospital.backend.analytics.repository.AppointmentDailyRollupRepository;
+import com.hospital.backend.appointment.entity.Appointment;
+import com.hospital.backend.catalog.entity.Specialty;
+import com.hospital.backend.config.PersistenceConfig;
+import com.hospital.backend.enums.AppointmentStatus;
+import com.hospital.backend.support.TestEntities;
+import com.hospital.backend.user.entity.Doctor;
+import com.hospital.backend.user.entity.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifica el recálculo incremental del resumen diario
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({DailyRollupService.class, PersistenceConfig.class})
+class DailyRollupServiceTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 3);
+
+    @Autowired
+    private DailyRollupService dailyRollupService;
+
+    @Autowired
+    private AppointmentDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Appointment rescheduled;
+
+    @BeforeEach
+    void setUp() {
+        TestEntities entities = new TestEntities(entityManager);
+        Specialty specialty = entities.specialty("Urología");
+
+        Doctor doctor = entities.doctor(0);
+        Patient patient = entities.patient(0);
+
+        entities.appointment(patient, doctor, specialty, MONDAY, AppointmentStatus.COMPLETED);
+        entities.appointment(patient, doctor, specialty, MONDAY.plusDays(2), AppointmentStatus.NO_SHOW);
+        rescheduled = entities.appointment(patient, doctor, specialty, MONDAY, AppointmentStatus.SCHEDULED);
+        entities.appointment(patient, doctor, specialty, MONDAY.plusDays(7), AppointmentStatus.COMPLETED);
+        entityManager.flush();
+
+        dailyRollupService.rebuildAll();
+    }
+
+    @Test
+    void recomputesOnlyMarkedDates() {
+        LocalDate newDate = MONDAY.plusDays(9);
+        rescheduled.setAppointmentDate(newDate);
+        entityManager.flush();
+
+        // Lo que haría el listener tras confirmar la reprogramación: fecha anterior y nueva
+        dailyRollupService.markAppointmentDate(MONDAY);
+        dailyRollupService.markAppointmentDate(newDate);
+        dailyRollupService.flushDirtyDates();
+        entityManager.clear();
+
+        assertEquals(1L, countOn(MONDAY));
+        assertEquals(1L, countOn(newDate));
+        assertEquals(1L, countOn(MONDAY.plusDays(2)));
+    }
+
+    private long countOn(LocalDate date) {
+        return rollupRepository.findByRollupDateBetween(date, date).stream()
+                .mapToLong(AppointmentDailyRollup::getAppointmentCount)
+                .sum();
+    }
+}
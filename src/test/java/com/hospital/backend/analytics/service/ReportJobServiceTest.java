@@ -0,0 +1,95 @@
+package com.hospital.backend.analytics.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.backend.analytics.dto.ReportJobRequest;
+import com.hospital.backend.analytics.entity.ReportJob;
+import com.hospital.backend.analytics.repository.ReportJobRepository;
+import com.hospital.backend.common.exception.BusinessException;
+import com.hospital.backend.config.ReportJobProperties;
+import com.hospital.backend.enums.ExportDataset;
+import com.hospital.backend.enums.ExportFormat;
+import com.hospital.backend.enums.ReportJobType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReportJobServiceTest {
+
+    private static final int CAPACITY = 3;
+    private static final int SUBMITTERS = 16;
+
+    @Test
+    void concurrentSubmitsNeverExceedQueueCapacity() throws Exception {
+        ReportJobRepository repository = mock(ReportJobRepository.class);
+        // Guardado lento para que las solicitudes se crucen entre la verificación y el encolado
+        when(repository.save(any(ReportJob.class))).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return invocation.getArgument(0);
+        });
+        // El único hilo queda ocupado con el primer trabajo, así el resto permanece en la cola
+        CountDownLatch release = new CountDownLatch(1);
+        when(repository.findByJobId(anyString())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return Optional.empty();
+        });
+
+        ReportJobProperties properties = new ReportJobProperties();
+        properties.setWorkerThreads(1);
+        properties.setQueueCapacity(CAPACITY);
+        ReportJobService service = new ReportJobService(repository, mock(ReportService.class),
+                mock(AnalyticsService.class), mock(AuditService.class), properties, new ObjectMapper().findAndRegisterModules());
+
+        ExecutorService executor = Executors.newFixedThreadPool(SUBMITTERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < SUBMITTERS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        service.submit(request());
+                        accepted.incrementAndGet();
+                    } catch (BusinessException e) {
+                        // Cola llena
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            service.destroy();
+        }
+
+        // La capacidad de la cola más, a lo sumo, el trabajo que ya tomó el hilo
+        assertTrue(accepted.get() >= CAPACITY && accepted.get() <= CAPACITY + 1,
+                "Se aceptaron " + accepted.get() + " reportes");
+    }
+
+    private static ReportJobRequest request() {
+        ReportJobRequest request = new ReportJobRequest();
+        request.setType(ReportJobType.DATASET_EXPORT);
+        request.setFormat(ExportFormat.CSV);
+        request.setDataset(ExportDataset.APPOINTMENTS);
+        return request;
+    }
+}
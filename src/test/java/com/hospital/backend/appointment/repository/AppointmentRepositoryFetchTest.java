@@ -0,0 +1,165 @@
+package com.hospital.backend.appointment.repository;
+
+import com.hospital.backend.appointment.entity.Appointment;
+import com.hospital.backend.catalog.entity.Specialty;
+import com.hospital.backend.config.PersistenceConfig;
+import com.hospital.backend.enums.AppointmentStatus;
+import com.hospital.backend.enums.TimeBlock;
+import com.hospital.backend.support.TestEntities;
+import com.hospital.backend.user.entity.Doctor;
+import com.hospital.backend.user.entity.Patient;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifica que los listados de citas carguen paciente, doctor y especialidad
+ * sin consultas adicionales por fila (N+1)
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PersistenceConfig.class)
+class AppointmentRepositoryFetchTest {
+
+    private static final int ROWS = 30;
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TestEntities entities;
+    private Statistics statistics;
+    private Long doctorId;
+    private Long patientId;
+
+    @BeforeEach
+    void setUp() {
+        entities = new TestEntities(entityManager);
+        Specialty specialty = entities.specialty("Urología");
+
+        List<Doctor> doctors = new ArrayList<>();
+        List<Patient> patients = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            doctors.add(entities.doctor(i));
+            patients.add(entities.patient(i));
+        }
+
+        for (int i = 0; i < ROWS; i++) {
+            Appointment appointment = new Appointment();
+            appointment.setPatient(patients.get(i % 3 == 0 ? 0 : i));
+            appointment.setDoctor(doctors.get(i % 3 == 0 ? 0 : i));
+            appointment.setSpecialty(specialty);
+            appointment.setAppointmentDate(LocalDate.now().plusDays(i % 5));
+            appointment.setTimeBlock(i % 2 == 0 ? TimeBlock.MORNING : TimeBlock.AFTERNOON);
+            appointment.setReason("Control " + i);
+            appointment.setStatus(AppointmentStatus.SCHEDULED);
+            entityManager.persist(appointment);
+        }
+
+        doctorId = doctors.get(0).getId();
+        patientId = patients.get(0).getId();
+
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllPageLoadsAssociationsInConstantStatements() {
+        Page<Appointment> page = appointmentRepository.findAll(PageRequest.of(0, PAGE_SIZE));
+        touchAssociations(page.getContent());
+
+        assertEquals(PAGE_SIZE, page.getNumberOfElements());
+        // Una consulta para la página y otra para el total
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void findByStatusPageLoadsAssociationsInConstantStatements() {
+        Page<Appointment> page = appointmentRepository.findByStatus(AppointmentStatus.SCHEDULED, PageRequest.of(0, PAGE_SIZE));
+        touchAssociations(page.getContent());
+
+        assertEquals(PAGE_SIZE, page.getNumberOfElements());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void listsByDoctorAndPatientLoadAssociationsInOneStatement() {
+        touchAssociations(appointmentRepository.findByPatientIdOrderByAppointmentDateDesc(patientId));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        touchAssociations(appointmentRepository.findByDoctorIdAndAppointmentDate(doctorId, LocalDate.now()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        statistics.clear();
+        touchAssociations(appointmentRepository.findByAppointmentDateAndTimeBlock(LocalDate.now(), TimeBlock.MORNING));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void keysetPagesWalkAllRowsWithoutCountQuery() {
+        Set<Long> seen = new HashSet<>();
+        LocalDate afterDate = null;
+        Long afterId = null;
+        int pages = 0;
+
+        while (true) {
+            List<Appointment> rows = appointmentRepository.findPageAfter(
+                    AppointmentStatus.SCHEDULED, null, null, null, afterDate, afterId, 8);
+            touchAssociations(rows);
+            rows.forEach(appointment -> assertTrue(seen.add(appointment.getId())));
+            pages++;
+            if (rows.size() < 8) {
+                break;
+            }
+            Appointment last = rows.get(rows.size() - 1);
+            afterDate = last.getAppointmentDate();
+            afterId = last.getId();
+        }
+
+        assertEquals(ROWS, seen.size());
+        // Una sola consulta por página: sin conteo ni cargas por fila
+        assertEquals(pages, statistics.getPrepareStatementCount());
+    }
+
+    /**
+     * Accede a los mismos campos que AppointmentService.mapToResponse
+     */
+    private void touchAssociations(List<Appointment> appointments) {
+        for (Appointment appointment : appointments) {
+            appointment.getPatient().getFirstName();
+            appointment.getDoctor().getLastName();
+            appointment.getSpecialty().getName();
+            appointment.getPrice();
+        }
+    }
+}
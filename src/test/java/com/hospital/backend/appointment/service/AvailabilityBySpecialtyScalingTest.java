@@ -0,0 +1,176 @@
+package com.hospital.backend.appointment.service;
+
+import com.hospital.backend.appointment.repository.AppointmentRepository;
+import com.hospital.backend.catalog.entity.Specialty;
+import com.hospital.backend.catalog.repository.SpecialtyRepository;
+import com.hospital.backend.config.PersistenceConfig;
+import com.hospital.backend.enums.AppointmentStatus;
+import com.hospital.backend.enums.TimeBlock;
+import com.hospital.backend.support.TestEntities;
+import com.hospital.backend.user.entity.Doctor;
+import com.hospital.backend.user.entity.DoctorAvailability;
+import com.hospital.backend.user.entity.DoctorSpecialty;
+import com.hospital.backend.user.entity.Patient;
+import com.hospital.backend.user.repository.DoctorAvailabilityRepository;
+import com.hospital.backend.user.repository.DoctorRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Mide cómo escala la disponibilidad por especialidad con la cantidad de doctores, contra el recorrido
+ * anterior (getAvailableBlocks por doctor), sobre H2 en memoria.
+ *
+ * Cada medición usa un ledger vacío, como la primera consulta del día. Las latencias se registran en el log
+ * (mediana de varias corridas); lo que se verifica es la cantidad de consultas: constante en el camino
+ * agrupado y proporcional a los doctores en el anterior. Sobre PostgreSQL cada consulta además paga un
+ * round trip de red, por lo que la diferencia real es mayor que la medida aquí.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PersistenceConfig.class)
+class AvailabilityBySpecialtyScalingTest {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityBySpecialtyScalingTest.class);
+
+    private static final int[] DOCTOR_COUNTS = {10, 40, 160};
+    private static final int RUNS = 7;
+    private static final LocalDate DATE = LocalDate.now().plusDays(5);
+
+    @Autowired
+    private DoctorRepository doctorRepository;
+
+    @Autowired
+    private DoctorAvailabilityRepository doctorAvailabilityRepository;
+
+    @Autowired
+    private SpecialtyRepository specialtyRepository;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private TestEntities entities;
+    private int sequence;
+
+    @Test
+    void batchedQueryCountDoesNotGrowWithDoctors() {
+        entities = new TestEntities(entityManager);
+        Map<Integer, Long> specialties = new LinkedHashMap<>();
+        Patient patient = entities.patient(0);
+        for (int doctors : DOCTOR_COUNTS) {
+            specialties.put(doctors, seedSpecialty(doctors, patient));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long batchedStatements = -1;
+
+        for (Map.Entry<Integer, Long> entry : specialties.entrySet()) {
+            int doctors = entry.getKey();
+            Long specialtyId = entry.getValue();
+
+            statistics.clear();
+            perDoctor(specialtyId);
+            long perDoctorStatements = statistics.getPrepareStatementCount();
+
+            statistics.clear();
+            assertEquals(doctors, newService().getAvailabilityBySpecialty(specialtyId, DATE)
+                    .get(TimeBlock.MORNING).size());
+            long statements = statistics.getPrepareStatementCount();
+
+            log.info("Disponibilidad por especialidad con {} doctores: por doctor {} us ({} consultas), agrupada {} us ({} consultas)",
+                    doctors, medianMicros(() -> perDoctor(specialtyId)), perDoctorStatements,
+                    medianMicros(() -> newService().getAvailabilityBySpecialty(specialtyId, DATE)), statements);
+
+            assertTrue(perDoctorStatements >= 3L * doctors,
+                    "El recorrido por doctor debería crecer con los doctores, hubo " + perDoctorStatements);
+            if (batchedStatements >= 0) {
+                assertEquals(batchedStatements, statements);
+            }
+            batchedStatements = statements;
+        }
+    }
+
+    /**
+     * Recorrido anterior: ids de la especialidad y getAvailableBlocks para cada doctor
+     */
+    private int perDoctor(Long specialtyId) {
+        AvailabilityService service = newService();
+        int blocks = 0;
+        for (Long doctorId : doctorRepository.findIdsBySpecialtyId(specialtyId)) {
+            blocks += service.getAvailableBlocks(doctorId, DATE).size();
+        }
+        return blocks;
+    }
+
+    /**
+     * Servicio con un ledger vacío, para medir la consulta en frío
+     */
+    private AvailabilityService newService() {
+        return new AvailabilityService(doctorRepository, doctorAvailabilityRepository, specialtyRepository,
+                appointmentRepository, new SlotCapacityLedger(appointmentRepository));
+    }
+
+    private static long medianMicros(Runnable action) {
+        long[] samples = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            action.run();
+            samples[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(samples);
+        return samples[RUNS / 2];
+    }
+
+    private Long seedSpecialty(int doctors, Patient patient) {
+        Specialty specialty = entities.specialty("Especialidad " + doctors);
+
+        for (int i = 0; i < doctors; i++) {
+            Doctor doctor = entities.doctor(sequence++);
+            DoctorSpecialty doctorSpecialty = new DoctorSpecialty();
+            doctorSpecialty.setDoctor(doctor);
+            doctorSpecialty.setSpecialty(specialty);
+            entityManager.persist(doctorSpecialty);
+
+            entityManager.persist(availability(doctor, TimeBlock.MORNING));
+            entityManager.persist(availability(doctor, TimeBlock.AFTERNOON));
+            entities.appointment(patient, doctor, specialty, DATE, AppointmentStatus.SCHEDULED);
+        }
+        return specialty.getId();
+    }
+
+    private DoctorAvailability availability(Doctor doctor, TimeBlock timeBlock) {
+        DoctorAvailability availability = new DoctorAvailability();
+        availability.setDoctor(doctor);
+        availability.setDayOfWeek(DATE.getDayOfWeek().getValue());
+        availability.setTimeBlock(timeBlock);
+        availability.setMaxPatients(10);
+        availability.setIsAvailable(true);
+        return availability;
+    }
+}
@@ -0,0 +1,58 @@
+package com.hospital.backend.appointment.service;
+
+import com.hospital.backend.appointment.repository.AppointmentRepository;
+import com.hospital.backend.enums.TimeBlock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SlotCapacityLedgerTest {
+
+    private static final Long DOCTOR_ID = 1L;
+    private static final LocalDate DATE = LocalDate.now().plusDays(3);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void reconcileKeepsReservationsInFlight() {
+        AppointmentRepository appointmentRepository = mock(AppointmentRepository.class);
+        // La reserva en curso todavía no está confirmada: la base cuenta sólo las 2 anteriores
+        List<Object[]> committed = new ArrayList<>();
+        committed.add(new Object[]{DOCTOR_ID, DATE, TimeBlock.MORNING, 2L});
+        when(appointmentRepository.countOccupiedSlotsGroupedFrom(any(), anyList())).thenReturn(committed);
+        SlotCapacityLedger ledger = new SlotCapacityLedger(appointmentRepository);
+        ledger.getBookedCount(DOCTOR_ID, DATE, TimeBlock.MORNING, 2);
+
+        TransactionSynchronizationManager.initSynchronization();
+        ledger.recordReservation(DOCTOR_ID, DATE, TimeBlock.MORNING);
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        ledger.reconcile();
+        assertEquals(3, ledger.getBookedCount(DOCTOR_ID, DATE, TimeBlock.MORNING));
+
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertEquals(2, ledger.getBookedCount(DOCTOR_ID, DATE, TimeBlock.MORNING));
+
+        // Sin cambios en curso el conteo de la base se aplica
+        committed.set(0, new Object[]{DOCTOR_ID, DATE, TimeBlock.MORNING, 4L});
+        ledger.reconcile();
+        assertEquals(4, ledger.getBookedCount(DOCTOR_ID, DATE, TimeBlock.MORNING));
+    }
+}
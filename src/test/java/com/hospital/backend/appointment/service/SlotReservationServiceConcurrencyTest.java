@@ -0,0 +1,126 @@
+package com.hospital.backend.appointment.service;
+
+import com.hospital.backend.appointment.entity.BlockCapacity;
+import com.hospital.backend.appointment.repository.BlockCapacityRepository;
+import com.hospital.backend.config.PersistenceConfig;
+import com.hospital.backend.enums.TimeBlock;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({SlotReservationService.class, SlotCapacityLedger.class, PersistenceConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SlotReservationServiceConcurrencyTest {
+
+    private static final int MAX_PATIENTS = 20;
+    private static final int BOOKINGS = 2000;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private SlotReservationService slotReservationService;
+
+    @Autowired
+    private BlockCapacityRepository blockCapacityRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentBookingsNeverExceedMaxPatients() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(7);
+        int accepted = bookConcurrently(1L, date, TimeBlock.MORNING);
+
+        assertEquals(MAX_PATIENTS, accepted);
+        assertEquals(MAX_PATIENTS, bookedCount(1L, date, TimeBlock.MORNING));
+    }
+
+    @Test
+    void releasedSlotCanBeBookedAgain() throws Exception {
+        LocalDate date = LocalDate.now().plusDays(8);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        bookConcurrently(2L, date, TimeBlock.AFTERNOON);
+        tx.executeWithoutResult(status -> slotReservationService.release(2L, date, TimeBlock.AFTERNOON));
+
+        assertEquals(MAX_PATIENTS - 1, bookedCount(2L, date, TimeBlock.AFTERNOON));
+        Boolean rebooked = tx.execute(status -> slotReservationService.reserve(2L, date, TimeBlock.AFTERNOON, MAX_PATIENTS));
+        assertEquals(Boolean.TRUE, rebooked);
+        assertEquals(MAX_PATIENTS, bookedCount(2L, date, TimeBlock.AFTERNOON));
+    }
+
+    @Test
+    void reconcileResetsCountersWithoutAppointments() {
+        LocalDate date = LocalDate.now().plusDays(9);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // Reservas sin cita registrada, como las que deja una transacción fallida fuera de la base
+        for (int i = 0; i < 3; i++) {
+            tx.execute(status -> slotReservationService.reserve(3L, date, TimeBlock.MORNING, MAX_PATIENTS));
+        }
+        assertEquals(3, bookedCount(3L, date, TimeBlock.MORNING));
+
+        slotReservationService.reconcile();
+
+        assertEquals(0, bookedCount(3L, date, TimeBlock.MORNING));
+    }
+
+    private int bookConcurrently(Long doctorId, LocalDate date, TimeBlock timeBlock) throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger accepted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < BOOKINGS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (Boolean.TRUE.equals(tx.execute(status ->
+                            slotReservationService.reserve(doctorId, date, timeBlock, MAX_PATIENTS)))) {
+                        accepted.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return accepted.get();
+    }
+
+    private int bookedCount(Long doctorId, LocalDate date, TimeBlock timeBlock) {
+        return blockCapacityRepository.findAll().stream()
+                .filter(bc -> bc.getDoctorId().equals(doctorId)
+                        && bc.getAppointmentDate().equals(date)
+                        && bc.getTimeBlock() == timeBlock)
+                .mapToInt(BlockCapacity::getBookedCount)
+                .findFirst()
+                .orElse(0);
+    }
+}
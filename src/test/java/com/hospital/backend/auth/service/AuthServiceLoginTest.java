@@ -0,0 +1,145 @@
+package com.hospital.backend.auth.service;
+
+import com.hospital.backend.auth.dto.request.LoginRequest;
+import com.hospital.backend.auth.dto.request.RegisterRequest;
+import com.hospital.backend.auth.entity.User;
+import com.hospital.backend.auth.repository.UserRepository;
+import com.hospital.backend.common.exception.TooManyRequestsException;
+import com.hospital.backend.common.exception.UnauthorizedException;
+import com.hospital.backend.config.AuthProperties;
+import com.hospital.backend.config.JwtProperties;
+import com.hospital.backend.enums.UserRole;
+import com.hospital.backend.security.JwtTokenProvider;
+import com.hospital.backend.user.repository.PatientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuthServiceLoginTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private AuthProperties properties;
+    private PasswordHashingService hashingService;
+
+    @BeforeEach
+    void setUp() {
+        properties = new AuthProperties();
+        properties.setBcryptStrength(5);
+        properties.setHashWorkers(1);
+        properties.setMaxFailuresPerDni(3);
+        hashingService = new PasswordHashingService(new BCryptPasswordEncoder(5), properties, registry);
+        when(userRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        hashingService.destroy();
+    }
+
+    @Test
+    void blocksTheDniAfterRepeatedFailuresWithoutHashingAgain() {
+        User user = user(new BCryptPasswordEncoder(5).encode("secreta123"));
+        when(userRepository.findByDniAndIsActive(eq("12345678"), eq(true))).thenReturn(Optional.of(user));
+        AuthService authService = authService();
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(UnauthorizedException.class, () -> authService.login(login("incorrecta"), "10.0.0.1"));
+        }
+        assertThrows(TooManyRequestsException.class, () -> authService.login(login("secreta123"), "10.0.0.2"));
+        verify(userRepository, times(3)).findByDniAndIsActive(anyString(), eq(true));
+        assertEquals(3, registry.get("auth.password.hash").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void rehashesWithTheConfiguredCostOnSuccessfulLogin() {
+        String oldHash = new BCryptPasswordEncoder(4).encode("secreta123");
+        User user = user(oldHash);
+        when(userRepository.findByDniAndIsActive(eq("12345678"), eq(true))).thenReturn(Optional.of(user));
+
+        assertNotNull(authService().login(login("secreta123"), "10.0.0.1").getToken());
+        assertTrue(user.getPasswordHash().startsWith("$2a$05$"));
+        assertTrue(new BCryptPasswordEncoder(5).matches("secreta123", user.getPasswordHash()));
+        verify(userRepository).save(user);
+        verify(userRepository, never()).findByDni(anyString());
+    }
+
+    @Test
+    void registerHashesThePasswordBeforeOpeningTheTransaction() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        List<Long> encodesAtBegin = new ArrayList<>();
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            encodesAtBegin.add(registry.get("auth.password.hash").tag("operation", "encode").timer().count());
+            return new SimpleTransactionStatus();
+        });
+
+        RegisterRequest request = new RegisterRequest();
+        request.setFirstName("Ana");
+        request.setLastName("Quispe");
+        request.setDni("12345678");
+        request.setEmail("ana@urovital.pe");
+        request.setPassword("secreta123");
+        request.setConfirmPassword("secreta123");
+        request.setBirthDate(LocalDate.of(1990, 5, 4));
+        request.setGender("FEMALE");
+        request.setPhone("988000111");
+
+        assertNotNull(authService(transactionManager).register(request).getToken());
+        assertEquals(List.of(1L), encodesAtBegin);
+        verify(transactionManager).commit(any());
+    }
+
+    private AuthService authService() {
+        return authService(mock(PlatformTransactionManager.class));
+    }
+
+    private AuthService authService(PlatformTransactionManager transactionManager) {
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setSecret("test-secret-key-for-auth-service-login-0123456789");
+        jwtProperties.setExpirationTime(60_000);
+        jwtProperties.setIssuer("hospital-api");
+        RefreshTokenService refreshTokenService = mock(RefreshTokenService.class);
+        when(refreshTokenService.issue(any())).thenReturn(
+                new RefreshTokenService.IssuedRefreshToken("refresh", "session", LocalDateTime.now().plusDays(7)));
+        return new AuthService(userRepository, mock(PatientRepository.class), hashingService,
+                new LoginThrottle(properties, registry), refreshTokenService, new JwtTokenProvider(jwtProperties, registry),
+                transactionManager);
+    }
+
+    private static LoginRequest login(String password) {
+        return new LoginRequest("12345678", password);
+    }
+
+    private static User user(String passwordHash) {
+        User user = new User();
+        user.setId(3L);
+        user.setDni("12345678");
+        user.setEmail("ana@urovital.pe");
+        user.setRole(UserRole.PATIENT);
+        user.setPasswordHash(passwordHash);
+        return user;
+    }
+}
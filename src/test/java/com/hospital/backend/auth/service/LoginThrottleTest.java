@@ -0,0 +1,36 @@
+package com.hospital.backend.auth.service;
+
+import com.hospital.backend.common.exception.TooManyRequestsException;
+import com.hospital.backend.config.AuthProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginThrottleTest {
+
+    @Test
+    void neverTracksMoreKeysThanTheCapAndEvictsTheOldestWindow() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AuthProperties properties = new AuthProperties();
+        properties.setMaxFailuresPerDni(1);
+        properties.setMaxTrackedKeys(4);
+        LoginThrottle throttle = new LoginThrottle(properties, registry);
+
+        // Sin IP: cada fallo agrega una sola clave
+        for (int i = 1; i <= 10; i++) {
+            throttle.recordFailure("1000000" + (i % 10), null);
+            assertEquals(Math.min(i, 4), throttle.trackedKeys());
+        }
+        assertEquals(6.0, registry.get("auth.login.evicted").counter().count());
+
+        // Siguen bloqueados los cuatro DNIs más recientes; los anteriores salieron
+        assertDoesNotThrow(() -> throttle.checkAllowed("10000006", null));
+        for (int i = 7; i <= 10; i++) {
+            String dni = "1000000" + (i % 10);
+            assertThrows(TooManyRequestsException.class, () -> throttle.checkAllowed(dni, null));
+        }
+    }
+}
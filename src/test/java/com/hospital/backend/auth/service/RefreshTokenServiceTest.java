@@ -0,0 +1,113 @@
+package com.hospital.backend.auth.service;
+
+import com.hospital.backend.auth.entity.User;
+import com.hospital.backend.auth.repository.RefreshTokenRepository;
+import com.hospital.backend.auth.repository.UserRepository;
+import com.hospital.backend.common.exception.UnauthorizedException;
+import com.hospital.backend.config.JwtProperties;
+import com.hospital.backend.config.PersistenceConfig;
+import com.hospital.backend.enums.UserRole;
+import com.hospital.backend.security.RevokedSessionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PersistenceConfig.class, RefreshTokenService.class, RevokedSessionRegistry.class,
+        RefreshTokenServiceTest.Config.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RefreshTokenServiceTest {
+
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+
+    @Autowired
+    private RevokedSessionRegistry revokedSessionRegistry;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void cleanUp() {
+        refreshTokenRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void rotatesWithinTheSessionAndRevokesItWhenAnOldTokenIsReused() {
+        User user = userRepository.save(user());
+        RefreshTokenService.IssuedRefreshToken first = refreshTokenService.issue(user);
+
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(first.token());
+        assertEquals(user.getId(), rotation.user().getId());
+        assertEquals(first.sessionId(), rotation.refreshToken().sessionId());
+        assertNotEquals(first.token(), rotation.refreshToken().token());
+        assertFalse(revokedSessionRegistry.isRevoked(first.sessionId()));
+
+        // El primer token ya se usó: quien lo presenta no es el cliente legítimo
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.rotate(first.token()));
+        assertTrue(revokedSessionRegistry.isRevoked(first.sessionId()));
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.rotate(rotation.refreshToken().token()));
+    }
+
+    @Test
+    void logoutRevokesOnlyThatSession() {
+        User user = userRepository.save(user());
+        RefreshTokenService.IssuedRefreshToken phone = refreshTokenService.issue(user);
+        RefreshTokenService.IssuedRefreshToken browser = refreshTokenService.issue(user);
+
+        refreshTokenService.revoke(phone.token());
+
+        assertTrue(revokedSessionRegistry.isRevoked(phone.sessionId()));
+        assertFalse(revokedSessionRegistry.isRevoked(browser.sessionId()));
+        assertThrows(UnauthorizedException.class, () -> refreshTokenService.rotate(phone.token()));
+        refreshTokenService.rotate(browser.token());
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setDni("12345678");
+        user.setEmail("ana@urovital.pe");
+        user.setPasswordHash("hash");
+        user.setRole(UserRole.PATIENT);
+        return user;
+    }
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean
+        JwtProperties jwtProperties() {
+            JwtProperties properties = new JwtProperties();
+            properties.setExpirationTime(900_000);
+            properties.setRefreshExpirationTime(3_600_000);
+            return properties;
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+}
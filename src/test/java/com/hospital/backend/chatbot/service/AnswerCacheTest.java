@@ -0,0 +1,44 @@
+package com.hospital.backend.chatbot.service;
+
+import com.hospital.backend.config.ChatbotProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnswerCacheTest {
+
+    @Test
+    void sharesAnswersBetweenEquivalentQueriesUntilTheVersionChanges() {
+        ChatbotProperties properties = new ChatbotProperties();
+        properties.setAnswerCacheSize(2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        AnswerCache cache = new AnswerCache(properties, registry);
+        AtomicInteger searches = new AtomicInteger();
+
+        cache.get("¿Horario de atención?", 1, () -> search(searches));
+        cache.get("atencion HORARIOS horario", 1, () -> search(searches));
+        assertEquals(1, searches.get());
+
+        cache.get("horario atención", 2, () -> search(searches));
+        assertEquals(2, searches.get());
+
+        cache.get("precios", 2, () -> search(searches));
+        cache.get("reservar cita", 2, () -> search(searches));
+        cache.get("horario atención", 2, () -> search(searches));
+        assertEquals(5, searches.get());
+
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").counter().count());
+        assertEquals(5.0, registry.get("cache.gets").tag("result", "miss").counter().count());
+        assertEquals(2.0, registry.get("cache.evictions").counter().count());
+        assertEquals(2.0, registry.get("cache.size").gauge().value());
+    }
+
+    private static List<KnowledgeIndex.Hit> search(AtomicInteger searches) {
+        searches.incrementAndGet();
+        return List.of();
+    }
+}
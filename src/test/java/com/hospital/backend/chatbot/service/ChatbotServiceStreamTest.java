@@ -0,0 +1,73 @@
+package com.hospital.backend.chatbot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.backend.chatbot.dto.request.ChatbotQueryRequest;
+import com.hospital.backend.chatbot.dto.response.KnowledgeBaseEntryResponse;
+import com.hospital.backend.chatbot.repository.ChatbotConversationRepository;
+import com.hospital.backend.config.ChatbotProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ChatbotServiceStreamTest {
+
+    @Test
+    void streamsAnswerFirstThenReferencesSuggestionsAndConversationId() {
+        ChatbotKnowledgeService knowledgeService = mock(ChatbotKnowledgeService.class);
+        ConversationWriter conversationWriter = mock(ConversationWriter.class);
+        // La segunda entrada sólo se lee al armar referencias y sugerencias
+        KnowledgeBaseEntryResponse second = spy(entry(2L, "¿Horario de urgencias?", "24 horas"));
+        when(knowledgeService.searchIndex(anyString(), anyInt())).thenReturn(List.of(
+                new KnowledgeIndex.Hit(entry(1L, "¿Horario?", "De 7:00 a 20:00"), 4.0),
+                new KnowledgeIndex.Hit(second, 2.0)));
+        when(conversationWriter.nextConversationId()).thenReturn(42L);
+        ChatbotService service = new ChatbotService(mock(ChatbotConversationRepository.class), knowledgeService,
+                conversationWriter, new AnswerCache(new ChatbotProperties(), new SimpleMeterRegistry()),
+                new ObjectMapper(), mock(PlatformTransactionManager.class));
+
+        ChatbotQueryRequest request = new ChatbotQueryRequest();
+        request.setQuery("horario de atención");
+        request.setSessionId("s-1");
+        List<Integer> readsBeforeAnswer = new ArrayList<>();
+        List<ServerSentEvent<Object>> events = service.streamQuery(request)
+                .doOnNext(event -> {
+                    if ("answer".equals(event.event())) {
+                        readsBeforeAnswer.add(mockingDetails(second).getInvocations().size());
+                    }
+                })
+                .collectList().block();
+
+        assertEquals(List.of("answer", "reference", "reference", "suggestions", "done"),
+                events.stream().map(ServerSentEvent::event).toList());
+        assertEquals("De 7:00 a 20:00", ((Map<?, ?>) events.get(0).data()).get("response"));
+        assertEquals(List.of(0), readsBeforeAnswer);
+        assertEquals(List.of("¿Horario de urgencias?"), events.get(3).data());
+        assertEquals(42L, ((Map<?, ?>) events.get(4).data()).get("conversationId"));
+        verify(conversationWriter).recordUsage(1L);
+        verify(conversationWriter).write(any());
+    }
+
+    private static KnowledgeBaseEntryResponse entry(Long id, String question, String answer) {
+        KnowledgeBaseEntryResponse entry = new KnowledgeBaseEntryResponse();
+        entry.setId(id);
+        entry.setQuestion(question);
+        entry.setAnswer(answer);
+        entry.setIsActive(true);
+        return entry;
+    }
+}
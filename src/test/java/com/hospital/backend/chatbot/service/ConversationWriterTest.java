@@ -0,0 +1,137 @@
+package com.hospital.backend.chatbot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hospital.backend.chatbot.entity.ChatbotConversation;
+import com.hospital.backend.chatbot.entity.ChatbotKnowledgeBase;
+import com.hospital.backend.chatbot.repository.ChatbotConversationRepository;
+import com.hospital.backend.chatbot.repository.ChatbotKnowledgeBaseRepository;
+import com.hospital.backend.config.ChatbotProperties;
+import com.hospital.backend.config.PersistenceConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(PersistenceConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConversationWriterTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AuditorAware<String> auditorAware;
+
+    @Autowired
+    private ChatbotConversationRepository conversationRepository;
+
+    @Autowired
+    private ChatbotKnowledgeBaseRepository knowledgeBaseRepository;
+
+    @AfterEach
+    void cleanUp() {
+        conversationRepository.deleteAllInBatch();
+        knowledgeBaseRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void writesConversationsWithReservedIdsAndCoalescesUsage() {
+        ChatbotKnowledgeBase entry = new ChatbotKnowledgeBase();
+        entry.setTopic("Horarios");
+        entry.setQuestion("¿Cuál es el horario?");
+        entry.setAnswer("De 7:00 a 20:00");
+        entry.setKeywords("horario");
+        entry = knowledgeBaseRepository.save(entry);
+
+        ChatbotProperties properties = new ChatbotProperties();
+        properties.setBatchSize(50);
+        properties.setFlushIntervalMs(60_000);
+        properties.setUsageFlushIntervalMs(60_000);
+        properties.setIdBlockSize(8);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ConversationWriter writer = new ConversationWriter(
+                jdbcTemplate, new ObjectMapper(), auditorAware, properties, registry);
+        writer.start();
+
+        long firstId = 0;
+        for (int i = 0; i < 20; i++) {
+            long id = writer.nextConversationId();
+            firstId = i == 0 ? id : firstId;
+            // El usuario 999 no existe: la conversación se guarda sin usuario
+            writer.write(new ConversationWriter.ConversationRecord(id, 999L, "s-1", "Pregunta " + i, "Respuesta",
+                    null, true, 5L, "127.0.0.1", "test", "web", List.of(entry.getId()), null, null, Map.of()));
+            writer.recordUsage(entry.getId());
+        }
+        writer.stop();
+
+        List<ChatbotConversation> saved = conversationRepository.findAll();
+        assertEquals(20, saved.size());
+        assertTrue(conversationRepository.findById(firstId).isPresent());
+        assertNull(saved.get(0).getUser());
+        assertEquals("[" + entry.getId() + "]", saved.get(0).getKnowledgeBaseEntriesUsed());
+        assertNull(saved.get(0).getEntitiesDetected());
+        assertEquals(20, knowledgeBaseRepository.findById(entry.getId()).orElseThrow().getUsageCount());
+        assertEquals(20.0, registry.counter("chatbot.writer.written").count());
+    }
+
+    @Test
+    void flushesUsageWhileBatchesKeepFilling() throws InterruptedException {
+        ChatbotKnowledgeBase entry = new ChatbotKnowledgeBase();
+        entry.setTopic("Horarios");
+        entry.setQuestion("¿Cuál es el horario?");
+        entry.setAnswer("De 7:00 a 20:00");
+        entry.setKeywords("horario");
+        entry = knowledgeBaseRepository.save(entry);
+
+        ChatbotProperties properties = new ChatbotProperties();
+        properties.setBatchSize(1);
+        properties.setFlushIntervalMs(60_000);
+        properties.setUsageFlushIntervalMs(50);
+        ConversationWriter writer = new ConversationWriter(
+                jdbcTemplate, new ObjectMapper(), auditorAware, properties, new SimpleMeterRegistry());
+        writer.start();
+
+        // Carga sostenida: siempre hay un lote lleno esperando
+        Long entryId = entry.getId();
+        Thread producer = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                writer.write(new ConversationWriter.ConversationRecord(writer.nextConversationId(), null, "s-2",
+                        "Pregunta", "Respuesta", null, true, 5L, null, null, "web", List.of(entryId), null, null, null));
+                writer.recordUsage(entryId);
+            }
+        });
+        producer.start();
+        try {
+            long deadline = System.currentTimeMillis() + 5_000;
+            int usage = 0;
+            while (usage == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+                usage = jdbcTemplate.queryForObject(
+                        "SELECT usage_count FROM chatbot_knowledge_base WHERE id = ?", Integer.class, entryId);
+            }
+            assertTrue(usage > 0, "Los usos no se escribieron mientras llegaban conversaciones");
+        } finally {
+            producer.interrupt();
+            producer.join();
+            writer.stop();
+        }
+    }
+}
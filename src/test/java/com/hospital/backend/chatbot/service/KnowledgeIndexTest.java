@@ -0,0 +1,70 @@
+package com.hospital.backend.chatbot.service;
+
+import com.hospital.backend.chatbot.dto.response.KnowledgeBaseEntryResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KnowledgeIndexTest {
+
+    @Test
+    void ranksByRelevanceIgnoringAccentsAndPlurals() {
+        KnowledgeIndex index = new KnowledgeIndex();
+        index.rebuild(List.of(
+                entry(1L, "Horarios", "¿Cuál es el horario de atención?", "Atendemos de 7:00 a 20:00.", "horario,atención"),
+                entry(2L, "Citas", "¿Cómo reservo una cita con un cardiólogo?", "Desde la sección Citas.", "cita,cardiología"),
+                entry(3L, "Pagos", "¿Qué medios de pago aceptan?", "Tarjeta y transferencia; las citas se pagan al reservar.", "pago")));
+
+        List<KnowledgeIndex.Hit> hits = index.search("Quiero reservar CITAS con cardiologos", 5);
+
+        assertEquals(2L, hits.get(0).entry().getId());
+        assertEquals(3L, hits.get(1).entry().getId());
+        assertTrue(hits.get(0).score() > hits.get(1).score());
+        assertTrue(index.search("el de la", 5).isEmpty());
+    }
+
+    @Test
+    void appliesUpdatesTogglesAndDeletes() {
+        KnowledgeIndex index = new KnowledgeIndex();
+        index.rebuild(List.of(entry(1L, "Horarios", "Horario de atención", "De lunes a viernes.", null)));
+
+        KnowledgeBaseEntryResponse updated = entry(1L, "Horarios", "Horario de urgencias", "Las 24 horas.", null);
+        index.upsert(updated);
+        assertTrue(index.search("atención", 5).isEmpty());
+        assertEquals(1L, index.search("urgencias", 5).get(0).entry().getId());
+
+        index.upsert(entry(2L, "Urgencias", "¿Dónde queda urgencias?", "Planta baja.", null));
+        assertEquals(2, index.search("urgencia", 5).size());
+
+        updated.setIsActive(false);
+        index.upsert(updated);
+        index.remove(2L);
+        assertEquals(0, index.size());
+        assertTrue(index.search("urgencias", 5).isEmpty());
+
+        // Tras muchas bajas se compacta y sigue respondiendo igual
+        for (long id = 10; id < 200; id++) {
+            index.upsert(entry(id, "Tema", "Pregunta " + id, "Respuesta", null));
+            index.remove(id);
+        }
+        index.upsert(entry(500L, "Vacunas", "Calendario de vacunación", "Consulte en pediatría.", null));
+        assertEquals(1, index.size());
+        assertEquals(500L, index.search("vacunas", 5).get(0).entry().getId());
+    }
+
+    private static KnowledgeBaseEntryResponse entry(Long id, String topic, String question, String answer, String keywords) {
+        KnowledgeBaseEntryResponse entry = new KnowledgeBaseEntryResponse();
+        entry.setId(id);
+        entry.setTopic(topic);
+        entry.setQuestion(question);
+        entry.setAnswer(answer);
+        entry.setKeywords(keywords);
+        entry.setIsActive(true);
+        entry.setPriority(5);
+        entry.setUsageCount(0);
+        return entry;
+    }
+}
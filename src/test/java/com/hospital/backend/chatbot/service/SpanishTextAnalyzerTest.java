@@ -0,0 +1,34 @@
+package com.hospital.backend.chatbot.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SpanishTextAnalyzerTest {
+
+    @Test
+    void foldsAccentsDropsPunctuationAndStopwordsAndStems() {
+        assertEquals(List.of("cardiolog", "cardiolog", "doctor", "luz", "cita", "año", "24"),
+                SpanishTextAnalyzer.analyze("¿Los CARDIÓLOGOS, la cardióloga... doctores; luces y citas del año 24?"));
+        // Texto descompuesto (NFD): la marca combinable no corta la palabra
+        assertEquals(List.of("atencion"), SpanishTextAnalyzer.analyze("atencio\u0301n tambie\u0301n"));
+        assertEquals(List.of(), SpanishTextAnalyzer.analyze(" ¡¿...?! "));
+    }
+
+    @Test
+    void decomposedEnieStaysDistinctFromN() {
+        // "an\u0303o" es "año" en NFD: no debe confundirse con "ano"
+        assertEquals(List.of("año"), SpanishTextAnalyzer.analyze("an\u0303o"));
+        assertEquals(List.of("año"), SpanishTextAnalyzer.analyze("AN\u0303O"));
+        assertEquals(List.of("ano"), SpanishTextAnalyzer.analyze("ano"));
+        assertEquals(List.of("año", "atención"), SpanishTextAnalyzer.searchTerms("an\u0303o atencio\u0301n"));
+    }
+
+    @Test
+    void searchTermsKeepAccentsForStoredText() {
+        assertEquals(List.of("atención", "cardiólogos", "sábado"),
+                SpanishTextAnalyzer.searchTerms("¿Atención de CARDIÓLOGOS el sábado? También"));
+    }
+}
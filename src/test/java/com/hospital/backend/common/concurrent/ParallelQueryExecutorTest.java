@@ -0,0 +1,57 @@
+package com.hospital.backend.common.concurrent;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelQueryExecutorTest {
+
+    private final ParallelQueryExecutor executor = new ParallelQueryExecutor(4, 10, 2000);
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    void independentTasksRunInParallel() {
+        long start = System.nanoTime();
+        try (ParallelQueryExecutor.Scope scope = executor.open()) {
+            ParallelQueryExecutor.Result<Integer> first = scope.fork("a", () -> sleepAndReturn(300, 1), 0);
+            ParallelQueryExecutor.Result<Integer> second = scope.fork("b", () -> sleepAndReturn(300, 2), 0);
+            ParallelQueryExecutor.Result<Integer> third = scope.fork("c", () -> sleepAndReturn(300, 3), 0);
+
+            assertEquals(6, first.get() + second.get() + third.get());
+        }
+        long elapsedMs = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        assertTrue(elapsedMs < 800, "La latencia debe seguir a la tarea más lenta, fue " + elapsedMs + " ms");
+    }
+
+    @Test
+    void slowOrFailingTasksFallBackWithoutAffectingOthers() {
+        try (ParallelQueryExecutor.Scope scope = executor.open(Duration.ofMillis(200))) {
+            ParallelQueryExecutor.Result<Integer> fast = scope.fork("rápida", () -> 1, 0);
+            ParallelQueryExecutor.Result<Integer> slow = scope.fork("lenta", () -> sleepAndReturn(5000, 2), -1);
+            ParallelQueryExecutor.Result<Integer> failing = scope.fork("con error", () -> {
+                throw new IllegalStateException("fallo");
+            }, -2);
+
+            assertEquals(1, fast.get());
+            assertFalse(fast.isFallback());
+            assertEquals(-1, slow.get());
+            assertTrue(slow.isFallback());
+            assertEquals(-2, failing.get());
+            assertTrue(failing.isFallback());
+        }
+    }
+
+    private static int sleepAndReturn(long millis, int value) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+}
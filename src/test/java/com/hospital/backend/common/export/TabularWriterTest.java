@@ -0,0 +1,84 @@
+package com.hospital.backend.common.export;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TabularWriterTest {
+
+    @Test
+    void csvEscapesSeparatorsQuotesAndFormulas() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TabularWriter writer = TabularWriter.csv(out)) {
+            writer.writeRow("Nombre", "Monto", "Nota");
+            writer.writeRow("Pérez, Ana", new BigDecimal("-10.50"), "dijo \"hola\"");
+            writer.writeRow("=SUM(A1)", null, true);
+        }
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertEquals("\uFEFFNombre,Monto,Nota\r\n" +
+                "\"Pérez, Ana\",-10.50,\"dijo \"\"hola\"\"\"\r\n" +
+                "'=SUM(A1),,true\r\n", csv);
+    }
+
+    @Test
+    void xlsxIsAValidPackageWithInlineRows() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TabularWriter writer = TabularWriter.xlsx(out, "Citas")) {
+            writer.writeRow("ID", "Paciente");
+            writer.writeRow(1L, "Ana <& Co>");
+        }
+
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+
+        assertTrue(entries.containsKey("[Content_Types].xml"));
+        assertTrue(entries.containsKey("_rels/.rels"));
+        assertTrue(entries.get("xl/workbook.xml").contains("name=\"Citas\""));
+        String sheet = entries.get("xl/worksheets/sheet1.xml");
+        assertTrue(sheet.contains("<row><c><v>1</v></c><c t=\"inlineStr\"><is><t xml:space=\"preserve\">Ana &lt;&amp; Co&gt;</t></is></c></row>"));
+        assertTrue(sheet.endsWith("</sheetData></worksheet>"));
+    }
+
+    @Test
+    void xlsxFlushSendsRowsBeforeTheSheetCloses(@TempDir Path dir) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TabularWriter writer = TabularWriter.xlsx(out, "Citas");
+        writer.flush();
+        int before = out.size();
+
+        writer.writeRow(1L, "Ana");
+        writer.flush();
+        assertTrue(out.size() > before, "El flush debería emitir la fila comprimida");
+
+        writer.close();
+        Path file = dir.resolve("citas.xlsx");
+        Files.write(file, out.toByteArray());
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            String sheet = new String(zip.getInputStream(zip.getEntry("xl/worksheets/sheet1.xml")).readAllBytes(),
+                    StandardCharsets.UTF_8);
+            assertTrue(sheet.contains("<row><c><v>1</v></c><c t=\"inlineStr\"><is><t xml:space=\"preserve\">Ana</t></is></c></row>"));
+            assertEquals(5, zip.size());
+        }
+    }
+}
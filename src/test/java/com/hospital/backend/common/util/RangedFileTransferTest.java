@@ -0,0 +1,87 @@
+package com.hospital.backend.common.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RangedFileTransferTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sendsWholeFileOrRequestedRange() throws IOException {
+        Path file = Files.writeString(directory.resolve("report.csv"), "0123456789", StandardCharsets.UTF_8);
+
+        MockHttpServletResponse full = send(file, null);
+        assertEquals(200, full.getStatus());
+        assertEquals("0123456789", full.getContentAsString());
+        assertEquals("bytes", full.getHeader("Accept-Ranges"));
+
+        MockHttpServletResponse partial = send(file, "bytes=2-5");
+        assertEquals(206, partial.getStatus());
+        assertEquals("2345", partial.getContentAsString());
+        assertEquals("bytes 2-5/10", partial.getHeader("Content-Range"));
+        assertEquals(4, partial.getContentLength());
+
+        MockHttpServletResponse suffix = send(file, "bytes=-3");
+        assertEquals(206, suffix.getStatus());
+        assertEquals("789", suffix.getContentAsString());
+
+        MockHttpServletResponse unsatisfiable = send(file, "bytes=20-");
+        assertEquals(416, unsatisfiable.getStatus());
+        assertEquals("bytes */10", unsatisfiable.getHeader("Content-Range"));
+    }
+
+    @Test
+    void sendsEmptyFileWithoutBody() throws IOException {
+        Path file = Files.createFile(directory.resolve("empty.csv"));
+
+        MockHttpServletResponse full = send(file, null);
+        assertEquals(200, full.getStatus());
+        assertEquals(0, full.getContentLength());
+        assertEquals("", full.getContentAsString());
+        assertNull(full.getHeader("Content-Range"));
+
+        MockHttpServletResponse ranged = send(file, "bytes=0-");
+        assertEquals(416, ranged.getStatus());
+        assertEquals("bytes */0", ranged.getHeader("Content-Range"));
+    }
+
+    @Test
+    void delegatesToSendfileWhenTheContainerSupportsIt() throws IOException {
+        Path file = Files.writeString(directory.resolve("report.csv"), "0123456789", StandardCharsets.UTF_8);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=4-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        RangedFileTransfer.send(request, response, file, "report.csv", "text/csv");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("", response.getContentAsString());
+        assertEquals(4L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(file.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals("bytes 4-9/10", response.getHeader("Content-Range"));
+    }
+
+    private static MockHttpServletResponse send(Path file, String range) throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (range != null) {
+            request.addHeader("Range", range);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        RangedFileTransfer.send(request, response, file, "report.csv", "text/csv");
+        return response;
+    }
+}
@@ -0,0 +1,89 @@
+package com.hospital.backend.security;
+
+import com.hospital.backend.auth.entity.User;
+import com.hospital.backend.common.exception.UnauthorizedException;
+import com.hospital.backend.config.JwtProperties;
+import com.hospital.backend.enums.UserRole;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtTokenProviderTest {
+
+    @Test
+    void reusesVerifiedClaimsButStillRejectsTamperedTokens() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(properties(), registry);
+        String token = tokenProvider.generateToken(user());
+
+        Claims first = tokenProvider.validateToken(token);
+        assertSame(first, tokenProvider.validateToken(token));
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").counter().count());
+
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("A") ? "BB" : "AA");
+        assertThrows(UnauthorizedException.class, () -> tokenProvider.validateToken(tampered));
+    }
+
+    @Test
+    void carriesTheTokenVersionOfTheUser() {
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(properties(), new SimpleMeterRegistry());
+        User user = user();
+        String oldToken = tokenProvider.generateToken(user);
+
+        user.revokeTokens();
+        assertEquals(0, tokenProvider.getTokenVersion(tokenProvider.validateToken(oldToken)));
+        assertEquals(1, tokenProvider.getTokenVersion(tokenProvider.validateToken(tokenProvider.generateToken(user))));
+    }
+
+    @Test
+    void evictsTheSoonestExpiringTokensWhenTheCacheIsFull() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        JwtProperties properties = properties();
+        properties.setVerifiedTokenCacheSize(10);
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(properties, registry);
+        JwtProperties shortLived = properties();
+        shortLived.setExpirationTime(30_000);
+        String soonest = new JwtTokenProvider(shortLived, registry).generateToken(user(1L));
+
+        tokenProvider.validateToken(soonest);
+        List<String> tokens = new ArrayList<>();
+        for (long id = 2; id <= 11; id++) {
+            tokens.add(tokenProvider.generateToken(user(id)));
+            tokenProvider.validateToken(tokens.get(tokens.size() - 1));
+        }
+        assertEquals(10.0, registry.get("cache.size").tag("cache", JwtTokenProvider.CACHE_NAME).gauge().value());
+
+        // Sólo salió el que vencía antes: el resto sigue en caché
+        for (String token : tokens) {
+            tokenProvider.validateToken(token);
+        }
+        assertEquals(10.0, registry.get("cache.gets").tag("result", "hit").counter().count());
+    }
+
+    private static JwtProperties properties() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("test-secret-key-for-jwt-token-provider-0123456789");
+        properties.setExpirationTime(60_000);
+        properties.setIssuer("hospital-api");
+        return properties;
+    }
+
+    private static User user() {
+        return user(7L);
+    }
+
+    private static User user(long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("ana@urovital.pe");
+        user.setRole(UserRole.PATIENT);
+        return user;
+    }
+}
@@ -0,0 +1,22 @@
+package com.hospital.backend.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PathPrefixMatcherTest {
+
+    @Test
+    void matchesTheSamePathsAsStartsWith() {
+        List<String> prefixes = JwtAuthenticationFilter.EXCLUDED_PATHS;
+        PathPrefixMatcher matcher = new PathPrefixMatcher(prefixes);
+
+        for (String path : List.of("/api/auth/login", "/auth/", "/auth", "/api/appointments/me", "/api/doctors/3",
+                "/doctors", "/swagger-ui/index.html", "/swagger", "/api/patients/register", "/api/patients/7",
+                "/api/actuator/health", "/", "")) {
+            assertEquals(prefixes.stream().anyMatch(path::startsWith), matcher.matches(path), path);
+        }
+    }
+}
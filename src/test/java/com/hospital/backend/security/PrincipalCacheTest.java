@@ -0,0 +1,58 @@
+package com.hospital.backend.security;
+
+import com.hospital.backend.auth.entity.User;
+import com.hospital.backend.auth.repository.UserRepository;
+import com.hospital.backend.config.JwtProperties;
+import com.hospital.backend.enums.UserRole;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PrincipalCacheTest {
+
+    @Test
+    void servesRepeatedLookupsFromMemoryUntilEvicted() {
+        UserRepository userRepository = mock(UserRepository.class);
+        User user = user(7L);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        PrincipalCache cache = new PrincipalCache(userRepository, properties(), new SimpleMeterRegistry());
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("ana@urovital.pe", cache.get(7L).email());
+        }
+        verify(userRepository, times(1)).findById(7L);
+
+        user.setIsActive(false);
+        user.revokeTokens();
+        cache.evict(7L);
+        PrincipalCache.CachedPrincipal reloaded = cache.get(7L);
+        assertFalse(reloaded.active());
+        assertEquals(1, reloaded.tokenVersion());
+        verify(userRepository, times(2)).findById(7L);
+
+        assertNull(cache.get(8L));
+    }
+
+    private static JwtProperties properties() {
+        JwtProperties properties = new JwtProperties();
+        return properties;
+    }
+
+    private static User user(Long id) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail("ana@urovital.pe");
+        user.setRole(UserRole.PATIENT);
+        user.setIsActive(true);
+        return user;
+    }
+}
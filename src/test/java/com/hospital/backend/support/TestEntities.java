@@ -0,0 +1,82 @@
+package com.hospital.backend.support;
+
+import com.hospital.backend.appointment.entity.Appointment;
+import com.hospital.backend.auth.entity.User;
+import com.hospital.backend.catalog.entity.Specialty;
+import com.hospital.backend.enums.AppointmentStatus;
+import com.hospital.backend.enums.Gender;
+import com.hospital.backend.enums.TimeBlock;
+import com.hospital.backend.enums.UserRole;
+import com.hospital.backend.user.entity.Doctor;
+import com.hospital.backend.user.entity.Patient;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Entidades mínimas válidas para las pruebas con {@code @DataJpaTest}, ya persistidas.
+ *
+ * Los índices generan DNI, email y CMP únicos: doctores con DNI 2xxxxxxx y pacientes con 1xxxxxxx.
+ */
+public final class TestEntities {
+
+    private final TestEntityManager entityManager;
+
+    public TestEntities(TestEntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public Specialty specialty(String name) {
+        Specialty specialty = new Specialty();
+        specialty.setName(name);
+        specialty.setConsultationPrice(new BigDecimal("120.00"));
+        return entityManager.persist(specialty);
+    }
+
+    public Doctor doctor(int index) {
+        Doctor doctor = new Doctor();
+        doctor.setUser(user("2" + String.format("%07d", index), "doctor" + index, UserRole.DOCTOR));
+        doctor.setCmpNumber("CMP" + index);
+        doctor.setFirstName("Doctor");
+        doctor.setLastName("Número " + index);
+        doctor.setPhone("999000" + index);
+        return entityManager.persist(doctor);
+    }
+
+    public Patient patient(int index) {
+        Patient patient = new Patient();
+        patient.setUser(user("1" + String.format("%07d", index), "patient" + index, UserRole.PATIENT));
+        patient.setFirstName("Paciente");
+        patient.setLastName("Número " + index);
+        patient.setBirthDate(LocalDate.of(1990, 1, 1));
+        patient.setGender(Gender.FEMALE);
+        patient.setPhone("988000" + index);
+        return entityManager.persist(patient);
+    }
+
+    public User user(String dni, String alias, UserRole role) {
+        User user = new User();
+        user.setDni(dni);
+        user.setEmail(alias + "@urovital.test");
+        user.setPasswordHash("hash");
+        user.setRole(role);
+        return entityManager.persist(user);
+    }
+
+    /**
+     * Cita de control en el bloque de la mañana
+     */
+    public Appointment appointment(Patient patient, Doctor doctor, Specialty specialty, LocalDate date,
+                                   AppointmentStatus status) {
+        Appointment appointment = new Appointment();
+        appointment.setPatient(patient);
+        appointment.setDoctor(doctor);
+        appointment.setSpecialty(specialty);
+        appointment.setAppointmentDate(date);
+        appointment.setTimeBlock(TimeBlock.MORNING);
+        appointment.setReason("Control");
+        appointment.setStatus(status);
+        return entityManager.persist(appointment);
+    }
+}
@@ -0,0 +1,168 @@
+-- ============================================================================
+-- BENCHMARK: audit_logs común vs. particionada por mes (PostgreSQL 13+)
+--
+-- Genera varios años de logs sintéticos en dos tablas con el mismo contenido y compara
+-- las consultas de AuditLogRepository, la búsqueda de texto y la retención (DELETE vs. DROP de particiones).
+-- No toca las tablas de la aplicación: usa el esquema audit_bench.
+--
+-- Uso:
+--   psql -d db_hospital -v years=5 -v rows_per_day=20000 -f audit_partitioning.sql
+-- ============================================================================
+
+\set ON_ERROR_STOP on
+\timing on
+
+\if :{?years}
+\else
+  \set years 5
+\endif
+\if :{?rows_per_day}
+\else
+  \set rows_per_day 20000
+\endif
+
+-- Las variables de psql no se expanden dentro de bloques DO
+SELECT set_config('audit_bench.years', :'years', false);
+
+DROP SCHEMA IF EXISTS audit_bench CASCADE;
+CREATE SCHEMA audit_bench;
+SET search_path = audit_bench;
+
+-- Tabla común, como la crea Hibernate
+CREATE TABLE plain_logs (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT,
+    username VARCHAR(100),
+    operation_type VARCHAR(255) NOT NULL,
+    entity_name VARCHAR(100) NOT NULL,
+    entity_id BIGINT,
+    module VARCHAR(50),
+    status BOOLEAN NOT NULL,
+    description TEXT,
+    execution_time_ms BIGINT,
+    created_at TIMESTAMP(6) NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL
+);
+CREATE INDEX plain_logs_created_at ON plain_logs (created_at);
+
+-- Tabla particionada, como la deja AuditPartitionService
+CREATE TABLE part_logs (LIKE plain_logs INCLUDING DEFAULTS EXCLUDING IDENTITY) PARTITION BY RANGE (created_at);
+CREATE SEQUENCE part_logs_id_seq OWNED BY part_logs.id;
+ALTER TABLE part_logs ALTER COLUMN id SET DEFAULT nextval('part_logs_id_seq');
+ALTER TABLE part_logs ADD PRIMARY KEY (id, created_at);
+CREATE INDEX part_logs_created_at ON part_logs (created_at);
+
+DO $$
+DECLARE
+    first_month DATE := date_trunc('month', now())::date
+                         - make_interval(years => current_setting('audit_bench.years')::int);
+    m DATE;
+BEGIN
+    m := first_month;
+    WHILE m <= date_trunc('month', now())::date LOOP
+        EXECUTE format('CREATE TABLE part_logs_y%sm%s PARTITION OF part_logs FOR VALUES FROM (%L) TO (%L)',
+                       to_char(m, 'YYYY'), to_char(m, 'MM'), m, (m + INTERVAL '1 month')::date);
+        m := (m + INTERVAL '1 month')::date;
+    END LOOP;
+END
+$$;
+
+-- Datos sintéticos: rows_per_day logs por día durante los últimos :years años
+INSERT INTO plain_logs (user_id, username, operation_type, entity_name, entity_id, module, status,
+                        description, execution_time_ms, created_at, updated_at)
+SELECT (random() * 500)::bigint,
+       'user' || (random() * 500)::int,
+       (ARRAY['CREATE','UPDATE','DELETE','ACCESS','LOGIN','EXPORT'])[1 + (random() * 5)::int],
+       (ARRAY['Patient','Doctor','Appointment','Payment','User'])[1 + (random() * 4)::int],
+       (random() * 100000)::bigint,
+       (ARRAY['patients','doctors','appointments','payments','auth'])[1 + (random() * 4)::int],
+       random() > 0.03,
+       'Operación sintética',
+       (random() * 400)::bigint,
+       ts, ts
+FROM generate_series(date_trunc('month', now()) - make_interval(years => :years), now(),
+                     make_interval(secs => 86400.0 / :rows_per_day)) AS ts;
+
+INSERT INTO part_logs SELECT * FROM plain_logs;
+ANALYZE plain_logs;
+ANALYZE part_logs;
+
+SELECT 'plain_logs' AS tabla, count(*) AS filas, pg_size_pretty(pg_total_relation_size('plain_logs')) AS tamano
+FROM plain_logs
+UNION ALL
+SELECT 'part_logs', (SELECT count(*) FROM part_logs),
+       pg_size_pretty((SELECT sum(pg_total_relation_size(inhrelid)) FROM pg_inherits
+                       WHERE inhparent = 'part_logs'::regclass));
+
+-- Planes genéricos, como los que usa el driver JDBC tras varias ejecuciones de la misma consulta
+SET plan_cache_mode = force_generic_plan;
+
+-- 1. AuditLogRepository.search: últimos 30 días, con filtros y conteo de la página
+PREPARE plain_search(timestamp, timestamp, boolean) AS
+    SELECT * FROM plain_logs WHERE created_at >= $1 AND created_at <= $2 AND status = $3
+    ORDER BY created_at DESC LIMIT 20;
+PREPARE part_search(timestamp, timestamp, boolean) AS
+    SELECT * FROM part_logs WHERE created_at >= $1 AND created_at <= $2 AND status = $3
+    ORDER BY created_at DESC LIMIT 20;
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE plain_search(now() - INTERVAL '30 days', now(), false);
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE part_search(now() - INTERVAL '30 days', now(), false);
+
+-- 2. AuditLogRepository.countErrorsByModule: un mes completo de hace un año
+PREPARE plain_errors(timestamp, timestamp) AS
+    SELECT module, count(*) FROM plain_logs WHERE status = false AND created_at BETWEEN $1 AND $2
+    GROUP BY module ORDER BY 2 DESC;
+PREPARE part_errors(timestamp, timestamp) AS
+    SELECT module, count(*) FROM part_logs WHERE status = false AND created_at BETWEEN $1 AND $2
+    GROUP BY module ORDER BY 2 DESC;
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE plain_errors(date_trunc('month', now()) - INTERVAL '12 months',
+                                                date_trunc('month', now()) - INTERVAL '11 months');
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE part_errors(date_trunc('month', now()) - INTERVAL '12 months',
+                                               date_trunc('month', now()) - INTERVAL '11 months');
+
+-- 3. AuditLogRepository.findByDateRange (conteo de la página): una semana
+EXPLAIN (ANALYZE, BUFFERS) SELECT count(*) FROM plain_logs
+    WHERE created_at BETWEEN now() - INTERVAL '7 days' AND now();
+EXPLAIN (ANALYZE, BUFFERS) SELECT count(*) FROM part_logs
+    WHERE created_at BETWEEN now() - INTERVAL '7 days' AND now();
+
+-- 4. AuditSearchService: búsqueda de texto con ranking sobre el índice GIN de expresión
+CREATE INDEX part_logs_search ON part_logs USING GIN ((
+    setweight(to_tsvector('spanish', coalesce(entity_name, '')), 'A') ||
+    setweight(to_tsvector('spanish', coalesce(username, '')), 'A') ||
+    setweight(to_tsvector('spanish', coalesce(description, '')), 'B')));
+ANALYZE part_logs;
+PREPARE part_text(text, timestamp, timestamp) AS
+    SELECT a.* FROM part_logs a, websearch_to_tsquery('spanish', $1) q
+    WHERE (setweight(to_tsvector('spanish', coalesce(a.entity_name, '')), 'A') ||
+        setweight(to_tsvector('spanish', coalesce(a.username, '')), 'A') ||
+        setweight(to_tsvector('spanish', coalesce(a.description, '')), 'B')) @@ q
+      AND a.created_at >= $2 AND a.created_at <= $3
+    ORDER BY ts_rank_cd((setweight(to_tsvector('spanish', coalesce(a.entity_name, '')), 'A') ||
+        setweight(to_tsvector('spanish', coalesce(a.username, '')), 'A') ||
+        setweight(to_tsvector('spanish', coalesce(a.description, '')), 'B')), q) DESC,
+        a.created_at DESC LIMIT 50;
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE part_text('user42 payment', now() - INTERVAL '30 days', now());
+EXPLAIN (ANALYZE, BUFFERS) EXECUTE part_text('"user42" -login', now() - INTERVAL '365 days', now());
+
+RESET plan_cache_mode;
+
+-- 5. Retención de 24 meses: DELETE en la tabla común vs. DROP de las particiones vencidas
+BEGIN;
+EXPLAIN (ANALYZE) DELETE FROM plain_logs WHERE created_at < date_trunc('month', now()) - INTERVAL '24 months';
+ROLLBACK;
+
+BEGIN;
+DO $$
+DECLARE
+    p RECORD;
+BEGIN
+    FOR p IN SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+             WHERE i.inhparent = 'audit_bench.part_logs'::regclass
+               AND c.relname < 'part_logs_y' || to_char(now() - INTERVAL '24 months', 'YYYY"m"MM') LOOP
+        EXECUTE format('DROP TABLE audit_bench.%I', p.relname);
+    END LOOP;
+END
+$$;
+ROLLBACK;
+
+DROP SCHEMA audit_bench CASCADE;